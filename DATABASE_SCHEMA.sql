@@ -33,9 +33,34 @@ CREATE TABLE layouts (
     document_path VARCHAR(500),
     has_court_case BOOLEAN DEFAULT FALSE,
     zone_classification VARCHAR(100),
-    setback_compliance DECIMAL(5,2) DEFAULT 100.00
+    setback_compliance DECIMAL(5,2) DEFAULT 100.00,
+    -- Outline of the layout as WKT, e.g. POLYGON((lon lat, lon lat, ...))
+    boundary TEXT,
+    -- Geohash of latitude/longitude, kept in step by the application
+    geohash VARCHAR(12),
+    -- Set to CURRENT_TIMESTAMP by the application on every write, so the
+    -- map can fetch only the layouts changed since it last looked
+    last_modified TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Supports keyset pagination of search results (newest first)
+CREATE INDEX idx_layouts_application_date ON layouts (application_date, file_number);
+
+-- Supports bounding box and radius queries for the map
+CREATE INDEX idx_layouts_geohash ON layouts (geohash);
+
+-- Supports fetching the layouts changed since a point in time
+CREATE INDEX idx_layouts_last_modified ON layouts (last_modified);
+
+-- Layouts deleted through the application, so clients that synced
+-- earlier learn to drop them; rows older than any client's sync can go
+CREATE TABLE layout_deletions (
+    file_number VARCHAR(50) NOT NULL,
+    deleted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_layout_deletions_deleted_at ON layout_deletions (deleted_at);
+
 -- Court Cases table
 CREATE TABLE court_cases (
     case_id VARCHAR(50) PRIMARY KEY,
@@ -0,0 +1,85 @@
+package com.satya.portal.benchmarks;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.satya.portal.DBConnection;
+import com.satya.portal.models.Layout;
+import com.satya.portal.models.LayoutSearchCriteria;
+import com.satya.portal.utils.DatabaseManager;
+
+/**
+ * Queries of DatabaseManager against the embedded H2 backend
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DatabaseBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int layouts;
+
+    private DatabaseManager databaseManager;
+    private LayoutSearchCriteria statusPage;
+    private LayoutSearchCriteria textSearch;
+
+    @Setup
+    public void setUp() throws SQLException {
+        databaseManager = LayoutFixtures.openDatabase(layouts);
+
+        // The first page of a status filter, as the search tab loads it
+        statusPage = new LayoutSearchCriteria();
+        statusPage.setStatus(Layout.STATUS_PENDING);
+        statusPage.setLimit(200);
+
+        // Free text plus an owner, which no index can serve
+        textSearch = new LayoutSearchCriteria();
+        textSearch.setQuery("Valley");
+        textSearch.setOwner("Reddy");
+    }
+
+    @TearDown
+    public void tearDown() {
+        DBConnection.shutdown();
+    }
+
+    @Benchmark
+    public List<Layout> searchLayoutsByStatus() {
+        return databaseManager.searchLayouts(statusPage);
+    }
+
+    @Benchmark
+    public List<Layout> searchLayoutsByText() {
+        return databaseManager.searchLayouts(textSearch);
+    }
+
+    @Benchmark
+    public List<Layout> getAllLayouts() {
+        return databaseManager.getAllLayouts();
+    }
+
+    @Benchmark
+    public Map<String, Object> getDashboardStatistics() {
+        // Measure the queries, not the cached counters
+        databaseManager.invalidateDashboardStatistics();
+        return databaseManager.getDashboardStatistics();
+    }
+}
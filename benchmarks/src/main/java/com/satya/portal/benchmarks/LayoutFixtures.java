@@ -0,0 +1,158 @@
+package com.satya.portal.benchmarks;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.satya.portal.DBConnection;
+import com.satya.portal.models.BatchResult;
+import com.satya.portal.models.Layout;
+import com.satya.portal.utils.DataManager;
+import com.satya.portal.utils.DatabaseManager;
+/**
+ * Generated layouts for the benchmarks. The same count always gives the
+ * same layouts, so results of different releases compare like with like.
+ * Databases are kept under satya.bench.fixtures (default target/fixtures)
+ * and reused by later runs; filling one with a million layouts takes
+ * minutes.
+ */
+public final class LayoutFixtures {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LayoutFixtures.class);
+
+    /** File numbers of generated layouts start with this */
+    public static final String FILE_NUMBER_PREFIX = "BENCH-";
+
+    private static final long SEED = 20240601L;
+    private static final int LOAD_CHUNK = 10000;
+
+    private static final String[] NAME_WORDS = {
+        "Green", "Valley", "Sunrise", "Enclave", "Metro", "Heights", "Palm", "Gardens", "Royal",
+        "Tech", "City", "Farmers", "Colony", "Coastal", "View", "Villas", "Lake", "Nagar", "Sai",
+        "Krishna", "Lakshmi", "Residency", "Township", "Avenue", "Meadows", "Phase"
+    };
+    private static final String[] GIVEN_NAMES = {
+        "Rajesh", "Sita", "Anil", "Venkat", "Lakshmi", "Srinivas", "Padma", "Ramesh", "Suresh",
+        "Kavitha", "Naresh", "Ravi", "Sravani", "Mahesh", "Anjali", "Prasad", "Vijaya", "Krishna"
+    };
+    private static final String[] FAMILY_NAMES = {
+        "Kumar", "Devi", "Reddy", "Rao", "Naidu", "Chowdary", "Sharma", "Varma", "Prasad", "Murthy"
+    };
+    private static final String[] DISTRICTS = {
+        "Nellore", "Kavali", "Gudur", "Atmakur", "Sullurpeta", "Kovur", "Udayagiri", "Venkatagiri"
+    };
+    // Roughly the mix of a real register: most layouts are settled
+    private static final String[] STATUSES = {
+        Layout.STATUS_APPROVED, Layout.STATUS_APPROVED, Layout.STATUS_APPROVED, Layout.STATUS_APPROVED,
+        Layout.STATUS_PENDING, Layout.STATUS_PENDING, Layout.STATUS_UNDER_REVIEW,
+        Layout.STATUS_REJECTED, Layout.STATUS_UNAUTHORIZED
+    };
+
+    private LayoutFixtures() {
+        // Utility class
+    }
+
+    /**
+     * Generate layouts spread over the Nellore district
+     *
+     * @param from Position of the first layout in the generated sequence
+     * @param count Number of layouts
+     * @return Layouts from..from+count-1 of the sequence
+     */
+    public static List<Layout> generate(int from, int count) {
+        List<Layout> layouts = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            // One generator per layout, so any slice of the sequence is the same
+            Random random = new Random(SEED * 31 + i);
+            String name = NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " "
+                    + NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " " + (1 + random.nextInt(9));
+            String owner = GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)] + " "
+                    + FAMILY_NAMES[random.nextInt(FAMILY_NAMES.length)];
+            String survey = "Sy.No. " + (1 + random.nextInt(999)) + ", " + DISTRICTS[random.nextInt(DISTRICTS.length)];
+            layouts.add(new Layout(String.format("%s%07d", FILE_NUMBER_PREFIX, i), name,
+                    STATUSES[random.nextInt(STATUSES.length)], owner, survey,
+                    Math.round((0.2 + random.nextDouble() * 20) * 100) / 100.0,
+                    LocalDate.of(2015, 1, 1).plusDays(random.nextInt(3650)),
+                    13.6 + random.nextDouble() * 1.6, 79.3 + random.nextDouble() * 0.9,
+                    "Generated for benchmarks", 10 + random.nextInt(490)));
+        }
+        return layouts;
+    }
+
+    /**
+     * Point DBConnection at an embedded database holding the sample data of
+     * DATABASE_SCHEMA.sql plus count generated layouts, creating it if needed.
+     * Must be called before anything else opens a connection.
+     *
+     * @param count Number of generated layouts
+     * @return The DatabaseManager reading it
+     * @throws SQLException if the database cannot be created
+     */
+    public static DatabaseManager openDatabase(int count) throws SQLException {
+        File directory = new File(System.getProperty("satya.bench.fixtures", "target/fixtures"));
+        String path = new File(directory, "layouts-" + count).getAbsolutePath();
+        System.setProperty("db.backend", "h2");
+        System.setProperty("db.h2.storage", "file");
+        System.setProperty("db.h2.path", path);
+
+        if (countGenerated() != count) {
+            // Missing, or left incomplete by an interrupted run
+            DBConnection.shutdown();
+            new File(path + ".mv.db").delete();
+            new File(path + ".trace.db").delete();
+            load(count);
+        }
+        return DatabaseManager.getInstance();
+    }
+
+    private static int countGenerated() throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT COUNT(*) FROM layouts WHERE file_number LIKE '" + FILE_NUMBER_PREFIX + "%'")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    private static void load(int count) throws SQLException {
+        LOGGER.info("Creating a benchmark database with {} layouts", count);
+        DatabaseManager databaseManager = DatabaseManager.getInstance();
+        for (int from = 0; from < count; from += LOAD_CHUNK) {
+            BatchResult result = databaseManager.addLayouts(generate(from, Math.min(LOAD_CHUNK, count - from)));
+            if (!result.getFailures().isEmpty()) {
+                throw new SQLException("Could not load benchmark layouts: " + result.getFailures().get(0).getMessage());
+            }
+        }
+        try (Connection connection = DBConnection.getConnection();
+             Statement statement = connection.createStatement()) {
+            // Give the query planner row counts and value distributions
+            statement.execute("ANALYZE");
+        }
+    }
+
+    /**
+     * Make DataManager serve its in-memory sample data plus count generated
+     * layouts. Must be called before anything else uses DataManager.
+     *
+     * @param count Number of generated layouts
+     * @return The DataManager serving them
+     */
+    public static DataManager openSampleData(int count) {
+        // An empty database has no layouts table, so DataManager keeps its data in memory
+        System.setProperty("db.backend", "mysql");
+        System.setProperty("db.url", "jdbc:h2:mem:empty");
+        DataManager dataManager = DataManager.getInstance();
+        for (int from = 0; from < count; from += LOAD_CHUNK) {
+            dataManager.addLayouts(generate(from, Math.min(LOAD_CHUNK, count - from)));
+        }
+        return dataManager;
+    }
+}
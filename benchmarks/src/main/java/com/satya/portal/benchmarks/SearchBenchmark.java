@@ -0,0 +1,74 @@
+package com.satya.portal.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.satya.portal.models.Layout;
+import com.satya.portal.models.LayoutSearchCriteria;
+import com.satya.portal.utils.DataManager;
+
+/**
+ * Searches of DataManager's in-memory sample data, as served when no
+ * database is reachable
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+    // Rows per page of SearchPanel's results table
+    private static final int PAGE_SIZE = 200;
+
+    @Param({"10000", "100000", "1000000"})
+    public int layouts;
+
+    private DataManager dataManager;
+    private LayoutSearchCriteria dataManagerCriteria;
+    private LayoutSearchCriteria searchPanelCriteria;
+
+    @Setup
+    public void setUp() {
+        dataManager = LayoutFixtures.openSampleData(layouts);
+
+        dataManagerCriteria = new LayoutSearchCriteria();
+        dataManagerCriteria.setQuery("Green");
+        dataManagerCriteria.setStatus(Layout.STATUS_APPROVED);
+
+        // What SearchPanel builds from its basic filters
+        searchPanelCriteria = new LayoutSearchCriteria();
+        searchPanelCriteria.setQuery("Nellore");
+        searchPanelCriteria.setStatus(Layout.STATUS_PENDING);
+        searchPanelCriteria.setOwner("Rao");
+        searchPanelCriteria.setAreaRange(LayoutSearchCriteria.AreaRange.FROM_2_TO_5);
+    }
+
+    @Benchmark
+    public List<Layout> dataManagerSearch() {
+        return dataManager.searchLayouts(dataManagerCriteria);
+    }
+
+    /**
+     * A search from the search tab: count the results, then fetch the
+     * first page of the table
+     */
+    @Benchmark
+    public void searchPanelSearch(Blackhole blackhole) {
+        blackhole.consume(dataManager.countLayouts(searchPanelCriteria));
+        blackhole.consume(dataManager.searchLayoutsPage(searchPanelCriteria, null, PAGE_SIZE));
+    }
+}
@@ -0,0 +1,193 @@
+package com.satya.portal.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jxmapviewer.JXMapViewer;
+import org.jxmapviewer.OSMTileFactoryInfo;
+import org.jxmapviewer.viewer.DefaultTileFactory;
+import org.jxmapviewer.viewer.GeoPosition;
+import org.jxmapviewer.viewer.TileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.roots.map.ColoredWaypoint;
+import com.roots.map.WaypointLayer;
+import com.satya.portal.models.Layout;
+
+/**
+ * The clustered map at district scale: painting one frame of generated
+ * layouts, and the Event Dispatch Thread's share of a refresh that
+ * replaces {@link #CHANGED} of them. Runs headless; no tiles are loaded,
+ * only the projection is used.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx2g"})
+public class WaypointClusterBenchmark {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 800;
+    // The whole Nellore district fits the window at this zoom
+    private static final int DISTRICT_ZOOM = 10;
+    /** Layouts removed and added by one refresh */
+    private static final int CHANGED = 300;
+
+    private static List<ColoredWaypoint> waypoints(int from, int count) {
+        List<ColoredWaypoint> waypoints = new ArrayList<>(count);
+        for (Layout layout : LayoutFixtures.generate(from, count)) {
+            waypoints.add(new ColoredWaypoint(layout.getFileNumber(), layout.getLatitude(),
+                    layout.getLongitude(), layout.getLayoutName(), layout.getStatus()));
+        }
+        return waypoints;
+    }
+
+    private static WaypointLayer layer(List<ColoredWaypoint> waypoints, TileFactory tileFactory, int zoom) {
+        WaypointLayer layer = new WaypointLayer();
+        layer.apply(WaypointLayer.prepare(Collections.<ColoredWaypoint>emptyList(), waypoints, tileFactory, zoom));
+        return layer;
+    }
+
+    /**
+     * A map window over the district with every layout shown
+     */
+    @State(Scope.Thread)
+    public static class Frame {
+        @Param({"100000"})
+        public int layouts;
+
+        /** 10 shows the whole district in a few dozen clusters, 8 fills the window with them */
+        @Param({"10", "8"})
+        public int zoom;
+
+        private WaypointLayer layer;
+        private JXMapViewer viewer;
+        private BufferedImage image;
+        private Graphics2D graphics;
+
+        @Setup
+        public void setUp() {
+            TileFactory tileFactory = new DefaultTileFactory(new OSMTileFactoryInfo());
+            viewer = new JXMapViewer();
+            viewer.setTileFactory(tileFactory);
+            viewer.setSize(WIDTH, HEIGHT);
+            viewer.setZoom(zoom);
+            viewer.setAddressLocation(new GeoPosition(14.4, 79.75));
+            layer = layer(waypoints(0, layouts), tileFactory, zoom);
+            image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+            graphics = image.createGraphics();
+        }
+
+        @TearDown
+        public void tearDown() {
+            graphics.dispose();
+        }
+    }
+
+    /**
+     * One frame of the clustered map, as MapPanel paints it
+     */
+    @Benchmark
+    public BufferedImage paintClusteredFrame(Frame frame) {
+        frame.layer.paint(frame.graphics, frame.viewer, WIDTH, HEIGHT);
+        return frame.image;
+    }
+
+    /**
+     * A map refresh whose diff has been prepared off the EDT. Alternates
+     * between the original layouts and a set with {@link #CHANGED} of them
+     * replaced.
+     */
+    @State(Scope.Thread)
+    public static class Refresh {
+        @Param({"100000"})
+        public int layouts;
+
+        private TileFactory tileFactory;
+        private WaypointLayer layer;
+        private List<ColoredWaypoint> original;
+        private List<ColoredWaypoint> changed;
+        private boolean showingChanged;
+        private WaypointLayer.Update next;
+
+        @Setup
+        public void setUp() {
+            tileFactory = new DefaultTileFactory(new OSMTileFactoryInfo());
+            original = waypoints(0, layouts);
+            changed = new ArrayList<>(original.subList(CHANGED, layouts));
+            changed.addAll(waypoints(layouts, CHANGED));
+            layer = layer(original, tileFactory, DISTRICT_ZOOM);
+        }
+
+        @Setup(Level.Invocation)
+        public void prepare() {
+            next = WaypointLayer.prepare(layer.getWaypoints(), showingChanged ? original : changed,
+                    tileFactory, DISTRICT_ZOOM);
+            showingChanged = !showingChanged;
+        }
+    }
+
+    /**
+     * The EDT's share of a refresh: {@link WaypointLayer#apply}
+     */
+    @Benchmark
+    public WaypointLayer applyRefresh(Refresh refresh) {
+        refresh.layer.apply(refresh.next);
+        return refresh.layer;
+    }
+
+    /**
+     * Changes from the map's change feed. Alternates between replacing
+     * {@link #CHANGED} layouts with others and putting them back.
+     */
+    @State(Scope.Thread)
+    public static class Changes {
+        @Param({"100000"})
+        public int layouts;
+
+        private TileFactory tileFactory;
+        private WaypointLayer layer;
+        private List<ColoredWaypoint> replaced;
+        private List<ColoredWaypoint> replacements;
+        private boolean showingReplacements;
+
+        @Setup
+        public void setUp() {
+            tileFactory = new DefaultTileFactory(new OSMTileFactoryInfo());
+            List<ColoredWaypoint> original = waypoints(0, layouts);
+            replaced = new ArrayList<>(original.subList(0, CHANGED));
+            replacements = waypoints(layouts, CHANGED);
+            layer = layer(original, tileFactory, DISTRICT_ZOOM);
+        }
+    }
+
+    /**
+     * Changes applied in place on the EDT with {@link WaypointLayer#applyChanges}
+     */
+    @Benchmark
+    public WaypointLayer applyChanges(Changes changes) {
+        if (changes.showingReplacements) {
+            changes.layer.applyChanges(changes.replaced, changes.replacements, changes.tileFactory, DISTRICT_ZOOM);
+        } else {
+            changes.layer.applyChanges(changes.replacements, changes.replaced, changes.tileFactory, DISTRICT_ZOOM);
+        }
+        changes.showingReplacements = !changes.showingReplacements;
+        return changes.layer;
+    }
+}
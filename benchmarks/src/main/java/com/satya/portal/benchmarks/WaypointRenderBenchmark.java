@@ -0,0 +1,120 @@
+package com.satya.portal.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jxmapviewer.JXMapViewer;
+import org.jxmapviewer.OSMTileFactoryInfo;
+import org.jxmapviewer.viewer.DefaultTileFactory;
+import org.jxmapviewer.viewer.GeoPosition;
+import org.jxmapviewer.viewer.TileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.roots.map.ColoredWaypoint;
+import com.roots.map.ColoredWaypointRenderer;
+import com.satya.portal.models.Layout;
+
+/**
+ * Painting of layout pins into an offscreen image of the map's size.
+ * Runs headless; no tiles are loaded, only the projection is used.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class WaypointRenderBenchmark {
+    private static final int WAYPOINTS = 1000;
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 800;
+    private static final int ZOOM = 10;
+    private static final String[] STATUSES = {
+        Layout.STATUS_APPROVED, Layout.STATUS_PENDING, Layout.STATUS_UNDER_REVIEW,
+        Layout.STATUS_REJECTED, Layout.STATUS_UNAUTHORIZED
+    };
+
+    private final ColoredWaypointRenderer renderer = new ColoredWaypointRenderer();
+    private JXMapViewer viewer;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private ColoredWaypoint[] waypoints;
+    private int[] x;
+    private int[] y;
+
+    @Setup
+    public void setUp() {
+        TileFactory tileFactory = new DefaultTileFactory(new OSMTileFactoryInfo());
+        viewer = new JXMapViewer();
+        viewer.setTileFactory(tileFactory);
+        viewer.setSize(WIDTH, HEIGHT);
+        viewer.setZoom(ZOOM);
+        viewer.setAddressLocation(new GeoPosition(14.4426, 79.9865));
+        Rectangle viewport = viewer.getViewportBounds();
+
+        // Pins spread over the visible map, like the layouts of one district
+        Random random = new Random(42);
+        waypoints = new ColoredWaypoint[WAYPOINTS];
+        x = new int[WAYPOINTS];
+        y = new int[WAYPOINTS];
+        for (int i = 0; i < WAYPOINTS; i++) {
+            x[i] = random.nextInt(WIDTH);
+            y[i] = random.nextInt(HEIGHT);
+            GeoPosition position = tileFactory.pixelToGeo(
+                    new Point2D.Double(viewport.x + x[i], viewport.y + y[i]), ZOOM);
+            waypoints[i] = new ColoredWaypoint("L" + i, position.getLatitude(), position.getLongitude(),
+                    "Layout " + i, STATUSES[i % STATUSES.length]);
+        }
+
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+        // The painter draws in world pixels, offset by the viewport as JXMapViewer does
+        graphics.translate(-viewport.x, -viewport.y);
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    /**
+     * The WaypointRenderer entry point: projects every waypoint
+     */
+    @Benchmark
+    @OperationsPerInvocation(WAYPOINTS)
+    public BufferedImage paintWaypoint() {
+        for (ColoredWaypoint waypoint : waypoints) {
+            renderer.paintWaypoint(graphics, viewer, waypoint);
+        }
+        return image;
+    }
+
+    /**
+     * A batch of already projected waypoints, as WaypointLayer paints them
+     */
+    @Benchmark
+    @OperationsPerInvocation(WAYPOINTS)
+    public BufferedImage paintProjectedWaypoint() {
+        Rectangle viewport = viewer.getViewportBounds();
+        renderer.prepare(graphics);
+        for (int i = 0; i < WAYPOINTS; i++) {
+            renderer.paintWaypoint(graphics, waypoints[i], viewport.x + x[i], viewport.y + y[i], true);
+        }
+        return image;
+    }
+}
@@ -0,0 +1,303 @@
+package com.roots.map;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jxmapviewer.JXMapViewer;
+import org.jxmapviewer.painter.Painter;
+import org.jxmapviewer.viewer.GeoPosition;
+import org.jxmapviewer.viewer.TileFactory;
+
+import com.satya.portal.models.LayoutBoundary;
+
+/**
+ * Painter for layout outlines. The outlines are projected once, off the
+ * EDT, and every vertex is ranked by {@link PolylineSimplifier}, so each
+ * zoom level gets a Douglas-Peucker simplified {@link Path2D} that is built
+ * the first time an outline is seen at that level and then reused. Only
+ * outlines overlapping the viewport are drawn, and outlines too small to
+ * make out are left to their waypoint. An update made from the previous
+ * one projects only the outlines that are new to it.
+ */
+public class BoundaryLayer implements Painter<JXMapViewer> {
+    // Simplification may move an outline by at most this many screen pixels
+    private static final double TOLERANCE = 0.5;
+    // Outlines smaller than this on screen are not drawn; the waypoint
+    // layer already marks them with a pin or cluster
+    private static final int MIN_SIZE = 8;
+    private static final int CACHED_ZOOM_LEVELS = 4;
+    // Beyond this many visible outlines, they are drawn without
+    // anti-aliasing and with one pixel lines, which Java2D rasterizes
+    // without widening the outline into a shape first
+    private static final int SMOOTH_OUTLINES = 500;
+    private static final Stroke OUTLINE_STROKE = new BasicStroke(1.5f);
+    private static final Stroke THIN_STROKE = new BasicStroke(1.0f);
+    private static final int FILL_ALPHA = 50;
+
+    private Update data;
+    // Paths per zoom level, in that level's map pixels, indexed like the outlines
+    private final Map<Integer, Path2D[]> paths = new LinkedHashMap<Integer, Path2D[]>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Path2D[]> eldest) {
+            return size() > CACHED_ZOOM_LEVELS;
+        }
+    };
+    private final Map<Color, Color> fillColors = new HashMap<>();
+
+    /**
+     * Project and rank the outlines to show. Safe to call off the EDT.
+     * @param boundaries the outlines
+     * @param tileFactory the map's tile factory
+     * @return the update to pass to {@link #apply(Update)}
+     */
+    public static Update prepare(List<ColoredBoundary> boundaries, TileFactory tileFactory) {
+        return prepare(boundaries, tileFactory, null);
+    }
+
+    /**
+     * Project and rank the outlines to show, reusing the work done for
+     * equal outlines in a previous update. Safe to call off the EDT.
+     * @param boundaries the outlines
+     * @param tileFactory the map's tile factory
+     * @param previous the update shown so far, or null
+     * @return the update to pass to {@link #apply(Update)}
+     */
+    public static Update prepare(List<ColoredBoundary> boundaries, TileFactory tileFactory, Update previous) {
+        Map<ColoredBoundary, Integer> reusable = new HashMap<>();
+        if (previous != null && previous.tileFactory == tileFactory) {
+            for (int i = 0; i < previous.size; i++) {
+                reusable.put(previous.boundaries.get(i), i);
+            }
+        }
+        int n = boundaries.size();
+        Update update = new Update(boundaries, tileFactory, n);
+        for (int i = 0; i < n; i++) {
+            Integer known = reusable.get(boundaries.get(i));
+            if (known != null) {
+                int j = known;
+                update.rings[i] = previous.rings[j];
+                update.importance[i] = previous.importance[j];
+                update.minX[i] = previous.minX[j];
+                update.minY[i] = previous.minY[j];
+                update.maxX[i] = previous.maxX[j];
+                update.maxY[i] = previous.maxY[j];
+                continue;
+            }
+            LayoutBoundary boundary = boundaries.get(i).getBoundary();
+            double[][] rings = new double[boundary.getRingCount()][];
+            float[][] importance = new float[rings.length][];
+            for (int r = 0; r < rings.length; r++) {
+                int points = boundary.getPointCount(r);
+                double[] xy = new double[points * 2];
+                for (int p = 0; p < points; p++) {
+                    Point2D pixel = tileFactory.geoToPixel(
+                            new GeoPosition(boundary.getLatitude(r, p), boundary.getLongitude(r, p)), 0);
+                    xy[2 * p] = pixel.getX();
+                    xy[2 * p + 1] = pixel.getY();
+                }
+                rings[r] = xy;
+                importance[r] = PolylineSimplifier.ringImportance(xy);
+            }
+            // The outer ring bounds the holes
+            double[] outer = rings[0];
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < outer.length; k += 2) {
+                minX = Math.min(minX, outer[k]);
+                maxX = Math.max(maxX, outer[k]);
+                minY = Math.min(minY, outer[k + 1]);
+                maxY = Math.max(maxY, outer[k + 1]);
+            }
+            update.rings[i] = rings;
+            update.importance[i] = importance;
+            update.minX[i] = minX;
+            update.minY[i] = minY;
+            update.maxX[i] = maxX;
+            update.maxY[i] = maxY;
+        }
+        return update;
+    }
+
+    /**
+     * Show the outlines of a prepared update. Must be called on the EDT.
+     * @param update the update from {@link #prepare}
+     */
+    public void apply(Update update) {
+        this.data = update;
+        paths.clear();
+    }
+
+    /**
+     * Get the update shown, to prepare the next one from
+     * @return the update, or null before the first one
+     */
+    public Update getUpdate() {
+        return data;
+    }
+
+    /**
+     * Get the outlines shown
+     * @return the outlines
+     */
+    public List<ColoredBoundary> getBoundaries() {
+        return data != null ? data.boundaries : Collections.<ColoredBoundary>emptyList();
+    }
+
+    @Override
+    public void paint(Graphics2D g, JXMapViewer map, int width, int height) {
+        // Outlines are projected for one tile factory; MapPanel never replaces it
+        if (data == null || data.size == 0 || data.tileFactory != map.getTileFactory()) {
+            return;
+        }
+        int zoom = map.getZoom();
+        TileFactory tileFactory = map.getTileFactory();
+        double scale = mapWidth(tileFactory, zoom) / mapWidth(tileFactory, 0);
+        Rectangle viewport = map.getViewportBounds();
+        // Viewport in the most detailed level's pixels, which the outlines use
+        double left = (viewport.getMinX() - MIN_SIZE) / scale;
+        double top = (viewport.getMinY() - MIN_SIZE) / scale;
+        double right = (viewport.getMaxX() + MIN_SIZE) / scale;
+        double bottom = (viewport.getMaxY() + MIN_SIZE) / scale;
+        double minSize = MIN_SIZE / scale;
+
+        Path2D[] levelPaths = paths.get(zoom);
+        if (levelPaths == null) {
+            levelPaths = new Path2D[data.size];
+            paths.put(zoom, levelPaths);
+        }
+
+        int visible = 0;
+        int[] drawn = data.visible;
+        for (int i = 0; i < data.size; i++) {
+            if (data.maxX[i] < left || data.minX[i] > right || data.maxY[i] < top || data.minY[i] > bottom) {
+                continue;
+            }
+            if (data.maxX[i] - data.minX[i] < minSize && data.maxY[i] - data.minY[i] < minSize) {
+                continue;
+            }
+            drawn[visible++] = i;
+        }
+        if (visible == 0) {
+            return;
+        }
+
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.translate(-viewport.x, -viewport.y);
+            boolean dense = visible > SMOOTH_OUTLINES;
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    dense ? RenderingHints.VALUE_ANTIALIAS_OFF : RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setStroke(dense ? THIN_STROKE : OUTLINE_STROKE);
+            double tolerance = TOLERANCE / scale;
+            for (int k = 0; k < visible; k++) {
+                int i = drawn[k];
+                Path2D path = levelPaths[i];
+                if (path == null) {
+                    path = buildPath(data.rings[i], data.importance[i], scale, tolerance);
+                    levelPaths[i] = path;
+                }
+                Color color = data.boundaries.get(i).getColor();
+                g2.setColor(fillColor(color));
+                g2.fill(path);
+                g2.setColor(color);
+                g2.draw(path);
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    /**
+     * Build the simplified path of an outline at one zoom level
+     * @param rings the rings in the most detailed level's pixels
+     * @param importance the importance of each vertex
+     * @param scale the ratio of the zoom level's pixels to the most detailed level's
+     * @param tolerance the simplification tolerance in the most detailed level's pixels
+     * @return the path in the zoom level's pixels
+     */
+    private static Path2D buildPath(double[][] rings, float[][] importance, double scale, double tolerance) {
+        Path2D path = new Path2D.Double(Path2D.WIND_EVEN_ODD);
+        for (int r = 0; r < rings.length; r++) {
+            double[] xy = rings[r];
+            float[] ranks = importance[r];
+            boolean first = true;
+            for (int p = 0; p < ranks.length; p++) {
+                if (ranks[p] <= tolerance) {
+                    continue;
+                }
+                if (first) {
+                    path.moveTo(xy[2 * p] * scale, xy[2 * p + 1] * scale);
+                    first = false;
+                } else {
+                    path.lineTo(xy[2 * p] * scale, xy[2 * p + 1] * scale);
+                }
+            }
+            path.closePath();
+        }
+        return path;
+    }
+
+    private Color fillColor(Color color) {
+        Color fill = fillColors.get(color);
+        if (fill == null) {
+            fill = new Color(color.getRed(), color.getGreen(), color.getBlue(), FILL_ALPHA);
+            fillColors.put(color, fill);
+        }
+        return fill;
+    }
+
+    private static double mapWidth(TileFactory tileFactory, int zoom) {
+        return (double) tileFactory.getMapSize(zoom).width * tileFactory.getTileSize(zoom);
+    }
+
+    /**
+     * New outlines for the layer, prepared off the EDT
+     */
+    public static final class Update {
+        private final List<ColoredBoundary> boundaries;
+        private final TileFactory tileFactory;
+        private final int size;
+        // Rings as x, y pairs in the most detailed level's pixels
+        private final double[][][] rings;
+        private final float[][][] importance;
+        private final double[] minX;
+        private final double[] minY;
+        private final double[] maxX;
+        private final double[] maxY;
+        // Scratch list of the outlines drawn by the last paint
+        private final int[] visible;
+
+        private Update(List<ColoredBoundary> boundaries, TileFactory tileFactory, int size) {
+            this.boundaries = Collections.unmodifiableList(new ArrayList<>(boundaries));
+            this.tileFactory = tileFactory;
+            this.size = size;
+            this.rings = new double[size][][];
+            this.importance = new float[size][][];
+            this.minX = new double[size];
+            this.minY = new double[size];
+            this.maxX = new double[size];
+            this.maxY = new double[size];
+            this.visible = new int[size];
+        }
+
+        /**
+         * Get the number of outlines
+         * @return the outline count
+         */
+        public int size() {
+            return size;
+        }
+    }
+}
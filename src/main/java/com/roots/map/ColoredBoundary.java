@@ -0,0 +1,84 @@
+package com.roots.map;
+
+import java.awt.Color;
+import java.util.Objects;
+
+import com.satya.portal.models.LayoutBoundary;
+
+/**
+ * A layout outline that has a color associated with it based on layout status
+ */
+public class ColoredBoundary {
+    private final LayoutBoundary boundary;
+    private final String label;
+    private final String status;
+    private final Color color;
+
+    /**
+     * Create a new colored boundary
+     * @param boundary the outline of the layout
+     * @param label the layout name
+     * @param status the status of the layout
+     */
+    public ColoredBoundary(LayoutBoundary boundary, String label, String status) {
+        this.boundary = boundary;
+        this.label = label;
+        this.status = status;
+        this.color = ColoredWaypoint.getColorForStatus(status);
+    }
+
+    /**
+     * Get the outline
+     * @return the boundary
+     */
+    public LayoutBoundary getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * Get the label for this boundary
+     * @return the label
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Get the status of the layout
+     * @return the status
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the color of this boundary
+     * @return the color
+     */
+    public Color getColor() {
+        return color;
+    }
+
+    /**
+     * Outlines are equal when they have the same shape, label and status,
+     * so a reloaded layout that did not change matches the outline it replaces
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ColoredBoundary)) {
+            return false;
+        }
+        ColoredBoundary other = (ColoredBoundary) obj;
+        return Objects.equals(boundary, other.boundary) &&
+               Objects.equals(label, other.label) &&
+               Objects.equals(status, other.status);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(boundary, label, status);
+    }
+}
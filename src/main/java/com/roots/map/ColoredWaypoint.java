@@ -1,6 +1,9 @@
 package com.roots.map;
 
 import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.util.Objects;
 
 import org.jxmapviewer.viewer.DefaultWaypoint;
 import org.jxmapviewer.viewer.GeoPosition;
@@ -9,10 +12,15 @@ import org.jxmapviewer.viewer.GeoPosition;
  * A waypoint that has a color associated with it based on layout status
  */
 public class ColoredWaypoint extends DefaultWaypoint {
+    private final String id;
     private final String label;
     private final Color color;
     private final String status;
     
+    // Label width cached for the font it was measured with
+    private Font labelFont;
+    private int labelWidth;
+    
     /**
      * Create a new colored waypoint
      * @param latitude the latitude
@@ -21,7 +29,20 @@ public class ColoredWaypoint extends DefaultWaypoint {
      * @param status the status of the layout
      */
     public ColoredWaypoint(double latitude, double longitude, String label, String status) {
+        this(null, latitude, longitude, label, status);
+    }
+    
+    /**
+     * Create a new colored waypoint for a layout
+     * @param id the file number of the layout, or null
+     * @param latitude the latitude
+     * @param longitude the longitude
+     * @param label the label to display
+     * @param status the status of the layout
+     */
+    public ColoredWaypoint(String id, double latitude, double longitude, String label, String status) {
         super(new GeoPosition(latitude, longitude));
+        this.id = id;
         this.label = label;
         this.status = status;
         this.color = getColorForStatus(status);
@@ -35,11 +56,20 @@ public class ColoredWaypoint extends DefaultWaypoint {
      */
     public ColoredWaypoint(GeoPosition position, String label, String status) {
         super(position);
+        this.id = null;
         this.label = label;
         this.status = status;
         this.color = getColorForStatus(status);
     }
     
+    /**
+     * Get the file number of the layout this waypoint marks
+     * @return the file number, or null
+     */
+    public String getId() {
+        return id;
+    }
+    
     /**
      * Get the label for this waypoint
      * @return the label
@@ -48,6 +78,19 @@ public class ColoredWaypoint extends DefaultWaypoint {
         return label;
     }
     
+    /**
+     * Get the width of the label, measured once per font
+     * @param metrics metrics of the font the label is drawn with
+     * @return the label width in pixels
+     */
+    int getLabelWidth(FontMetrics metrics) {
+        if (labelFont != metrics.getFont()) {
+            labelWidth = label != null ? metrics.stringWidth(label) : 0;
+            labelFont = metrics.getFont();
+        }
+        return labelWidth;
+    }
+
     /**
      * Get the color for this waypoint based on status
      * @return the color
@@ -89,4 +132,29 @@ public class ColoredWaypoint extends DefaultWaypoint {
                 return Color.GRAY;
         }
     }
+    
+    /**
+     * Waypoints are equal when they mark the same layout with the same label
+     * and status at the same position, so a reloaded layout that did not
+     * change matches the waypoint it replaces
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ColoredWaypoint)) {
+            return false;
+        }
+        ColoredWaypoint other = (ColoredWaypoint) obj;
+        return getPosition().equals(other.getPosition()) &&
+               Objects.equals(id, other.id) &&
+               Objects.equals(label, other.label) &&
+               Objects.equals(status, other.status);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(getPosition(), id, label, status);
+    }
 }
\ No newline at end of file
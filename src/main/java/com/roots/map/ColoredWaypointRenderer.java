@@ -3,11 +3,15 @@ package com.roots.map;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Graphics2D;
-import java.awt.Point;
 import java.awt.RenderingHints;
+import java.awt.Stroke;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.jxmapviewer.JXMapViewer;
 import org.jxmapviewer.viewer.WaypointRenderer;
@@ -18,49 +22,136 @@ import org.jxmapviewer.viewer.WaypointRenderer;
 public class ColoredWaypointRenderer implements WaypointRenderer<ColoredWaypoint> {
     private static final int PIN_RADIUS = 8;
     private static final int LABEL_OFFSET = 5;
-    
+    private static final Font LABEL_FONT = new Font("Segoe UI", Font.PLAIN, 12);
+    private static final Stroke BORDER_STROKE = new BasicStroke(1.0f);
+    private static final Stroke CLUSTER_STROKE = new BasicStroke(2.0f);
+    private static final Font COUNT_FONT = new Font("Segoe UI", Font.BOLD, 12);
+    private static final int CLUSTER_MIN_RADIUS = 12;
+    private static final int CLUSTER_MAX_RADIUS = 26;
+
+    // Pins and cluster bubbles are drawn once per color and size and then
+    // copied, which is much cheaper than filling and stroking an
+    // anti-aliased circle for every waypoint.
+    // Painting only happens on the EDT.
+    private final Map<Color, BufferedImage> pinImages = new HashMap<>();
+    private final Map<Long, BufferedImage> bubbleImages = new HashMap<>();
+
     @Override
     public void paintWaypoint(Graphics2D g, JXMapViewer viewer, ColoredWaypoint waypoint) {
         // Get the position of the waypoint on the map
         Point2D point2d = viewer.getTileFactory().geoToPixel(waypoint.getPosition(), viewer.getZoom());
-        Point position = new Point((int) point2d.getX(), (int) point2d.getY());
-        
+
         // Enable anti-aliasing for smoother rendering
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        
+        prepare(g);
+        paintWaypoint(g, waypoint, (int) point2d.getX(), (int) point2d.getY(), true);
+    }
+
+    private BufferedImage pinImage(Color color) {
+        BufferedImage image = pinImages.get(color);
+        if (image == null) {
+            int size = PIN_RADIUS * 2 + 3;
+            image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = image.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setStroke(BORDER_STROKE);
+            Ellipse2D circle = new Ellipse2D.Double(1, 1, PIN_RADIUS * 2, PIN_RADIUS * 2);
+            g.setColor(color);
+            g.fill(circle);
+
+            // Draw border around the circle
+            g.setColor(Color.BLACK);
+            g.draw(circle);
+            g.dispose();
+            pinImages.put(color, image);
+        }
+        return image;
+    }
+
+    private BufferedImage bubbleImage(Color color, int radius) {
+        long key = ((long) color.getRGB() << 8) | radius;
+        BufferedImage image = bubbleImages.get(key);
+        if (image == null) {
+            int size = radius * 2 + 5;
+            image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = image.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), 210));
+            g.fillOval(2, 2, radius * 2, radius * 2);
+            g.setStroke(CLUSTER_STROKE);
+            g.setColor(Color.WHITE);
+            g.drawOval(2, 2, radius * 2, radius * 2);
+            g.dispose();
+            bubbleImages.put(key, image);
+        }
+        return image;
+    }
+
+    /**
+     * Set the font shared by all labels. Call once before
+     * painting a batch of waypoints with {@link #paintWaypoint(Graphics2D, ColoredWaypoint, int, int, boolean)}.
+     * @param g the graphics to paint with
+     */
+    public void prepare(Graphics2D g) {
+        g.setFont(LABEL_FONT);
+    }
+
+    /**
+     * Paint a waypoint at an already projected position
+     * @param g the graphics to paint with, prepared by {@link #prepare(Graphics2D)}
+     * @param waypoint the waypoint
+     * @param x the x coordinate in the graphics' space
+     * @param y the y coordinate in the graphics' space
+     * @param withLabel whether to draw the label below the pin
+     */
+    public void paintWaypoint(Graphics2D g, ColoredWaypoint waypoint, int x, int y, boolean withLabel) {
         // Draw the pin as a colored circle
-        Color pinColor = waypoint.getColor();
-        g.setColor(pinColor);
-        
-        // Fill the circle
-        Ellipse2D circle = new Ellipse2D.Double(
-            position.x - PIN_RADIUS, 
-            position.y - PIN_RADIUS, 
-            PIN_RADIUS * 2, 
-            PIN_RADIUS * 2
-        );
-        g.fill(circle);
-        
-        // Draw border around the circle
-        g.setColor(Color.BLACK);
-        g.setStroke(new BasicStroke(1.0f));
-        g.draw(circle);
-        
+        paintPin(g, waypoint.getColor(), x, y);
+
         // Draw the label below the pin
         String label = waypoint.getLabel();
-        if (label != null && !label.isEmpty()) {
+        if (withLabel && label != null && !label.isEmpty()) {
             g.setColor(Color.BLACK);
-            g.setFont(new Font("Segoe UI", Font.PLAIN, 12));
-            
-            // Get font metrics to center the text
-            int labelWidth = g.getFontMetrics().stringWidth(label);
-            
+            FontMetrics metrics = g.getFontMetrics();
+            int labelWidth = waypoint.getLabelWidth(metrics);
+
             // Draw the label centered below the pin
-            g.drawString(
-                label, 
-                position.x - labelWidth / 2, 
-                position.y + PIN_RADIUS + LABEL_OFFSET + g.getFontMetrics().getAscent()
-            );
+            g.drawString(label, x - labelWidth / 2, y + PIN_RADIUS + LABEL_OFFSET + metrics.getAscent());
         }
     }
+
+    /**
+     * Paint a pin without a label
+     * @param g the graphics to paint with
+     * @param color the pin color
+     * @param x the x coordinate in the graphics' space
+     * @param y the y coordinate in the graphics' space
+     */
+    public void paintPin(Graphics2D g, Color color, int x, int y) {
+        g.drawImage(pinImage(color), x - PIN_RADIUS - 1, y - PIN_RADIUS - 1, null);
+    }
+
+    /**
+     * Paint a cluster as a bubble in its dominant status color, sized by
+     * and labelled with the number of waypoints in it
+     * @param g the graphics to paint with
+     * @param cluster the cluster
+     * @param x the x coordinate in the graphics' space
+     * @param y the y coordinate in the graphics' space
+     */
+    public void paintCluster(Graphics2D g, WaypointClusters.Cluster cluster, int x, int y) {
+        int count = cluster.getCount();
+        int radius = (int) Math.min(CLUSTER_MAX_RADIUS, CLUSTER_MIN_RADIUS + 4 * Math.log10(count));
+        Color color = cluster.getColor();
+        g.drawImage(bubbleImage(color, radius), x - radius - 2, y - radius - 2, null);
+
+        String text = count < 10000 ? Integer.toString(count) : (count / 1000) + "k";
+        Font font = g.getFont();
+        g.setFont(COUNT_FONT);
+        FontMetrics metrics = g.getFontMetrics();
+        // Dark text stays readable on the light status colors
+        g.setColor(color == Color.GREEN || color == Color.ORANGE ? Color.BLACK : Color.WHITE);
+        g.drawString(text, x - metrics.stringWidth(text) / 2, y + (metrics.getAscent() - metrics.getDescent()) / 2);
+        g.setFont(font);
+    }
 }
\ No newline at end of file
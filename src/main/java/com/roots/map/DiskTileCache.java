@@ -0,0 +1,427 @@
+package com.roots.map;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jxmapviewer.cache.LocalCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+/**
+ * Tile cache on disk that survives restarts, so tiles seen once can be
+ * shown again without a network connection. Tiles are stored one file per
+ * tile; a memory-mapped hash table records each tile's size and when it was
+ * last used, so lookups and LRU bookkeeping never read the directory.
+ * When the cache grows past its size limit the least recently used tiles
+ * are deleted.
+ */
+public class DiskTileCache implements LocalCache, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(DiskTileCache.class);
+
+    private static final int MAGIC = 0x53544331; // "STC1"
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 24;
+    // Assumed average tile size, used to size the index
+    private static final int TYPICAL_TILE_BYTES = 8 * 1024;
+    // Eviction frees space down to this share of the limits, so it runs rarely
+    private static final double EVICT_TO = 0.9;
+    private static final double MAX_LOAD = 0.7;
+
+    private final File directory;
+    private final long maxBytes;
+    private final int capacity;
+    private final int mask;
+    private final RandomAccessFile indexFile;
+    private final MappedByteBuffer index;
+
+    private int count;
+    private long totalBytes;
+    private long clock;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private volatile boolean offline;
+
+    /**
+     * Open or create a cache
+     * @param directory the directory holding the tiles and the index
+     * @param maxBytes the maximum total size of the cached tiles
+     * @throws IOException if the directory or index cannot be created
+     */
+    public DiskTileCache(File directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        int slots = Integer.highestOneBit((int) Math.min(1 << 24, Math.max(1024, maxBytes / TYPICAL_TILE_BYTES * 2)) - 1) << 1;
+        this.capacity = slots;
+        this.mask = slots - 1;
+
+        File tiles = new File(directory, "tiles");
+        if (!tiles.isDirectory() && !tiles.mkdirs()) {
+            throw new IOException("Cannot create tile cache directory " + tiles);
+        }
+        indexFile = new RandomAccessFile(new File(directory, "index.dat"), "rw");
+        index = indexFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+
+        if (index.getInt(0) == MAGIC && index.getInt(4) == capacity) {
+            count = index.getInt(8);
+            totalBytes = index.getLong(16);
+            clock = index.getLong(24);
+        } else {
+            // New cache, or one sized differently: start empty
+            logger.info("Initialising tile cache in {}", directory);
+            deleteTiles(tiles);
+            for (int i = 0; i < HEADER_SIZE + capacity * SLOT_SIZE; i += 8) {
+                index.putLong(i, 0L);
+            }
+            index.putInt(0, MAGIC);
+            index.putInt(4, capacity);
+            writeHeader();
+        }
+    }
+
+    private static void deleteTiles(File tiles) {
+        File[] buckets = tiles.listFiles();
+        if (buckets == null) {
+            return;
+        }
+        for (File bucket : buckets) {
+            File[] files = bucket.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * When offline, tiles that are not cached fail immediately instead of
+     * being requested from the tile server
+     * @param offline true to stop downloading tiles
+     */
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    /**
+     * Check whether tile downloads are disabled
+     * @return true if only cached tiles are shown
+     */
+    public boolean isOffline() {
+        return offline;
+    }
+
+    @Override
+    public InputStream get(URL url) throws IOException {
+        long key = keyOf(url);
+        synchronized (this) {
+            int slot = find(key);
+            if (slot < 0) {
+                misses++;
+                if (offline) {
+                    throw new IOException("Working offline and tile is not cached: " + url);
+                }
+                return null;
+            }
+            setLastUsed(slot, ++clock);
+        }
+        try {
+            byte[] data = Files.readAllBytes(fileFor(key).toPath());
+            synchronized (this) {
+                hits++;
+            }
+            return new ByteArrayInputStream(data);
+        } catch (NoSuchFileException e) {
+            // Deleted behind our back; forget it and download it again
+            synchronized (this) {
+                misses++;
+                int slot = find(key);
+                if (slot >= 0) {
+                    totalBytes -= sizeAt(slot);
+                    removeAt(slot);
+                    count--;
+                    writeHeader();
+                }
+            }
+            if (offline) {
+                throw new IOException("Working offline and tile is not cached: " + url);
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public void put(URL url, InputStream data) throws IOException {
+        byte[] bytes = readAll(data);
+        long key = keyOf(url);
+        File file = fileFor(key);
+        File bucket = file.getParentFile();
+        if (!bucket.isDirectory() && !bucket.mkdirs() && !bucket.isDirectory()) {
+            throw new IOException("Cannot create " + bucket);
+        }
+        // Write under a temporary name so a crash never leaves a partial tile
+        File temp = File.createTempFile(file.getName(), ".part", bucket);
+        try {
+            Files.write(temp.toPath(), bytes);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temp.delete();
+        }
+
+        synchronized (this) {
+            int slot = find(key);
+            if (slot >= 0) {
+                totalBytes -= sizeAt(slot);
+            } else {
+                slot = insert(key);
+                count++;
+            }
+            index.putInt(slotOffset(slot) + 16, bytes.length);
+            setLastUsed(slot, ++clock);
+            totalBytes += bytes.length;
+            if (totalBytes > maxBytes || count > capacity * MAX_LOAD) {
+                evict();
+            }
+            writeHeader();
+        }
+    }
+
+    /**
+     * Check whether a tile is cached without counting it as a lookup
+     * @param url the tile URL
+     * @return true if the tile is cached
+     */
+    public synchronized boolean contains(URL url) {
+        return find(keyOf(url)) >= 0;
+    }
+
+    /**
+     * Delete the least recently used tiles until the cache is comfortably
+     * within its limits
+     */
+    private void evict() {
+        List<long[]> entries = new ArrayList<>(count);
+        for (int slot = 0; slot < capacity; slot++) {
+            long key = keyAt(slot);
+            if (key != 0) {
+                entries.add(new long[] {lastUsedAt(slot), key, sizeAt(slot)});
+            }
+        }
+        entries.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        long targetBytes = (long) (maxBytes * EVICT_TO);
+        int targetCount = (int) (capacity * MAX_LOAD * EVICT_TO);
+        for (long[] entry : entries) {
+            if (totalBytes <= targetBytes && count <= targetCount) {
+                break;
+            }
+            removeAt(find(entry[1]));
+            count--;
+            totalBytes -= entry[2];
+            evictions++;
+            if (!fileFor(entry[1]).delete()) {
+                logger.debug("Evicted tile file already gone: {}", fileFor(entry[1]));
+            }
+        }
+    }
+
+    /**
+     * Get the cache counters
+     * @return a snapshot of the statistics
+     */
+    public synchronized Statistics getStatistics() {
+        return new Statistics(count, totalBytes, maxBytes, hits, misses, evictions);
+    }
+
+    @Override
+    public synchronized void close() {
+        writeHeader();
+        index.force();
+        try {
+            indexFile.close();
+        } catch (IOException e) {
+            logger.warn("Error closing tile cache index", e);
+        }
+    }
+
+    // ---- Index: open-addressing hash table with linear probing ----
+
+    private static long keyOf(URL url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(url.toExternalForm().getBytes(StandardCharsets.UTF_8));
+            long key = 0;
+            for (int i = 0; i < 8; i++) {
+                key = (key << 8) | (digest[i] & 0xFF);
+            }
+            return key == 0 ? 1 : key; // 0 marks an empty slot
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+
+    private File fileFor(long key) {
+        String name = String.format("%016x", key);
+        return new File(new File(new File(directory, "tiles"), name.substring(0, 2)), name + ".tile");
+    }
+
+    private int home(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private int find(long key) {
+        for (int slot = home(key); ; slot = (slot + 1) & mask) {
+            long k = keyAt(slot);
+            if (k == key) {
+                return slot;
+            }
+            if (k == 0) {
+                return -1;
+            }
+        }
+    }
+
+    private int insert(long key) {
+        int slot = home(key);
+        while (keyAt(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index.putLong(slotOffset(slot), key);
+        return slot;
+    }
+
+    /**
+     * Empty a slot, moving later entries of the probe sequence back so
+     * lookups never stop early at the gap
+     */
+    private void removeAt(int slot) {
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keyAt(next) != 0; next = (next + 1) & mask) {
+            int home = home(keyAt(next));
+            boolean reachable = gap <= next ? (home > gap && home <= next) : (home > gap || home <= next);
+            if (!reachable) {
+                copySlot(next, gap);
+                gap = next;
+            }
+        }
+        index.putLong(slotOffset(gap), 0L);
+        index.putLong(slotOffset(gap) + 8, 0L);
+        index.putInt(slotOffset(gap) + 16, 0);
+    }
+
+    private void copySlot(int from, int to) {
+        index.putLong(slotOffset(to), keyAt(from));
+        index.putLong(slotOffset(to) + 8, lastUsedAt(from));
+        index.putInt(slotOffset(to) + 16, sizeAt(from));
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private long keyAt(int slot) {
+        return index.getLong(slotOffset(slot));
+    }
+
+    private long lastUsedAt(int slot) {
+        return index.getLong(slotOffset(slot) + 8);
+    }
+
+    private void setLastUsed(int slot, long time) {
+        index.putLong(slotOffset(slot) + 8, time);
+    }
+
+    private int sizeAt(int slot) {
+        return index.getInt(slotOffset(slot) + 16);
+    }
+
+    private void writeHeader() {
+        index.putInt(8, count);
+        index.putLong(16, totalBytes);
+        index.putLong(24, clock);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Snapshot of the tile cache counters
+     */
+    public static final class Statistics {
+        private final int tiles;
+        private final long bytes;
+        private final long maxBytes;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        Statistics(int tiles, long bytes, long maxBytes, long hits, long misses, long evictions) {
+            this.tiles = tiles;
+            this.bytes = bytes;
+            this.maxBytes = maxBytes;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public int getTiles() {
+            return tiles;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * Get the share of tile requests served from disk
+         * @return the hit rate between 0 and 1, 0 if no tiles were requested
+         */
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("DiskTileCache[tiles=%d, size=%.1f/%.0f MB, hits=%d, misses=%d, evictions=%d, hitRate=%.1f%%]",
+                    tiles, bytes / 1048576.0, maxBytes / 1048576.0, hits, misses, evictions, getHitRate() * 100);
+        }
+    }
+}
@@ -3,14 +3,21 @@ package com.roots.map;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Font;
+import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.logging.Logger;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.BorderFactory;
 import javax.swing.JLabel;
@@ -27,20 +34,49 @@ import org.jxmapviewer.painter.CompoundPainter;
 import org.jxmapviewer.painter.Painter;
 import org.jxmapviewer.viewer.DefaultTileFactory;
 import org.jxmapviewer.viewer.GeoPosition;
+import org.jxmapviewer.viewer.TileFactory;
 import org.jxmapviewer.viewer.TileFactoryInfo;
-import org.jxmapviewer.viewer.WaypointPainter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import com.satya.portal.DBConnection;
+import com.satya.portal.models.Layout;
+import com.satya.portal.models.LayoutBoundary;
+import com.satya.portal.models.LayoutChanges;
+import com.satya.portal.utils.AppConfig;
+import com.satya.portal.utils.BackgroundTasks;
+import com.satya.portal.utils.DataManager;
+import com.satya.portal.utils.PerformanceMonitor;
 import com.roots.map.ColoredWaypoint;
-
 /**
  * MapPanel that displays OpenStreetMap tiles with proper HTTPS support
  */
 public class MapPanel extends JPanel {
     private JXMapViewer mapViewer;
-    private WaypointPainter<ColoredWaypoint> waypointPainter;
-    private List<ColoredWaypoint> waypoints;
-    private static final Logger logger = Logger.getLogger(MapPanel.class.getName());
+    private WaypointLayer waypointLayer;
+    private BoundaryLayer boundaryLayer;
+    private DiskTileCache tileCache;
+    private final BackgroundTasks.Latest loadTask = new BackgroundTasks.Latest();
+    private final BackgroundTasks.Latest boundaryTask = new BackgroundTasks.Latest();
+    private final BackgroundTasks.Latest syncTask = new BackgroundTasks.Latest();
+    private static final Logger logger = LoggerFactory.getLogger(MapPanel.class);
+    private static final String USER_AGENT = "SATYA-Portal/1.0";
+    // Waypoints are loaded for the viewport plus this share of its size on
+    // every side, so short pans need no new query
+    private static final double VIEWPORT_MARGIN = 0.5;
+    // Loaded areas this many times larger than needed are reloaded after
+    // zooming in, to drop waypoints far outside the view
+    private static final double MAX_LOADED_AREA_RATIO = 64;
+    private static final int VIEWPORT_SETTLE_MILLIS = 250;
+    // Syncs changing more waypoints than this reload the area in the background
+    private static final int MAX_EDT_CHANGES = 2000;
+    // Area the shown waypoints were loaded for: min lat, min lon, max lat, max lon
+    private double[] loadedBounds;
+    // Waypoints and outlines shown by file number, and the database time they are current as of
+    private Map<String, ColoredWaypoint> loadedWaypoints = new HashMap<>();
+    private Map<String, ColoredBoundary> loadedBoundaries = new HashMap<>();
+    private LocalDateTime syncedUpTo;
+    private Timer viewportTimer;
+    private Timer refreshTimer;
     
     public MapPanel() {
         setLayout(new BorderLayout());
@@ -55,18 +91,31 @@ public class MapPanel extends JPanel {
     
     private void createMapViewer() {
         try {
-            // Create a JXMapViewer
-            mapViewer = new JXMapViewer();
+            // Create a JXMapViewer; repaint times feed the admin performance charts
+            mapViewer = new JXMapViewer() {
+                @Override
+                protected void paintComponent(Graphics g) {
+                    long start = System.nanoTime();
+                    super.paintComponent(g);
+                    PerformanceMonitor.recordMapRepaint(System.nanoTime() - start);
+                }
+            };
             
             // Setup tile factory using OpenStreetMap with HTTPS
             TileFactoryInfo info = new OSMTileFactoryInfo("OpenStreetMap", 
-                "https://tile.openstreetmap.org");
+                AppConfig.getString("map.tileServer.url", "https://tile.openstreetmap.org"));
             DefaultTileFactory tileFactory = new DefaultTileFactory(info);
             
             // Set user agent to comply with OSM tile usage policy
-            tileFactory.setUserAgent("SATYA-Portal/1.0");
+            tileFactory.setUserAgent(USER_AGENT);
             tileFactory.setThreadPoolSize(8); // Increase thread pool for better performance
             
+            // Keep downloaded tiles on disk so they load without the network next time
+            tileCache = openTileCache();
+            if (tileCache != null) {
+                tileFactory.setLocalCache(tileCache);
+            }
+            
             mapViewer.setTileFactory(tileFactory);
             
             // Set initial zoom and position (centered on Andhra Pradesh, India)
@@ -80,6 +129,21 @@ public class MapPanel extends JPanel {
             mapViewer.addMouseMotionListener(panListener);
             mapViewer.addMouseWheelListener(new ZoomMouseWheelListenerCursor(mapViewer));
             
+            // Load the waypoints of the new area once panning or zooming settles
+            viewportTimer = new Timer(VIEWPORT_SETTLE_MILLIS, e -> loadWaypointsFromDatabase(false));
+            viewportTimer.setRepeats(false);
+            mapViewer.addPropertyChangeListener(evt -> {
+                if ("center".equals(evt.getPropertyName()) || "zoom".equals(evt.getPropertyName())) {
+                    viewportTimer.restart();
+                }
+            });
+            mapViewer.addComponentListener(new ComponentAdapter() {
+                @Override
+                public void componentResized(ComponentEvent e) {
+                    viewportTimer.restart();
+                }
+            });
+            
             // Create a simple painter for demonstration
             Painter<JXMapViewer> painter = new Painter<JXMapViewer>() {
                 @Override
@@ -89,30 +153,116 @@ public class MapPanel extends JPanel {
                 }
             };
             
-            // Initialize waypoints list
-            waypoints = new ArrayList<>();
+            // Set up waypoint layer; it only paints the waypoints in view
+            waypointLayer = new WaypointLayer();
             
-            // Set up waypoint painter
-            waypointPainter = new WaypointPainter<>();
-            waypointPainter.setRenderer(new ColoredWaypointRenderer());
-            waypointPainter.setWaypoints(new java.util.HashSet<>(waypoints));
+            // Layout outlines are drawn beneath the waypoints
+            boundaryLayer = new BoundaryLayer();
             
             // Set up compound painter
             CompoundPainter<JXMapViewer> compoundPainter = new CompoundPainter<>();
-            compoundPainter.setPainters(painter, waypointPainter);
+            compoundPainter.setPainters(painter, boundaryLayer, waypointLayer);
             mapViewer.setOverlayPainter(compoundPainter);
             
-            // Load waypoints from database
-            loadWaypointsFromDatabase();
+            // Waypoints and outlines are loaded once the map has a size and
+            // therefore a viewport
+            
+            // Pick up layouts changed elsewhere; each sync only fetches the changes
+            int refreshSeconds = AppConfig.getInt("map.autoRefreshSeconds", 60);
+            if (refreshSeconds > 0) {
+                refreshTimer = new Timer(refreshSeconds * 1000, e -> {
+                    if (isShowing()) {
+                        syncWaypoints();
+                    }
+                });
+                refreshTimer.start();
+            }
             
         } catch (Exception e) {
-            logger.severe("Error creating map viewer: " + e.getMessage());
+            logger.error("Error creating map viewer: {}", e.getMessage());
             e.printStackTrace();
             // Create a fallback panel with error message
             createFallbackPanel();
         }
     }
     
+    private static DiskTileCache openTileCache() {
+        File directory = new File(AppConfig.getString("map.tileCache.dir",
+                System.getProperty("user.home") + File.separator + ".satya" + File.separator + "tile-cache"));
+        long maxBytes = AppConfig.getLong("map.tileCache.maxMegabytes", 512) * 1024 * 1024;
+        try {
+            DiskTileCache cache = new DiskTileCache(directory, maxBytes);
+            cache.setOffline(AppConfig.getBoolean("map.offline", false));
+            logger.info("Tile cache opened: {}", cache.getStatistics());
+            return cache;
+        } catch (IOException e) {
+            // The map still works, only without tiles surviving a restart
+            logger.warn("Tile cache unavailable in {}", directory, e);
+            return null;
+        }
+    }
+    
+    /**
+     * Show only tiles cached on disk and stop requesting new ones
+     * @param offline true to work offline
+     */
+    public void setOffline(boolean offline) {
+        if (tileCache != null) {
+            tileCache.setOffline(offline);
+            mapViewer.repaint();
+        }
+    }
+    
+    /**
+     * Check whether the map works offline
+     * @return true if no tiles are downloaded
+     */
+    public boolean isOffline() {
+        return tileCache != null && tileCache.isOffline();
+    }
+    
+    /**
+     * Get the tile cache counters
+     * @return the statistics, or null if there is no disk cache
+     */
+    public DiskTileCache.Statistics getTileCacheStatistics() {
+        return tileCache != null ? tileCache.getStatistics() : null;
+    }
+    
+    /**
+     * Create a prefetcher that downloads the visible area for offline use,
+     * from the current zoom level to a number of levels more detailed
+     * @return the prefetcher, or null if there is no disk cache
+     */
+    public TilePrefetcher createPrefetcher() {
+        if (tileCache == null) {
+            return null;
+        }
+        return new TilePrefetcher(mapViewer.getTileFactory(), tileCache, USER_AGENT,
+                AppConfig.getInt("map.prefetch.maxTiles", 5000));
+    }
+    
+    /**
+     * Get the corners of the visible area
+     * @return the top-left and bottom-right positions
+     */
+    public GeoPosition[] getVisibleArea() {
+        Rectangle viewport = mapViewer.getViewportBounds();
+        TileFactory tileFactory = mapViewer.getTileFactory();
+        return new GeoPosition[] {
+            tileFactory.pixelToGeo(new Point2D.Double(viewport.getMinX(), viewport.getMinY()), mapViewer.getZoom()),
+            tileFactory.pixelToGeo(new Point2D.Double(viewport.getMaxX(), viewport.getMaxY()), mapViewer.getZoom())
+        };
+    }
+    
+    /**
+     * Get the zoom level shown
+     * @return the zoom level
+     */
+    public int getZoom() {
+        return mapViewer.getZoom();
+    }
+    
     private void createFallbackPanel() {
         // Remove the map viewer if it was added
         removeAll();
@@ -143,45 +293,278 @@ public class MapPanel extends JPanel {
         mapViewer = new JXMapViewer();
     }
 
-    public void refreshData() {
-        // Load new data from database and update the map
-        System.out.println("MapPanel refreshed.");
-        loadWaypointsFromDatabase();
+    /**
+     * Bring the waypoints and outlines up to date in the background
+     *
+     * @return Future completed on the EDT once the map shows the new waypoints
+     */
+    public CompletableFuture<?> refreshData() {
+        return syncWaypoints();
     }
 
     /**
-     * Load waypoints from the database and add them to the map
+     * Fetch only the layouts changed since the waypoints and outlines were
+     * loaded and apply them to the map, so a refresh costs as much as the
+     * changes rather than the whole viewport. Falls back to a full reload when
+     * nothing was loaded yet or changes are not tracked.
+     *
+     * @return Future completed on the EDT once the changes are shown, or
+     *         once a full reload has started
      */
-    private void loadWaypointsFromDatabase() {
-        waypoints.clear();
-        
-        String query = "SELECT layout_name, latitude, longitude, status FROM layouts WHERE latitude IS NOT NULL AND longitude IS NOT NULL AND latitude != 0 AND longitude != 0";
+    private CompletableFuture<?> syncWaypoints() {
+        if (loadedBounds == null || syncedUpTo == null) {
+            return loadWaypointsFromDatabase(true);
+        }
+        final double[] bounds = loadedBounds;
+        final LocalDateTime since = syncedUpTo;
+        return syncTask.submit(() -> DataManager.getInstance().getLayoutChangesSince(since, true), changes -> {
+            if (bounds != loadedBounds || since != syncedUpTo) {
+                return; // A full load replaced the waypoints meanwhile
+            }
+            if (changes == null) {
+                loadWaypointsFromDatabase(true);
+                return;
+            }
+            applyLayoutChanges(changes, bounds);
+            syncedUpTo = changes.getSyncedUpTo();
+        }, error -> logger.warn("Error syncing waypoints with the database", error));
+    }
+
+    /**
+     * Work out which waypoints the changed layouts add, move or remove in
+     * the loaded area and apply only those. Must be called on the EDT.
+     */
+    private void applyLayoutChanges(LayoutChanges changes, double[] bounds) {
+        applyBoundaryChanges(changes, bounds);
+        List<ColoredWaypoint> added = new ArrayList<>();
+        List<ColoredWaypoint> removed = new ArrayList<>();
+        // Deletions first: a layout deleted and added again is in both lists
+        for (String fileNumber : changes.getDeletedFileNumbers()) {
+            ColoredWaypoint previous = loadedWaypoints.remove(fileNumber);
+            if (previous != null) {
+                removed.add(previous);
+            }
+        }
+        for (Layout layout : changes.getChanged()) {
+            ColoredWaypoint previous = loadedWaypoints.get(layout.getFileNumber());
+            ColoredWaypoint current = toWaypoint(layout, bounds);
+            if (Objects.equals(previous, current)) {
+                continue;
+            }
+            if (previous != null) {
+                removed.add(previous);
+                loadedWaypoints.remove(layout.getFileNumber());
+            }
+            if (current != null) {
+                added.add(current);
+                loadedWaypoints.put(layout.getFileNumber(), current);
+            }
+        }
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        logger.debug("Map sync: {} waypoints added, {} removed", added.size(), removed.size());
         
-        try (Connection connection = DBConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(query);
-             ResultSet resultSet = statement.executeQuery()) {
-            
-            while (resultSet.next()) {
-                String layoutName = resultSet.getString("layout_name");
-                double latitude = resultSet.getDouble("latitude");
-                double longitude = resultSet.getDouble("longitude");
-                String status = resultSet.getString("status");
-                
-                // Create a colored waypoint and add it to the list
-                ColoredWaypoint waypoint = new ColoredWaypoint(latitude, longitude, layoutName, status);
-                waypoints.add(waypoint);
+        if (added.size() + removed.size() > MAX_EDT_CHANGES) {
+            // As costly as a reload, which is prepared in the background
+            loadWaypointsFromDatabase(true);
+            return;
+        }
+        waypointLayer.applyChanges(added, removed, mapViewer.getTileFactory(), mapViewer.getZoom());
+        mapViewer.repaint();
+    }
+
+    /**
+     * Work out which outlines the changed layouts add, change or remove in
+     * the loaded area. Only those are projected, in the background; the
+     * others keep the work done for them. Must be called on the EDT.
+     */
+    private void applyBoundaryChanges(LayoutChanges changes, double[] bounds) {
+        boolean changed = false;
+        for (String fileNumber : changes.getDeletedFileNumbers()) {
+            changed |= loadedBoundaries.remove(fileNumber) != null;
+        }
+        for (Layout layout : changes.getChanged()) {
+            ColoredBoundary current = toBoundary(layout, bounds);
+            if (Objects.equals(loadedBoundaries.get(layout.getFileNumber()), current)) {
+                continue;
             }
-            
-            // Update the waypoint painter with the new waypoints
-            waypointPainter.setWaypoints(new java.util.HashSet<>(waypoints));
+            changed = true;
+            if (current != null) {
+                loadedBoundaries.put(layout.getFileNumber(), current);
+            } else {
+                loadedBoundaries.remove(layout.getFileNumber());
+            }
+        }
+        if (!changed) {
+            return;
+        }
+        final List<ColoredBoundary> boundaries = new ArrayList<>(loadedBoundaries.values());
+        final BoundaryLayer.Update previous = boundaryLayer.getUpdate();
+        final TileFactory tileFactory = mapViewer.getTileFactory();
+        boundaryTask.submit(() -> BoundaryLayer.prepare(boundaries, tileFactory, previous), update -> {
+            if (bounds != loadedBounds) {
+                return; // A full load replaced the outlines meanwhile
+            }
+            boundaryLayer.apply(update);
+            mapViewer.repaint();
+        }, error -> logger.warn("Error preparing layout boundaries", error));
+    }
+
+    /**
+     * Load the waypoints and outlines around the viewport from the database
+     * off the EDT and add them to the map. They are also projected and clustered in the
+     * background, so the EDT only applies the waypoints that changed. A
+     * newer load supersedes one still in flight.
+     *
+     * @param force true to reload even if the viewport lies in the area loaded last
+     * @return Future completed on the EDT once the map shows the new waypoints,
+     *         with null if nothing needed loading
+     */
+    private CompletableFuture<LoadedArea> loadWaypointsFromDatabase(boolean force) {
+        Rectangle viewport = mapViewer.getViewportBounds();
+        if (viewport.width <= 0 || viewport.height <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final double[] visible = geoBounds(viewport);
+        if (!force && loadedBounds != null && contains(loadedBounds, visible)
+                && area(loadedBounds) <= MAX_LOADED_AREA_RATIO * area(visible)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int marginX = (int) (viewport.width * VIEWPORT_MARGIN);
+        int marginY = (int) (viewport.height * VIEWPORT_MARGIN);
+        final double[] bounds = geoBounds(new Rectangle(viewport.x - marginX, viewport.y - marginY,
+                viewport.width + 2 * marginX, viewport.height + 2 * marginY));
+        
+        final TileFactory tileFactory = mapViewer.getTileFactory();
+        final int zoom = mapViewer.getZoom();
+        final List<ColoredWaypoint> shown = waypointLayer.getWaypoints();
+        final BoundaryLayer.Update shownBoundaries = boundaryLayer.getUpdate();
+        return loadTask.submit(() -> loadArea(shown, shownBoundaries, bounds, tileFactory, zoom), area -> {
+            // Update the layers with the new waypoints and outlines
+            boundaryTask.cancel();
+            waypointLayer.apply(area.update);
+            boundaryLayer.apply(area.boundaryUpdate);
+            loadedBounds = bounds;
+            loadedWaypoints = area.waypoints;
+            loadedBoundaries = area.boundaries;
+            syncedUpTo = area.syncTime;
             
             // Repaint the map to show the new waypoints
             mapViewer.repaint();
-            
-        } catch (SQLException e) {
-            logger.severe("Error loading waypoints from database: " + e.getMessage());
-            e.printStackTrace();
+        }, error -> logger.error("Error loading waypoints from database", error));
+    }
+
+    private static LoadedArea loadArea(List<ColoredWaypoint> shown, BoundaryLayer.Update shownBoundaries,
+                                       double[] bounds, TileFactory tileFactory, int zoom) {
+        DataManager dataManager = DataManager.getInstance();
+        // Read the sync time first, so changes made during the query are synced again
+        LocalDateTime syncTime = dataManager.getLayoutSyncTime();
+        Map<String, ColoredWaypoint> waypoints = new HashMap<>();
+        List<ColoredWaypoint> loaded = new ArrayList<>();
+        for (Layout layout : dataManager.findLayoutsInBounds(bounds[0], bounds[1], bounds[2], bounds[3])) {
+            ColoredWaypoint waypoint = toWaypoint(layout, null);
+            if (waypoint != null) {
+                loaded.add(waypoint);
+                waypoints.put(layout.getFileNumber(), waypoint);
+            }
+        }
+        Map<String, ColoredBoundary> boundaries = new HashMap<>();
+        for (Layout layout : dataManager.findLayoutBoundariesInBounds(bounds[0], bounds[1], bounds[2], bounds[3])) {
+            ColoredBoundary boundary = toBoundary(layout, null);
+            if (boundary != null) {
+                boundaries.put(layout.getFileNumber(), boundary);
+            }
         }
+        // Outlines still shown after a pan keep their projections
+        BoundaryLayer.Update boundaryUpdate = BoundaryLayer.prepare(new ArrayList<>(boundaries.values()),
+                tileFactory, shownBoundaries);
+        return new LoadedArea(WaypointLayer.prepare(shown, loaded, tileFactory, zoom), waypoints,
+                boundaryUpdate, boundaries, syncTime);
+    }
+
+    /**
+     * Get the waypoint marking a layout
+     * @param layout the layout
+     * @param bounds the area to show waypoints in, or null for anywhere
+     * @return the waypoint, or null if the layout is not to be shown
+     */
+    private static ColoredWaypoint toWaypoint(Layout layout, double[] bounds) {
+        double latitude = layout.getLatitude();
+        double longitude = layout.getLongitude();
+        // 0, 0 marks a layout that has not been surveyed yet
+        if (latitude == 0 || longitude == 0) {
+            return null;
+        }
+        if (bounds != null && (latitude < bounds[0] || longitude < bounds[1] || latitude > bounds[2] || longitude > bounds[3])) {
+            return null;
+        }
+        return new ColoredWaypoint(layout.getFileNumber(), latitude, longitude,
+                layout.getLayoutName(), layout.getStatus());
+    }
+
+    /**
+     * Get the outline of a layout
+     * @param layout the layout
+     * @param bounds the area to show outlines in, or null for anywhere
+     * @return the outline, or null if the layout has none to show
+     */
+    private static ColoredBoundary toBoundary(Layout layout, double[] bounds) {
+        LayoutBoundary boundary = layout.getBoundary();
+        if (boundary == null) {
+            return null;
+        }
+        // Outlines belong to the area their layout's coordinates lie in, as when loaded
+        double latitude = layout.getLatitude();
+        double longitude = layout.getLongitude();
+        if (bounds != null && (latitude < bounds[0] || longitude < bounds[1] || latitude > bounds[2] || longitude > bounds[3])) {
+            return null;
+        }
+        return new ColoredBoundary(boundary, layout.getLayoutName(), layout.getStatus());
+    }
+
+    /**
+     * Waypoints and outlines loaded for an area, prepared off the EDT
+     */
+    private static final class LoadedArea {
+        private final WaypointLayer.Update update;
+        private final Map<String, ColoredWaypoint> waypoints;
+        private final BoundaryLayer.Update boundaryUpdate;
+        private final Map<String, ColoredBoundary> boundaries;
+        private final LocalDateTime syncTime;
+
+        private LoadedArea(WaypointLayer.Update update, Map<String, ColoredWaypoint> waypoints,
+                           BoundaryLayer.Update boundaryUpdate, Map<String, ColoredBoundary> boundaries,
+                           LocalDateTime syncTime) {
+            this.update = update;
+            this.waypoints = waypoints;
+            this.boundaryUpdate = boundaryUpdate;
+            this.boundaries = boundaries;
+            this.syncTime = syncTime;
+        }
+    }
+
+    /**
+     * Get the positions covered by a rectangle of map pixels
+     * @param pixels the rectangle at the current zoom level
+     * @return min latitude, min longitude, max latitude, max longitude
+     */
+    private double[] geoBounds(Rectangle pixels) {
+        TileFactory tileFactory = mapViewer.getTileFactory();
+        GeoPosition topLeft = tileFactory.pixelToGeo(new Point2D.Double(pixels.getMinX(), pixels.getMinY()), mapViewer.getZoom());
+        GeoPosition bottomRight = tileFactory.pixelToGeo(new Point2D.Double(pixels.getMaxX(), pixels.getMaxY()), mapViewer.getZoom());
+        return new double[] {
+            Math.max(-90, bottomRight.getLatitude()), Math.max(-180, topLeft.getLongitude()),
+            Math.min(90, topLeft.getLatitude()), Math.min(180, bottomRight.getLongitude())
+        };
+    }
+
+    private static boolean contains(double[] outer, double[] inner) {
+        return outer[0] <= inner[0] && outer[1] <= inner[1] && outer[2] >= inner[2] && outer[3] >= inner[3];
+    }
+
+    private static double area(double[] bounds) {
+        return Math.max(0, bounds[2] - bounds[0]) * Math.max(0, bounds[3] - bounds[1]);
     }
 
     /**
@@ -225,6 +608,19 @@ public class MapPanel extends JPanel {
     
     public void cleanup() {
         System.out.println("MapPanel cleaned up.");
+        loadTask.cancel();
+        syncTask.cancel();
+        if (viewportTimer != null) {
+            viewportTimer.stop();
+        }
+        if (refreshTimer != null) {
+            refreshTimer.stop();
+        }
+        boundaryTask.cancel();
+        if (tileCache != null) {
+            logger.info("Closing tile cache: {}", tileCache.getStatistics());
+            tileCache.close();
+        }
         // Clean up resources if needed
     }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.roots.map;
+
+/**
+ * Douglas-Peucker simplification computed once for all tolerances. Instead
+ * of simplifying a ring again for every zoom level, each vertex is given the
+ * largest tolerance at which Douglas-Peucker still keeps it. Simplifying to
+ * a tolerance is then a single pass keeping the vertices whose importance
+ * exceeds it, with the same result as running the algorithm at that
+ * tolerance.
+ */
+final class PolylineSimplifier {
+
+    private PolylineSimplifier() {
+        // Utility class
+    }
+
+    /**
+     * Compute the importance of every vertex of a closed ring
+     * @param xy the ring as x, y pairs, the last point repeating the first
+     * @return the importance per vertex, in the same units as the
+     *         coordinates; the anchors that are always kept are infinite
+     */
+    static float[] ringImportance(double[] xy) {
+        int n = xy.length / 2;
+        float[] importance = new float[n];
+        importance[0] = Float.POSITIVE_INFINITY;
+        importance[n - 1] = Float.POSITIVE_INFINITY;
+        if (n < 3) {
+            return importance;
+        }
+        // A closed ring starts and ends at the same point, so it is split at
+        // the vertex farthest from that point and each half is simplified
+        int far = 1;
+        double farDistance = -1;
+        for (int i = 1; i < n - 1; i++) {
+            double dx = xy[2 * i] - xy[0];
+            double dy = xy[2 * i + 1] - xy[1];
+            double distance = dx * dx + dy * dy;
+            if (distance > farDistance) {
+                farDistance = distance;
+                far = i;
+            }
+        }
+        importance[far] = Float.POSITIVE_INFINITY;
+
+        int[] stack = new int[2 * n];
+        float[] limits = new float[n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = far;
+        limits[0] = Float.POSITIVE_INFINITY;
+        stack[top++] = far;
+        stack[top++] = n - 1;
+        limits[1] = Float.POSITIVE_INFINITY;
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+            float limit = limits[top / 2];
+            if (end - start < 2) {
+                continue;
+            }
+            int split = -1;
+            double splitDistance = -1;
+            for (int i = start + 1; i < end; i++) {
+                double distance = segmentDistance(xy, i, start, end);
+                if (distance > splitDistance) {
+                    splitDistance = distance;
+                    split = i;
+                }
+            }
+            // A vertex is only kept while the one that split its segment is
+            float value = Math.min(limit, (float) splitDistance);
+            importance[split] = value;
+            limits[top / 2] = value;
+            stack[top++] = start;
+            stack[top++] = split;
+            limits[top / 2] = value;
+            stack[top++] = split;
+            stack[top++] = end;
+        }
+        return importance;
+    }
+
+    /**
+     * Get the distance of vertex i from the segment between start and end
+     */
+    private static double segmentDistance(double[] xy, int i, int start, int end) {
+        double x = xy[2 * i], y = xy[2 * i + 1];
+        double x1 = xy[2 * start], y1 = xy[2 * start + 1];
+        double dx = xy[2 * end] - x1, dy = xy[2 * end + 1] - y1;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((x - x1) * dx + (y - y1) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        double px = x1 + t * dx - x, py = y1 + t * dy - y;
+        return Math.sqrt(px * px + py * py);
+    }
+}
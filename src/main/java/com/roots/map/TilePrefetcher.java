@@ -0,0 +1,200 @@
+package com.roots.map;
+
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.function.Consumer;
+
+import org.jxmapviewer.viewer.GeoPosition;
+import org.jxmapviewer.viewer.TileFactory;
+import org.jxmapviewer.viewer.TileFactoryInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+/**
+ * Downloads the tiles of an area into a {@link DiskTileCache} ahead of time,
+ * so the area can be viewed offline. Tiles are fetched one at a time to stay
+ * within the tile server's usage policy, and areas needing more than a set
+ * number of tiles are refused.
+ */
+public class TilePrefetcher {
+    private static final Logger logger = LoggerFactory.getLogger(TilePrefetcher.class);
+    private static final int TIMEOUT_MILLIS = 15000;
+
+    private final TileFactory tileFactory;
+    private final DiskTileCache cache;
+    private final String userAgent;
+    private final int maxTiles;
+    private volatile boolean cancelled;
+
+    /**
+     * Create a prefetcher
+     * @param tileFactory the tile factory whose tiles are fetched
+     * @param cache the cache to fill
+     * @param userAgent the User-Agent sent to the tile server
+     * @param maxTiles the most tiles one prefetch may download
+     */
+    public TilePrefetcher(TileFactory tileFactory, DiskTileCache cache, String userAgent, int maxTiles) {
+        this.tileFactory = tileFactory;
+        this.cache = cache;
+        this.userAgent = userAgent;
+        this.maxTiles = maxTiles;
+    }
+
+    /**
+     * Stop a running prefetch after the current tile
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Count the tiles covering an area
+     * @param corner1 one corner of the area
+     * @param corner2 the opposite corner
+     * @param fromZoom the most detailed zoom level to fetch
+     * @param toZoom the least detailed zoom level to fetch
+     * @return the number of tiles
+     */
+    public long countTiles(GeoPosition corner1, GeoPosition corner2, int fromZoom, int toZoom) {
+        long total = 0;
+        for (int zoom = fromZoom; zoom <= toZoom; zoom++) {
+            int[] range = tileRange(corner1, corner2, zoom);
+            total += (long) (range[2] - range[0] + 1) * (range[3] - range[1] + 1);
+        }
+        return total;
+    }
+
+    /**
+     * Download every tile of an area that is not cached yet. Blocks until
+     * done, so call it off the EDT.
+     * @param corner1 one corner of the area
+     * @param corner2 the opposite corner
+     * @param fromZoom the most detailed zoom level to fetch
+     * @param toZoom the least detailed zoom level to fetch
+     * @param progress called after each tile with the running totals; may be null
+     * @return the totals
+     * @throws IllegalArgumentException if the area needs more tiles than allowed
+     */
+    public Result prefetch(GeoPosition corner1, GeoPosition corner2, int fromZoom, int toZoom, Consumer<Result> progress) {
+        long total = countTiles(corner1, corner2, fromZoom, toZoom);
+        if (total > maxTiles) {
+            throw new IllegalArgumentException("The area needs " + total + " tiles; at most " + maxTiles
+                    + " can be downloaded at once. Zoom in or choose fewer levels.");
+        }
+        Result result = new Result(total);
+        TileFactoryInfo info = tileFactory.getInfo();
+        for (int zoom = fromZoom; zoom <= toZoom && !cancelled; zoom++) {
+            int[] range = tileRange(corner1, corner2, zoom);
+            for (int y = range[1]; y <= range[3] && !cancelled; y++) {
+                for (int x = range[0]; x <= range[2] && !cancelled; x++) {
+                    fetch(info.getTileUrl(x, y, zoom), result);
+                    if (progress != null) {
+                        progress.accept(result);
+                    }
+                }
+            }
+        }
+        result.cancelled = cancelled;
+        logger.info("Tile prefetch: {}", result);
+        return result;
+    }
+
+    private void fetch(String tileUrl, Result result) {
+        try {
+            URL url = new URL(tileUrl);
+            if (cache.contains(url)) {
+                result.cached++;
+                return;
+            }
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestProperty("User-Agent", userAgent);
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            try (InputStream in = connection.getInputStream()) {
+                cache.put(url, in);
+            } finally {
+                connection.disconnect();
+            }
+            result.downloaded++;
+        } catch (IOException e) {
+            logger.debug("Could not prefetch {}", tileUrl, e);
+            result.failed++;
+        }
+    }
+
+    /**
+     * Get the tile columns and rows covering an area
+     * @return minimum x, minimum y, maximum x, maximum y
+     */
+    private int[] tileRange(GeoPosition corner1, GeoPosition corner2, int zoom) {
+        Point2D p1 = tileFactory.geoToPixel(corner1, zoom);
+        Point2D p2 = tileFactory.geoToPixel(corner2, zoom);
+        int tileSize = tileFactory.getTileSize(zoom);
+        int lastTile = tileFactory.getMapSize(zoom).width - 1;
+        return new int[] {
+                clamp((int) Math.floor(Math.min(p1.getX(), p2.getX()) / tileSize), lastTile),
+                clamp((int) Math.floor(Math.min(p1.getY(), p2.getY()) / tileSize), lastTile),
+                clamp((int) Math.floor(Math.max(p1.getX(), p2.getX()) / tileSize), lastTile),
+                clamp((int) Math.floor(Math.max(p1.getY(), p2.getY()) / tileSize), lastTile)
+        };
+    }
+
+    private static int clamp(int tile, int lastTile) {
+        return Math.max(0, Math.min(lastTile, tile));
+    }
+
+    /**
+     * Totals of a prefetch
+     */
+    public static final class Result {
+        private final long total;
+        private volatile long cached;
+        private volatile long downloaded;
+        private volatile long failed;
+        private volatile boolean cancelled;
+
+        Result(long total) {
+            this.total = total;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * Get the number of tiles that were already cached
+         * @return the cached tile count
+         */
+        public long getCached() {
+            return cached;
+        }
+
+        public long getDownloaded() {
+            return downloaded;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * Get the number of tiles handled so far
+         * @return cached, downloaded and failed tiles together
+         */
+        public long getDone() {
+            return cached + downloaded + failed;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d tiles: %d already cached, %d downloaded, %d failed%s",
+                    total, cached, downloaded, failed, cancelled ? " (cancelled)" : "");
+        }
+    }
+}
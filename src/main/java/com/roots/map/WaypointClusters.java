@@ -0,0 +1,250 @@
+package com.roots.map;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jxmapviewer.viewer.TileFactory;
+
+/**
+ * Grid clusters of waypoints for every zoom level at which pins would
+ * overlap. At each level the map is divided into square cells of
+ * {@link #CELL_SIZE} pixels and every cell with waypoints becomes one
+ * cluster holding their count, centroid and status mix. Adding or removing
+ * a waypoint updates one cluster per level, so a refresh only costs as
+ * much as the number of layouts that changed.
+ */
+public class WaypointClusters {
+    /** Size of a cluster cell in screen pixels */
+    public static final int CELL_SIZE = 64;
+
+    // Statuses counted per cluster; anything else counts as the last slot
+    private static final String[] STATUSES = {"approved", "pending", "under review", "rejected", "unauthorized"};
+
+    private final int minZoom;
+    private final int maxZoom;
+    // Ratio between pixels at each zoom level and pixels at the most detailed level
+    private final double[] scales;
+    private final long[] cellsPerRow;
+    private final List<Map<Long, Cluster>> levels = new ArrayList<>();
+    private final TileFactory tileFactory;
+    private int size;
+
+    /**
+     * Create empty clusters
+     * @param tileFactory the tile factory that defines the projection
+     * @param minZoom the most detailed zoom level that is clustered; more
+     *        detailed levels show individual pins
+     */
+    public WaypointClusters(TileFactory tileFactory, int minZoom) {
+        this.tileFactory = tileFactory;
+        this.minZoom = minZoom;
+        this.maxZoom = tileFactory.getInfo().getMaximumZoomLevel();
+        this.scales = new double[maxZoom + 1];
+        this.cellsPerRow = new long[maxZoom + 1];
+        double detailedWidth = mapWidth(tileFactory, 0);
+        for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+            scales[zoom] = mapWidth(tileFactory, zoom) / detailedWidth;
+            cellsPerRow[zoom] = (long) Math.ceil(mapWidth(tileFactory, zoom) / CELL_SIZE) + 1;
+            levels.add(new HashMap<Long, Cluster>());
+        }
+    }
+
+    /**
+     * Create clusters for a set of waypoints
+     * @param tileFactory the tile factory that defines the projection
+     * @param minZoom the most detailed zoom level that is clustered
+     * @param waypoints the waypoints to cluster
+     */
+    public WaypointClusters(TileFactory tileFactory, int minZoom, Collection<ColoredWaypoint> waypoints) {
+        this(tileFactory, minZoom);
+        for (ColoredWaypoint waypoint : waypoints) {
+            add(waypoint);
+        }
+    }
+
+    private static double mapWidth(TileFactory tileFactory, int zoom) {
+        return (double) tileFactory.getMapSize(zoom).width * tileFactory.getTileSize(zoom);
+    }
+
+    /**
+     * Check whether a zoom level is shown as clusters
+     * @param zoom the zoom level
+     * @return true if waypoints are clustered at this zoom level
+     */
+    public boolean isClustered(int zoom) {
+        return zoom >= minZoom && zoom <= maxZoom;
+    }
+
+    /**
+     * Get the number of clustered waypoints
+     * @return the waypoint count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add a waypoint to its cluster at every level
+     * @param waypoint the waypoint to add
+     */
+    public void add(ColoredWaypoint waypoint) {
+        update(waypoint, 1);
+    }
+
+    /**
+     * Remove a waypoint added earlier, or one equal to it
+     * @param waypoint the waypoint to remove
+     */
+    public void remove(ColoredWaypoint waypoint) {
+        update(waypoint, -1);
+    }
+
+    private void update(ColoredWaypoint waypoint, int delta) {
+        Point2D pixel = tileFactory.geoToPixel(waypoint.getPosition(), 0);
+        int status = statusSlot(waypoint.getStatus());
+        for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+            double x = pixel.getX() * scales[zoom];
+            double y = pixel.getY() * scales[zoom];
+            long cellX = (long) Math.floor(x / CELL_SIZE);
+            long cellY = (long) Math.floor(y / CELL_SIZE);
+            long key = cellKey(zoom, cellX, cellY);
+            Map<Long, Cluster> level = levels.get(zoom - minZoom);
+            Cluster cluster = level.get(key);
+            if (cluster == null) {
+                if (delta < 0) {
+                    return; // Never added
+                }
+                cluster = new Cluster(cellX, cellY);
+                level.put(key, cluster);
+            }
+            cluster.count += delta;
+            cluster.statusCounts[status] += delta;
+            cluster.sumX += delta * x;
+            cluster.sumY += delta * y;
+            if (cluster.count <= 0) {
+                level.remove(key);
+            }
+        }
+        size += delta;
+    }
+
+    private long cellKey(int zoom, long cellX, long cellY) {
+        return cellY * cellsPerRow[zoom] + cellX;
+    }
+
+    private static int statusSlot(String status) {
+        if (status != null) {
+            String lower = status.toLowerCase();
+            for (int i = 0; i < STATUSES.length; i++) {
+                if (STATUSES[i].equals(lower)) {
+                    return i;
+                }
+            }
+        }
+        return STATUSES.length;
+    }
+
+    /**
+     * Find the clusters whose cell overlaps a rectangle of map pixels
+     * @param zoom a clustered zoom level
+     * @param bounds the area to search, e.g. the viewport
+     * @param result list to fill, cleared first
+     */
+    public void query(int zoom, Rectangle bounds, List<Cluster> result) {
+        result.clear();
+        if (!isClustered(zoom)) {
+            return;
+        }
+        Map<Long, Cluster> level = levels.get(zoom - minZoom);
+        long minX = Math.max(0, (long) Math.floor(bounds.getMinX() / CELL_SIZE));
+        long maxX = (long) Math.floor(bounds.getMaxX() / CELL_SIZE);
+        long minY = Math.max(0, (long) Math.floor(bounds.getMinY() / CELL_SIZE));
+        long maxY = (long) Math.floor(bounds.getMaxY() / CELL_SIZE);
+        if ((maxX - minX + 1) * (maxY - minY + 1) > level.size()) {
+            // Zoomed out far enough that scanning the level is cheaper
+            for (Cluster cluster : level.values()) {
+                if (cluster.cellX >= minX && cluster.cellX <= maxX && cluster.cellY >= minY && cluster.cellY <= maxY) {
+                    result.add(cluster);
+                }
+            }
+            return;
+        }
+        for (long cy = minY; cy <= maxY; cy++) {
+            for (long cx = minX; cx <= maxX; cx++) {
+                Cluster cluster = level.get(cellKey(zoom, cx, cy));
+                if (cluster != null) {
+                    result.add(cluster);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waypoints that share a cell at one zoom level
+     */
+    public static final class Cluster {
+        private final long cellX;
+        private final long cellY;
+        private int count;
+        private final int[] statusCounts = new int[STATUSES.length + 1];
+        private double sumX;
+        private double sumY;
+
+        private Cluster(long cellX, long cellY) {
+            this.cellX = cellX;
+            this.cellY = cellY;
+        }
+
+        /**
+         * Get the number of waypoints in this cluster
+         * @return the waypoint count
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Get the x coordinate of the centroid
+         * @return the x coordinate in map pixels at the cluster's zoom level
+         */
+        public double getX() {
+            return sumX / count;
+        }
+
+        /**
+         * Get the y coordinate of the centroid
+         * @return the y coordinate in map pixels at the cluster's zoom level
+         */
+        public double getY() {
+            return sumY / count;
+        }
+
+        /**
+         * Get the status most waypoints in this cluster have
+         * @return the status, or null if most have an unknown status
+         */
+        public String getDominantStatus() {
+            int best = 0;
+            for (int i = 1; i < statusCounts.length; i++) {
+                if (statusCounts[i] > statusCounts[best]) {
+                    best = i;
+                }
+            }
+            return best < STATUSES.length ? STATUSES[best] : null;
+        }
+
+        /**
+         * Get the color of the dominant status
+         * @return the color
+         */
+        public Color getColor() {
+            return ColoredWaypoint.getColorForStatus(getDominantStatus());
+        }
+    }
+}
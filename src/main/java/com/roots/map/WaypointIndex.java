@@ -0,0 +1,373 @@
+package com.roots.map;
+
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.jxmapviewer.viewer.TileFactory;
+
+/**
+ * Grid index of waypoints projected to map pixels at one zoom level.
+ * Waypoints are projected once when the index is built and bucketed into
+ * small square cells, so finding the waypoints inside the viewport, or
+ * the one at a point, only touches the cells it overlaps instead of every
+ * waypoint.
+ * <p>
+ * {@link #withChanges} derives an index with a few waypoints added or
+ * removed without sorting the grid again: removed waypoints are flagged
+ * and added ones are kept in a short list that every query scans. Once
+ * that list grows, the grid is rebuilt.
+ */
+public class WaypointIndex {
+    // Waypoint number is packed into the low bits of each sort key
+    private static final int INDEX_BITS = 24;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    // Cells are this many pixels wide, or wider where the map is so large
+    // that the cell key would not fit beside the waypoint number
+    private static final int MIN_CELL_SIZE = 32;
+    private static final long MAX_CELLS_PER_ROW = 1L << 19;
+    // Added waypoints kept outside the grid before it is rebuilt, unless
+    // an eighth of the gridded ones is more
+    private static final int MAX_UNGRIDDED = 1024;
+
+    private final int zoom;
+    private final int cellSize;
+    private final long cellsPerRow;
+    private final ColoredWaypoint[] waypoints;
+    private final double[] x;
+    private final double[] y;
+
+    // Cell keys in ascending order, where each cell's waypoints start in
+    // 'order', and waypoint numbers sorted by cell
+    private final long[] cellKeys;
+    private final int[] cellStarts;
+    private final int[] order;
+
+    // Waypoints numbered from gridded on were added by withChanges and are
+    // not in the grid; removed ones stay numbered but are flagged
+    private final int gridded;
+    private final BitSet removed;
+    private final int live;
+
+    /**
+     * Project the waypoints and build the grid
+     * @param waypoints the waypoints to index
+     * @param tileFactory the tile factory that defines the projection
+     * @param zoom the zoom level to project at
+     */
+    public WaypointIndex(List<ColoredWaypoint> waypoints, TileFactory tileFactory, int zoom) {
+        this(waypoints.toArray(new ColoredWaypoint[waypoints.size()]), tileFactory, zoom, null, null);
+    }
+
+    private WaypointIndex(ColoredWaypoint[] waypoints, TileFactory tileFactory, int zoom, double[] x, double[] y) {
+        int count = waypoints.length;
+        if (count > INDEX_MASK) {
+            throw new IllegalArgumentException("Too many waypoints to index: " + count);
+        }
+        this.zoom = zoom;
+        double width = mapWidth(tileFactory, zoom);
+        int size = MIN_CELL_SIZE;
+        while (width / size >= MAX_CELLS_PER_ROW) {
+            size *= 2;
+        }
+        this.cellSize = size;
+        this.cellsPerRow = (long) Math.ceil(width / size) + 1;
+        this.waypoints = waypoints;
+        this.gridded = count;
+        this.removed = new BitSet();
+        this.live = count;
+        if (x != null) {
+            this.x = x;
+            this.y = y;
+        } else {
+            this.x = new double[count];
+            this.y = new double[count];
+            for (int i = 0; i < count; i++) {
+                Point2D pixel = tileFactory.geoToPixel(waypoints[i].getPosition(), zoom);
+                this.x[i] = pixel.getX();
+                this.y[i] = pixel.getY();
+            }
+        }
+
+        long[] keyed = new long[count];
+        for (int i = 0; i < count; i++) {
+            keyed[i] = (cellKey(cell(this.x[i]), cell(this.y[i])) << INDEX_BITS) | i;
+        }
+        Arrays.sort(keyed);
+
+        order = new int[count];
+        long[] keys = new long[count];
+        int[] starts = new int[count + 1];
+        int cells = 0;
+        for (int i = 0; i < count; i++) {
+            long key = keyed[i] >>> INDEX_BITS;
+            order[i] = (int) (keyed[i] & INDEX_MASK);
+            if (cells == 0 || keys[cells - 1] != key) {
+                keys[cells] = key;
+                starts[cells] = i;
+                cells++;
+            }
+        }
+        starts[cells] = count;
+        cellKeys = Arrays.copyOf(keys, cells);
+        cellStarts = Arrays.copyOf(starts, cells + 1);
+    }
+
+    private WaypointIndex(WaypointIndex base, ColoredWaypoint[] waypoints, double[] x, double[] y,
+                          BitSet removed, int live) {
+        this.zoom = base.zoom;
+        this.cellSize = base.cellSize;
+        this.cellsPerRow = base.cellsPerRow;
+        this.cellKeys = base.cellKeys;
+        this.cellStarts = base.cellStarts;
+        this.order = base.order;
+        this.gridded = base.gridded;
+        this.waypoints = waypoints;
+        this.x = x;
+        this.y = y;
+        this.removed = removed;
+        this.live = live;
+    }
+
+    /**
+     * Derive an index with some waypoints added and others removed. The
+     * cost depends on the number of changes, except for copying a few
+     * arrays, until so many waypoints were added that the grid is rebuilt.
+     * @param tileFactory the tile factory this index was built with
+     * @param added waypoints to add
+     * @param removedWaypoints waypoints to remove; each removes one equal
+     *        waypoint, and ones not in the index are ignored
+     * @return the new index; this one is unchanged
+     */
+    public WaypointIndex withChanges(TileFactory tileFactory, Collection<ColoredWaypoint> added,
+                                     Collection<ColoredWaypoint> removedWaypoints) {
+        int count = waypoints.length;
+        BitSet flags = (BitSet) removed.clone();
+        int remaining = live;
+        Hits hits = new Hits();
+        for (ColoredWaypoint waypoint : removedWaypoints) {
+            Point2D pixel = tileFactory.geoToPixel(waypoint.getPosition(), zoom);
+            int found = find(waypoint, pixel, flags, hits);
+            if (found >= 0) {
+                flags.set(found);
+                remaining--;
+            }
+        }
+
+        ColoredWaypoint[] grown = Arrays.copyOf(waypoints, count + added.size());
+        double[] grownX = Arrays.copyOf(x, grown.length);
+        double[] grownY = Arrays.copyOf(y, grown.length);
+        int i = count;
+        for (ColoredWaypoint waypoint : added) {
+            Point2D pixel = tileFactory.geoToPixel(waypoint.getPosition(), zoom);
+            grown[i] = waypoint;
+            grownX[i] = pixel.getX();
+            grownY[i] = pixel.getY();
+            i++;
+        }
+        WaypointIndex changed = new WaypointIndex(this, grown, grownX, grownY, flags, remaining + added.size());
+        if (grown.length - gridded > Math.max(MAX_UNGRIDDED, gridded / 8) || flags.cardinality() > gridded / 2) {
+            return changed.compact(tileFactory);
+        }
+        return changed;
+    }
+
+    /**
+     * Find a waypoint equal to the given one at its projected position
+     */
+    private int find(ColoredWaypoint waypoint, Point2D pixel, BitSet flags, Hits hits) {
+        Rectangle spot = new Rectangle((int) Math.floor(pixel.getX()) - 1, (int) Math.floor(pixel.getY()) - 1, 3, 3);
+        hits = query(spot, hits);
+        for (int k = 0; k < hits.size(); k++) {
+            int i = hits.get(k);
+            if (!flags.get(i) && waypoints[i].equals(waypoint)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Rebuild the grid over the waypoints that are not removed
+     */
+    private WaypointIndex compact(TileFactory tileFactory) {
+        ColoredWaypoint[] kept = new ColoredWaypoint[live];
+        double[] keptX = new double[live];
+        double[] keptY = new double[live];
+        int k = 0;
+        for (int i = 0; i < waypoints.length; i++) {
+            if (!removed.get(i)) {
+                kept[k] = waypoints[i];
+                keptX[k] = x[i];
+                keptY[k] = y[i];
+                k++;
+            }
+        }
+        return new WaypointIndex(kept, tileFactory, zoom, keptX, keptY);
+    }
+
+    /**
+     * Index the same waypoints at another zoom level. Zoom levels of a tile
+     * map show the same projected world at different sizes, so the existing
+     * pixel positions are scaled instead of projecting every waypoint again.
+     * @param tileFactory the tile factory this index was built with
+     * @param newZoom the zoom level to index at
+     * @return the index for the new zoom level
+     */
+    public WaypointIndex atZoom(TileFactory tileFactory, int newZoom) {
+        double scale = mapWidth(tileFactory, newZoom) / mapWidth(tileFactory, zoom);
+        ColoredWaypoint[] kept = new ColoredWaypoint[live];
+        double[] scaledX = new double[live];
+        double[] scaledY = new double[live];
+        int k = 0;
+        for (int i = 0; i < waypoints.length; i++) {
+            if (!removed.get(i)) {
+                kept[k] = waypoints[i];
+                scaledX[k] = x[i] * scale;
+                scaledY[k] = y[i] * scale;
+                k++;
+            }
+        }
+        return new WaypointIndex(kept, tileFactory, newZoom, scaledX, scaledY);
+    }
+
+    private static double mapWidth(TileFactory tileFactory, int zoom) {
+        return (double) tileFactory.getMapSize(zoom).width * tileFactory.getTileSize(zoom);
+    }
+
+    private long cell(double pixel) {
+        return Math.max(0, Math.min(cellsPerRow - 1, (long) Math.floor(pixel / cellSize)));
+    }
+
+    private long cellKey(long cellX, long cellY) {
+        return cellY * cellsPerRow + cellX;
+    }
+
+    /**
+     * Get the zoom level the waypoints are projected at
+     * @return the zoom level
+     */
+    public int getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Get the number of indexed waypoints
+     * @return the waypoint count
+     */
+    public int size() {
+        return live;
+    }
+
+    /**
+     * Get the indexed waypoints
+     * @return the waypoints, in their original order followed by added ones
+     */
+    public List<ColoredWaypoint> getWaypoints() {
+        if (live == waypoints.length) {
+            return Collections.unmodifiableList(Arrays.asList(waypoints));
+        }
+        List<ColoredWaypoint> kept = new ArrayList<>(live);
+        for (int i = 0; i < waypoints.length; i++) {
+            if (!removed.get(i)) {
+                kept.add(waypoints[i]);
+            }
+        }
+        return Collections.unmodifiableList(kept);
+    }
+
+    /**
+     * Get an indexed waypoint
+     * @param i the waypoint number
+     * @return the waypoint
+     */
+    public ColoredWaypoint getWaypoint(int i) {
+        return waypoints[i];
+    }
+
+    /**
+     * Get the projected x coordinate of a waypoint
+     * @param i the waypoint number
+     * @return the x coordinate in map pixels at this index's zoom
+     */
+    public double getX(int i) {
+        return x[i];
+    }
+
+    /**
+     * Get the projected y coordinate of a waypoint
+     * @param i the waypoint number
+     * @return the y coordinate in map pixels at this index's zoom
+     */
+    public double getY(int i) {
+        return y[i];
+    }
+
+    /**
+     * Find the waypoints inside a rectangle of map pixels
+     * @param bounds the area to search, e.g. the viewport plus a margin
+     * @param result hits of a previous query to reuse, or null
+     * @return the numbers of the waypoints found
+     */
+    public Hits query(Rectangle bounds, Hits result) {
+        Hits hits = result != null ? result : new Hits();
+        hits.count = 0;
+        if (live == 0) {
+            return hits;
+        }
+        long minX = cell(bounds.getMinX());
+        long maxX = cell(bounds.getMaxX());
+        long minY = cell(bounds.getMinY());
+        long maxY = cell(bounds.getMaxY());
+        for (long cy = minY; cy <= maxY; cy++) {
+            // Cells in a grid row are contiguous in key order
+            int c = Arrays.binarySearch(cellKeys, cellKey(minX, cy));
+            if (c < 0) {
+                c = -c - 1;
+            }
+            long lastKey = cellKey(maxX, cy);
+            for (; c < cellKeys.length && cellKeys[c] <= lastKey; c++) {
+                for (int k = cellStarts[c]; k < cellStarts[c + 1]; k++) {
+                    int i = order[k];
+                    if (bounds.contains(x[i], y[i]) && (removed.isEmpty() || !removed.get(i))) {
+                        hits.add(i);
+                    }
+                }
+            }
+        }
+        for (int i = gridded; i < waypoints.length; i++) {
+            if (bounds.contains(x[i], y[i]) && !removed.get(i)) {
+                hits.add(i);
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Reusable list of waypoint numbers returned by {@link #query}
+     */
+    public static final class Hits {
+        private int[] items = new int[256];
+        private int count;
+
+        private void add(int i) {
+            if (count == items.length) {
+                items = Arrays.copyOf(items, count * 2);
+            }
+            items[count++] = i;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public int get(int k) {
+            return items[k];
+        }
+    }
+}
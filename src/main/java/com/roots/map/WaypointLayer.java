@@ -0,0 +1,322 @@
+package com.roots.map;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jxmapviewer.JXMapViewer;
+import org.jxmapviewer.painter.Painter;
+import org.jxmapviewer.viewer.TileFactory;
+
+/**
+ * Painter for large numbers of colored waypoints. Unlike WaypointPainter,
+ * which projects and draws every waypoint on every repaint, it keeps a
+ * {@link WaypointIndex} per recently used zoom level and only draws the
+ * waypoints inside the viewport. Labels are skipped when so many waypoints
+ * are visible that they would only overlap. From {@link #CLUSTER_MIN_ZOOM}
+ * outwards, waypoints are drawn as {@link WaypointClusters} bubbles.
+ * Reloads go through {@link #prepare} in the background; a few changed
+ * waypoints are applied with {@link #applyChanges} at a cost proportional
+ * to the change.
+ */
+public class WaypointLayer implements Painter<JXMapViewer> {
+    // Pins and labels near the edge still reach into the viewport
+    private static final int MARGIN = 80;
+    private static final int MAX_LABELLED_WAYPOINTS = 300;
+    private static final int CACHED_ZOOM_LEVELS = 4;
+    // Beyond this many visible waypoints, a pin is skipped when another one
+    // was already drawn within OVERLAP_CELL pixels of it
+    private static final int DENSE_WAYPOINTS = 2000;
+    private static final int OVERLAP_CELL = 6;
+    /** Most detailed zoom level at which waypoints are clustered */
+    public static final int CLUSTER_MIN_ZOOM = 3;
+    // Refreshes that change more than this share of the waypoints rebuild
+    // the clusters in the background instead of updating them on the EDT
+    private static final double MAX_INCREMENTAL_CHANGE = 0.2;
+
+    private final ColoredWaypointRenderer renderer = new ColoredWaypointRenderer();
+    private List<ColoredWaypoint> waypoints = Collections.emptyList();
+    private TileFactory indexedTileFactory;
+    private final Map<Integer, WaypointIndex> indexes = new LinkedHashMap<Integer, WaypointIndex>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, WaypointIndex> eldest) {
+            return size() > CACHED_ZOOM_LEVELS;
+        }
+    };
+    private WaypointClusters clusters;
+    private final List<WaypointClusters.Cluster> visibleClusters = new ArrayList<>();
+    private WaypointIndex.Hits hits;
+    private boolean[] occupied = new boolean[0];
+
+    /**
+     * Do the expensive part of replacing the waypoints shown: project the
+     * new waypoints and work out how the clusters change. Safe to call off
+     * the EDT.
+     * @param previous the waypoints shown now, from {@link #getWaypoints()}
+     * @param loaded the waypoints to show
+     * @param tileFactory the map's tile factory
+     * @param zoom the map's zoom level
+     * @return the update to pass to {@link #apply(Update)}
+     */
+    public static Update prepare(List<ColoredWaypoint> previous, List<ColoredWaypoint> loaded,
+                                 TileFactory tileFactory, int zoom) {
+        WaypointIndex index = new WaypointIndex(loaded, tileFactory, zoom);
+
+        // Match old and new waypoints; equal ones cancel out
+        Map<ColoredWaypoint, Integer> balance = new HashMap<>();
+        for (ColoredWaypoint waypoint : loaded) {
+            balance.merge(waypoint, 1, Integer::sum);
+        }
+        for (ColoredWaypoint waypoint : previous) {
+            balance.merge(waypoint, -1, Integer::sum);
+        }
+        List<ColoredWaypoint> added = new ArrayList<>();
+        List<ColoredWaypoint> removed = new ArrayList<>();
+        for (Map.Entry<ColoredWaypoint, Integer> entry : balance.entrySet()) {
+            for (int n = entry.getValue(); n > 0; n--) {
+                added.add(entry.getKey());
+            }
+            for (int n = entry.getValue(); n < 0; n++) {
+                removed.add(entry.getKey());
+            }
+        }
+
+        WaypointClusters rebuilt = null;
+        if (previous.isEmpty() || added.size() + removed.size() > MAX_INCREMENTAL_CHANGE * loaded.size()) {
+            rebuilt = new WaypointClusters(tileFactory, CLUSTER_MIN_ZOOM, loaded);
+        }
+        return new Update(previous, index, tileFactory, rebuilt, added, removed);
+    }
+
+    /**
+     * Show the waypoints of a prepared update. Must be called on the EDT.
+     * @param update the update from {@link #prepare}
+     */
+    public void apply(Update update) {
+        if (update.rebuilt != null) {
+            clusters = update.rebuilt;
+        } else if (clusters == null || waypoints != update.previous || indexedTileFactory != update.tileFactory) {
+            // The waypoints changed since the update was prepared
+            clusters = new WaypointClusters(update.tileFactory, CLUSTER_MIN_ZOOM, update.index.getWaypoints());
+        } else {
+            for (ColoredWaypoint waypoint : update.removed) {
+                clusters.remove(waypoint);
+            }
+            for (ColoredWaypoint waypoint : update.added) {
+                clusters.add(waypoint);
+            }
+        }
+        this.waypoints = update.index.getWaypoints();
+        this.indexedTileFactory = update.tileFactory;
+        indexes.clear();
+        indexes.put(update.index.getZoom(), update.index);
+    }
+
+    /**
+     * Add and remove a few waypoints on the EDT, updating the index and the
+     * clusters in place instead of diffing all waypoints. Larger changes
+     * are cheaper to {@link #prepare} in the background.
+     * @param added waypoints to show
+     * @param removed waypoints shown now that are no longer to be shown
+     * @param tileFactory the map's tile factory
+     * @param zoom the map's zoom level
+     */
+    public void applyChanges(Collection<ColoredWaypoint> added, Collection<ColoredWaypoint> removed,
+                             TileFactory tileFactory, int zoom) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        if (indexedTileFactory != tileFactory) {
+            indexes.clear();
+            indexedTileFactory = tileFactory;
+        }
+        WaypointIndex index = indexes.get(zoom);
+        if (index == null) {
+            index = indexes.isEmpty()
+                    ? new WaypointIndex(waypoints, tileFactory, zoom)
+                    : indexes.values().iterator().next();
+        }
+        index = index.withChanges(tileFactory, added, removed);
+
+        if (clusters == null || clusters.size() != waypoints.size()) {
+            clusters = new WaypointClusters(tileFactory, CLUSTER_MIN_ZOOM, index.getWaypoints());
+        } else {
+            for (ColoredWaypoint waypoint : removed) {
+                clusters.remove(waypoint);
+            }
+            for (ColoredWaypoint waypoint : added) {
+                clusters.add(waypoint);
+            }
+        }
+        this.waypoints = index.getWaypoints();
+        // Other zoom levels are derived again from the changed index
+        indexes.clear();
+        indexes.put(index.getZoom(), index);
+    }
+
+    /**
+     * Get the waypoints shown
+     * @return the waypoints
+     */
+    public List<ColoredWaypoint> getWaypoints() {
+        return waypoints;
+    }
+
+    /**
+     * Get the index for the map's current zoom level, building it from a
+     * cached one the first time a zoom level is shown
+     * @param map the map being painted
+     * @return the index
+     */
+    WaypointIndex indexFor(JXMapViewer map) {
+        if (indexedTileFactory != map.getTileFactory()) {
+            indexes.clear();
+            indexedTileFactory = map.getTileFactory();
+        }
+        WaypointIndex index = indexes.get(map.getZoom());
+        if (index == null) {
+            index = indexes.isEmpty()
+                    ? new WaypointIndex(waypoints, map.getTileFactory(), map.getZoom())
+                    : indexes.values().iterator().next().atZoom(map.getTileFactory(), map.getZoom());
+            indexes.put(map.getZoom(), index);
+        }
+        return index;
+    }
+
+    @Override
+    public void paint(Graphics2D g, JXMapViewer map, int width, int height) {
+        if (waypoints.isEmpty()) {
+            return;
+        }
+        Rectangle viewport = map.getViewportBounds();
+        Rectangle area = new Rectangle(viewport.x - MARGIN, viewport.y - MARGIN,
+                viewport.width + 2 * MARGIN, viewport.height + 2 * MARGIN);
+        if (clusters != null && clusters.isClustered(map.getZoom()) && indexedTileFactory == map.getTileFactory()) {
+            paintClusters(g, map, viewport, area);
+            return;
+        }
+        WaypointIndex index = indexFor(map);
+        hits = index.query(area, hits);
+        boolean withLabels = hits.size() <= MAX_LABELLED_WAYPOINTS;
+        boolean dense = hits.size() > DENSE_WAYPOINTS;
+        int columns = area.width / OVERLAP_CELL + 1;
+        if (dense) {
+            int cells = columns * (area.height / OVERLAP_CELL + 1);
+            if (occupied.length < cells) {
+                occupied = new boolean[cells];
+            } else {
+                Arrays.fill(occupied, 0, cells, false);
+            }
+        }
+
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.translate(-viewport.x, -viewport.y);
+            // Anti-aliasing thousands of overlapping pins costs more than it shows
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    dense ? RenderingHints.VALUE_ANTIALIAS_OFF : RenderingHints.VALUE_ANTIALIAS_ON);
+            renderer.prepare(g2);
+            for (int k = 0; k < hits.size(); k++) {
+                int i = hits.get(k);
+                int x = (int) index.getX(i);
+                int y = (int) index.getY(i);
+                if (dense) {
+                    int cell = (y - area.y) / OVERLAP_CELL * columns + (x - area.x) / OVERLAP_CELL;
+                    if (occupied[cell]) {
+                        continue;
+                    }
+                    occupied[cell] = true;
+                }
+                renderer.paintWaypoint(g2, index.getWaypoint(i), x, y, withLabels);
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    private void paintClusters(Graphics2D g, JXMapViewer map, Rectangle viewport, Rectangle area) {
+        clusters.query(map.getZoom(), area, visibleClusters);
+        boolean withLabels = visibleClusters.size() <= MAX_LABELLED_WAYPOINTS;
+
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.translate(-viewport.x, -viewport.y);
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            renderer.prepare(g2);
+            for (WaypointClusters.Cluster cluster : visibleClusters) {
+                int x = (int) cluster.getX();
+                int y = (int) cluster.getY();
+                if (cluster.getCount() > 1) {
+                    renderer.paintCluster(g2, cluster, x, y);
+                } else if (withLabels) {
+                    // A lone waypoint sits exactly at its cluster's centroid
+                    WaypointIndex index = indexFor(map);
+                    hits = index.query(new Rectangle(x - 1, y - 1, 3, 3), hits);
+                    if (hits.size() > 0) {
+                        renderer.paintWaypoint(g2, index.getWaypoint(hits.get(0)), x, y, true);
+                    } else {
+                        renderer.paintPin(g2, cluster.getColor(), x, y);
+                    }
+                } else {
+                    renderer.paintPin(g2, cluster.getColor(), x, y);
+                }
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    /**
+     * New waypoints for the layer, prepared off the EDT
+     */
+    public static final class Update {
+        private final List<ColoredWaypoint> previous;
+        private final WaypointIndex index;
+        private final TileFactory tileFactory;
+        private final WaypointClusters rebuilt;
+        private final List<ColoredWaypoint> added;
+        private final List<ColoredWaypoint> removed;
+
+        private Update(List<ColoredWaypoint> previous, WaypointIndex index, TileFactory tileFactory,
+                       WaypointClusters rebuilt, List<ColoredWaypoint> added, List<ColoredWaypoint> removed) {
+            this.previous = previous;
+            this.index = index;
+            this.tileFactory = tileFactory;
+            this.rebuilt = rebuilt;
+            this.added = added;
+            this.removed = removed;
+        }
+
+        /**
+         * Get the new waypoints
+         * @return the waypoints
+         */
+        public List<ColoredWaypoint> getWaypoints() {
+            return index.getWaypoints();
+        }
+
+        /**
+         * Get the number of waypoints that were not shown before
+         * @return the added waypoint count
+         */
+        public int getAddedCount() {
+            return added.size();
+        }
+
+        /**
+         * Get the number of waypoints that are no longer shown
+         * @return the removed waypoint count
+         */
+        public int getRemovedCount() {
+            return removed.size();
+        }
+    }
+}
\ No newline at end of file
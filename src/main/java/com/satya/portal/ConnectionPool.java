@@ -0,0 +1,674 @@
+package com.satya.portal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.satya.portal.utils.AppConfig;
+import com.satya.portal.utils.BackgroundTasks;
+import com.satya.portal.utils.QueryMetrics;
+/**
+ * Bounded JDBC connection pool used behind {@link DBConnection}.
+ * Connections handed out are proxies whose close() returns the physical
+ * connection to the pool. Idle connections above the minimum are evicted,
+ * connections are validated on borrow, and borrowers that hold a connection
+ * past the leak threshold are reported with the borrowing thread and, when
+ * enabled, the stack trace of the code that borrowed it. Statements
+ * prepared on a connection are reported to {@link QueryMetrics}.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPool.class);
+    private static final int BORROW_SAMPLE_SIZE = 1024;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Config config;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+
+    // Ring buffer of recent borrow times in nanoseconds, guarded by itself
+    private final long[] borrowSamples = new long[BORROW_SAMPLE_SIZE];
+    private long borrowCount;
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    /**
+     * Create a pool for the given JDBC URL and credentials
+     *
+     * @param url JDBC URL (MySQL in production, H2 in tests)
+     * @param user Database user
+     * @param password Database password
+     * @param config Pool sizing and timeout settings
+     */
+    public ConnectionPool(String url, String user, String password, Config config) {
+        if (config.getMaxSize() < 1 || config.getMinSize() < 0 || config.getMinSize() > config.getMaxSize()) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + config.getMinSize() + ", max=" + config.getMaxSize());
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "satya-db-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0,
+                config.getHousekeepingIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection from the pool. Closing the returned connection
+     * gives it back to the pool.
+     *
+     * @return Connection object
+     * @throws SQLTimeoutException if no connection becomes available within the borrow timeout
+     * @throws SQLException if a new physical connection cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is shut down");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getBorrowTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + config.getBorrowTimeoutMillis()
+                        + " ms waiting for a database connection (" + getStatistics() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        PooledConnection pooled;
+        try {
+            pooled = takeIdleOrCreate();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        pooled.borrowedAt = System.nanoTime();
+        pooled.borrowedAtMillis = System.currentTimeMillis();
+        pooled.borrowerThread = Thread.currentThread().getName();
+        // Filling in a stack trace on every borrow is costly, so it is only done when asked for
+        pooled.borrower = config.getLeakDetectionThresholdMillis() > 0 && config.isCaptureLeakStackTraces()
+                ? new Throwable("Connection borrowed by thread " + pooled.borrowerThread)
+                : null;
+        pooled.leakReported = false;
+        active.add(pooled);
+        recordBorrowTime(pooled.borrowedAt - start);
+        return pooled.newLease();
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        while (true) {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (!config.isValidateOnBorrow() || pooled.isValid(config.getValidationTimeoutSeconds())) {
+                    return pooled;
+                }
+                LOGGER.debug("Discarding pooled connection that failed validation");
+                destroy(pooled);
+            }
+            pooled = createConnection(config.getMaxSize());
+            if (pooled != null) {
+                return pooled;
+            }
+            // The housekeeper filled the pool concurrently; take one of its connections
+        }
+    }
+
+    /**
+     * Open a physical connection unless the pool already holds {@code limit} connections
+     *
+     * @return the new connection, or null if the limit was reached
+     */
+    private PooledConnection createConnection(int limit) throws SQLException {
+        int current;
+        do {
+            current = totalConnections.get();
+            if (current >= limit) {
+                return null;
+            }
+        } while (!totalConnections.compareAndSet(current, current + 1));
+
+        try {
+            Connection connection = DriverManager.getConnection(url, user, password);
+            LOGGER.debug("Opened physical database connection ({} total)", current + 1);
+            return new PooledConnection(connection);
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        active.remove(pooled);
+        try {
+            if (closed || pooled.broken || !pooled.reset()) {
+                destroy(pooled);
+            } else {
+                pooled.lastUsed = System.nanoTime();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            LOGGER.debug("Error closing pooled connection", e);
+        }
+    }
+
+    /**
+     * Periodic maintenance: evict idle connections, top up to the minimum
+     * size and report leaked connections
+     */
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        long now = System.nanoTime();
+
+        // The deque is LIFO, so the longest-idle connections sit at the tail
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMillis());
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && totalConnections.get() > config.getMinSize()) {
+            PooledConnection pooled = it.next();
+            if (now - pooled.lastUsed > idleTimeoutNanos && idle.removeLastOccurrence(pooled)) {
+                destroy(pooled);
+            }
+        }
+
+        try {
+            PooledConnection pooled;
+            while (!closed && (pooled = createConnection(config.getMinSize())) != null) {
+                pooled.lastUsed = System.nanoTime();
+                idle.offerLast(pooled);
+            }
+        } catch (SQLException e) {
+            LOGGER.debug("Could not top up connection pool to minimum size", e);
+        }
+
+        long leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.getLeakDetectionThresholdMillis());
+        if (leakThresholdNanos > 0) {
+            for (PooledConnection pooled : active) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > leakThresholdNanos) {
+                    pooled.leakReported = true;
+                    leaksDetected.incrementAndGet();
+                    if (pooled.borrower != null) {
+                        LOGGER.warn("Possible connection leak: connection held for more than {} ms",
+                                config.getLeakDetectionThresholdMillis(), pooled.borrower);
+                    } else {
+                        LOGGER.warn("Possible connection leak: connection borrowed by thread {} at {} held for more"
+                                + " than {} ms (set db.pool.captureLeakStackTraces=true to log where)",
+                                pooled.borrowerThread, Instant.ofEpochMilli(pooled.borrowedAtMillis),
+                                config.getLeakDetectionThresholdMillis());
+                    }
+                }
+            }
+        }
+    }
+
+    private void recordBorrowTime(long nanos) {
+        synchronized (borrowSamples) {
+            borrowSamples[(int) (borrowCount % BORROW_SAMPLE_SIZE)] = nanos;
+            borrowCount++;
+        }
+    }
+
+    /**
+     * Get a snapshot of the pool state
+     *
+     * @return Pool statistics
+     */
+    public PoolStatistics getStatistics() {
+        long[] samples;
+        long count;
+        synchronized (borrowSamples) {
+            count = borrowCount;
+            samples = Arrays.copyOf(borrowSamples, (int) Math.min(count, BORROW_SAMPLE_SIZE));
+        }
+        long p99 = 0;
+        if (samples.length > 0) {
+            Arrays.sort(samples);
+            p99 = samples[(int) Math.ceil(samples.length * 0.99) - 1];
+        }
+        return new PoolStatistics(active.size(), idle.size(), totalConnections.get(),
+                permits.getQueueLength(), config.getMaxSize(), p99, count,
+                borrowTimeouts.get(), leaksDetected.get());
+    }
+
+    /**
+     * Close all pooled connections and stop the housekeeping thread.
+     * Connections still borrowed are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool
+     */
+    private final class PooledConnection {
+        private final Connection connection;
+        private volatile long lastUsed = System.nanoTime();
+        private volatile long borrowedAt;
+        private volatile long borrowedAtMillis;
+        private volatile String borrowerThread;
+        private volatile Throwable borrower;
+        private volatile boolean leakReported;
+        private volatile boolean broken;
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        boolean isValid(int timeoutSeconds) {
+            try {
+                return connection.isValid(timeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Undo per-borrower state before the connection goes back to the pool
+         *
+         * @return false if the connection is no longer usable
+         */
+        boolean reset() {
+            try {
+                if (connection.isClosed()) {
+                    return false;
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                if (connection.isReadOnly()) {
+                    connection.setReadOnly(false);
+                }
+                connection.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                LOGGER.debug("Discarding connection that could not be reset", e);
+                return false;
+            }
+        }
+
+        Connection newLease() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Lease(this));
+        }
+    }
+
+    /**
+     * Handle given to a single borrower; close() returns the connection
+     * to the pool exactly once. The physical connection never escapes it:
+     * unwrap() and the statements' getConnection() give back the lease,
+     * and statements still open when it is closed are closed with it.
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean returned = new AtomicBoolean();
+        private final Set<Statement> openStatements = ConcurrentHashMap.newKeySet();
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        closeOpenStatements();
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || pooled.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.connection + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    // Driver-specific interfaces are still answered by the driver
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (returned.get()) {
+                throw new SQLException("Connection is closed");
+            }
+            if (args != null && args.length > 0 && args[0] instanceof String && method.getName().startsWith("prepare")) {
+                QueryMetrics.statement((String) args[0]);
+            }
+            Object result = invokeOnConnection(pooled.connection, method, args);
+            if (result instanceof Statement) {
+                Statement statement = (Statement) result;
+                // Cancelling the background task running it cancels it on the server
+                BackgroundTasks.register(statement);
+                openStatements.add(statement);
+                return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                        new Class<?>[] { method.getReturnType() }, new LeasedStatement((Connection) proxy, statement));
+            }
+            return result;
+        }
+
+        /**
+         * Invoke a method on the physical connection or one of its
+         * statements, marking the connection broken if it failed
+         */
+        private Object invokeOnConnection(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    String sqlState = ((SQLException) cause).getSQLState();
+                    // SQLState class 08 means the connection itself failed
+                    if (sqlState != null && sqlState.startsWith("08")) {
+                        pooled.broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+
+        private void closeOpenStatements() {
+            for (Statement statement : openStatements) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    LOGGER.debug("Error closing statement left open by the borrower", e);
+                }
+            }
+            openStatements.clear();
+        }
+
+        /**
+         * Statement handed to the borrower of a lease
+         */
+        private final class LeasedStatement implements InvocationHandler {
+            private final Connection lease;
+            private final Statement statement;
+
+            LeasedStatement(Connection lease, Statement statement) {
+                this.lease = lease;
+                this.statement = statement;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "getConnection":
+                        return lease;
+                    case "close":
+                        openStatements.remove(statement);
+                        break;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return statement.toString();
+                    case "unwrap":
+                        if (((Class<?>) args[0]).isInstance(proxy)) {
+                            return proxy;
+                        }
+                        break;
+                    case "isWrapperFor":
+                        if (((Class<?>) args[0]).isInstance(proxy)) {
+                            return true;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                return invokeOnConnection(statement, method, args);
+            }
+        }
+    }
+
+    /**
+     * Pool sizing and timeout settings
+     */
+    public static class Config {
+        private int minSize = 2;
+        private int maxSize = 10;
+        private long idleTimeoutMillis = 10 * 60 * 1000L;
+        private long borrowTimeoutMillis = 30 * 1000L;
+        private long leakDetectionThresholdMillis = 60 * 1000L;
+        private boolean captureLeakStackTraces;
+        private long housekeepingIntervalMillis = 30 * 1000L;
+        private boolean validateOnBorrow = true;
+        private int validationTimeoutSeconds = 5;
+
+        /**
+         * Read pool settings from the application configuration (db.pool.* keys)
+         *
+         * @return Config populated from satya.properties and system properties
+         */
+        public static Config fromAppConfig() {
+            Config config = new Config();
+            config.setMinSize(AppConfig.getInt("db.pool.minSize", config.minSize));
+            config.setMaxSize(AppConfig.getInt("db.pool.maxSize", config.maxSize));
+            config.setIdleTimeoutMillis(AppConfig.getLong("db.pool.idleTimeoutMillis", config.idleTimeoutMillis));
+            config.setBorrowTimeoutMillis(AppConfig.getLong("db.pool.borrowTimeoutMillis", config.borrowTimeoutMillis));
+            config.setLeakDetectionThresholdMillis(AppConfig.getLong("db.pool.leakDetectionThresholdMillis", config.leakDetectionThresholdMillis));
+            config.setCaptureLeakStackTraces(AppConfig.getBoolean("db.pool.captureLeakStackTraces", config.captureLeakStackTraces));
+            config.setHousekeepingIntervalMillis(AppConfig.getLong("db.pool.housekeepingIntervalMillis", config.housekeepingIntervalMillis));
+            config.setValidateOnBorrow(AppConfig.getBoolean("db.pool.validateOnBorrow", config.validateOnBorrow));
+            config.setValidationTimeoutSeconds(AppConfig.getInt("db.pool.validationTimeoutSeconds", config.validationTimeoutSeconds));
+            return config;
+        }
+
+        public int getMinSize() {
+            return minSize;
+        }
+
+        public void setMinSize(int minSize) {
+            this.minSize = minSize;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public long getIdleTimeoutMillis() {
+            return idleTimeoutMillis;
+        }
+
+        public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+        }
+
+        public long getBorrowTimeoutMillis() {
+            return borrowTimeoutMillis;
+        }
+
+        public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+            this.borrowTimeoutMillis = borrowTimeoutMillis;
+        }
+
+        public long getLeakDetectionThresholdMillis() {
+            return leakDetectionThresholdMillis;
+        }
+
+        /**
+         * @param leakDetectionThresholdMillis How long a borrower may hold a connection
+         *        before it is reported; 0 disables leak detection
+         */
+        public void setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis) {
+            this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+        }
+
+        public boolean isCaptureLeakStackTraces() {
+            return captureLeakStackTraces;
+        }
+
+        /**
+         * @param captureLeakStackTraces true to record the borrower's stack trace on
+         *        every borrow, so a leak report shows where the connection was taken
+         */
+        public void setCaptureLeakStackTraces(boolean captureLeakStackTraces) {
+            this.captureLeakStackTraces = captureLeakStackTraces;
+        }
+
+        public long getHousekeepingIntervalMillis() {
+            return housekeepingIntervalMillis;
+        }
+
+        public void setHousekeepingIntervalMillis(long housekeepingIntervalMillis) {
+            this.housekeepingIntervalMillis = housekeepingIntervalMillis;
+        }
+
+        public boolean isValidateOnBorrow() {
+            return validateOnBorrow;
+        }
+
+        public void setValidateOnBorrow(boolean validateOnBorrow) {
+            this.validateOnBorrow = validateOnBorrow;
+        }
+
+        public int getValidationTimeoutSeconds() {
+            return validationTimeoutSeconds;
+        }
+
+        public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+        }
+    }
+
+    /**
+     * Immutable snapshot of pool usage
+     */
+    public static class PoolStatistics {
+        private final int active;
+        private final int idle;
+        private final int total;
+        private final int waiters;
+        private final int maxSize;
+        private final long p99BorrowNanos;
+        private final long borrowCount;
+        private final long borrowTimeouts;
+        private final long leaksDetected;
+
+        PoolStatistics(int active, int idle, int total, int waiters, int maxSize, long p99BorrowNanos,
+                       long borrowCount, long borrowTimeouts, long leaksDetected) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.waiters = waiters;
+            this.maxSize = maxSize;
+            this.p99BorrowNanos = p99BorrowNanos;
+            this.borrowCount = borrowCount;
+            this.borrowTimeouts = borrowTimeouts;
+            this.leaksDetected = leaksDetected;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getWaiters() {
+            return waiters;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        /**
+         * @return 99th percentile of the most recent borrow times, in milliseconds
+         */
+        public double getP99BorrowMillis() {
+            return p99BorrowNanos / 1_000_000.0;
+        }
+
+        public long getBorrowCount() {
+            return borrowCount;
+        }
+
+        public long getBorrowTimeouts() {
+            return borrowTimeouts;
+        }
+
+        public long getLeaksDetected() {
+            return leaksDetected;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("active=%d, idle=%d, total=%d/%d, waiters=%d, p99Borrow=%.2fms",
+                    active, idle, total, maxSize, waiters, getP99BorrowMillis());
+        }
+    }
+}
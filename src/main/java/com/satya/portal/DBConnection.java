@@ -1,47 +1,120 @@
 package com.satya.portal;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.satya.portal.utils.AppConfig;
+import com.satya.portal.utils.QueryMetrics;
 /**
  * Database connection utility class for SATYA Portal
- * Handles connection to MySQL database with proper error handling
+ * Handles connection to MySQL database with proper error handling, or to
+ * the {@link EmbeddedDatabase} when db.backend=h2.
+ * Connections come from a shared {@link ConnectionPool}; closing a
+ * connection returns it to the pool. The time taken to hand one out is
+ * measured by {@link QueryMetrics}. Before the first connection is handed
+ * out, {@link SchemaUpgrade} adds anything the layouts table is missing.
  */
 public class DBConnection {
-    private static final Logger LOGGER = Logger.getLogger(DBConnection.class.getName());
+    private static final Logger LOGGER = LoggerFactory.getLogger(DBConnection.class);
     
-    // Database configuration - Update these values as per your database setup
+    // Database configuration - defaults, overridable via db.url/db.user/db.password in satya.properties
     private static final String URL = "jdbc:mysql://localhost:3306/sp?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true";
     private static final String USER = "root";
     private static final String PASSWORD = "Ved@2006";
+    // Defaults of the embedded database
+    private static final String EMBEDDED_USER = "sa";
+    private static final String EMBEDDED_PASSWORD = "";
+    
+    private static volatile ConnectionPool pool;
+    
+    private static ConnectionPool getPool() throws SQLException {
+        if (pool == null) {
+            synchronized (DBConnection.class) {
+                if (pool == null) {
+                    ConnectionPool created = EmbeddedDatabase.isEnabled() ? createEmbeddedPool() : createMySqlPool();
+                    upgradeSchema(created);
+                    pool = created;
+                }
+            }
+        }
+        return pool;
+    }
     
-    // Load MySQL JDBC Driver
-    static {
+    private static ConnectionPool createMySqlPool() {
+        // Load MySQL JDBC Driver
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
         } catch (ClassNotFoundException e) {
-            LOGGER.log(Level.SEVERE, "MySQL JDBC Driver not found", e);
+            LOGGER.error("MySQL JDBC Driver not found", e);
             throw new RuntimeException("MySQL JDBC Driver not found", e);
         }
+        return new ConnectionPool(
+                withBatchRewrite(AppConfig.getString("db.url", URL)),
+                AppConfig.getString("db.user", USER),
+                AppConfig.getString("db.password", PASSWORD),
+                ConnectionPool.Config.fromAppConfig());
+    }
+    
+    private static ConnectionPool createEmbeddedPool() throws SQLException {
+        String url = EmbeddedDatabase.url();
+        String user = AppConfig.getString("db.user", EMBEDDED_USER);
+        String password = AppConfig.getString("db.password", EMBEDDED_PASSWORD);
+        // Before the pool opens its first connections, so they see the tables
+        EmbeddedDatabase.bootstrap(url, user, password);
+        LOGGER.info("Using the embedded database at {}", url);
+        return new ConnectionPool(url, user, password, ConnectionPool.Config.fromAppConfig());
     }
     
     /**
-     * Get a database connection
+     * Add the columns and tables the map features need to a database
+     * created before them; the application starts whatever the outcome
+     */
+    private static void upgradeSchema(ConnectionPool created) {
+        if (!SchemaUpgrade.isEnabled()) {
+            return;
+        }
+        try (Connection connection = created.getConnection()) {
+            int added = SchemaUpgrade.apply(connection);
+            if (added > 0) {
+                LOGGER.info("Upgraded the layouts schema ({} changes)", added);
+            }
+        } catch (SQLException e) {
+            LOGGER.warn("Could not check the layouts schema", e);
+        }
+    }
+    
+    /**
+     * Let MySQL Connector/J send a JDBC batch as multi-row INSERTs instead
+     * of one statement per row, unless the URL already decides it
+     * (db.rewriteBatchedStatements=false turns this off)
+     */
+    private static String withBatchRewrite(String url) {
+        if (!url.startsWith("jdbc:mysql:") || url.contains("rewriteBatchedStatements=")
+                || !AppConfig.getBoolean("db.rewriteBatchedStatements", true)) {
+            return url;
+        }
+        return url + (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+    }
+    
+    /**
+     * Get a database connection from the pool
      * 
      * @return Connection object
      * @throws SQLException if connection fails
      */
     public static Connection getConnection() throws SQLException {
+        QueryMetrics.Sample sample = QueryMetrics.start("getConnection");
         try {
-            Connection connection = DriverManager.getConnection(URL, USER, PASSWORD);
-            LOGGER.info("Database connection established successfully");
-            return connection;
+            return getPool().getConnection();
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Failed to establish database connection", e);
+            sample.failed();
+            LOGGER.error("Failed to establish database connection", e);
             throw e;
+        } finally {
+            sample.end();
         }
     }
     
@@ -54,8 +127,30 @@ public class DBConnection {
         try (Connection connection = getConnection()) {
             return connection != null && !connection.isClosed();
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Database connection test failed", e);
+            LOGGER.error("Database connection test failed", e);
             return false;
         }
     }
+    
+    /**
+     * Get usage statistics of the connection pool
+     * 
+     * @return Pool statistics snapshot
+     * @throws SQLException if the embedded database cannot be created
+     */
+    public static ConnectionPool.PoolStatistics getPoolStatistics() throws SQLException {
+        return getPool().getStatistics();
+    }
+    
+    /**
+     * Close all pooled connections. A later call to getConnection() starts a new pool.
+     */
+    public static void shutdown() {
+        synchronized (DBConnection.class) {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.satya.portal;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.satya.portal.utils.AppConfig;
+/**
+ * Embedded H2 backend, used instead of MySQL when db.backend=h2.
+ * H2 runs in MySQL compatibility mode with case-insensitive text and
+ * MySQL's NULL ordering, so DatabaseManager's SQL behaves as on the
+ * server. A database without tables is created from DATABASE_SCHEMA.sql.
+ * Data is kept in a file (db.h2.storage=file, at db.h2.path) or only
+ * for the life of the process (db.h2.storage=memory).
+ */
+public final class EmbeddedDatabase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmbeddedDatabase.class);
+
+    private static final String DRIVER = "org.h2.Driver";
+    private static final String SCHEMA_RESOURCE = "/DATABASE_SCHEMA.sql";
+    private static final String COMPATIBILITY =
+            ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE;DEFAULT_NULL_ORDERING=LOW";
+
+    private EmbeddedDatabase() {
+        // Utility class
+    }
+
+    /**
+     * @return true if db.backend selects the embedded database
+     */
+    public static boolean isEnabled() {
+        return "h2".equalsIgnoreCase(AppConfig.getString("db.backend", "mysql"));
+    }
+
+    /**
+     * Build the JDBC URL from db.h2.storage and db.h2.path
+     *
+     * @return URL of the embedded database
+     */
+    public static String url() {
+        if ("memory".equalsIgnoreCase(AppConfig.getString("db.h2.storage", "file"))) {
+            // Kept until the JVM exits, not until the last connection closes
+            return "jdbc:h2:mem:satya;DB_CLOSE_DELAY=-1" + COMPATIBILITY;
+        }
+        String path = AppConfig.getString("db.h2.path",
+                System.getProperty("user.home") + File.separator + ".satya" + File.separator + "satya");
+        return "jdbc:h2:file:" + new File(path).getAbsolutePath() + COMPATIBILITY;
+    }
+
+    /**
+     * Load the H2 driver and create the tables if the database has none
+     *
+     * @param url URL of the embedded database
+     * @param user Database user, the owner of a newly created database
+     * @param password Password of the user
+     * @throws SQLException if the database cannot be opened or created
+     */
+    public static void bootstrap(String url, String user, String password) throws SQLException {
+        try {
+            Class.forName(DRIVER);
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("H2 JDBC Driver not found", e);
+        }
+
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            if (hasTable(connection, "layouts")) {
+                return;
+            }
+            String script = schemaScript();
+            LOGGER.info("Creating the embedded database from {}", script);
+            try (Statement statement = connection.createStatement()) {
+                // Escape quotes for the SQL string literal
+                statement.execute("RUNSCRIPT FROM '" + script.replace("'", "''") + "' CHARSET 'UTF-8'");
+            }
+        }
+    }
+
+    private static boolean hasTable(Connection connection, String table) throws SQLException {
+        try (ResultSet tables = connection.getMetaData().getTables(null, null, table, new String[] {"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    /**
+     * Find DATABASE_SCHEMA.sql: packaged on the classpath, or in the
+     * working directory when running from the source tree
+     */
+    private static String schemaScript() throws SQLException {
+        if (EmbeddedDatabase.class.getResource(SCHEMA_RESOURCE) != null) {
+            return "classpath:" + SCHEMA_RESOURCE;
+        }
+        File file = new File(SCHEMA_RESOURCE.substring(1));
+        if (file.isFile()) {
+            return file.getAbsolutePath();
+        }
+        throw new SQLException(SCHEMA_RESOURCE.substring(1) + " not found on the classpath or in "
+                + new File("").getAbsolutePath());
+    }
+}
@@ -0,0 +1,200 @@
+package com.satya.portal;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.swing.table.AbstractTableModel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.satya.portal.models.Layout;
+import com.satya.portal.models.LayoutPage;
+import com.satya.portal.models.LayoutSearchCriteria;
+import com.satya.portal.utils.BackgroundTasks;
+import com.satya.portal.utils.DataManager;
+/**
+ * Table model for search results that loads rows page by page as the
+ * table asks for them. Only the row count and a small LRU set of pages
+ * are kept in memory, so the footprint stays the same whether a search
+ * matches ten layouts or a whole district.
+ */
+public class LazyLayoutTableModel extends AbstractTableModel {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyLayoutTableModel.class);
+    private static final String[] COLUMN_NAMES = {"File No.", "Layout Name", "Status", "Owner", "Area", "Application Date", "Survey No."};
+    private static final String LOADING_TEXT = "Loading...";
+
+    private final int pageSize;
+    private final Map<Integer, List<Layout>> pages;
+    // Keyset cursor needed to fetch each page, learned from the page before it
+    private final Map<Integer, LayoutPage.Cursor> cursors = new HashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+
+    private LayoutSearchCriteria criteria;
+    private int rowCount;
+    private int generation;
+
+    /**
+     * @param pageSize Number of rows fetched per query
+     * @param maxCachedPages Number of pages kept in memory
+     */
+    public LazyLayoutTableModel(int pageSize, final int maxCachedPages) {
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<Integer, List<Layout>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Layout>> eldest) {
+                return size() > maxCachedPages;
+            }
+        };
+    }
+
+    /**
+     * Show the results of a new search. Must be called on the EDT.
+     *
+     * @param criteria The search whose rows are shown, resolved with
+     *                 DataManager.resolveSearch() before it was counted, so
+     *                 every page is fetched with the matches of the count
+     * @param rowCount Total number of matching layouts
+     */
+    public void setSearch(LayoutSearchCriteria criteria, int rowCount) {
+        this.criteria = criteria.copy();
+        this.rowCount = rowCount;
+        resetPages();
+        fireTableDataChanged();
+    }
+
+    /**
+     * @return Copy of the search whose rows are shown, or null if the table is empty
+     */
+    public LayoutSearchCriteria getCriteria() {
+        return criteria != null ? criteria.copy() : null;
+    }
+
+    /**
+     * Remove all rows. Must be called on the EDT.
+     */
+    public void clear() {
+        this.criteria = null;
+        this.rowCount = 0;
+        resetPages();
+        fireTableDataChanged();
+    }
+
+    private void resetPages() {
+        // Pages still loading for the previous search are dropped when they arrive
+        generation++;
+        pages.clear();
+        cursors.clear();
+        loading.clear();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 5 ? LocalDate.class : String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Layout layout = getLayoutAt(row);
+        if (layout == null) {
+            return column == 1 ? LOADING_TEXT : null;
+        }
+        switch (column) {
+            case 0: return layout.getFileNumber();
+            case 1: return layout.getLayoutName();
+            case 2: return layout.getStatus();
+            case 3: return layout.getOwnerName();
+            case 4: return layout.getFormattedArea();
+            case 5: return layout.getApplicationDate();
+            case 6: return layout.getSurveyNumber();
+            default: return null;
+        }
+    }
+
+    /**
+     * Get the layout shown in a row, starting a background load if its page
+     * is not in memory yet
+     *
+     * @param row Model row index
+     * @return The layout, or null while its page is loading
+     */
+    public Layout getLayoutAt(int row) {
+        if (row < 0 || row >= rowCount) {
+            return null;
+        }
+        int page = row / pageSize;
+        int index = row % pageSize;
+        List<Layout> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        // Prefetch the next page once the user is three quarters through this one
+        if (index >= pageSize * 3 / 4 && (page + 1) * pageSize < rowCount && !pages.containsKey(page + 1)) {
+            requestPage(page + 1);
+        }
+        return index < rows.size() ? rows.get(index) : null;
+    }
+
+    private void requestPage(final int page) {
+        if (criteria == null || !loading.add(page)) {
+            return;
+        }
+        final int requestGeneration = generation;
+        final LayoutSearchCriteria search = criteria;
+        final LayoutPage.Cursor cursor = cursors.get(page);
+
+        BackgroundTasks.submit(() -> {
+            if (page == 0 || cursor != null) {
+                return DataManager.getInstance().searchLayoutsPage(search, cursor, pageSize);
+            }
+            // Jumped past pages never visited (e.g. dragging the scrollbar):
+            // fall back to an OFFSET query in the same order, then continue by keyset
+            return DataManager.getInstance().searchLayoutsPageAt(search, page * pageSize, pageSize);
+        }, result -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            loading.remove(page);
+            pages.put(page, result.getLayouts());
+            if (result.getNextCursor() != null) {
+                cursors.put(page + 1, result.getNextCursor());
+            }
+            int firstRow = page * pageSize;
+            int lastRow = Math.min(rowCount, firstRow + pageSize) - 1;
+            if (lastRow >= firstRow) {
+                fireTableRowsUpdated(firstRow, lastRow);
+            }
+        }, error -> {
+            if (requestGeneration == generation) {
+                loading.remove(page);
+                LOGGER.error("Error loading search results page {}", page, error);
+            }
+        });
+    }
+}
@@ -18,13 +18,17 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.JButton;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JComboBox;
 import javax.swing.JDialog;
 import javax.swing.JEditorPane;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JMenu;
@@ -39,13 +43,23 @@ import javax.swing.JTable;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
+import javax.swing.ProgressMonitor;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import javax.swing.UIManager;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 
+import org.jxmapviewer.viewer.GeoPosition;
+
 import com.roots.map.MapPanel;
+import com.roots.map.TilePrefetcher;
+import com.satya.portal.importer.DataImporter;
+import com.satya.portal.importer.ImportReport;
 import com.satya.portal.models.User;
+import com.satya.portal.utils.AppConfig;
+import com.satya.portal.utils.BackgroundTasks;
 import com.satya.portal.utils.DataManager;
 import com.satya.portal.utils.ModernUIUtils;
 import com.satya.portal.utils.ScreenshotProtection;
@@ -53,6 +67,8 @@ import com.satya.portal.utils.ScreenshotProtection;
 public class MainFrame extends JFrame {
     private static final Color PRIMARY_COLOR = new Color(41, 128, 185);
     private static final Color SUCCESS_COLOR = new Color(39, 174, 96);
+    // More detailed zoom levels saved along with the visible one for offline use
+    private static final int OFFLINE_DETAIL_LEVELS = 3;
 
     private final SATYAPortalApp parentApp;
     private final User currentUser;
@@ -139,9 +155,32 @@ public class MainFrame extends JFrame {
         toolsMenu.setFont(ModernUIUtils.BUTTON_FONT);
         JMenuItem calculatorItem = new JMenuItem("Area Calculator");
         calculatorItem.addActionListener(e -> openSystemCalculator());
+        JMenuItem saveMapAreaItem = new JMenuItem("Save Map Area for Offline Use...");
+        JCheckBoxMenuItem offlineItem = new JCheckBoxMenuItem("Work Offline (Map)", AppConfig.getBoolean("map.offline", false));
+        saveMapAreaItem.addActionListener(e -> saveMapAreaForOffline());
+        offlineItem.addActionListener(e -> {
+            mapPanel.setOffline(offlineItem.isSelected());
+            setStatusText(offlineItem.isSelected() ? "Map is offline: showing saved tiles only" : "Map is online", Color.BLUE);
+        });
         // Style menu items
         styleMenuItem(calculatorItem);
+        styleMenuItem(saveMapAreaItem);
+        styleMenuItem(offlineItem);
         toolsMenu.add(calculatorItem);
+        toolsMenu.addSeparator();
+        toolsMenu.add(saveMapAreaItem);
+        toolsMenu.add(offlineItem);
+        if (currentUser.isAdmin()) {
+            JMenuItem importLayoutsItem = new JMenuItem("Import Layouts...");
+            JMenuItem importCasesItem = new JMenuItem("Import Court Cases...");
+            importLayoutsItem.addActionListener(e -> importData(DataImporter.RecordType.LAYOUTS));
+            importCasesItem.addActionListener(e -> importData(DataImporter.RecordType.COURT_CASES));
+            styleMenuItem(importLayoutsItem);
+            styleMenuItem(importCasesItem);
+            toolsMenu.addSeparator();
+            toolsMenu.add(importLayoutsItem);
+            toolsMenu.add(importCasesItem);
+        }
 
         JMenu helpMenu = new JMenu("Help");
         helpMenu.setForeground(Color.WHITE);
@@ -168,6 +207,90 @@ public class MainFrame extends JFrame {
         setJMenuBar(menuBar);
     }
     
+    /**
+     * Import layouts or court cases from a CSV or Excel file chosen by the user.
+     * The import runs in the background and reports progress in the status bar.
+     * 
+     * @param type What the file contains
+     */
+    private void importData(DataImporter.RecordType type) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle(type == DataImporter.RecordType.LAYOUTS ? "Import Layouts" : "Import Court Cases");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV or Excel files (*.csv, *.xlsx)", "csv", "xlsx"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+        
+        DataImporter importer = new DataImporter(type);
+        importer.setProgressListener(progress -> SwingUtilities.invokeLater(() ->
+                setStatusText("Importing " + file.getName() + ": " + progress.getRowsWritten() + " rows written...", Color.BLUE)));
+        setStatusText("Importing " + file.getName() + "...", Color.BLUE);
+        
+        BackgroundTasks.submit(() -> importer.importFile(file), report -> {
+            StringBuilder message = new StringBuilder()
+                    .append("Rows read: ").append(report.getRowsRead()).append('\n')
+                    .append("Rows imported: ").append(report.getRowsWritten()).append('\n')
+                    .append("Rows rejected: ").append(report.getRowsRejected() + report.getRowsFailed()).append('\n')
+                    .append(String.format("Time: %.1f s (%.0f rows/s)", report.getElapsedMillis() / 1000.0, report.getRowsPerSecond()));
+            if (report.getFatalError() != null) {
+                message.append("\n\nImport stopped: ").append(report.getFatalError());
+            }
+            java.util.List<ImportReport.Issue> issues = report.getIssues();
+            for (int i = 0; i < Math.min(10, issues.size()); i++) {
+                message.append(i == 0 ? "\n\n" : "\n").append(issues.get(i));
+            }
+            setStatusText("Import finished: " + report.getRowsWritten() + " rows imported", SUCCESS_COLOR);
+            JOptionPane.showMessageDialog(this, message.toString(), "Import Results",
+                    report.getFatalError() != null ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+            refreshAllData();
+        }, error -> {
+            setStatusText("Import failed", Color.RED);
+            showWarningMessage("Import failed: " + error.getMessage());
+        });
+    }
+    
+    /**
+     * Download the map tiles of the visible area, at the current zoom level
+     * and a few more detailed ones, so the area can be viewed offline.
+     */
+    private void saveMapAreaForOffline() {
+        TilePrefetcher prefetcher = mapPanel.createPrefetcher();
+        if (prefetcher == null) {
+            showWarningMessage("The map tile cache is not available.");
+            return;
+        }
+        GeoPosition[] area = mapPanel.getVisibleArea();
+        int toZoom = mapPanel.getZoom();
+        int fromZoom = Math.max(0, toZoom - OFFLINE_DETAIL_LEVELS);
+        long tiles = prefetcher.countTiles(area[0], area[1], fromZoom, toZoom);
+        if (JOptionPane.showConfirmDialog(this,
+                "Save the visible map area with " + (toZoom - fromZoom) + " more detailed zoom levels?\n" +
+                "This needs up to " + tiles + " map tiles.",
+                "Save Map Area", JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION) {
+            return;
+        }
+        
+        ProgressMonitor monitor = new ProgressMonitor(this, "Saving map tiles for offline use", "", 0, (int) tiles);
+        monitor.setMillisToDecideToPopup(200);
+        BackgroundTasks.submit(() -> prefetcher.prefetch(area[0], area[1], fromZoom, toZoom,
+                progress -> SwingUtilities.invokeLater(() -> {
+                    if (monitor.isCanceled()) {
+                        prefetcher.cancel();
+                    }
+                    monitor.setNote(progress.getDone() + " of " + progress.getTotal() + " tiles");
+                    monitor.setProgress((int) Math.min(progress.getDone(), progress.getTotal() - 1));
+                })), result -> {
+            monitor.close();
+            setStatusText("Map area saved: " + result.getDownloaded() + " tiles downloaded", SUCCESS_COLOR);
+            JOptionPane.showMessageDialog(this, "Map tiles: " + result + "\n" + mapPanel.getTileCacheStatistics(),
+                    "Save Map Area", result.getFailed() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+        }, error -> {
+            monitor.close();
+            showWarningMessage("Could not save the map area: " + error.getMessage());
+        });
+    }
+    
     /**
      * Opens the system calculator based on the operating system.
      */
@@ -585,18 +708,22 @@ public class MainFrame extends JFrame {
 
     public void refreshAllData() {
         setStatusText("Refreshing data...", Color.BLUE);
-        Timer refreshTimer = new Timer(2000, (ActionEvent e) -> {
-            if (searchPanel != null) searchPanel.refreshData();
-            if (mapPanel != null) mapPanel.refreshData();
-            if (adminPanel != null) adminPanel.refreshData();
-
+        if (searchPanel != null) searchPanel.refreshData();
+        CompletableFuture<?> mapRefresh = mapPanel != null ? mapPanel.refreshData() : CompletableFuture.completedFuture(null);
+        CompletableFuture<?> adminRefresh = adminPanel != null ? adminPanel.refreshData() : CompletableFuture.completedFuture(null);
+
+        CompletableFuture.allOf(mapRefresh, adminRefresh).whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                if (!(error instanceof CancellationException || error.getCause() instanceof CancellationException)) {
+                    setStatusText("Data refresh failed", Color.RED);
+                }
+                return; // Superseded by a newer refresh
+            }
             setStatusText("Data refreshed successfully", SUCCESS_COLOR);
             Timer clearTimer = new Timer(3000, evt -> setStatusText("Ready", Color.BLACK));
             clearTimer.setRepeats(false);
             clearTimer.start();
-        });
-        refreshTimer.setRepeats(false);
-        refreshTimer.start();
+        }, BackgroundTasks.EDT);
     }
 
     private void showUserProfile() {
@@ -637,13 +764,14 @@ public class MainFrame extends JFrame {
 
         if (choice == JOptionPane.YES_OPTION) {
             cleanup();
+            DBConnection.shutdown();
             System.exit(0);
         }
     }
 
     public void cleanup() {
         if (clockTimer != null) clockTimer.stop();
-        if (mapPanel != null) { /* cleanup if any */ }
+        if (mapPanel != null) mapPanel.cleanup();
         if (documentViewer != null) { /* cleanup if any */ }
     }
 
@@ -684,6 +812,11 @@ public class MainFrame extends JFrame {
         private MainFrame parent;
         private JTable usersTable;
         private DefaultTableModel usersTableModel;
+        private final BackgroundTasks.Latest usersTask = new BackgroundTasks.Latest();
+        private final BackgroundTasks.Latest statsTask = new BackgroundTasks.Latest();
+        private JLabel layoutStats;
+        private JLabel usersStats;
+        private JLabel casesStats;
         
         public AdminPanel(MainFrame parent) {
             this.parent = parent;
@@ -692,34 +825,46 @@ public class MainFrame extends JFrame {
             setOpaque(false);
 
             add(createStatsPanel(), BorderLayout.NORTH);
-            add(createUsersPanel(), BorderLayout.CENTER);
+
+            JTabbedPane sections = new JTabbedPane(JTabbedPane.TOP);
+            sections.setFont(ModernUIUtils.BUTTON_FONT);
+            sections.addTab("👥 Users", createUsersPanel());
+            sections.addTab("⏱️ Database Queries", new QueryMetricsPanel(parent));
+            sections.addTab("📈 Performance", new PerformancePanel());
+            add(sections, BorderLayout.CENTER);
         }
 
         private JPanel createStatsPanel() {
             JPanel panel = new JPanel(new GridLayout(1, 3, 18, 0));
             panel.setOpaque(false);
 
-            // Get statistics from DataManager
-            java.util.Map<String, Object> stats = DataManager.getInstance().getStatisticsData();
-            
-            int totalLayouts = (Integer) stats.getOrDefault("totalLayouts", 0);
-            int activeUsers = (Integer) stats.getOrDefault("totalUsers", 0);
-            int activeCases = (Integer) stats.getOrDefault("activeCases", 0);
-
-            JLabel layoutStats = statCard("Total Layouts", String.valueOf(totalLayouts));
-            JLabel usersStats = statCard("Active Users", String.valueOf(activeUsers));
-            JLabel logsStats = statCard("Active Cases", String.valueOf(activeCases));
+            layoutStats = statCard("Total Layouts", "...");
+            usersStats = statCard("Active Users", "...");
+            casesStats = statCard("Active Cases", "...");
 
             panel.add(layoutStats);
             panel.add(usersStats);
-            panel.add(logsStats);
+            panel.add(casesStats);
 
+            loadStatistics();
             return panel;
         }
 
+        private CompletableFuture<java.util.Map<String, Object>> loadStatistics() {
+            // Get statistics from DataManager; normally a memory read, but may reload when stale
+            return statsTask.submit(() -> DataManager.getInstance().getStatisticsData(), stats -> {
+                setStatCard(layoutStats, "Total Layouts", stats.getOrDefault("totalLayouts", 0));
+                setStatCard(usersStats, "Active Users", stats.getOrDefault("totalUsers", 0));
+                setStatCard(casesStats, "Active Cases", stats.getOrDefault("activeCases", 0));
+            }, null);
+        }
+
+        private void setStatCard(JLabel card, String title, Object value) {
+            card.setText(statCardText(title, String.valueOf(value)));
+        }
+
         private JLabel statCard(String title, String value) {
-            JLabel label = new JLabel("<html><center><span style='font-size:13px;'>" + title + "</span><br>"
-                    + "<span style='font-size:24px;font-weight:bold;color:#2980b9;'>" + value + "</span></center></html>");
+            JLabel label = new JLabel(statCardText(title, value));
             label.setOpaque(true);
             label.setBackground(ModernUIUtils.CARD_BACKGROUND);
             label.setBorder(BorderFactory.createCompoundBorder(
@@ -730,6 +875,11 @@ public class MainFrame extends JFrame {
             return label;
         }
 
+        private static String statCardText(String title, String value) {
+            return "<html><center><span style='font-size:13px;'>" + title + "</span><br>"
+                    + "<span style='font-size:24px;font-weight:bold;color:#2980b9;'>" + value + "</span></center></html>";
+        }
+
         private JPanel createUsersPanel() {
             JPanel panel = ModernUIUtils.createModernCard(15);
 
@@ -787,25 +937,25 @@ public class MainFrame extends JFrame {
             return panel;
         }
 
-        private void loadUsersData() {
-            // Clear existing data
-            usersTableModel.setRowCount(0);
-            
-            // Load users from database
-            java.util.List<User> users = DataManager.getInstance().getAllUsers();
-            
-            for (User user : users) {
-                Object[] row = {
-                    user.getUserId(),
-                    user.getUsername(),
-                    user.getFullName(),
-                    user.getRole().toString(),
-                    user.getEmail(),
-                    user.getDepartment(),
-                    user.isActive() ? "Active" : "Inactive"
-                };
-                usersTableModel.addRow(row);
-            }
+        private CompletableFuture<java.util.List<User>> loadUsersData() {
+            // Load users from database off the EDT
+            return usersTask.submit(() -> DataManager.getInstance().getAllUsers(), users -> {
+                // Clear existing data
+                usersTableModel.setRowCount(0);
+                
+                for (User user : users) {
+                    Object[] row = {
+                        user.getUserId(),
+                        user.getUsername(),
+                        user.getFullName(),
+                        user.getRole().toString(),
+                        user.getEmail(),
+                        user.getDepartment(),
+                        user.isActive() ? "Active" : "Inactive"
+                    };
+                    usersTableModel.addRow(row);
+                }
+            }, null);
         }
 
         private void showAddUserDialog() {
@@ -930,8 +1080,13 @@ public class MainFrame extends JFrame {
             }
         }
 
-        public void refreshData() {
-            loadUsersData();
+        /**
+         * Reload the statistics and users table in the background
+         *
+         * @return Future completed on the EDT once both are updated
+         */
+        public CompletableFuture<Void> refreshData() {
+            return CompletableFuture.allOf(loadStatistics(), loadUsersData());
         }
     }
 }
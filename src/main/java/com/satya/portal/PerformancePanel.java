@@ -0,0 +1,222 @@
+package com.satya.portal;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.GridLayout;
+import java.awt.event.HierarchyEvent;
+import java.util.Locale;
+
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.Timer;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.data.xy.AbstractXYDataset;
+
+import com.satya.portal.utils.ModernUIUtils;
+import com.satya.portal.utils.PerformanceMonitor;
+import com.satya.portal.utils.SampleRing;
+
+/**
+ * Admin view of {@link PerformanceMonitor}: live charts of memory, GC, Event
+ * Dispatch Thread response, connection pool, database latency, layout cache
+ * and map repaints over the last few minutes. The charts read the samples
+ * in place, so keeping them up to date costs no copies. The monitor samples
+ * and the charts refresh only while the panel is showing.
+ */
+public class PerformancePanel extends JPanel {
+    private static final Color[] SERIES_COLORS = {
+        ModernUIUtils.PRIMARY_BLUE, ModernUIUtils.WARNING_ORANGE, ModernUIUtils.DANGER_RED
+    };
+
+    private final SampleRing samples = PerformanceMonitor.getSamples();
+    private final JPanel charts;
+    private final JLabel summaryLabel;
+    private final Timer timer;
+    private boolean monitoring;
+
+    public PerformancePanel() {
+        setLayout(new BorderLayout(0, 10));
+        setOpaque(false);
+
+        summaryLabel = new JLabel();
+        summaryLabel.setFont(ModernUIUtils.BODY_FONT);
+        add(summaryLabel, BorderLayout.NORTH);
+
+        charts = new JPanel(new GridLayout(0, 2, 10, 10));
+        charts.setOpaque(false);
+        addChart("Heap", "MB", false,
+                new String[] { "Used", "Committed" },
+                PerformanceMonitor.HEAP_USED_MB, PerformanceMonitor.HEAP_COMMITTED_MB);
+        addChart("Garbage collection", "ms per sample", false,
+                new String[] { "GC time" },
+                PerformanceMonitor.GC_MILLIS);
+        addChart("UI responsiveness", "ms", false,
+                new String[] { "Event Dispatch Thread delay" },
+                PerformanceMonitor.EDT_LAG_MILLIS);
+        addChart("Connection pool", "% in use / threads", false,
+                new String[] { "In use (%)", "Waiting threads" },
+                PerformanceMonitor.POOL_USAGE_PERCENT, PerformanceMonitor.POOL_WAITERS);
+        addChart("Database latency", "ms", false,
+                new String[] { "p50", "p95", "p99" },
+                PerformanceMonitor.QUERY_P50_MILLIS, PerformanceMonitor.QUERY_P95_MILLIS,
+                PerformanceMonitor.QUERY_P99_MILLIS);
+        addChart("Layout cache", "% hits", true,
+                new String[] { "Hit rate" },
+                PerformanceMonitor.LAYOUT_CACHE_HIT_PERCENT);
+        addChart("Map repaint", "ms", false,
+                new String[] { "p95", "Max" },
+                PerformanceMonitor.MAP_REPAINT_P95_MILLIS, PerformanceMonitor.MAP_REPAINT_MAX_MILLIS);
+
+        JScrollPane scroll = new JScrollPane(charts);
+        scroll.setBorder(BorderFactory.createEmptyBorder());
+        scroll.setOpaque(false);
+        scroll.getViewport().setOpaque(false);
+        scroll.getVerticalScrollBar().setUnitIncrement(16);
+        add(scroll, BorderLayout.CENTER);
+
+        timer = new Timer((int) PerformanceMonitor.getSampleIntervalMillis(), e -> refresh());
+        // Tab switches, closing the window and removing the panel all change showing
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+                setMonitoring(isShowing());
+            }
+        });
+        refresh();
+    }
+
+    private void setMonitoring(boolean on) {
+        if (on == monitoring) {
+            return;
+        }
+        monitoring = on;
+        if (on) {
+            PerformanceMonitor.start();
+            timer.start();
+            // Catch up at once when the tab is opened
+            refresh();
+        } else {
+            timer.stop();
+            PerformanceMonitor.stop();
+        }
+    }
+
+    private void addChart(String title, String axisLabel, boolean percent, String[] names, int... series) {
+        RingDataset dataset = new RingDataset(samples, names, series);
+        JFreeChart chart = ChartFactory.createTimeSeriesChart(title, null, axisLabel, dataset,
+                names.length > 1, false, false);
+        chart.getTitle().setFont(ModernUIUtils.BUTTON_FONT);
+        chart.setBackgroundPaint(ModernUIUtils.CARD_BACKGROUND);
+
+        XYPlot plot = chart.getXYPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setDomainGridlinePaint(ModernUIUtils.LIGHT_GRAY);
+        plot.setRangeGridlinePaint(ModernUIUtils.LIGHT_GRAY);
+        for (int i = 0; i < names.length; i++) {
+            plot.getRenderer().setSeriesPaint(i, SERIES_COLORS[i % SERIES_COLORS.length]);
+        }
+        NumberAxis rangeAxis = (NumberAxis) plot.getRangeAxis();
+        if (percent) {
+            rangeAxis.setRange(0, 100);
+        } else {
+            rangeAxis.setAutoRangeIncludesZero(true);
+        }
+
+        ChartPanel panel = new ChartPanel(chart, false, true, false, false, false);
+        panel.setPreferredSize(new Dimension(460, 230));
+        panel.setBorder(BorderFactory.createLineBorder(ModernUIUtils.CARD_BORDER));
+        charts.add(panel);
+    }
+
+    /**
+     * Show the samples taken since the last refresh
+     */
+    public void refresh() {
+        for (int i = 0; i < charts.getComponentCount(); i++) {
+            ChartPanel panel = (ChartPanel) charts.getComponent(i);
+            ((RingDataset) panel.getChart().getXYPlot().getDataset()).refresh();
+        }
+        summaryLabel.setText(String.format(Locale.ROOT,
+                "Heap %s of %s MB  ·  UI delay %s ms  ·  Pool %s%% in use  ·  Database p95 %s ms  ·  Cache %s%% hits  ·  Map p95 %s ms",
+                latest(PerformanceMonitor.HEAP_USED_MB, "%.0f"),
+                latest(PerformanceMonitor.HEAP_COMMITTED_MB, "%.0f"),
+                latest(PerformanceMonitor.EDT_LAG_MILLIS, "%.0f"),
+                latest(PerformanceMonitor.POOL_USAGE_PERCENT, "%.0f"),
+                latest(PerformanceMonitor.QUERY_P95_MILLIS, "%.1f"),
+                latest(PerformanceMonitor.LAYOUT_CACHE_HIT_PERCENT, "%.0f"),
+                latest(PerformanceMonitor.MAP_REPAINT_P95_MILLIS, "%.1f")));
+    }
+
+    private String latest(int series, String format) {
+        double value = samples.getLatest(series);
+        return Double.isNaN(value) ? "–" : String.format(Locale.ROOT, format, value);
+    }
+
+    /**
+     * Some series of a SampleRing as an XYDataset, read in place. The
+     * window of samples shown only moves on refresh(), so a chart never
+     * sees it change half way through painting.
+     */
+    private static final class RingDataset extends AbstractXYDataset {
+        private final SampleRing ring;
+        private final String[] names;
+        private final int[] series;
+        private long first;
+        private int count;
+
+        RingDataset(SampleRing ring, String[] names, int[] series) {
+            this.ring = ring;
+            this.names = names;
+            this.series = series;
+        }
+
+        void refresh() {
+            long written = ring.getWritten();
+            count = (int) Math.min(written, ring.getCapacity());
+            first = written - count;
+            fireDatasetChanged();
+        }
+
+        @Override
+        public int getSeriesCount() {
+            return names.length;
+        }
+
+        @Override
+        public Comparable<String> getSeriesKey(int index) {
+            return names[index];
+        }
+
+        @Override
+        public int getItemCount(int index) {
+            return count;
+        }
+
+        @Override
+        public Number getX(int index, int item) {
+            return getXValue(index, item);
+        }
+
+        @Override
+        public double getXValue(int index, int item) {
+            return ring.getTime(first + item);
+        }
+
+        @Override
+        public Number getY(int index, int item) {
+            return getYValue(index, item);
+        }
+
+        @Override
+        public double getYValue(int index, int item) {
+            return ring.getValue(series[index], first + item);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.satya.portal;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.FlowLayout;
+import java.io.File;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.DefaultTableModel;
+
+import com.satya.portal.utils.BackgroundTasks;
+import com.satya.portal.utils.ModernUIUtils;
+import com.satya.portal.utils.QueryMetrics;
+
+/**
+ * Admin view of {@link QueryMetrics}: latency percentiles, rows and errors
+ * of each database operation, and the most recent slow operations.
+ * Refreshed every few seconds while it is on screen.
+ */
+public class QueryMetricsPanel extends JPanel {
+    private static final int REFRESH_MILLIS = 2000;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final MainFrame parentFrame;
+    private final DefaultTableModel operationsModel;
+    private final DefaultTableModel slowQueriesModel;
+    private final JCheckBox enabledCheckBox;
+    private final JLabel summaryLabel;
+
+    public QueryMetricsPanel(MainFrame parentFrame) {
+        this.parentFrame = parentFrame;
+        setLayout(new BorderLayout(0, 10));
+        setOpaque(false);
+
+        JPanel header = new JPanel(new BorderLayout());
+        header.setOpaque(false);
+        summaryLabel = new JLabel();
+        summaryLabel.setFont(ModernUIUtils.BODY_FONT);
+        enabledCheckBox = new JCheckBox("Measure database operations", QueryMetrics.isEnabled());
+        enabledCheckBox.setOpaque(false);
+        enabledCheckBox.addActionListener(e -> QueryMetrics.setEnabled(enabledCheckBox.isSelected()));
+        header.add(summaryLabel, BorderLayout.WEST);
+        header.add(enabledCheckBox, BorderLayout.EAST);
+        add(header, BorderLayout.NORTH);
+
+        String[] operationColumns = { "Operation", "Calls", "Errors", "Rows", "Mean ms", "p50 ms", "p95 ms", "p99 ms", "Max ms" };
+        operationsModel = readOnlyModel(operationColumns);
+        JTable operationsTable = new JTable(operationsModel);
+        ModernUIUtils.styleTable(operationsTable);
+        operationsTable.setAutoCreateRowSorter(true);
+        operationsTable.getColumnModel().getColumn(0).setPreferredWidth(200);
+
+        String[] slowQueryColumns = { "Time", "Operation", "Duration ms", "Rows", "Statements", "SQL" };
+        slowQueriesModel = readOnlyModel(slowQueryColumns);
+        JTable slowQueriesTable = new JTable(slowQueriesModel);
+        ModernUIUtils.styleTable(slowQueriesTable);
+        slowQueriesTable.getColumnModel().getColumn(0).setPreferredWidth(70);
+        slowQueriesTable.getColumnModel().getColumn(1).setPreferredWidth(160);
+        slowQueriesTable.getColumnModel().getColumn(5).setPreferredWidth(600);
+
+        JScrollPane operationsScroll = new JScrollPane(operationsTable);
+        operationsScroll.setBorder(BorderFactory.createTitledBorder("Operations"));
+        JScrollPane slowQueriesScroll = new JScrollPane(slowQueriesTable);
+        slowQueriesScroll.setBorder(BorderFactory.createTitledBorder(
+                "Slow operations (" + QueryMetrics.getSlowQueryMillis() + " ms or longer)"));
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, operationsScroll, slowQueriesScroll);
+        split.setResizeWeight(0.6);
+        split.setOpaque(false);
+        add(split, BorderLayout.CENTER);
+
+        JPanel actions = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        actions.setOpaque(false);
+        JButton refreshBtn = ModernUIUtils.createModernButton("🔄 Refresh", ModernUIUtils.PRIMARY_BLUE);
+        JButton resetBtn = ModernUIUtils.createModernButton("🧹 Reset", ModernUIUtils.WARNING_ORANGE);
+        JButton exportBtn = ModernUIUtils.createModernButton("💾 Export CSV", ModernUIUtils.SUCCESS_GREEN);
+        refreshBtn.addActionListener(e -> refresh());
+        resetBtn.addActionListener(e -> {
+            QueryMetrics.reset();
+            refresh();
+        });
+        exportBtn.addActionListener(e -> exportCsv());
+        actions.add(refreshBtn);
+        actions.add(resetBtn);
+        actions.add(exportBtn);
+        add(actions, BorderLayout.SOUTH);
+
+        // Reading the figures only copies counters, so it is done on the EDT
+        Timer timer = new Timer(REFRESH_MILLIS, e -> {
+            if (isShowing()) {
+                refresh();
+            }
+        });
+        timer.start();
+        refresh();
+    }
+
+    private static DefaultTableModel readOnlyModel(String[] columns) {
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Show the current figures
+     */
+    public void refresh() {
+        List<QueryMetrics.OperationStatistics> operations = QueryMetrics.getStatistics();
+        long calls = 0;
+        long errors = 0;
+        operationsModel.setRowCount(0);
+        for (QueryMetrics.OperationStatistics operation : operations) {
+            operationsModel.addRow(new Object[] {
+                operation.getName(),
+                operation.getCalls(),
+                operation.getErrors(),
+                operation.getRows(),
+                millis(operation.getMeanMillis()),
+                millis(operation.getP50Millis()),
+                millis(operation.getP95Millis()),
+                millis(operation.getP99Millis()),
+                millis(operation.getMaxMillis())
+            });
+            calls += operation.getCalls();
+            errors += operation.getErrors();
+        }
+
+        List<QueryMetrics.SlowQuery> slowQueries = QueryMetrics.getSlowQueries();
+        slowQueriesModel.setRowCount(0);
+        for (QueryMetrics.SlowQuery query : slowQueries) {
+            slowQueriesModel.addRow(new Object[] {
+                TIME_FORMAT.format(query.getTime()),
+                query.isFailed() ? query.getOperation() + " (failed)" : query.getOperation(),
+                millis(query.getDurationMillis()),
+                query.getRows(),
+                query.getStatements(),
+                query.getSql() != null ? query.getSql() : ""
+            });
+        }
+
+        summaryLabel.setText(calls + " operations, " + errors + " errors, " + slowQueries.size() + " slow"
+                + (QueryMetrics.isEnabled() ? "" : " (measuring is off)"));
+    }
+
+    private static String millis(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private void exportCsv() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export Query Metrics");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV files (*.csv)", "csv"));
+        fileChooser.setSelectedFile(new File("query-metrics.csv"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File chosen = fileChooser.getSelectedFile();
+        final File file = chosen.getName().toLowerCase().endsWith(".csv")
+                ? chosen : new File(chosen.getParentFile(), chosen.getName() + ".csv");
+        if (file.exists() && JOptionPane.showConfirmDialog(this, file.getName() + " already exists. Replace it?",
+                "Export Query Metrics", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+        BackgroundTasks.submit(() -> {
+            QueryMetrics.exportCsv(file);
+            return file;
+        }, written -> parentFrame.setStatusText("Query metrics exported to " + written.getName(), Color.BLACK),
+                error -> parentFrame.showWarningMessage("Could not export query metrics: " + error.getMessage()));
+    }
+}
@@ -23,6 +23,7 @@ import javax.swing.UIManager;
 
 import com.formdev.flatlaf.FlatLightLaf;
 import com.satya.portal.models.User;
+import com.satya.portal.utils.LogLevels;
 import com.satya.portal.utils.ModernUIUtils;
 
 /**
@@ -40,6 +41,7 @@ public class SATYAPortalApp {
     private boolean isDarkTheme = false;
 
     public static void main(String[] args) {
+        LogLevels.apply();
         SwingUtilities.invokeLater(() -> {
             try {
                 UIManager.setLookAndFeel(new FlatLightLaf());
@@ -0,0 +1,169 @@
+package com.satya.portal;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.satya.portal.utils.AppConfig;
+import com.satya.portal.utils.LayoutSchema;
+/**
+ * Brings the layouts table of a database created before the map features
+ * up to date: adds the boundary, geohash and last_modified columns, their
+ * indexes and the layout_deletions table. Each step checks the database
+ * first and only adds what is missing, so it runs on every start and
+ * works on both the standard and the legacy layouts table. A database the
+ * application may not alter keeps working; LayoutSchema notices the
+ * missing columns and the features fall back to plain queries.
+ * Runs when the connection pool starts unless db.schema.upgrade=false.
+ */
+public final class SchemaUpgrade {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaUpgrade.class);
+
+    private static final String LAYOUTS = "layouts";
+    private static final String DELETIONS = "layout_deletions";
+    // Column, its definition, and the index it needs (null for none)
+    private static final String[][] LAYOUT_COLUMNS = {
+        {"boundary", "TEXT", null},
+        {"geohash", "VARCHAR(12)", "idx_layouts_geohash"},
+        {"last_modified", "TIMESTAMP DEFAULT CURRENT_TIMESTAMP", "idx_layouts_last_modified"}
+    };
+
+    private SchemaUpgrade() {
+        // Utility class
+    }
+
+    /**
+     * @return true unless db.schema.upgrade turns the upgrade off
+     */
+    public static boolean isEnabled() {
+        return AppConfig.getBoolean("db.schema.upgrade", true);
+    }
+
+    /**
+     * Add whatever the layouts table is missing. Failures are logged, not
+     * thrown: the application runs without the features they would enable.
+     *
+     * @param connection Connection allowed to alter the schema
+     * @return Number of columns, indexes and tables added
+     */
+    public static int apply(Connection connection) {
+        int added = 0;
+        Set<String> columns;
+        try {
+            columns = columnsOf(connection, LAYOUTS);
+        } catch (SQLException e) {
+            LOGGER.warn("Layouts table not found, schema not upgraded: {}", e.getMessage());
+            return 0;
+        }
+        for (String[] column : LAYOUT_COLUMNS) {
+            if (!columns.contains(column[0])) {
+                if (!execute(connection, "ALTER TABLE " + LAYOUTS + " ADD COLUMN " + column[0] + " " + column[1])) {
+                    continue;
+                }
+                added++;
+            }
+            if (column[2] != null) {
+                added += ensureIndex(connection, LAYOUTS, column[2], column[0]);
+            }
+        }
+
+        boolean hasDeletions;
+        try {
+            hasDeletions = hasTable(connection, DELETIONS);
+        } catch (SQLException e) {
+            LOGGER.warn("Could not look for the {} table", DELETIONS, e);
+            return added;
+        }
+        if (!hasDeletions) {
+            if (!execute(connection, "CREATE TABLE " + DELETIONS + " (" + LayoutSchema.DELETION_KEY_COLUMN
+                    + " VARCHAR(50) NOT NULL, deleted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)")) {
+                return added;
+            }
+            added++;
+        }
+        added += ensureIndex(connection, DELETIONS, "idx_layout_deletions_deleted_at", "deleted_at");
+        return added;
+    }
+
+    private static int ensureIndex(Connection connection, String table, String name, String column) {
+        try {
+            if (isIndexed(connection, table, column)) {
+                return 0;
+            }
+        } catch (SQLException e) {
+            LOGGER.warn("Could not read the indexes of {}", table, e);
+            return 0;
+        }
+        return execute(connection, "CREATE INDEX " + name + " ON " + table + " (" + column + ")") ? 1 : 0;
+    }
+
+    private static boolean execute(Connection connection, String sql) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+            LOGGER.info("Schema upgraded: {}", sql);
+            return true;
+        } catch (SQLException e) {
+            LOGGER.warn("Could not upgrade the schema ({}): {}", sql, e.getMessage());
+            return false;
+        }
+    }
+
+    private static Set<String> columnsOf(Connection connection, String table) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT * FROM " + table + " WHERE 1=0")) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columns.add(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT));
+            }
+        }
+        return columns;
+    }
+
+    private static boolean hasTable(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet resultSet = metaData.getTables(connection.getCatalog(), null,
+                storedName(metaData, table), new String[] {"TABLE"})) {
+            return resultSet.next();
+        }
+    }
+
+    /**
+     * Check whether an index starts with the column, whatever its name
+     */
+    private static boolean isIndexed(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet resultSet = metaData.getIndexInfo(connection.getCatalog(), null,
+                storedName(metaData, table), false, true)) {
+            while (resultSet.next()) {
+                if (resultSet.getShort("ORDINAL_POSITION") == 1
+                        && column.equalsIgnoreCase(resultSet.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Name of an unquoted identifier as the database metadata reports it
+     */
+    private static String storedName(DatabaseMetaData metaData, String name) throws SQLException {
+        if (metaData.storesUpperCaseIdentifiers()) {
+            return name.toUpperCase(Locale.ROOT);
+        }
+        if (metaData.storesLowerCaseIdentifiers()) {
+            return name.toLowerCase(Locale.ROOT);
+        }
+        return name;
+    }
+}
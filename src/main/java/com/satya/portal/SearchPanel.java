@@ -1,23 +1,32 @@
 package com.satya.portal;
 
 import com.formdev.flatlaf.FlatClientProperties;
+import com.satya.portal.exporter.LayoutExporter;
 import com.satya.portal.models.Layout;
+import com.satya.portal.models.LayoutSearchCriteria;
+import com.satya.portal.utils.BackgroundTasks;
 import com.satya.portal.utils.DataManager;
 import com.satya.portal.utils.ModernUIUtils;
+import com.satya.portal.utils.SuggestionIndex;
 import com.satya.portal.LayoutActionDialog; // Add this import
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.TableCellRenderer;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.EnumSet;
 
 public class SearchPanel extends JPanel {
     private static final Color PRIMARY_COLOR = new Color(41, 128, 185);
+    private static final int RESULTS_PAGE_SIZE = 200;
+    private static final int RESULTS_CACHED_PAGES = 10;
 
     private MainFrame parentFrame;
     private JTextField searchField;
@@ -27,13 +36,15 @@ public class SearchPanel extends JPanel {
     private JButton searchButton;
     private JButton clearButton;
     private JButton advancedButton;
+    private JButton exportButton;
     private JTable resultsTable;
-    private DefaultTableModel tableModel;
+    private LazyLayoutTableModel tableModel;
     private JLabel resultCountLabel;
     private JProgressBar searchProgressBar;
     private JPanel advancedFiltersPanel;
     private boolean advancedFiltersVisible = false;
     private JScrollPane tableScrollPane;
+    private final BackgroundTasks.Latest searchTask = new BackgroundTasks.Latest();
 
     private JPanel emptyPanel;
     private Image sectionImage; // Panel-specific background image
@@ -44,6 +55,7 @@ public class SearchPanel extends JPanel {
     private JSpinner fromDateSpinner;
     private JSpinner toDateSpinner;
     private JCheckBox hasCourtCaseCheckBox;
+    private JCheckBox dateRangeCheckBox;
 
     // Panel for custom BG image
     private class BGPanel extends JPanel {
@@ -100,6 +112,8 @@ public class SearchPanel extends JPanel {
         searchButton = ModernUIUtils.createModernButton("🔍 Search", ModernUIUtils.PRIMARY_BLUE);
         clearButton = ModernUIUtils.createModernButton("🗑️ Clear", ModernUIUtils.DANGER_RED);
         advancedButton = ModernUIUtils.createModernButton("⚙️ Advanced", ModernUIUtils.WARNING_ORANGE);
+        exportButton = ModernUIUtils.createModernButton("📤 Export", ModernUIUtils.SUCCESS_GREEN);
+        exportButton.setToolTipText("Export all results to CSV, Excel or PDF");
 
         searchProgressBar = new JProgressBar();
         searchProgressBar.setIndeterminate(true);
@@ -108,15 +122,12 @@ public class SearchPanel extends JPanel {
         searchProgressBar.setString("Searching...");
         searchProgressBar.putClientProperty("JProgressBar.arc", 999);
 
-        String[] columnNames = {"File No.", "Layout Name", "Status", "Owner", "Area", "Application Date", "Survey No."};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) { return false; }
-        };
+        // Rows are fetched page by page as the table scrolls; a row sorter would
+        // touch every row, so results are ordered by the query instead
+        tableModel = new LazyLayoutTableModel(RESULTS_PAGE_SIZE, RESULTS_CACHED_PAGES);
 
         resultsTable = new JTable(tableModel);
         ModernUIUtils.styleTable(resultsTable);
-        resultsTable.setAutoCreateRowSorter(true);
         resultsTable.getColumnModel().getColumn(2).setCellRenderer(new StatusCellRenderer());
 
         resultCountLabel = new JLabel("0 results found");
@@ -138,6 +149,11 @@ public class SearchPanel extends JPanel {
         emptyPanel.add(msgLabel, BorderLayout.CENTER);
     }
 
+    private void updateDateRangeEnabled() {
+        fromDateSpinner.setEnabled(dateRangeCheckBox.isSelected());
+        toDateSpinner.setEnabled(dateRangeCheckBox.isSelected());
+    }
+
     private void createAdvancedFiltersPanel() {
         advancedFiltersPanel = ModernUIUtils.createModernCard(15);
         advancedFiltersPanel.setBorder(BorderFactory.createTitledBorder(
@@ -194,6 +210,13 @@ public class SearchPanel extends JPanel {
         hasCourtCaseCheckBox = new JCheckBox("Has Court Case");
         hasCourtCaseCheckBox.setFont(ModernUIUtils.BODY_FONT);
         advancedFiltersPanel.add(hasCourtCaseCheckBox, gbc);
+
+        gbc.gridx = 2;
+        dateRangeCheckBox = new JCheckBox("Filter by Application Date");
+        dateRangeCheckBox.setFont(ModernUIUtils.BODY_FONT);
+        dateRangeCheckBox.addItemListener(e -> updateDateRangeEnabled());
+        advancedFiltersPanel.add(dateRangeCheckBox, gbc);
+        updateDateRangeEnabled();
     }
 
     private void setupLayout() {
@@ -269,6 +292,7 @@ public class SearchPanel extends JPanel {
         JPanel resultsHeader = new JPanel(new BorderLayout());
         resultsHeader.setOpaque(false);
         resultsHeader.add(resultCountLabel, BorderLayout.WEST);
+        resultsHeader.add(exportButton, BorderLayout.EAST);
         
         resultsPanel.add(resultsHeader, BorderLayout.NORTH);
         resultsPanel.add(tableScrollPane, BorderLayout.CENTER);
@@ -283,7 +307,11 @@ public class SearchPanel extends JPanel {
         searchButton.addActionListener(new ActionListener() { public void actionPerformed(ActionEvent e) { performSearch(); } });
         clearButton.addActionListener(new ActionListener() { public void actionPerformed(ActionEvent e) { clearAllFields(); } });
         advancedButton.addActionListener(new ActionListener() { public void actionPerformed(ActionEvent e) { toggleAdvancedFilters(); } });
+        exportButton.addActionListener(e -> exportResults());
         searchField.addActionListener(new ActionListener() { public void actionPerformed(ActionEvent e) { performSearch(); } });
+        // Taking a completion searches for it right away
+        new SuggestionPopup(searchField, EnumSet.allOf(SuggestionIndex.Kind.class), text -> performSearch());
+        new SuggestionPopup(ownerField, EnumSet.of(SuggestionIndex.Kind.OWNER), text -> performSearch());
         resultsTable.addMouseListener(new java.awt.event.MouseAdapter() {
             public void mouseClicked(java.awt.event.MouseEvent e) {
                 if (e.getClickCount() == 2) viewSelectedLayoutDetails();
@@ -292,104 +320,85 @@ public class SearchPanel extends JPanel {
     }
 
     private void performSearch() {
+        final LayoutSearchCriteria criteria = buildSearchCriteria();
         searchProgressBar.setVisible(true);
-        searchButton.setEnabled(false);
         parentFrame.setStatusText("Searching layouts...", Color.BLUE);
-        Timer searchTimer = new Timer(1500, new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                executeSearch();
-                searchProgressBar.setVisible(false);
-                searchButton.setEnabled(true);
-            }
-        });
-        searchTimer.setRepeats(false);
-        searchTimer.start();
+        // A newer search cancels this one, so the button stays enabled. The
+        // count and every page of the table use the matches looked up here.
+        searchTask.submit(() -> {
+                    DataManager dataManager = DataManager.getInstance();
+                    LayoutSearchCriteria resolved = dataManager.resolveSearch(criteria);
+                    return new ResolvedSearch(resolved, dataManager.countLayouts(resolved));
+                },
+                search -> showSearchResults(search.criteria, search.resultCount),
+                error -> {
+                    searchProgressBar.setVisible(false);
+                    parentFrame.setStatusText("Search failed", Color.RED);
+                    parentFrame.showWarningMessage("Search failed: " + error.getMessage());
+                });
     }
 
-    private void executeSearch() {
-        String searchTerm = searchField.getText().trim();
-        String selectedStatus = (String) statusComboBox.getSelectedItem();
-        String ownerName = ownerField.getText().trim();
-        String statusFilter = "All Status".equals(selectedStatus) ? null : selectedStatus;
-
-        // If no search criteria provided, show all layouts
-        List<Layout> results;
-        if (searchTerm.isEmpty() && "All Status".equals(selectedStatus) && ownerName.isEmpty() && 
-            !advancedFiltersVisible && areaRangeComboBox.getSelectedIndex() == 0) {
-            // Show all layouts when no filters are applied
-            results = DataManager.getInstance().getAllLayouts();
-        } else {
-            // Apply filters when search criteria is provided
-            results = DataManager.getInstance().searchLayouts(
-                    searchTerm.isEmpty() ? null : searchTerm,
-                    statusFilter,
-                    ownerName.isEmpty() ? null : ownerName
-            );
-            results = filterByArea(results);
-
-            if (advancedFiltersVisible) {
-                results = applyAdvancedFilters(results);
-            }
-        }
+    private void showSearchResults(LayoutSearchCriteria criteria, int resultCount) {
+        searchProgressBar.setVisible(false);
+        tableModel.setSearch(criteria, resultCount);
+        updateResultsTable(resultCount);
+        parentFrame.setStatusText("Search completed. " + resultCount + " results found.", Color.BLACK);
+    }
 
-        updateResultsTable(results);
-        parentFrame.setStatusText("Search completed. " + results.size() + " results found.", Color.BLACK);
+    /**
+     * A search with its index matches looked up, and the number of results
+     */
+    private static final class ResolvedSearch {
+        private final LayoutSearchCriteria criteria;
+        private final int resultCount;
+
+        ResolvedSearch(LayoutSearchCriteria criteria, int resultCount) {
+            this.criteria = criteria;
+            this.resultCount = resultCount;
+        }
     }
 
-    private List<Layout> filterByArea(List<Layout> layouts) {
-        String selectedRange = (String) areaRangeComboBox.getSelectedItem();
-        if ("All Areas".equals(selectedRange)) return layouts;
-        return layouts.stream().filter(layout -> {
-            double area = layout.getAreaInAcres();
-            switch (selectedRange) {
-                case "< 1 Acre": return area < 1.0;
-                case "1-2 Acres": return area >= 1.0 && area <= 2.0;
-                case "2-5 Acres": return area > 2.0 && area <= 5.0;
-                case "5-10 Acres": return area > 5.0 && area <= 10.0;
-                case "> 10 Acres": return area > 10.0;
-                default: return true;
+    /**
+     * Collect every basic and advanced filter into one criteria object so the
+     * whole search runs as a single query
+     */
+    private LayoutSearchCriteria buildSearchCriteria() {
+        LayoutSearchCriteria criteria = new LayoutSearchCriteria();
+        criteria.setQuery(searchField.getText());
+        criteria.setStatus((String) statusComboBox.getSelectedItem());
+        criteria.setOwner(ownerField.getText());
+        criteria.setAreaRange(LayoutSearchCriteria.AreaRange.fromLabel((String) areaRangeComboBox.getSelectedItem()));
+
+        if (advancedFiltersVisible) {
+            criteria.setSurveyNumber(surveyNumberField.getText());
+            criteria.setDistrict((String) districtComboBox.getSelectedItem());
+            if (dateRangeCheckBox.isSelected()) {
+                criteria.setApplicationDateFrom(toLocalDate((Date) fromDateSpinner.getValue()));
+                criteria.setApplicationDateTo(toLocalDate((Date) toDateSpinner.getValue()));
+            }
+            if (hasCourtCaseCheckBox.isSelected()) {
+                criteria.setHasCourtCase(Boolean.TRUE);
             }
-        }).collect(java.util.stream.Collectors.toList());
+        }
+        return criteria;
     }
 
-    private List<Layout> applyAdvancedFilters(List<Layout> layouts) {
-        String surveyNumber = surveyNumberField.getText().trim();
-        if (!surveyNumber.isEmpty()) {
-            layouts = layouts.stream().filter(
-                    l -> l.getSurveyNumber().toLowerCase().contains(surveyNumber.toLowerCase())
-            ).collect(java.util.stream.Collectors.toList());
-        }
-        if (hasCourtCaseCheckBox.isSelected()) {
-            layouts = layouts.stream().filter(Layout::isHasCourtCase).collect(java.util.stream.Collectors.toList());
-        }
-        return layouts;
+    private static LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
     }
 
     // Modern updateResultsTable to smartly show/hide table and emptyPanel
-    private void updateResultsTable(List<Layout> layouts) {
-        tableModel.setRowCount(0);
+    private void updateResultsTable(int resultCount) {
         JPanel parentPanel = (JPanel) tableScrollPane.getParent();
         if (parentPanel == null) { // Defensive: Find parent as resultsPanel
             Component c = this.getComponent(this.getComponentCount() - 1);
             if (c instanceof JPanel) parentPanel = (JPanel) c;
         }
-        for (Layout layout : layouts) {
-            Object[] row = {
-                layout.getFileNumber(),
-                layout.getLayoutName(),
-                layout.getStatus(),
-                layout.getOwnerName(),
-                layout.getFormattedArea(),
-                layout.getApplicationDate(),
-                layout.getSurveyNumber()
-            };
-            tableModel.addRow(row);
-        }
-        resultCountLabel.setText(layouts.size() + " results found");
+        resultCountLabel.setText(resultCount + " results found");
         if (parentPanel != null) {
             parentPanel.remove(tableScrollPane);
             parentPanel.remove(emptyPanel);
-            if (layouts.isEmpty()) {
+            if (resultCount == 0) {
                 resultCountLabel.setForeground(Color.GRAY);
                 tableScrollPane.setVisible(false);
                 parentPanel.add(emptyPanel, BorderLayout.CENTER);
@@ -412,12 +421,15 @@ public class SearchPanel extends JPanel {
             surveyNumberField.setText("");
             districtComboBox.setSelectedIndex(0);
             hasCourtCaseCheckBox.setSelected(false);
+            dateRangeCheckBox.setSelected(false);
         }
-        tableModel.setRowCount(0);
+        searchTask.cancel();
+        searchProgressBar.setVisible(false);
+        tableModel.clear();
         resultCountLabel.setText("0 results found");
         resultCountLabel.setForeground(Color.GRAY);
         parentFrame.setStatusText("Search filters cleared", Color.BLACK);
-        updateResultsTable(java.util.Collections.emptyList());
+        updateResultsTable(0);
     }
 
     private void toggleAdvancedFilters() {
@@ -432,8 +444,11 @@ public class SearchPanel extends JPanel {
         int selectedRow = resultsTable.getSelectedRow();
         if (selectedRow >= 0) {
             int modelRow = resultsTable.convertRowIndexToModel(selectedRow);
-            String fileNumber = (String) tableModel.getValueAt(modelRow, 0);
-            Layout layout = DataManager.getInstance().getLayoutById(fileNumber);
+            Layout row = tableModel.getLayoutAt(modelRow);
+            if (row == null) {
+                return; // Row is still loading
+            }
+            Layout layout = DataManager.getInstance().getLayoutById(row.getFileNumber());
             if (layout != null) {
                 // Show the LayoutActionDialog instead of directly opening document viewer
                 LayoutActionDialog dialog = new LayoutActionDialog(parentFrame, layout);
@@ -542,22 +557,72 @@ public class SearchPanel extends JPanel {
             JOptionPane.INFORMATION_MESSAGE);
     }
 
+    /**
+     * Export every result of the current search, not just the rows loaded
+     * in the table. The file is written in the background with a cancellable
+     * progress dialog.
+     */
     private void exportResults() {
-        if (tableModel.getRowCount() == 0) {
+        LayoutSearchCriteria criteria = tableModel.getCriteria();
+        final int total = tableModel.getRowCount();
+        if (criteria == null || total == 0) {
             parentFrame.showWarningMessage("No data to export.");
             return;
         }
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Export Search Results");
-        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV files", "csv"));
-        if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-            parentFrame.showSuccessMessage("Results exported successfully!");
+        fileChooser.setAcceptAllFileFilterUsed(false);
+        for (LayoutExporter.Format format : LayoutExporter.Format.values()) {
+            fileChooser.addChoosableFileFilter(new FileNameExtensionFilter(
+                    format.name() + " files (*." + format.getExtension() + ")", format.getExtension()));
+        }
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        File chosen = fileChooser.getSelectedFile();
+        String extension = ((FileNameExtensionFilter) fileChooser.getFileFilter()).getExtensions()[0];
+        final File file = chosen.getName().toLowerCase().endsWith("." + extension)
+                ? chosen : new File(chosen.getParentFile(), chosen.getName() + "." + extension);
+        if (file.exists() && JOptionPane.showConfirmDialog(this, file.getName() + " already exists. Replace it?",
+                "Export Search Results", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        final LayoutExporter exporter = new LayoutExporter();
+        final ProgressMonitor monitor = new ProgressMonitor(this, "Exporting to " + file.getName(), "", 0, total);
+        monitor.setMillisToDecideToPopup(200);
+        exporter.setProgressListener(rows -> SwingUtilities.invokeLater(() -> {
+            if (monitor.isCanceled()) {
+                exporter.cancel();
+            }
+            monitor.setNote(rows + " of " + total + " layouts");
+            monitor.setProgress((int) Math.min(rows, total - 1));
+        }));
+        exportButton.setEnabled(false);
+        parentFrame.setStatusText("Exporting " + total + " layouts to " + file.getName() + "...", Color.BLUE);
+
+        BackgroundTasks.submit(() -> exporter.export(criteria, file), rows -> {
+            monitor.close();
+            exportButton.setEnabled(true);
+            if (exporter.isCancelled()) {
+                parentFrame.setStatusText("Export cancelled", Color.GRAY);
+            } else {
+                parentFrame.showSuccessMessage(rows + " layouts exported to " + file.getName());
+            }
+        }, error -> {
+            monitor.close();
+            exportButton.setEnabled(true);
+            parentFrame.setStatusText("Export failed", Color.RED);
+            parentFrame.showWarningMessage("Export failed: " + error.getMessage());
+        });
     }
 
     private void loadInitialData() {
         // Start with empty data instead of loading all layouts
-        updateResultsTable(new ArrayList<>());
+        searchTask.cancel();
+        searchProgressBar.setVisible(false);
+        tableModel.clear();
+        updateResultsTable(0);
     }
 
     public void refreshData() {
@@ -0,0 +1,261 @@
+package com.satya.portal;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPopupMenu;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.satya.portal.utils.AppConfig;
+import com.satya.portal.utils.BackgroundTasks;
+import com.satya.portal.utils.DataManager;
+import com.satya.portal.utils.ModernUIUtils;
+import com.satya.portal.utils.SuggestionIndex;
+/**
+ * Typeahead for a search box. Once typing pauses, the completions of the
+ * text are looked up off the EDT and listed under the field; a lookup
+ * still running when the text changes again is cancelled, so the list
+ * never shows completions of older text. Up and Down move through the
+ * list, Enter or a click takes a completion and Escape closes the list.
+ */
+public class SuggestionPopup {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SuggestionPopup.class);
+    private static final int MAX_SUGGESTIONS = 8;
+
+    private final JTextField field;
+    private final Set<SuggestionIndex.Kind> kinds;
+    private final Consumer<String> onChosen;
+    private final DefaultListModel<SuggestionIndex.Suggestion> suggestions = new DefaultListModel<>();
+    private final JList<SuggestionIndex.Suggestion> list = new JList<>(suggestions);
+    private final JPopupMenu popup = new JPopupMenu();
+    private final Timer debounce;
+    private final BackgroundTasks.Latest lookupTask = new BackgroundTasks.Latest();
+    // Set while the field's text is replaced by a chosen completion
+    private boolean choosing;
+
+    /**
+     * Attach a typeahead to a field
+     *
+     * @param field The search box
+     * @param kinds Kinds of values to offer
+     * @param onChosen Called on the EDT with the text of a completion once
+     *        the field shows it
+     */
+    public SuggestionPopup(JTextField field, Set<SuggestionIndex.Kind> kinds, Consumer<String> onChosen) {
+        this.field = field;
+        this.kinds = kinds;
+        this.onChosen = onChosen;
+
+        debounce = new Timer(AppConfig.getInt("search.suggest.debounceMillis", 80), e -> lookup());
+        debounce.setRepeats(false);
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFocusable(false);
+        list.setFont(ModernUIUtils.BODY_FONT);
+        list.setCellRenderer(new SuggestionRenderer());
+        JScrollPane scrollPane = new JScrollPane(list);
+        scrollPane.setBorder(null);
+        popup.setLayout(new BorderLayout());
+        popup.add(scrollPane, BorderLayout.CENTER);
+        // Keep the caret in the field while the list is open
+        popup.setFocusable(false);
+
+        bindEvents();
+    }
+
+    private void bindEvents() {
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                textChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                textChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not change the text
+            }
+        });
+
+        // Runs before the field's own key bindings, so Enter on a
+        // completion takes it instead of searching for the typed text
+        field.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (!popup.isVisible()) {
+                    return;
+                }
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN:
+                        move(1);
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_UP:
+                        move(-1);
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ENTER:
+                        if (list.getSelectedIndex() >= 0) {
+                            choose(list.getSelectedValue());
+                            e.consume();
+                        } else {
+                            hide();
+                        }
+                        break;
+                    case KeyEvent.VK_ESCAPE:
+                        hide();
+                        e.consume();
+                        break;
+                    default:
+                        break;
+                }
+            }
+        });
+
+        field.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                hide();
+            }
+        });
+
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = list.locationToIndex(e.getPoint());
+                if (index >= 0) {
+                    choose(suggestions.get(index));
+                }
+            }
+        });
+    }
+
+    private void textChanged() {
+        if (choosing) {
+            return;
+        }
+        lookupTask.cancel();
+        if (field.getText().trim().isEmpty()) {
+            debounce.stop();
+            hide();
+        } else {
+            debounce.restart();
+        }
+    }
+
+    private void lookup() {
+        final String text = field.getText();
+        final SuggestionIndex index = DataManager.getInstance().getSuggestionIndex();
+        if (index == null || text.trim().isEmpty() || !field.isShowing()) {
+            hide();
+            return;
+        }
+        lookupTask.submit(() -> index.suggest(text, kinds, MAX_SUGGESTIONS), found -> {
+            if (text.equals(field.getText()) && field.hasFocus()) {
+                show(found);
+            }
+        }, error -> {
+            LOGGER.warn("Could not look up search suggestions", error);
+            hide();
+        });
+    }
+
+    private void show(List<SuggestionIndex.Suggestion> found) {
+        suggestions.clear();
+        for (SuggestionIndex.Suggestion suggestion : found) {
+            // The field already shows a value typed out in full
+            if (!suggestion.getText().equalsIgnoreCase(field.getText().trim())) {
+                suggestions.addElement(suggestion);
+            }
+        }
+        if (suggestions.isEmpty()) {
+            hide();
+            return;
+        }
+        list.clearSelection();
+        list.setVisibleRowCount(suggestions.size());
+        popup.setPopupSize(Math.max(field.getWidth(), list.getPreferredScrollableViewportSize().width + 8),
+                list.getPreferredScrollableViewportSize().height + 4);
+        if (popup.isVisible()) {
+            popup.pack();
+            popup.revalidate();
+            popup.repaint();
+        } else {
+            popup.show(field, 0, field.getHeight());
+        }
+    }
+
+    private void move(int step) {
+        int index = list.getSelectedIndex() + step;
+        if (index < 0 || index >= suggestions.size()) {
+            list.clearSelection();
+            return;
+        }
+        list.setSelectedIndex(index);
+        list.ensureIndexIsVisible(index);
+    }
+
+    private void choose(SuggestionIndex.Suggestion suggestion) {
+        hide();
+        choosing = true;
+        try {
+            field.setText(suggestion.getText());
+        } finally {
+            choosing = false;
+        }
+        onChosen.accept(suggestion.getText());
+    }
+
+    /**
+     * Close the list and drop any lookup still pending
+     */
+    public void hide() {
+        debounce.stop();
+        lookupTask.cancel();
+        popup.setVisible(false);
+    }
+
+    /**
+     * Shows each completion with its kind and, when several layouts share
+     * it, how many
+     */
+    private static class SuggestionRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            JLabel label = (JLabel) super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+            SuggestionIndex.Suggestion suggestion = (SuggestionIndex.Suggestion) value;
+            String detail = suggestion.getKind().getLabel();
+            if (suggestion.getLayoutCount() > 1) {
+                detail += ", " + suggestion.getLayoutCount() + " layouts";
+            }
+            label.setText(suggestion.getText() + "  —  " + detail);
+            return label;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.satya.portal.exporter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import com.satya.portal.models.Layout;
+
+/**
+ * CsvExportWriter - RFC 4180 CSV with a UTF-8 byte order mark so Excel
+ * shows Telugu names correctly. The header matches what the importer reads.
+ */
+class CsvExportWriter implements ExportWriter {
+    private final Writer out;
+
+    CsvExportWriter(File file) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8), 64 * 1024);
+        out.write('\uFEFF');
+        writeRow(COLUMNS);
+    }
+
+    @Override
+    public void write(Layout layout) throws IOException {
+        writeRow(new String[] {
+                layout.getFileNumber(),
+                layout.getLayoutName(),
+                layout.getStatus(),
+                layout.getOwnerName(),
+                String.valueOf(layout.getAreaInAcres()),
+                layout.getApplicationDate() != null ? layout.getApplicationDate().toString() : "",
+                layout.getSurveyNumber()
+        });
+    }
+
+    private void writeRow(String[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(quote(fields[i]));
+        }
+        out.write("\r\n");
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
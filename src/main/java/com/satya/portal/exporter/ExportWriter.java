@@ -0,0 +1,25 @@
+package com.satya.portal.exporter;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import com.satya.portal.models.Layout;
+
+/**
+ * ExportWriter - writes layouts to one output format as they arrive.
+ * Implementations keep at most a small window of rows in memory.
+ */
+interface ExportWriter extends Closeable {
+    String[] COLUMNS = {"File No.", "Layout Name", "Status", "Owner", "Area in Acres", "Application Date", "Survey No."};
+
+    /**
+     * Append one layout
+     */
+    void write(Layout layout) throws IOException;
+
+    /**
+     * Complete the file after the last row. Without this call the output is
+     * incomplete and the exporter discards it.
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,148 @@
+package com.satya.portal.exporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.LongConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.satya.portal.models.Layout;
+import com.satya.portal.models.LayoutPage;
+import com.satya.portal.models.LayoutSearchCriteria;
+import com.satya.portal.utils.AppConfig;
+import com.satya.portal.utils.DataManager;
+/**
+ * LayoutExporter - writes the layouts matching a search to a CSV, XLSX or
+ * PDF file. Rows are fetched in keyset pages and handed straight to the
+ * format writer, so only one page is in memory at a time however many
+ * layouts match. The file is written under a temporary name and only
+ * appears under the chosen name once it is complete.
+ */
+public class LayoutExporter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LayoutExporter.class);
+
+    public enum Format {
+        CSV,
+        XLSX,
+        PDF;
+
+        /**
+         * @param file Target file
+         * @return Format matching the file extension
+         * @throws IOException if the extension is not csv, xlsx or pdf
+         */
+        public static Format forFile(File file) throws IOException {
+            String name = file.getName().toLowerCase();
+            for (Format format : values()) {
+                if (name.endsWith("." + format.getExtension())) {
+                    return format;
+                }
+            }
+            throw new IOException("Unsupported file type: " + file.getName() + " (expected .csv, .xlsx or .pdf)");
+        }
+
+        public String getExtension() {
+            return name().toLowerCase();
+        }
+    }
+
+    private int pageSize = AppConfig.getInt("export.pageSize", 1000);
+    private int rowWindow = AppConfig.getInt("export.xlsx.rowWindow", 100);
+    private LongConsumer progressListener;
+
+    private volatile boolean cancelled;
+
+    /**
+     * @param pageSize Layouts fetched from the database per query
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * @param progressListener Called on the exporting thread with the number of rows written after every page
+     */
+    public void setProgressListener(LongConsumer progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Stop a running export after the page in progress; the partial file is deleted
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Export the layouts matching a search. Blocks until the file is written,
+     * so call it off the Event Dispatch Thread.
+     *
+     * @param criteria The search to export
+     * @param file Target file; its extension selects the format
+     * @return Number of layouts written, or the number written before a cancel
+     * @throws IOException if the file cannot be written
+     */
+    public long export(LayoutSearchCriteria criteria, File file) throws IOException {
+        Format format = Format.forFile(file);
+        File directory = file.getAbsoluteFile().getParentFile();
+        File partial = File.createTempFile(".satya-export-", "." + format.getExtension(), directory);
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        boolean complete = false;
+
+        try {
+            try (ExportWriter writer = createWriter(format, partial)) {
+                DataManager dataManager = DataManager.getInstance();
+                // Every page uses the same index matches, as the results table does
+                criteria = dataManager.resolveSearch(criteria);
+                LayoutPage.Cursor cursor = null;
+                do {
+                    LayoutPage page = dataManager.searchLayoutsPage(criteria, cursor, pageSize);
+                    for (Layout layout : page.getLayouts()) {
+                        writer.write(layout);
+                    }
+                    rows += page.getLayouts().size();
+                    cursor = page.getNextCursor();
+                    if (progressListener != null) {
+                        progressListener.accept(rows);
+                    }
+                } while (cursor != null && !cancelled);
+
+                if (cancelled) {
+                    LOGGER.info("Export to {} cancelled after {} rows", file.getName(), rows);
+                    return rows;
+                }
+                writer.finish();
+            }
+            Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            complete = true;
+            LOGGER.info("Exported {} layouts to {} in {} ms", rows, file.getName(), System.currentTimeMillis() - start);
+            return rows;
+        } finally {
+            if (!complete && !partial.delete() && partial.exists()) {
+                LOGGER.warn("Could not delete partial export {}", partial);
+            }
+        }
+    }
+
+    private ExportWriter createWriter(Format format, File file) throws IOException {
+        switch (format) {
+            case XLSX:
+                return new XlsxExportWriter(file, rowWindow);
+            case PDF:
+                return new PdfExportWriter(file, "SATYA Portal - Layout Search Results ("
+                        + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) + ")");
+            default:
+                return new CsvExportWriter(file);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.satya.portal.exporter;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import com.satya.portal.models.Layout;
+
+/**
+ * PdfExportWriter - landscape A4 table, one page at a time. Each page's
+ * content stream is closed before the next starts and the document is
+ * backed by a scratch file, so memory does not grow with the page count.
+ * The standard fonts only cover Latin-1; other characters print as '?'.
+ */
+class PdfExportWriter implements ExportWriter {
+    private static final PDFont FONT = PDType1Font.HELVETICA;
+    private static final PDFont BOLD_FONT = PDType1Font.HELVETICA_BOLD;
+    private static final float FONT_SIZE = 8f;
+    private static final float TITLE_SIZE = 12f;
+    private static final float MARGIN = 36f;
+    private static final float ROW_HEIGHT = 12f;
+    private static final float[] COLUMN_WIDTHS = {90f, 170f, 70f, 150f, 70f, 80f, 90f};
+
+    private final File file;
+    private final String title;
+    private final PDDocument document;
+    private PDPageContentStream content;
+    private float y;
+    private int pageNumber;
+
+    PdfExportWriter(File file, String title) {
+        this.file = file;
+        this.title = title;
+        this.document = new PDDocument(MemoryUsageSetting.setupTempFileOnly());
+    }
+
+    @Override
+    public void write(Layout layout) throws IOException {
+        if (content == null || y < MARGIN + ROW_HEIGHT) {
+            startPage();
+        }
+        writeRow(FONT, new String[] {
+                layout.getFileNumber(),
+                layout.getLayoutName(),
+                layout.getStatus(),
+                layout.getOwnerName(),
+                String.format("%.2f", layout.getAreaInAcres()),
+                layout.getApplicationDate() != null ? layout.getApplicationDate().toString() : "",
+                layout.getSurveyNumber()
+        });
+    }
+
+    private void startPage() throws IOException {
+        closePage();
+        PDRectangle size = new PDRectangle(PDRectangle.A4.getHeight(), PDRectangle.A4.getWidth());
+        PDPage page = new PDPage(size);
+        document.addPage(page);
+        pageNumber++;
+        content = new PDPageContentStream(document, page);
+        y = size.getHeight() - MARGIN;
+
+        content.beginText();
+        content.setFont(BOLD_FONT, TITLE_SIZE);
+        content.newLineAtOffset(MARGIN, y - TITLE_SIZE);
+        content.showText(printable(title, BOLD_FONT, TITLE_SIZE, size.getWidth() - 2 * MARGIN - 60f));
+        content.endText();
+
+        content.beginText();
+        content.setFont(FONT, FONT_SIZE);
+        content.newLineAtOffset(size.getWidth() - MARGIN - 50f, y - TITLE_SIZE);
+        content.showText("Page " + pageNumber);
+        content.endText();
+
+        y -= TITLE_SIZE + ROW_HEIGHT;
+        writeRow(BOLD_FONT, COLUMNS);
+        content.moveTo(MARGIN, y + ROW_HEIGHT - FONT_SIZE - 2f);
+        content.lineTo(size.getWidth() - MARGIN, y + ROW_HEIGHT - FONT_SIZE - 2f);
+        content.stroke();
+    }
+
+    private void writeRow(PDFont font, String[] fields) throws IOException {
+        content.beginText();
+        content.setFont(font, FONT_SIZE);
+        content.newLineAtOffset(MARGIN, y - FONT_SIZE);
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                content.newLineAtOffset(COLUMN_WIDTHS[i - 1], 0);
+            }
+            content.showText(printable(fields[i], font, FONT_SIZE, COLUMN_WIDTHS[i] - 4f));
+        }
+        content.endText();
+        y -= ROW_HEIGHT;
+    }
+
+    /**
+     * Replace characters the font cannot encode and cut the text to fit the column
+     */
+    private static String printable(String text, PDFont font, float fontSize, float width) throws IOException {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            result.append(c < 0x20 ? ' ' : c > 0xFF || (c >= 0x7F && c < 0xA0) ? '?' : c);
+        }
+        float scale = fontSize / 1000f;
+        if (font.getStringWidth(result.toString()) * scale <= width) {
+            return result.toString();
+        }
+        float ellipsis = font.getStringWidth("...") * scale;
+        while (result.length() > 0 && font.getStringWidth(result.toString()) * scale + ellipsis > width) {
+            result.setLength(result.length() - 1);
+        }
+        return result.append("...").toString();
+    }
+
+    private void closePage() throws IOException {
+        if (content != null) {
+            content.close();
+            content = null;
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (content == null) {
+            startPage();
+        }
+        closePage();
+        document.save(file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            closePage();
+        } finally {
+            document.close();
+        }
+    }
+}
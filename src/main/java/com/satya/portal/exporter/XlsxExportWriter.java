@@ -0,0 +1,107 @@
+package com.satya.portal.exporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import com.satya.portal.models.Layout;
+
+/**
+ * XlsxExportWriter - streams rows into an SXSSFWorkbook, which keeps only a
+ * small window of rows in memory and flushes the rest to a compressed
+ * temporary file. Starts a new sheet when one reaches Excel's row limit.
+ */
+class XlsxExportWriter implements ExportWriter {
+    private static final int MAX_ROWS_PER_SHEET = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private final File file;
+    private final SXSSFWorkbook workbook;
+    private final CellStyle headerStyle;
+    private final CellStyle dateStyle;
+    private final CellStyle areaStyle;
+    private SXSSFSheet sheet;
+    private int rowIndex;
+
+    XlsxExportWriter(File file, int rowWindow) {
+        this.file = file;
+        this.workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+
+        Font bold = workbook.createFont();
+        bold.setBold(true);
+        headerStyle = workbook.createCellStyle();
+        headerStyle.setFont(bold);
+        dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd"));
+        areaStyle = workbook.createCellStyle();
+        areaStyle.setDataFormat(workbook.createDataFormat().getFormat("0.00"));
+
+        startSheet();
+    }
+
+    private void startSheet() {
+        sheet = workbook.createSheet("Layouts" + (workbook.getNumberOfSheets() > 0 ? " " + (workbook.getNumberOfSheets() + 1) : ""));
+        sheet.createFreezePane(0, 1);
+        rowIndex = 0;
+        Row header = sheet.createRow(rowIndex++);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            Cell cell = header.createCell(i);
+            cell.setCellValue(COLUMNS[i]);
+            cell.setCellStyle(headerStyle);
+            sheet.setColumnWidth(i, (i == 1 || i == 3 ? 30 : 16) * 256);
+        }
+    }
+
+    @Override
+    public void write(Layout layout) {
+        if (rowIndex >= MAX_ROWS_PER_SHEET) {
+            startSheet();
+        }
+        Row row = sheet.createRow(rowIndex++);
+        setText(row, 0, layout.getFileNumber());
+        setText(row, 1, layout.getLayoutName());
+        setText(row, 2, layout.getStatus());
+        setText(row, 3, layout.getOwnerName());
+        Cell area = row.createCell(4);
+        area.setCellValue(layout.getAreaInAcres());
+        area.setCellStyle(areaStyle);
+        if (layout.getApplicationDate() != null) {
+            Cell date = row.createCell(5);
+            date.setCellValue(layout.getApplicationDate());
+            date.setCellStyle(dateStyle);
+        }
+        setText(row, 6, layout.getSurveyNumber());
+    }
+
+    private static void setText(Row row, int column, String value) {
+        if (value != null) {
+            row.createCell(column).setCellValue(value);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            workbook.write(out);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            workbook.close();
+        } finally {
+            // Remove the temporary files holding flushed rows
+            workbook.dispose();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.satya.portal.importer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CsvRecordSource - streaming RFC 4180 CSV reader. Handles quoted fields
+ * with embedded commas, doubled quotes and line breaks, CRLF line endings
+ * and a UTF-8 byte order mark. Only the current row is kept in memory.
+ */
+public class CsvRecordSource implements RecordSource {
+    private static final int EOF = -1;
+
+    private final File file;
+
+    public CsvRecordSource(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public void read(RecordConsumer consumer) throws IOException, InterruptedException {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            reader.mark(1);
+            if (reader.read() != '\uFEFF') {
+                reader.reset();
+            }
+
+            String[] header = null;
+            int rowNumber = 0;
+            List<String> fields;
+            while ((fields = readRow(reader)) != null) {
+                rowNumber++;
+                if (header == null) {
+                    if (isBlank(fields)) {
+                        continue;
+                    }
+                    header = new String[fields.size()];
+                    for (int i = 0; i < header.length; i++) {
+                        header[i] = SourceRecord.normalize(fields.get(i));
+                    }
+                    continue;
+                }
+                SourceRecord record = new SourceRecord(rowNumber, header, fields.toArray(new String[0]));
+                if (!record.isBlankRow()) {
+                    consumer.accept(record);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Fields of the next row, or null at end of file
+     */
+    private static List<String> readRow(Reader reader) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+
+        int c;
+        while ((c = reader.read()) != EOF) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                reader.mark(1);
+                if (reader.read() != '\n') {
+                    reader.reset();
+                }
+                break;
+            } else {
+                field.append((char) c);
+            }
+        }
+
+        if (!any) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static boolean isBlank(List<String> fields) {
+        for (String field : fields) {
+            if (!SourceRecord.isBlank(field)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,264 @@
+package com.satya.portal.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.satya.portal.models.BatchResult;
+import com.satya.portal.models.CourtCase;
+import com.satya.portal.models.Layout;
+import com.satya.portal.utils.AppConfig;
+import com.satya.portal.utils.DataManager;
+/**
+ * DataImporter - streams layouts or court cases from a CSV/XLSX file into
+ * the database. Parsing, validation and batched writes run as three
+ * pipelined stages joined by bounded queues: a slow database blocks the
+ * validator, which blocks the parser, so memory stays bounded by the queue
+ * sizes however large the file is.
+ */
+public class DataImporter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataImporter.class);
+
+    public enum RecordType {
+        LAYOUTS,
+        COURT_CASES
+    }
+
+    // End-of-stream markers passed through the queues
+    private static final SourceRecord END_OF_RECORDS = new SourceRecord(0, new String[0], new String[0]);
+    private static final Chunk<Object> END_OF_CHUNKS = new Chunk<>(0);
+
+    private final RecordType type;
+    private boolean upsert;
+    private int batchSize = AppConfig.getInt("import.batchSize", AppConfig.getInt("db.batch.size", 500));
+    private int queueCapacity = AppConfig.getInt("import.queueCapacity", 10000);
+    private int maxReportedIssues = AppConfig.getInt("import.maxReportedIssues", 1000);
+    private Consumer<ImportReport> progressListener;
+
+    private volatile boolean cancelled;
+
+    public DataImporter(RecordType type) {
+        this.type = type;
+    }
+
+    /**
+     * @param upsert true to update layouts whose file number already exists instead of reporting them
+     */
+    public void setUpsert(boolean upsert) {
+        this.upsert = upsert;
+    }
+
+    /**
+     * @param batchSize Rows per database batch
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @param queueCapacity Parsed rows allowed to wait for validation
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /**
+     * @param progressListener Called on the importing thread after every batch is written
+     */
+    public void setProgressListener(Consumer<ImportReport> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Stop a running import after the batch in progress. Rows already
+     * written stay in the database.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Import a .csv or .xlsx file. Blocks until the file is processed, so
+     * call it off the Event Dispatch Thread.
+     *
+     * @param file File whose first row holds the column names
+     * @return Counters, throughput and rejected rows
+     * @throws IOException if the file type is not supported
+     */
+    public ImportReport importFile(File file) throws IOException {
+        RecordSource source = RecordSource.forFile(file);
+        if (type == RecordType.LAYOUTS) {
+            return run(file.getName(), source, RecordMapper::toLayout, DataImporter::validateLayout,
+                    Layout::getFileNumber, upsert ? DataManager.getInstance()::upsertLayouts : DataManager.getInstance()::addLayouts);
+        }
+        return run(file.getName(), source, RecordMapper::toCourtCase, DataImporter::validateCourtCase,
+                CourtCase::getCaseId, DataManager.getInstance()::addCourtCases);
+    }
+
+    /**
+     * @return Why the layout cannot be imported, or null if it is valid
+     */
+    static String validateLayout(Layout layout) {
+        if (layout.hasCompleteInformation()) {
+            return null;
+        }
+        if (!layout.isValidCoordinates()) {
+            return "Invalid coordinates: " + layout.getLatitude() + ", " + layout.getLongitude();
+        }
+        if (!layout.isValidArea()) {
+            return "Area must be greater than zero";
+        }
+        return "Missing required field (file number, layout name, owner, survey number or status)";
+    }
+
+    /**
+     * @return Why the court case cannot be imported, or null if it is valid
+     */
+    static String validateCourtCase(CourtCase courtCase) {
+        if (SourceRecord.isBlank(courtCase.getCaseId()) || SourceRecord.isBlank(courtCase.getCaseTitle()) ||
+            SourceRecord.isBlank(courtCase.getCaseType()) || SourceRecord.isBlank(courtCase.getStatus())) {
+            return "Missing required field (case ID, title, type or status)";
+        }
+        return null;
+    }
+
+    private <T> ImportReport run(String name, RecordSource source, Function<SourceRecord, T> mapper,
+                                 Function<T, String> validator, Function<T, String> keyOf,
+                                 Function<List<T>, BatchResult> writer) {
+        final ImportReport report = new ImportReport(name, maxReportedIssues);
+        final BlockingQueue<SourceRecord> records = new ArrayBlockingQueue<>(queueCapacity);
+        final BlockingQueue<Chunk<T>> chunks = new ArrayBlockingQueue<>(4);
+
+        // Stage 1: parse the file
+        Thread parser = new Thread(() -> {
+            try {
+                source.read(record -> {
+                    report.rowRead();
+                    records.put(record);
+                });
+            } catch (InterruptedException e) {
+                return; // Import cancelled
+            } catch (Exception e) {
+                LOGGER.error("Error reading {}", name, e);
+                report.fatal(e.getMessage());
+            }
+            putQuietly(records, END_OF_RECORDS);
+        }, "satya-import-parse");
+
+        // Stage 2: map and validate rows, group them into batches
+        Thread validatorThread = new Thread(() -> {
+            try {
+                Chunk<T> chunk = new Chunk<>(batchSize);
+                SourceRecord record;
+                while ((record = records.take()) != END_OF_RECORDS) {
+                    T item;
+                    String problem;
+                    try {
+                        item = mapper.apply(record);
+                        problem = validator.apply(item);
+                    } catch (RuntimeException e) {
+                        report.rowRejected(record.getRowNumber(), null, e.getMessage());
+                        continue;
+                    }
+                    if (problem != null) {
+                        report.rowRejected(record.getRowNumber(), keyOf.apply(item), problem);
+                        continue;
+                    }
+                    chunk.add(item, record.getRowNumber());
+                    if (chunk.isFull()) {
+                        chunks.put(chunk);
+                        chunk = new Chunk<>(batchSize);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    chunks.put(chunk);
+                }
+                chunks.put(endOfChunks());
+            } catch (InterruptedException e) {
+                // Import cancelled
+            }
+        }, "satya-import-validate");
+
+        parser.setDaemon(true);
+        validatorThread.setDaemon(true);
+        parser.start();
+        validatorThread.start();
+
+        // Stage 3: write batches on the calling thread
+        try {
+            Chunk<T> chunk;
+            while (!cancelled && (chunk = chunks.take()) != END_OF_CHUNKS) {
+                long start = System.nanoTime();
+                BatchResult result = writer.apply(chunk.items);
+                report.rowsWritten(result.getSucceeded(), System.nanoTime() - start);
+                for (BatchResult.RowFailure failure : result.getFailures()) {
+                    report.rowFailed(chunk.rowNumbers[failure.getIndex()], failure.getKey(), failure.getMessage());
+                }
+                if (progressListener != null) {
+                    progressListener.accept(report);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        } catch (RuntimeException e) {
+            LOGGER.error("Error writing import batch from {}", name, e);
+            report.fatal(e.getMessage());
+        } finally {
+            // Unblock the other stages if the import stopped early
+            parser.interrupt();
+            validatorThread.interrupt();
+        }
+
+        report.finish(cancelled);
+        LOGGER.info(report.toString());
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Chunk<T> endOfChunks() {
+        return (Chunk<T>) (Chunk<?>) END_OF_CHUNKS;
+    }
+
+    private static <T> void putQuietly(BlockingQueue<T> queue, T item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            // Import cancelled; nobody is waiting for the item
+        }
+    }
+
+    /**
+     * A batch of valid rows and where each one came from in the file
+     */
+    private static final class Chunk<T> {
+        private final List<T> items;
+        private final int[] rowNumbers;
+
+        private Chunk(int capacity) {
+            this.items = new ArrayList<>(capacity);
+            this.rowNumbers = new int[capacity];
+        }
+
+        private void add(T item, int rowNumber) {
+            rowNumbers[items.size()] = rowNumber;
+            items.add(item);
+        }
+
+        private boolean isFull() {
+            return items.size() == rowNumbers.length;
+        }
+
+        private boolean isEmpty() {
+            return items.isEmpty();
+        }
+    }
+}
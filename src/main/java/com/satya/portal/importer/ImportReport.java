@@ -0,0 +1,181 @@
+package com.satya.portal.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ImportReport - progress and outcome of an import: row counters per
+ * pipeline stage, throughput and the rows that were rejected. Only the
+ * first issues are kept in full so a bad million-row file does not fill
+ * the heap; the counters always cover every row.
+ */
+public class ImportReport {
+    private final String source;
+    private final int maxIssues;
+    private final long startNanos = System.nanoTime();
+
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private final List<Issue> issues = new ArrayList<>();
+
+    private volatile long endNanos;
+    private volatile boolean cancelled;
+    private volatile String fatalError;
+
+    ImportReport(String source, int maxIssues) {
+        this.source = source;
+        this.maxIssues = maxIssues;
+    }
+
+    void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    void rowRejected(int rowNumber, String key, String message) {
+        rowsRejected.incrementAndGet();
+        addIssue(rowNumber, key, message);
+    }
+
+    void rowsWritten(int count, long nanos) {
+        rowsWritten.addAndGet(count);
+        writeNanos.addAndGet(nanos);
+    }
+
+    void rowFailed(int rowNumber, String key, String message) {
+        rowsFailed.incrementAndGet();
+        addIssue(rowNumber, key, message);
+    }
+
+    private synchronized void addIssue(int rowNumber, String key, String message) {
+        if (issues.size() < maxIssues) {
+            issues.add(new Issue(rowNumber, key, message));
+        }
+    }
+
+    void fatal(String message) {
+        if (fatalError == null) {
+            fatalError = message;
+        }
+    }
+
+    void finish(boolean wasCancelled) {
+        cancelled = wasCancelled;
+        endNanos = System.nanoTime();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    /**
+     * @return Rows that failed parsing or validation and were not sent to the database
+     */
+    public long getRowsRejected() {
+        return rowsRejected.get();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    /**
+     * @return Valid rows the database refused (duplicates, constraint violations)
+     */
+    public long getRowsFailed() {
+        return rowsFailed.get();
+    }
+
+    /**
+     * @return The first rejected or failed rows, in the order they were found
+     */
+    public synchronized List<Issue> getIssues() {
+        return Collections.unmodifiableList(new ArrayList<>(issues));
+    }
+
+    public boolean isFinished() {
+        return endNanos != 0;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return Error that stopped the import early (unreadable file, lost connection), or null
+     */
+    public String getFatalError() {
+        return fatalError;
+    }
+
+    public long getElapsedMillis() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1_000_000;
+    }
+
+    /**
+     * @return Time spent in database writes; the rest is parsing and validation overlapping with it
+     */
+    public long getWriteMillis() {
+        return writeNanos.get() / 1_000_000;
+    }
+
+    /**
+     * @return Rows read per second since the import started
+     */
+    public double getRowsPerSecond() {
+        long millis = getElapsedMillis();
+        return millis == 0 ? 0 : getRowsRead() * 1000.0 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Import of %s: read=%d, written=%d, rejected=%d, failed=%d in %d ms (%.0f rows/s, %d ms writing)%s%s",
+                source, getRowsRead(), getRowsWritten(), getRowsRejected(), getRowsFailed(),
+                getElapsedMillis(), getRowsPerSecond(), getWriteMillis(),
+                cancelled ? ", cancelled" : "", fatalError != null ? ", error: " + fatalError : "");
+    }
+
+    /**
+     * A row that was not imported
+     */
+    public static final class Issue {
+        private final int rowNumber;
+        private final String key;
+        private final String message;
+
+        Issue(int rowNumber, String key, String message) {
+            this.rowNumber = rowNumber;
+            this.key = key;
+            this.message = message;
+        }
+
+        /**
+         * @return 1-based row number in the file
+         */
+        public int getRowNumber() {
+            return rowNumber;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Row " + rowNumber + (key != null ? " (" + key + ")" : "") + ": " + message;
+        }
+    }
+}
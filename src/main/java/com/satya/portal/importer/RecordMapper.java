@@ -0,0 +1,114 @@
+package com.satya.portal.importer;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import com.satya.portal.models.CourtCase;
+import com.satya.portal.models.Layout;
+import com.satya.portal.models.LayoutBoundary;
+
+/**
+ * RecordMapper - converts import rows to model objects. Each field accepts
+ * the database column name, the Java property name and the table heading
+ * used in the UI, so exports of any of them can be imported back.
+ */
+public final class RecordMapper {
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("dd-MM-yyyy"),
+            DateTimeFormatter.ofPattern("dd/MM/yyyy"),
+            DateTimeFormatter.ofPattern("d/M/yyyy")
+    };
+
+    private RecordMapper() {
+        // Utility class
+    }
+
+    /**
+     * @param record Import row
+     * @return Layout built from the row
+     * @throws IllegalArgumentException if a number or date cannot be parsed
+     */
+    public static Layout toLayout(SourceRecord record) {
+        Layout layout = new Layout();
+        layout.setFileNumber(record.get("file_number", "file_no", "fileNumber", "File No."));
+        layout.setLayoutName(record.get("layout_name", "layoutName", "Layout Name"));
+        layout.setStatus(record.get("status"));
+        layout.setOwnerName(record.get("owner_name", "owner", "ownerName"));
+        layout.setSurveyNumber(record.get("survey_number", "surveyNumber", "Survey No."));
+        layout.setAreaInAcres(parseDouble(record.get("area_in_acres", "area", "areaInAcres"), "area", 0));
+        layout.setApplicationDate(parseDate(record.get("application_date", "applicationDate"), "application date"));
+        layout.setApprovalDate(parseDate(record.get("approval_date", "approvalDate"), "approval date"));
+        layout.setLatitude(parseDouble(record.get("latitude", "lat"), "latitude", 0));
+        layout.setLongitude(parseDouble(record.get("longitude", "lng", "lon"), "longitude", 0));
+        layout.setRemarks(record.get("remarks"));
+        layout.setTotalPlots((int) parseDouble(record.get("total_plots", "totalPlots", "plots"), "total plots", 0));
+        layout.setApprovedBy(record.get("approved_by", "approvedBy"));
+        layout.setDocumentPath(record.get("document_path", "documentPath"));
+        layout.setHasCourtCase(parseBoolean(record.get("has_court_case", "hasCourtCase")));
+        layout.setZoneClassification(record.get("zone_classification", "zoneClassification"));
+        layout.setSetbackCompliance(parseDouble(record.get("setback_compliance", "setbackCompliance"), "setback compliance", 100.0));
+        layout.setBoundary(LayoutBoundary.fromWkt(record.get("boundary", "wkt")));
+        return layout;
+    }
+
+    /**
+     * @param record Import row
+     * @return Court case built from the row
+     * @throws IllegalArgumentException if a date cannot be parsed
+     */
+    public static CourtCase toCourtCase(SourceRecord record) {
+        CourtCase courtCase = new CourtCase();
+        courtCase.setCaseId(record.get("case_id", "caseId"));
+        courtCase.setCaseTitle(record.get("case_title", "caseTitle", "title"));
+        courtCase.setCaseType(record.get("case_type", "caseType", "type"));
+        String status = record.get("status");
+        if (status != null) {
+            courtCase.setStatus(status);
+        }
+        courtCase.setFilingDate(parseDate(record.get("filing_date", "filingDate"), "filing date"));
+        courtCase.setHearingDate(parseDate(record.get("hearing_date", "hearingDate"), "hearing date"));
+        courtCase.setJudgmentDate(parseDate(record.get("judgment_date", "judgmentDate"), "judgment date"));
+        courtCase.setDescription(record.get("description"));
+        courtCase.setRelatedLayoutId(record.get("related_layout_id", "relatedLayoutId", "layout_id", "file_number", "file_no"));
+        courtCase.setCourtName(record.get("court_name", "courtName", "court"));
+        courtCase.setJudgeName(record.get("judge_name", "judgeName", "judge"));
+        courtCase.setPetitioner(record.get("petitioner"));
+        courtCase.setRespondent(record.get("respondent"));
+        courtCase.setCaseNumber(record.get("case_number", "caseNumber"));
+        courtCase.setOutcome(record.get("outcome"));
+        courtCase.setDocumentPath(record.get("document_path", "documentPath"));
+        return courtCase;
+    }
+
+    private static double parseDouble(String value, String field, double defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.replace(",", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value, String field) {
+        if (value == null) {
+            return null;
+        }
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, format);
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
+        }
+        throw new IllegalArgumentException("Invalid " + field + ": " + value);
+    }
+
+    private static boolean parseBoolean(String value) {
+        return value != null && ("true".equalsIgnoreCase(value) || "yes".equalsIgnoreCase(value) ||
+                                 "y".equalsIgnoreCase(value) || "1".equals(value));
+    }
+}
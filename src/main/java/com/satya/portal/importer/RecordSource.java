@@ -0,0 +1,47 @@
+package com.satya.portal.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * RecordSource - streams the data rows of an import file one at a time,
+ * without holding the file in memory. The first non-empty row is the header.
+ */
+public interface RecordSource {
+
+    /**
+     * Receives rows as they are parsed. Blocking here slows the reader down,
+     * which is how the import pipeline applies back-pressure.
+     */
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(SourceRecord record) throws InterruptedException;
+    }
+
+    /**
+     * Read every data row of the file
+     *
+     * @param consumer Called once per data row, in file order
+     * @throws IOException if the file cannot be read or parsed
+     * @throws InterruptedException if the consumer was interrupted
+     */
+    void read(RecordConsumer consumer) throws IOException, InterruptedException;
+
+    /**
+     * Pick a reader from the file extension
+     *
+     * @param file A .csv or .xlsx file
+     * @return Source for the file
+     * @throws IOException if the format is not supported
+     */
+    static RecordSource forFile(File file) throws IOException {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return new CsvRecordSource(file);
+        } else if (name.endsWith(".xlsx")) {
+            return new XlsxRecordSource(file);
+        }
+        throw new IOException("Unsupported file type: " + file.getName() + " (expected .csv or .xlsx)");
+    }
+}
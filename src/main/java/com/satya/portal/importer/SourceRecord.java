@@ -0,0 +1,86 @@
+package com.satya.portal.importer;
+
+import java.util.Locale;
+
+/**
+ * SourceRecord - one data row of an import file, with cells looked up by
+ * header name. Header names are compared ignoring case, spaces and
+ * punctuation, so "File No.", "file_no" and "FILENO" are the same column.
+ */
+public class SourceRecord {
+    private final int rowNumber;
+    private final String[] header;
+    private final String[] values;
+
+    /**
+     * @param rowNumber 1-based row number in the file, header included
+     * @param header Normalized header names shared by every row of the file
+     * @param values Cell values in header order
+     */
+    public SourceRecord(int rowNumber, String[] header, String[] values) {
+        this.rowNumber = rowNumber;
+        this.header = header;
+        this.values = values;
+    }
+
+    public int getRowNumber() {
+        return rowNumber;
+    }
+
+    /**
+     * Get the first non-blank cell among several possible column names
+     *
+     * @param columns Column names to try, in order
+     * @return The trimmed cell value, or null if none of the columns has one
+     */
+    public String get(String... columns) {
+        for (String column : columns) {
+            String key = normalize(column);
+            for (int i = 0; i < header.length && i < values.length; i++) {
+                if (header[i].equals(key) && !isBlank(values[i])) {
+                    return values[i].trim();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if every cell of the row is blank
+     */
+    public boolean isBlankRow() {
+        for (String value : values) {
+            if (!isBlank(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param value Cell or field value
+     * @return true if it is null, empty or only whitespace
+     */
+    static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * Normalize a header cell for lookups
+     *
+     * @param name Header text as written in the file
+     * @return Lower-case letters and digits only
+     */
+    public static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder(name.length());
+        for (char c : name.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (Character.isLetterOrDigit(c)) {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+}
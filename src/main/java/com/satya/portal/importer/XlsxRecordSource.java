@@ -0,0 +1,146 @@
+package com.satya.portal.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * XlsxRecordSource - reads the first sheet of an .xlsx workbook with POI's
+ * SAX event model, so rows are handed on as the sheet XML is parsed instead
+ * of building the whole workbook in memory. Date cells are passed on as
+ * ISO dates (yyyy-MM-dd) whatever their display format.
+ */
+public class XlsxRecordSource implements RecordSource {
+    private final File file;
+
+    public XlsxRecordSource(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public void read(RecordConsumer consumer) throws IOException, InterruptedException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings,
+                        new RowCollector(consumer), new IsoDateFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (InterruptedSaxException e) {
+            throw e.interrupted;
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Could not read " + file.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Assembles cells into rows and hands each data row to the consumer
+     */
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RecordConsumer consumer;
+        private final List<String> cells = new ArrayList<>();
+        private String[] header;
+
+        private RowCollector(RecordConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // Empty cells are not reported, so place each value by its column
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : cells.size();
+            while (cells.size() < column) {
+                cells.add(null);
+            }
+            cells.add(formattedValue);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (header == null) {
+                if (cells.isEmpty()) {
+                    return;
+                }
+                header = new String[cells.size()];
+                for (int i = 0; i < header.length; i++) {
+                    header[i] = SourceRecord.normalize(cells.get(i));
+                }
+                return;
+            }
+            SourceRecord record = new SourceRecord(rowNum + 1, header, cells.toArray(new String[0]));
+            if (record.isBlankRow()) {
+                return;
+            }
+            try {
+                consumer.accept(record);
+            } catch (InterruptedException e) {
+                throw new InterruptedSaxException(e);
+            }
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+            // Not needed for imports
+        }
+    }
+
+    /**
+     * Formats date cells as ISO dates so the mapper does not have to guess
+     * the workbook's locale-specific display format
+     */
+    private static final class IsoDateFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return DateUtil.getLocalDateTime(value, use1904Windowing).toLocalDate().toString();
+            }
+            return super.formatRawCellContents(value, formatIndex, formatString, use1904Windowing);
+        }
+    }
+
+    /**
+     * Carries an interruption out of the SAX callbacks, which cannot throw checked exceptions
+     */
+    private static final class InterruptedSaxException extends RuntimeException {
+        private final InterruptedException interrupted;
+
+        private InterruptedSaxException(InterruptedException interrupted) {
+            super(interrupted);
+            this.interrupted = interrupted;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.satya.portal.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * BatchResult - outcome of a bulk write. Rows that could not be written are
+ * reported individually so the rest of the batch is not lost.
+ */
+public class BatchResult {
+    private final int attempted;
+    private int succeeded;
+    private final List<RowFailure> failures = new ArrayList<>();
+
+    /**
+     * @param attempted Number of rows submitted
+     */
+    public BatchResult(int attempted) {
+        this.attempted = attempted;
+    }
+
+    public void recordSuccess(int rows) {
+        succeeded += rows;
+    }
+
+    /**
+     * @param index Position of the row in the submitted list
+     * @param key Identifier of the row (file number, case ID)
+     * @param message Why the row failed
+     */
+    public void recordFailure(int index, String key, String message) {
+        failures.add(new RowFailure(index, key, message));
+    }
+
+    public int getAttempted() {
+        return attempted;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failures.size();
+    }
+
+    /**
+     * @return Failed rows in submission order
+     */
+    public List<RowFailure> getFailures() {
+        List<RowFailure> sorted = new ArrayList<>(failures);
+        sorted.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        return Collections.unmodifiableList(sorted);
+    }
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{attempted=" + attempted + ", succeeded=" + succeeded + ", failed=" + failures.size() + '}';
+    }
+
+    /**
+     * A row of the batch that was not written
+     */
+    public static final class RowFailure {
+        private final int index;
+        private final String key;
+        private final String message;
+
+        public RowFailure(int index, String key, String message) {
+            this.index = index;
+            this.key = key;
+            this.message = message;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Row " + index + " (" + key + "): " + message;
+        }
+    }
+}
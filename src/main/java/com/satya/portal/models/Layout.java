@@ -24,6 +24,7 @@ public class Layout {
     private boolean hasCourtCase;
     private String zoneClassification;
     private double setbackCompliance;
+    private LayoutBoundary boundary;
     
     // Status constants
     public static final String STATUS_APPROVED = "Approved";
@@ -43,7 +44,9 @@ public class Layout {
     public Layout(String fileNumber, String layoutName, String status, String ownerName,
                   String surveyNumber, double areaInAcres, LocalDate applicationDate,
                   double latitude, double longitude, String remarks, int totalPlots) {
-        this();
+        // Not this(): the application date is given, so today's is not needed
+        this.hasCourtCase = false;
+        this.setbackCompliance = 100.0;
         this.fileNumber = fileNumber;
         this.layoutName = layoutName;
         this.status = status;
@@ -213,6 +216,14 @@ public class Layout {
         this.setbackCompliance = setbackCompliance;
     }
     
+    public LayoutBoundary getBoundary() {
+        return boundary;
+    }
+    
+    public void setBoundary(LayoutBoundary boundary) {
+        this.boundary = boundary;
+    }
+    
     // Utility methods
     public boolean isApproved() {
         return STATUS_APPROVED.equals(status);
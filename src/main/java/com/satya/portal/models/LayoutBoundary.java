@@ -0,0 +1,220 @@
+package com.satya.portal.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * LayoutBoundary - the outline of a layout as a polygon of WGS84 positions.
+ * The first ring is the outer boundary; any further rings are holes, such
+ * as land inside the layout that belongs to someone else. It is stored in
+ * the layouts.boundary column as WKT, e.g.
+ * {@code POLYGON((79.98 14.52, 79.99 14.52, 79.99 14.53, 79.98 14.52))},
+ * with longitude before latitude as WKT requires.
+ */
+public final class LayoutBoundary {
+    // Each ring holds longitude, latitude pairs; the last point repeats the first
+    private final double[][] rings;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double maxLatitude;
+    private final double maxLongitude;
+
+    private LayoutBoundary(double[][] rings) {
+        this.rings = rings;
+        double minLat = Double.POSITIVE_INFINITY, minLon = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+        double[] outer = rings[0];
+        for (int i = 0; i < outer.length; i += 2) {
+            minLon = Math.min(minLon, outer[i]);
+            maxLon = Math.max(maxLon, outer[i]);
+            minLat = Math.min(minLat, outer[i + 1]);
+            maxLat = Math.max(maxLat, outer[i + 1]);
+        }
+        this.minLatitude = minLat;
+        this.minLongitude = minLon;
+        this.maxLatitude = maxLat;
+        this.maxLongitude = maxLon;
+    }
+
+    /**
+     * Create a boundary without holes
+     * @param latitudes the latitudes of the corners, in order
+     * @param longitudes the longitudes of the corners, in order
+     * @return the boundary
+     * @throws IllegalArgumentException if there are fewer than three corners
+     *         or a position is out of range
+     */
+    public static LayoutBoundary of(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Latitudes and longitudes differ in number");
+        }
+        double[] ring = new double[latitudes.length * 2];
+        for (int i = 0; i < latitudes.length; i++) {
+            ring[2 * i] = longitudes[i];
+            ring[2 * i + 1] = latitudes[i];
+        }
+        return new LayoutBoundary(new double[][] {closeRing(ring)});
+    }
+
+    /**
+     * Parse a WKT POLYGON
+     * @param wkt the text, e.g. {@code POLYGON((lon lat, lon lat, ...))}
+     * @return the boundary, or null if the text is null or empty
+     * @throws IllegalArgumentException if the text is not a valid polygon
+     */
+    public static LayoutBoundary fromWkt(String wkt) {
+        if (wkt == null || wkt.trim().isEmpty()) {
+            return null;
+        }
+        String text = wkt.trim();
+        if (!text.regionMatches(true, 0, "POLYGON", 0, 7)) {
+            throw new IllegalArgumentException("Boundary is not a WKT POLYGON: " + abbreviate(text));
+        }
+        int open = text.indexOf('(');
+        int close = text.lastIndexOf(')');
+        if (open < 0 || close < open) {
+            throw new IllegalArgumentException("Unbalanced parentheses in boundary: " + abbreviate(text));
+        }
+        List<double[]> rings = new ArrayList<>();
+        int pos = open + 1;
+        while (true) {
+            int ringOpen = text.indexOf('(', pos);
+            if (ringOpen < 0 || ringOpen > close) {
+                break;
+            }
+            int ringClose = text.indexOf(')', ringOpen);
+            if (ringClose < 0) {
+                throw new IllegalArgumentException("Unbalanced parentheses in boundary: " + abbreviate(text));
+            }
+            rings.add(closeRing(parseRing(text.substring(ringOpen + 1, ringClose))));
+            pos = ringClose + 1;
+        }
+        if (rings.isEmpty()) {
+            throw new IllegalArgumentException("Boundary has no rings: " + abbreviate(text));
+        }
+        return new LayoutBoundary(rings.toArray(new double[0][]));
+    }
+
+    private static double[] parseRing(String text) {
+        String[] points = text.split(",");
+        double[] ring = new double[points.length * 2];
+        for (int i = 0; i < points.length; i++) {
+            String[] parts = points[i].trim().split("\\s+");
+            if (parts.length < 2) {
+                throw new IllegalArgumentException("Invalid boundary point: " + points[i].trim());
+            }
+            try {
+                ring[2 * i] = Double.parseDouble(parts[0]);
+                ring[2 * i + 1] = Double.parseDouble(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid boundary point: " + points[i].trim(), e);
+            }
+        }
+        return ring;
+    }
+
+    /**
+     * Validate a ring and repeat its first point at the end if needed
+     */
+    private static double[] closeRing(double[] ring) {
+        for (int i = 0; i < ring.length; i += 2) {
+            if (ring[i] < -180 || ring[i] > 180 || ring[i + 1] < -90 || ring[i + 1] > 90) {
+                throw new IllegalArgumentException("Boundary point out of range: " + ring[i] + " " + ring[i + 1]);
+            }
+        }
+        int n = ring.length;
+        boolean closed = n >= 4 && ring[0] == ring[n - 2] && ring[1] == ring[n - 1];
+        if (!closed) {
+            ring = Arrays.copyOf(ring, n + 2);
+            ring[n] = ring[0];
+            ring[n + 1] = ring[1];
+        }
+        if (ring.length < 8) {
+            throw new IllegalArgumentException("A boundary ring needs at least three corners");
+        }
+        return ring;
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() <= 60 ? text : text.substring(0, 57) + "...";
+    }
+
+    /**
+     * Format as WKT for the layouts.boundary column
+     * @return the WKT POLYGON
+     */
+    public String toWkt() {
+        StringBuilder wkt = new StringBuilder("POLYGON(");
+        for (int r = 0; r < rings.length; r++) {
+            wkt.append(r == 0 ? "(" : ", (");
+            double[] ring = rings[r];
+            for (int i = 0; i < ring.length; i += 2) {
+                if (i > 0) {
+                    wkt.append(", ");
+                }
+                wkt.append(ring[i]).append(' ').append(ring[i + 1]);
+            }
+            wkt.append(')');
+        }
+        return wkt.append(')').toString();
+    }
+
+    /**
+     * Get the number of rings
+     * @return 1 for the outer boundary plus the number of holes
+     */
+    public int getRingCount() {
+        return rings.length;
+    }
+
+    /**
+     * Get the number of points in a ring, counting the closing point
+     * @param ring the ring, 0 for the outer boundary
+     * @return the point count
+     */
+    public int getPointCount(int ring) {
+        return rings[ring].length / 2;
+    }
+
+    public double getLatitude(int ring, int point) {
+        return rings[ring][2 * point + 1];
+    }
+
+    public double getLongitude(int ring, int point) {
+        return rings[ring][2 * point];
+    }
+
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.deepEquals(rings, ((LayoutBoundary) o).rings);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(rings);
+    }
+
+    @Override
+    public String toString() {
+        return toWkt();
+    }
+}
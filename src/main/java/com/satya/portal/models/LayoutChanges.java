@@ -0,0 +1,47 @@
+package com.satya.portal.models;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * LayoutChanges - the layouts written and deleted since a point in time.
+ * Changes are read with an overlap, so a change seen before may appear
+ * again; applying one twice has no further effect.
+ */
+public class LayoutChanges {
+    private final List<Layout> changed;
+    private final List<String> deletedFileNumbers;
+    private final LocalDateTime syncedUpTo;
+
+    public LayoutChanges(List<Layout> changed, List<String> deletedFileNumbers, LocalDateTime syncedUpTo) {
+        this.changed = Collections.unmodifiableList(changed);
+        this.deletedFileNumbers = Collections.unmodifiableList(deletedFileNumbers);
+        this.syncedUpTo = syncedUpTo;
+    }
+
+    /**
+     * @return Layouts added or updated, with their current values
+     */
+    public List<Layout> getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return File numbers of deleted layouts
+     */
+    public List<String> getDeletedFileNumbers() {
+        return deletedFileNumbers;
+    }
+
+    /**
+     * @return Database time to pass as "since" to fetch the next changes
+     */
+    public LocalDateTime getSyncedUpTo() {
+        return syncedUpTo;
+    }
+
+    public int size() {
+        return changed.size() + deletedFileNumbers.size();
+    }
+}
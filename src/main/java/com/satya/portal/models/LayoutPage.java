@@ -0,0 +1,149 @@
+package com.satya.portal.models;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * LayoutPage - one page of a keyset-paginated layout search.
+ * Pages are ordered by (application_date DESC, file_no DESC), after the
+ * relevance rank for ranked searches; the cursor holds the key of the last
+ * row so the next page starts right after it without an OFFSET scan.
+ */
+public class LayoutPage {
+    private final List<Layout> layouts;
+    private final Cursor nextCursor;
+
+    public LayoutPage(List<Layout> layouts, Cursor nextCursor) {
+        this.layouts = Collections.unmodifiableList(layouts);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Layout> getLayouts() {
+        return layouts;
+    }
+
+    /**
+     * @return Cursor for the following page, or null if this is the last page
+     */
+    public Cursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Position in the (rank, application_date, file_no) ordering
+     */
+    public static final class Cursor {
+        private final int rank;
+        private final LocalDate applicationDate;
+        private final String fileNumber;
+
+        public Cursor(LocalDate applicationDate, String fileNumber) {
+            this(0, applicationDate, fileNumber);
+        }
+
+        /**
+         * @param rank Relevance rank of the last row, as the search that fetched it ranked it
+         * @param applicationDate Application date of the last row
+         * @param fileNumber File number of the last row
+         */
+        public Cursor(int rank, LocalDate applicationDate, String fileNumber) {
+            this.rank = rank;
+            this.applicationDate = applicationDate;
+            this.fileNumber = fileNumber;
+        }
+
+        /**
+         * @param layout The last layout of a page
+         * @return Cursor positioned right after that layout
+         */
+        public static Cursor after(Layout layout) {
+            return after(layout, 0);
+        }
+
+        /**
+         * @param layout The last layout of a page of a ranked search
+         * @param rank Relevance rank of that layout
+         * @return Cursor positioned right after that layout
+         */
+        public static Cursor after(Layout layout, int rank) {
+            return new Cursor(rank, layout.getApplicationDate(), layout.getFileNumber());
+        }
+
+        /**
+         * @return Relevance rank of the last row, 0 for unranked searches
+         */
+        public int getRank() {
+            return rank;
+        }
+
+        /**
+         * @return Application date of the last row, null if that row has no date
+         */
+        public LocalDate getApplicationDate() {
+            return applicationDate;
+        }
+
+        public String getFileNumber() {
+            return fileNumber;
+        }
+
+        /**
+         * Test whether a layout comes after this cursor in page order.
+         * Layouts without an application date sort last, as in MySQL.
+         *
+         * @param layout The layout to test
+         * @return true if the layout belongs to a later page
+         */
+        public boolean precedes(Layout layout) {
+            return precedes(layout, 0);
+        }
+
+        /**
+         * Test whether a layout of a ranked search comes after this cursor
+         *
+         * @param layout The layout to test
+         * @param layoutRank Relevance rank of the layout
+         * @return true if the layout belongs to a later page
+         */
+        public boolean precedes(Layout layout, int layoutRank) {
+            if (layoutRank != rank) {
+                return layoutRank > rank;
+            }
+            LocalDate date = layout.getApplicationDate();
+            if (applicationDate == null) {
+                return date == null && layout.getFileNumber().compareTo(fileNumber) < 0;
+            }
+            if (date == null) {
+                return true;
+            }
+            int byDate = date.compareTo(applicationDate);
+            return byDate < 0 || (byDate == 0 && layout.getFileNumber().compareTo(fileNumber) < 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Cursor cursor = (Cursor) o;
+            return rank == cursor.rank &&
+                   Objects.equals(applicationDate, cursor.applicationDate) &&
+                   Objects.equals(fileNumber, cursor.fileNumber);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(rank, applicationDate, fileNumber);
+        }
+
+        @Override
+        public String toString() {
+            return "Cursor{" + (rank != 0 ? rank + ", " : "") + applicationDate + ", " + fileNumber + '}';
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package com.satya.portal.models;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * LayoutSearchCriteria - every filter the Search tab can apply to layouts.
+ * DatabaseManager compiles it into a single parameterized query; the mock
+ * store in DataManager evaluates the same rules with {@link #matches}.
+ * Null fields mean "no filter".
+ */
+public class LayoutSearchCriteria {
+    public enum AreaRange {
+        ALL("All Areas", null, false, null, false),
+        BELOW_1("< 1 Acre", null, false, 1.0, false),
+        FROM_1_TO_2("1-2 Acres", 1.0, true, 2.0, true),
+        FROM_2_TO_5("2-5 Acres", 2.0, false, 5.0, true),
+        FROM_5_TO_10("5-10 Acres", 5.0, false, 10.0, true),
+        ABOVE_10("> 10 Acres", 10.0, false, null, false);
+
+        private final String label;
+        private final Double min;
+        private final boolean minInclusive;
+        private final Double max;
+        private final boolean maxInclusive;
+
+        AreaRange(String label, Double min, boolean minInclusive, Double max, boolean maxInclusive) {
+            this.label = label;
+            this.min = min;
+            this.minInclusive = minInclusive;
+            this.max = max;
+            this.maxInclusive = maxInclusive;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public Double getMin() {
+            return min;
+        }
+
+        public boolean isMinInclusive() {
+            return minInclusive;
+        }
+
+        public Double getMax() {
+            return max;
+        }
+
+        public boolean isMaxInclusive() {
+            return maxInclusive;
+        }
+
+        public boolean contains(double area) {
+            if (min != null && (minInclusive ? area < min : area <= min)) {
+                return false;
+            }
+            return max == null || (maxInclusive ? area <= max : area < max);
+        }
+
+        public static AreaRange fromLabel(String label) {
+            for (AreaRange range : AreaRange.values()) {
+                if (range.label.equals(label)) {
+                    return range;
+                }
+            }
+            return ALL; // default
+        }
+    }
+
+    public enum SortField {
+        APPLICATION_DATE,
+        FILE_NUMBER,
+        LAYOUT_NAME,
+        STATUS,
+        AREA
+    }
+
+    private String query;
+    private Set<String> queryMatches; // file numbers matching the query, if known, best first
+    private Map<String, Integer> queryRanks = Collections.emptyMap();
+    private String status;
+    private String owner;
+    private Set<String> ownerMatches; // other spellings of the owner, if known, best first
+    private Map<String, Integer> ownerRanks = Collections.emptyMap();
+    private boolean resolved; // index matches looked up once for the whole search
+    private AreaRange areaRange = AreaRange.ALL;
+    private String district;
+    private String surveyNumber;
+    private LocalDate applicationDateFrom;
+    private LocalDate applicationDateTo;
+    private Boolean hasCourtCase;
+    private SortField sortField = SortField.APPLICATION_DATE;
+    private boolean sortDescending = true;
+    private int offset;
+    private int limit; // 0 = no limit
+
+    // Getters and Setters
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * @param query Words to find, each in the layout name, file number,
+     *              survey number, owner or remarks
+     */
+    public void setQuery(String query) {
+        this.query = blankToNull(query);
+        setQueryMatches(null);
+        this.resolved = false;
+    }
+
+    /**
+     * @return File numbers of the layouts matching the query, best match
+     *         first, or null if only the layout text is compared
+     */
+    public Set<String> getQueryMatches() {
+        return queryMatches;
+    }
+
+    /**
+     * @param queryMatches File numbers of the layouts matching the query,
+     *                     e.g. from LayoutTextIndex, in the order of their
+     *                     relevance. Searches look these layouts up by key
+     *                     and still compare their text, so a stale list can
+     *                     only miss layouts. Null to compare the text alone.
+     */
+    public void setQueryMatches(Set<String> queryMatches) {
+        this.queryMatches = queryMatches;
+        if (queryMatches == null || queryMatches.isEmpty()) {
+            this.queryRanks = Collections.emptyMap();
+        } else {
+            Map<String, Integer> ranks = new HashMap<>();
+            for (String fileNumber : queryMatches) {
+                ranks.put(fileNumber, ranks.size());
+            }
+            this.queryRanks = ranks;
+        }
+    }
+
+    /**
+     * @return true once the query and owner matches have been looked up for
+     *         the whole search, so the count and every page use the same
+     *         matches and ranks; false while they may still be looked up
+     */
+    public boolean isResolved() {
+        return resolved;
+    }
+
+    /**
+     * @param resolved true to use the query and owner matches as they are,
+     *                 including none, for every request of this search
+     */
+    public void setResolved(boolean resolved) {
+        this.resolved = resolved;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @param status Status to match; null, "All" and "All Status" disable the filter
+     */
+    public void setStatus(String status) {
+        String value = blankToNull(status);
+        this.status = "All".equals(value) || "All Status".equals(value) ? null : value;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = blankToNull(owner);
+        setOwnerMatches(null);
+        this.resolved = false;
+    }
+
+    /**
+     * @return Owner names, as stored, that are other spellings of the owner
+     *         filter, or null if only names containing it match
+     */
+    public Set<String> getOwnerMatches() {
+        return ownerMatches;
+    }
+
+    /**
+     * @param ownerMatches Owner names, as stored, that also pass the owner
+     *                     filter, e.g. transliteration variants found by
+     *                     OwnerNameIndex, closest spelling first; null to
+     *                     match by containment only
+     */
+    public void setOwnerMatches(Set<String> ownerMatches) {
+        this.ownerMatches = ownerMatches;
+        if (ownerMatches == null || ownerMatches.isEmpty()) {
+            this.ownerRanks = Collections.emptyMap();
+        } else {
+            // 0 is for names containing the owner filter
+            Map<String, Integer> ranks = new HashMap<>();
+            for (String name : ownerMatches) {
+                ranks.put(name, ranks.size() + 1);
+            }
+            this.ownerRanks = ranks;
+        }
+    }
+
+    public AreaRange getAreaRange() {
+        return areaRange;
+    }
+
+    public void setAreaRange(AreaRange areaRange) {
+        this.areaRange = areaRange == null ? AreaRange.ALL : areaRange;
+    }
+
+    public String getDistrict() {
+        return district;
+    }
+
+    /**
+     * @param district District to match; null and "All Districts" disable the filter
+     */
+    public void setDistrict(String district) {
+        String value = blankToNull(district);
+        this.district = "All Districts".equals(value) ? null : value;
+    }
+
+    public String getSurveyNumber() {
+        return surveyNumber;
+    }
+
+    public void setSurveyNumber(String surveyNumber) {
+        this.surveyNumber = blankToNull(surveyNumber);
+    }
+
+    public LocalDate getApplicationDateFrom() {
+        return applicationDateFrom;
+    }
+
+    public void setApplicationDateFrom(LocalDate applicationDateFrom) {
+        this.applicationDateFrom = applicationDateFrom;
+    }
+
+    public LocalDate getApplicationDateTo() {
+        return applicationDateTo;
+    }
+
+    public void setApplicationDateTo(LocalDate applicationDateTo) {
+        this.applicationDateTo = applicationDateTo;
+    }
+
+    public Boolean getHasCourtCase() {
+        return hasCourtCase;
+    }
+
+    /**
+     * @param hasCourtCase true/false to require layouts with/without court cases, null for either
+     */
+    public void setHasCourtCase(Boolean hasCourtCase) {
+        this.hasCourtCase = hasCourtCase;
+    }
+
+    public SortField getSortField() {
+        return sortField;
+    }
+
+    public void setSortField(SortField sortField) {
+        this.sortField = sortField == null ? SortField.APPLICATION_DATE : sortField;
+    }
+
+    public boolean isSortDescending() {
+        return sortDescending;
+    }
+
+    public void setSortDescending(boolean sortDescending) {
+        this.sortDescending = sortDescending;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        this.offset = Math.max(0, offset);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param limit Maximum number of rows to return; 0 returns all matches
+     */
+    public void setLimit(int limit) {
+        this.limit = Math.max(0, limit);
+    }
+
+    // Utility methods
+
+    /**
+     * @return true if no filter is set, i.e. the search returns every layout
+     */
+    public boolean isUnfiltered() {
+        return query == null && status == null && owner == null && areaRange == AreaRange.ALL &&
+               district == null && surveyNumber == null && applicationDateFrom == null &&
+               applicationDateTo == null && hasCourtCase == null;
+    }
+
+    /**
+     * Evaluate the filters against an in-memory layout, with the same
+     * semantics as the SQL built by DatabaseManager
+     *
+     * @param layout The layout to test
+     * @param layoutHasCourtCase Whether any court case references the layout
+     * @return true if the layout passes every filter
+     */
+    public boolean matches(Layout layout, boolean layoutHasCourtCase) {
+        if (query != null && ((queryMatches != null && !queryMatches.contains(layout.getFileNumber())) ||
+                              !matchesQuery(layout))) {
+            return false;
+        }
+        if (status != null && !status.equals(layout.getStatus())) {
+            return false;
+        }
+        if (owner != null && !containsIgnoreCase(layout.getOwnerName(), owner) &&
+            !(ownerMatches != null && ownerMatches.contains(layout.getOwnerName()))) {
+            return false;
+        }
+        if (!areaRange.contains(layout.getAreaInAcres())) {
+            return false;
+        }
+        if (district != null && !containsIgnoreCase(layout.getSurveyNumber(), district)) {
+            return false;
+        }
+        if (surveyNumber != null && !containsIgnoreCase(layout.getSurveyNumber(), surveyNumber)) {
+            return false;
+        }
+        LocalDate applicationDate = layout.getApplicationDate();
+        if (applicationDateFrom != null && (applicationDate == null || applicationDate.isBefore(applicationDateFrom))) {
+            return false;
+        }
+        if (applicationDateTo != null && (applicationDate == null || applicationDate.isAfter(applicationDateTo))) {
+            return false;
+        }
+        return hasCourtCase == null || hasCourtCase == layoutHasCourtCase;
+    }
+
+    private boolean matchesQuery(Layout layout) {
+        for (String word : queryWords()) {
+            if (!(containsIgnoreCase(layout.getLayoutName(), word) ||
+                  containsIgnoreCase(layout.getFileNumber(), word) ||
+                  containsIgnoreCase(layout.getSurveyNumber(), word) ||
+                  containsIgnoreCase(layout.getOwnerName(), word) ||
+                  containsIgnoreCase(layout.getRemarks(), word))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The words of the query, each of which a layout must contain
+     */
+    public String[] queryWords() {
+        return query != null ? query.split("\\s+") : new String[0];
+    }
+
+    /**
+     * @return true if the query matches or the owner spellings carry a
+     *         relevance order
+     */
+    public boolean isRanked() {
+        return !queryRanks.isEmpty() || (owner != null && !ownerRanks.isEmpty());
+    }
+
+    /**
+     * @return true for the default order, newest application first, which
+     *         ranked searches refine by relevance
+     */
+    public boolean isDefaultOrder() {
+        return sortField == SortField.APPLICATION_DATE && sortDescending;
+    }
+
+    /**
+     * Get the relevance rank of a layout, in the order DatabaseManager
+     * ranks rows in SQL though not with the same numbers, for ordering
+     * layouts in memory: by the position of its query match, then
+     * by its owner, with names containing the owner filter before the
+     * other spellings, best spelling first
+     *
+     * @param layout A layout matching the criteria
+     * @return 0 for the best match and higher for worse ones; 0 for every
+     *         layout when the search is not ranked
+     */
+    public int rankOf(Layout layout) {
+        Integer queryRank = queryRanks.get(layout.getFileNumber());
+        int rank = queryRank != null ? queryRank : queryRanks.size();
+        if (owner == null || ownerRanks.isEmpty()) {
+            return rank;
+        }
+        int ownerRank;
+        if (containsIgnoreCase(layout.getOwnerName(), owner)) {
+            ownerRank = 0;
+        } else {
+            Integer variantRank = ownerRanks.get(layout.getOwnerName());
+            ownerRank = variantRank != null ? variantRank : ownerRanks.size() + 1;
+        }
+        return rank * (ownerRanks.size() + 2) + ownerRank;
+    }
+
+    /**
+     * @return Comparator matching the ORDER BY clause used for database
+     *         searches: by relevance first for a ranked search in the
+     *         default order, then by the sort field
+     */
+    public Comparator<Layout> comparator() {
+        Comparator<Layout> comparator;
+        switch (sortField) {
+            case FILE_NUMBER:
+                comparator = Comparator.comparing(Layout::getFileNumber, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+                break;
+            case LAYOUT_NAME:
+                comparator = Comparator.comparing(Layout::getLayoutName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+                break;
+            case STATUS:
+                comparator = Comparator.comparing(Layout::getStatus, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+                break;
+            case AREA:
+                comparator = Comparator.comparingDouble(Layout::getAreaInAcres);
+                break;
+            case APPLICATION_DATE:
+            default:
+                comparator = Comparator.comparing(Layout::getApplicationDate, Comparator.nullsFirst(Comparator.<LocalDate>naturalOrder()));
+                break;
+        }
+        // File number breaks ties so paging is stable
+        comparator = comparator.thenComparing(Layout::getFileNumber, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+        comparator = sortDescending ? comparator.reversed() : comparator;
+        if (isRanked() && isDefaultOrder()) {
+            comparator = Comparator.comparingInt(this::rankOf).thenComparing(comparator);
+        }
+        return comparator;
+    }
+
+    /**
+     * @return Independent copy of these criteria
+     */
+    public LayoutSearchCriteria copy() {
+        LayoutSearchCriteria copy = new LayoutSearchCriteria();
+        copy.query = query;
+        copy.queryMatches = queryMatches;
+        copy.queryRanks = queryRanks;
+        copy.status = status;
+        copy.owner = owner;
+        copy.ownerMatches = ownerMatches;
+        copy.ownerRanks = ownerRanks;
+        copy.resolved = resolved;
+        copy.areaRange = areaRange;
+        copy.district = district;
+        copy.surveyNumber = surveyNumber;
+        copy.applicationDateFrom = applicationDateFrom;
+        copy.applicationDateTo = applicationDateTo;
+        copy.hasCourtCase = hasCourtCase;
+        copy.sortField = sortField;
+        copy.sortDescending = sortDescending;
+        copy.offset = offset;
+        copy.limit = limit;
+        return copy;
+    }
+
+    private static boolean containsIgnoreCase(String value, String term) {
+        return value != null && value.toLowerCase().contains(term.toLowerCase());
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    @Override
+    public String toString() {
+        return "LayoutSearchCriteria{" +
+                "query='" + query + '\'' +
+                ", status='" + status + '\'' +
+                ", owner='" + owner + '\'' +
+                ", areaRange=" + areaRange +
+                ", district='" + district + '\'' +
+                ", surveyNumber='" + surveyNumber + '\'' +
+                ", applicationDateFrom=" + applicationDateFrom +
+                ", applicationDateTo=" + applicationDateTo +
+                ", hasCourtCase=" + hasCourtCase +
+                ", sortField=" + sortField +
+                ", sortDescending=" + sortDescending +
+                ", offset=" + offset +
+                ", limit=" + limit +
+                '}';
+    }
+}
@@ -0,0 +1,117 @@
+package com.satya.portal.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * AppConfig - Application configuration for the SATYA Portal
+ * Values are read from satya.properties on the classpath; any key can be
+ * overridden with a JVM system property of the same name (-Dkey=value).
+ */
+public final class AppConfig {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppConfig.class);
+    private static final String CONFIG_RESOURCE = "/satya.properties";
+    private static final Properties PROPERTIES = load();
+
+    private AppConfig() {
+        // Utility class
+    }
+
+    private static Properties load() {
+        Properties properties = new Properties();
+        try (InputStream in = AppConfig.class.getResourceAsStream(CONFIG_RESOURCE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not read {}, using defaults", CONFIG_RESOURCE, e);
+        }
+        return properties;
+    }
+
+    /**
+     * Get a string setting
+     *
+     * @param key The setting key
+     * @param defaultValue Value used when the key is not configured
+     * @return The configured value or the default
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = PROPERTIES.getProperty(key);
+        }
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Get the keys configured under a prefix, in the file or as system
+     * properties
+     *
+     * @param prefix Start of the keys, e.g. "log.level."
+     * @return Matching keys in sorted order
+     */
+    public static Set<String> getKeys(String prefix) {
+        Set<String> keys = new TreeSet<>();
+        for (String key : PROPERTIES.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        }
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Get an integer setting
+     *
+     * @param key The setting key
+     * @param defaultValue Value used when the key is missing or malformed
+     * @return The configured value or the default
+     */
+    public static int getInt(String key, int defaultValue) {
+        return (int) getLong(key, defaultValue);
+    }
+
+    /**
+     * Get a long setting
+     *
+     * @param key The setting key
+     * @param defaultValue Value used when the key is missing or malformed
+     * @return The configured value or the default
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid number for {}: {}", key, value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Get a boolean setting
+     *
+     * @param key The setting key
+     * @param defaultValue Value used when the key is not configured
+     * @return The configured value or the default
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,262 @@
+package com.satya.portal.utils;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * BackgroundTasks - runs data access off the Event Dispatch Thread and
+ * publishes results back onto it. Uses virtual threads when the JVM has
+ * them (Java 21+) and a small daemon thread pool otherwise.
+ *
+ * Cancelling a task's future interrupts the thread running it and cancels
+ * any JDBC statement it has open (see {@link #register(Statement)}), so a
+ * superseded query stops on the database instead of running to the end.
+ */
+public final class BackgroundTasks {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackgroundTasks.class);
+    private static final ExecutorService EXECUTOR = createExecutor();
+    private static final ThreadLocal<Task> CURRENT = new ThreadLocal<>();
+
+    /** Executor that runs tasks on the Event Dispatch Thread */
+    public static final Executor EDT = SwingUtilities::invokeLater;
+
+    private BackgroundTasks() {
+        // Utility class
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            LOGGER.debug("Background tasks run on virtual threads");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread thread = new Thread(r, "satya-background-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /**
+     * Run a task in the background
+     *
+     * @param task The work to run off the EDT
+     * @return Future completed with the task result; cancelling it interrupts
+     *         the task and cancels its open statements
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Task running = new Task();
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                running.cancel();
+            }
+        });
+        EXECUTOR.execute(() -> {
+            if (!running.begin()) {
+                return; // Cancelled before it started
+            }
+            CURRENT.set(running);
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                CURRENT.remove();
+                running.end();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Let cancellation of the background task running on this thread cancel
+     * a statement. Statements created through the connection pool are
+     * registered already; outside a background task this does nothing.
+     *
+     * @param statement Statement the current task is about to run
+     */
+    public static void register(Statement statement) {
+        Task running = CURRENT.get();
+        if (running != null) {
+            running.register(statement);
+        }
+    }
+
+    /**
+     * Run a task in the background and hand its result to the EDT
+     *
+     * @param task The work to run off the EDT
+     * @param onSuccess Called on the EDT with the result
+     * @param onFailure Called on the EDT if the task throws; may be null to only log the error
+     * @return Future completed on the EDT once the callback has run; cancelling it
+     *         cancels the task and suppresses both callbacks
+     */
+    public static <T> CompletableFuture<T> submit(Callable<T> task, Consumer<? super T> onSuccess,
+                                                  Consumer<? super Throwable> onFailure) {
+        final CompletableFuture<T> work = supply(task);
+        final CompletableFuture<T> published = work.whenCompleteAsync((result, error) -> {
+            if (error == null) {
+                onSuccess.accept(result);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (onFailure != null) {
+                onFailure.accept(cause);
+            } else {
+                LOGGER.error("Background task failed", cause);
+            }
+        }, EDT);
+        published.whenComplete((result, error) -> {
+            if (published.isCancelled()) {
+                work.cancel(true);
+            }
+        });
+        return published;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * The thread and statements of one task, so that cancelling its future
+     * can stop it. The thread is only interrupted while it runs this task.
+     */
+    private static final class Task {
+        private final List<Statement> statements = new ArrayList<>();
+        private Thread thread;
+        private boolean cancelled;
+
+        synchronized boolean begin() {
+            if (cancelled) {
+                return false;
+            }
+            thread = Thread.currentThread();
+            return true;
+        }
+
+        synchronized void register(Statement statement) {
+            if (cancelled) {
+                cancel(statement);
+                return;
+            }
+            statements.removeIf(Task::isClosed);
+            statements.add(statement);
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            for (Statement statement : statements) {
+                cancel(statement);
+            }
+            statements.clear();
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        synchronized void end() {
+            thread = null;
+            statements.clear();
+            // Do not leave a cancellation interrupt for the next task on this thread
+            Thread.interrupted();
+        }
+
+        private static void cancel(Statement statement) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                LOGGER.debug("Could not cancel statement of a cancelled task", e);
+            }
+        }
+
+        private static boolean isClosed(Statement statement) {
+            try {
+                return statement.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * A slot that runs one task at a time: submitting a new task cancels the
+     * previous one, and results of superseded tasks are never delivered.
+     * Use it for searches and refreshes where only the newest request matters.
+     */
+    public static final class Latest {
+        private CompletableFuture<?> current;
+        private long generation;
+
+        /**
+         * Run a task, superseding any task still running in this slot
+         *
+         * @param task The work to run off the EDT
+         * @param onSuccess Called on the EDT with the result, only if no newer task was submitted
+         * @param onFailure Called on the EDT on failure, only if no newer task was submitted
+         * @return Future completed on the EDT once the callback has run
+         */
+        public synchronized <T> CompletableFuture<T> submit(Callable<T> task, Consumer<? super T> onSuccess,
+                                                            Consumer<? super Throwable> onFailure) {
+            cancel();
+            final long submitted = ++generation;
+            CompletableFuture<T> future = BackgroundTasks.submit(task, result -> {
+                if (isCurrent(submitted)) {
+                    onSuccess.accept(result);
+                }
+            }, error -> {
+                if (isCurrent(submitted) && !(error instanceof CancellationException)) {
+                    if (onFailure != null) {
+                        onFailure.accept(error);
+                    } else {
+                        LOGGER.error("Background task failed", error);
+                    }
+                }
+            });
+            current = future;
+            return future;
+        }
+
+        /**
+         * Cancel the running task, if any; its callbacks will not run
+         */
+        public synchronized void cancel() {
+            generation++;
+            if (current != null) {
+                current.cancel(true);
+                current = null;
+            }
+        }
+
+        private synchronized boolean isCurrent(long submitted) {
+            return submitted == generation;
+        }
+    }
+}
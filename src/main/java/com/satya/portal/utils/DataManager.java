@@ -4,29 +4,69 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.satya.portal.DBConnection;
+import com.satya.portal.EmbeddedDatabase;
+import com.satya.portal.models.BatchResult;
 import com.satya.portal.models.CourtCase;
 import com.satya.portal.models.Layout;
+import com.satya.portal.models.LayoutChanges;
+import com.satya.portal.models.LayoutPage;
+import com.satya.portal.models.LayoutSearchCriteria;
 import com.satya.portal.models.User;
-
 /**
  * DataManager - Singleton class for managing application data
  * Provides data from database for production and mock data for development/testing
  */
 public class DataManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataManager.class);
     private static DataManager instance;
     private DatabaseManager databaseManager;
     private boolean useDatabase = false; // Flag to switch between mock and database
     
-    private List<User> mockUsers;
-    private List<Layout> mockLayouts;
-    private List<CourtCase> mockCourtCases;
+    // Sample data used when no database is available; safe to read while
+    // background loaders and timers write
+    private final InMemoryStore<String, User> mockUsers = new InMemoryStore<>(User::getUserId);
+    private final InMemoryStore.Index<User> usersByName = mockUsers.addIndex(User::getUsername);
+    private final InMemoryStore<String, Layout> mockLayouts = new InMemoryStore<>(Layout::getFileNumber);
+    private final InMemoryStore.Index<Layout> layoutsByStatus = mockLayouts.addIndex(Layout::getStatus);
+    private final InMemoryStore<String, CourtCase> mockCourtCases = new InMemoryStore<>(CourtCase::getCaseId);
+    private final InMemoryStore.Index<CourtCase> casesByLayout = mockCourtCases.addIndex(CourtCase::getRelatedLayoutId);
+    private final InMemoryStore.Index<CourtCase> casesByStatus = mockCourtCases.addIndex(CourtCase::getStatus);
     private Map<String, Object> statisticsData;
+    private final LayoutCache layoutCache = LayoutCache.fromAppConfig();
+    // Searches use the text index once it holds every layout
+    private final LayoutTextIndex textIndex = new LayoutTextIndex();
+    private volatile boolean textIndexReady;
+    // Database searches fetch other users' changes into the text index
+    // first, at most once per interval
+    private static final long TEXT_INDEX_SYNC_MILLIS = AppConfig.getLong("search.textIndex.syncMillis", 1000);
+    // Guards the sync state only; the fetch itself runs outside it
+    private final Object textIndexSyncLock = new Object();
+    private LocalDateTime textIndexSyncedUpTo;
+    private long textIndexSyncedAt;
+    private CompletableFuture<Boolean> textIndexSync; // fetch in flight, if any
+    // Completions for the search boxes, filled alongside the text index
+    private final SuggestionIndex suggestionIndex = new SuggestionIndex();
+    // Spelling variants of owner names, filled alongside the text index
+    private final OwnerNameIndex ownerIndex = new OwnerNameIndex();
+    // Database searches bind at most this many; larger sets of matches are
+    // cheaper to find with LIKE than to list in the statement
+    private static final int MAX_OWNER_VARIANTS = DatabaseManager.MAX_OWNER_VARIANTS;
+    private static final int MAX_INDEXED_MATCHES = DatabaseManager.MAX_QUERY_MATCHES;
     
     private DataManager() {
         // Try to initialize database manager
@@ -38,12 +78,208 @@ public class DataManager {
             }
         } catch (Exception e) {
             // If database is not available, fall back to mock data
+            LOGGER.warn("Database check failed", e);
             useDatabase = false;
         }
         
         if (!useDatabase) {
+            // Nothing entered in this mode is saved
+            LOGGER.warn("Database unavailable; using sample data held in memory"
+                    + (EmbeddedDatabase.isEnabled() ? " although db.backend=h2" : ""));
             initializeMockData();
+            textIndex.putAll(mockLayouts.values());
+            suggestionIndex.putAll(mockLayouts.values());
+            ownerIndex.putAll(mockLayouts.values());
+            textIndexReady = true;
+        } else {
+            // Searches compare text in the database until the index is filled
+            BackgroundTasks.submit(this::buildTextIndex, indexed -> {
+                LOGGER.info("Indexed the text of {} layouts for search", indexed);
+            }, error -> LOGGER.warn("Could not index layout text; searches scan the table", error));
+            
+            // Layouts saved before the geohash column existed are still found
+            // by map queries, only more slowly until this completes
+            BackgroundTasks.submit(databaseManager::backfillGeohashes, updated -> {
+                if (updated > 0) {
+                    LOGGER.info("Filled in the geohash of {} layouts", updated);
+                }
+            }, error -> LOGGER.warn("Could not fill in layout geohashes", error));
+            
+            // Tombstones past the sync window are never read again
+            BackgroundTasks.submit(databaseManager::pruneLayoutDeletions, pruned -> {
+                if (pruned > 0) {
+                    LOGGER.info("Pruned {} old layout deletions", pruned);
+                }
+            }, error -> LOGGER.warn("Could not prune layout deletions", error));
+        }
+    }
+    
+    /**
+     * Fill the text index from the database. Writes made meanwhile through
+     * this DataManager update the index as well, and replacing a layout's
+     * text with the same text has no effect, so the order does not matter.
+     * Writes by other users from the start of the scan on are fetched by
+     * {@link #syncTextIndex()}.
+     * 
+     * @return Number of layouts indexed
+     */
+    private int buildTextIndex() throws SQLException {
+        LocalDateTime syncTime = databaseManager.getLayoutSyncTime();
+        databaseManager.scanLayoutText(layout -> {
+            textIndex.put(layout);
+            suggestionIndex.load(layout);
+            ownerIndex.put(layout);
+        });
+        suggestionIndex.rebuild();
+        synchronized (textIndexSyncLock) {
+            textIndexSyncedUpTo = syncTime;
+            textIndexSyncedAt = System.currentTimeMillis();
+        }
+        textIndexReady = true;
+        return textIndex.size();
+    }
+    
+    /**
+     * Fetch the layouts other users wrote or deleted since the last sync
+     * into the text index, unless that sync is less than
+     * search.textIndex.syncMillis old. Searches within that time return at
+     * once; later ones share a single fetch.
+     * 
+     * @return true if the index has every change up to the last sync, so
+     *         database searches can narrow by it
+     */
+    private boolean syncTextIndex() {
+        CompletableFuture<Boolean> sync;
+        LocalDateTime since;
+        synchronized (textIndexSyncLock) {
+            if (textIndexSyncedUpTo == null) {
+                return false;
+            }
+            if (System.currentTimeMillis() - textIndexSyncedAt < TEXT_INDEX_SYNC_MILLIS) {
+                return true;
+            }
+            if (textIndexSync != null) {
+                sync = textIndexSync;
+                since = null;
+            } else {
+                sync = new CompletableFuture<>();
+                textIndexSync = sync;
+                since = textIndexSyncedUpTo;
+            }
+        }
+        if (since == null) {
+            return sync.join();
+        }
+        
+        LayoutChanges changes = null;
+        try {
+            changes = getLayoutChangesSince(since);
+        } finally {
+            synchronized (textIndexSyncLock) {
+                if (changes != null) {
+                    textIndexSyncedUpTo = changes.getSyncedUpTo();
+                    textIndexSyncedAt = System.currentTimeMillis();
+                }
+                textIndexSync = null;
+            }
+            sync.complete(changes != null);
+        }
+        return changes != null;
+    }
+    
+    /**
+     * Index a layout written through this DataManager or by another user
+     */
+    private void indexLayout(Layout layout) {
+        textIndex.put(layout);
+        suggestionIndex.put(layout);
+        ownerIndex.put(layout);
+    }
+    
+    private void unindexLayout(String fileNumber) {
+        textIndex.remove(fileNumber);
+        suggestionIndex.remove(fileNumber);
+        ownerIndex.remove(fileNumber);
+    }
+    
+    /**
+     * Get the index of layout text, which finds layouts by any part of
+     * their name, file number, survey number, owner or remarks
+     * 
+     * @return The index, or null while it is still being built
+     */
+    public LayoutTextIndex getTextIndex() {
+        return textIndexReady ? textIndex : null;
+    }
+    
+    /**
+     * Get the completions offered while typing in the search boxes
+     * 
+     * @return The index, or null while it is still being built
+     */
+    public SuggestionIndex getSuggestionIndex() {
+        return textIndexReady ? suggestionIndex : null;
+    }
+    
+    /**
+     * Find owner names that may be other spellings of the given one, e.g.
+     * "Venkat Rao" for "Venkatarao"
+     * 
+     * @param owner Owner name as typed
+     * @param limit Most names to return
+     * @return The names, best match first; empty while the index is built
+     */
+    public List<OwnerNameIndex.Match> matchOwners(String owner, int limit) {
+        return textIndexReady ? ownerIndex.match(owner, limit) : Collections.<OwnerNameIndex.Match>emptyList();
+    }
+    
+    /**
+     * Look up the index matches of a search once, for a count and the pages
+     * that follow it. The indexes keep changing with other users' writes;
+     * criteria resolved here give every later request the same matches and
+     * ranks, so pages neither skip nor repeat rows and agree with the count.
+     * 
+     * @param criteria The search criteria
+     * @return Resolved copy of the criteria
+     */
+    public LayoutSearchCriteria resolveSearch(LayoutSearchCriteria criteria) {
+        LayoutSearchCriteria resolved = withIndexMatches(criteria).copy();
+        resolved.setResolved(true);
+        return resolved;
+    }
+    
+    /**
+     * Resolve the criteria's query with the text index, so the search
+     * looks up the matching layouts by file number before comparing their
+     * text and lists them best match first, and add the spellings of the
+     * owner filter found by the owner name index. Database searches use
+     * the text index only once it has the latest changes of other users.
+     * 
+     * @param criteria The search criteria
+     * @return Criteria with the index matches set, or the criteria unchanged
+     *         if the indexes cannot help
+     */
+    private LayoutSearchCriteria withIndexMatches(LayoutSearchCriteria criteria) {
+        if (!textIndexReady || criteria.isResolved()) {
+            return criteria;
+        }
+        LayoutSearchCriteria resolved = criteria;
+        if (criteria.getQuery() != null && criteria.getQueryMatches() == null && (!useDatabase || syncTextIndex())) {
+            List<String> matches = textIndex.search(criteria.getQuery(), useDatabase ? MAX_INDEXED_MATCHES : Integer.MAX_VALUE);
+            if (matches != null) {
+                resolved = resolved.copy();
+                resolved.setQueryMatches(new LinkedHashSet<>(matches));
+            }
+        }
+        if (criteria.getOwner() != null && criteria.getOwnerMatches() == null) {
+            Set<String> variants = new LinkedHashSet<>();
+            for (OwnerNameIndex.Match match : ownerIndex.match(criteria.getOwner(), MAX_OWNER_VARIANTS)) {
+                variants.add(match.getName());
+            }
+            resolved = resolved == criteria ? criteria.copy() : resolved;
+            resolved.setOwnerMatches(variants);
         }
+        return resolved;
     }
     
     /**
@@ -83,8 +319,6 @@ public class DataManager {
     }
     
     private void initializeUsers() {
-        mockUsers = new ArrayList<>();
-        
         // Admin user
         mockUsers.add(new User("U001", "admin", "admin123", User.Role.ADMIN,
                 "Administrator", "admin@satya.gov.in", "IT Department"));
@@ -106,8 +340,6 @@ public class DataManager {
     }
     
     private void initializeLayouts() {
-        mockLayouts = new ArrayList<>();
-        
         // Sample layouts with various statuses
         mockLayouts.add(new Layout("L001", "Green Valley Layout", "Approved", 
                 "Rajesh Kumar", "Sy.No. 45, Nellore", 2.5, LocalDate.of(2023, 1, 15),
@@ -143,8 +375,6 @@ public class DataManager {
     }
     
     private void initializeCourtCases() {
-        mockCourtCases = new ArrayList<>();
-        
         mockCourtCases.add(new CourtCase("C001", "Land Dispute - Green Valley", 
                 "Civil", "Active", LocalDate.of(2023, 2, 15), LocalDate.of(2023, 8, 20),
                 "Boundary dispute resolution", "L001"));
@@ -165,30 +395,11 @@ public class DataManager {
     private void initializeStatistics() {
         statisticsData = new HashMap<>();
         
-        // Dashboard statistics
-        Map<String, Integer> dashboardStats = new HashMap<>();
-        dashboardStats.put("totalLayouts", mockLayouts.size());
-        dashboardStats.put("approvedLayouts", (int) mockLayouts.stream().filter(l -> "Approved".equals(l.getStatus())).count());
-        dashboardStats.put("pendingLayouts", (int) mockLayouts.stream().filter(l -> "Pending".equals(l.getStatus())).count());
-        dashboardStats.put("rejectedLayouts", (int) mockLayouts.stream().filter(l -> "Rejected".equals(l.getStatus())).count());
-        dashboardStats.put("activeCases", (int) mockCourtCases.stream().filter(c -> "Active".equals(c.getStatus())).count());
-        dashboardStats.put("totalUsers", mockUsers.size());
-        
-        statisticsData.put("dashboard", dashboardStats);
-        
         // Monthly search trends (mock data)
         int[] searchTrends = {45, 67, 89, 123, 156, 178, 201, 234, 267, 289, 312, 345};
         statisticsData.put("searchTrends", searchTrends);
         
-        // Layout status distribution
-        Map<String, Integer> statusDistribution = new HashMap<>();
-        statusDistribution.put("Approved", 2);
-        statusDistribution.put("Pending", 2);
-        statusDistribution.put("Under Review", 2);
-        statusDistribution.put("Rejected", 1);
-        statusDistribution.put("Unauthorized", 1);
-        
-        statisticsData.put("statusDistribution", statusDistribution);
+        // Dashboard counters and the status distribution are counted from the indexes when asked for
     }
     
     /**
@@ -204,8 +415,8 @@ public class DataManager {
             return databaseManager.authenticateUser(username, password, role);
         } else {
             // Use mock authentication
-            for (User user : mockUsers) {
-                if (user.getUsername().equals(username) && user.authenticate(password)) {
+            for (User user : mockUsers.find(usersByName, username)) {
+                if (user.authenticate(password)) {
                     if ((role == User.Role.ADMIN && user.isAdmin()) ||
                         (role == User.Role.USER && user.canViewDocuments() && !user.isAdmin()) ||
                         (role == User.Role.VIEWER && !user.canViewDocuments())) {
@@ -228,8 +439,7 @@ public class DataManager {
             return databaseManager.registerUser(user);
         } else {
             // Mock implementation
-            mockUsers.add(user);
-            return true;
+            return mockUsers.add(user);
         }
     }
     
@@ -242,52 +452,159 @@ public class DataManager {
      * @return List of matching layouts
      */
     public List<Layout> searchLayouts(String query, String status, String owner) {
+        LayoutSearchCriteria criteria = new LayoutSearchCriteria();
+        criteria.setQuery(query);
+        criteria.setStatus(status);
+        criteria.setOwner(owner);
+        return searchLayouts(criteria);
+    }
+    
+    /**
+     * Search layouts with all filters, sorting and paging from the criteria.
+     * The owner filter also matches other spellings of the owner name; in
+     * the default order the closest spellings come first, as they do in
+     * {@link #searchLayoutsPage}.
+     * 
+     * @param criteria The search criteria
+     * @return List of matching layouts
+     */
+    public List<Layout> searchLayouts(LayoutSearchCriteria criteria) {
+        criteria = withIndexMatches(criteria);
         if (useDatabase && databaseManager != null) {
-            return databaseManager.searchLayouts(query, status, owner);
+            long loadToken = layoutCache.beginLoad();
+            List<Layout> results = databaseManager.searchLayouts(criteria);
+            layoutCache.putAll(results, loadToken);
+            return results;
         } else {
             List<Layout> results = new ArrayList<>();
-            
-            for (Layout layout : mockLayouts) {
-                boolean matches = true;
-                
-                if (query != null && !query.trim().isEmpty()) {
-                    String q = query.toLowerCase();
-                    matches = layout.getLayoutName().toLowerCase().contains(q) ||
-                             layout.getFileNumber().toLowerCase().contains(q) ||
-                             layout.getSurveyNumber().toLowerCase().contains(q);
-                }
-                
-                if (matches && status != null && !status.equals("All")) {
-                    matches = layout.getStatus().equals(status);
+            for (Layout layout : mockLayouts.values()) {
+                if (criteria.matches(layout, hasCourtCase(layout))) {
+                    results.add(layout);
                 }
-                
-                if (matches && owner != null && !owner.trim().isEmpty()) {
-                    matches = layout.getOwnerName().toLowerCase().contains(owner.toLowerCase());
+            }
+            results.sort(criteria.comparator());
+            
+            int from = Math.min(criteria.getOffset(), results.size());
+            int to = criteria.getLimit() > 0 ? Math.min(from + criteria.getLimit(), results.size()) : results.size();
+            return new ArrayList<>(results.subList(from, to));
+        }
+    }
+    
+    /**
+     * Count the layouts matching the criteria filters
+     * 
+     * @param criteria The search criteria
+     * @return Number of matching layouts
+     */
+    public int countLayouts(LayoutSearchCriteria criteria) {
+        criteria = withIndexMatches(criteria);
+        if (useDatabase && databaseManager != null) {
+            return databaseManager.countLayouts(criteria);
+        } else {
+            int count = 0;
+            for (Layout layout : mockLayouts.values()) {
+                if (criteria.matches(layout, hasCourtCase(layout))) {
+                    count++;
                 }
-                
-                if (matches) {
-                    results.add(layout);
+            }
+            return count;
+        }
+    }
+    
+    /**
+     * Fetch one keyset page of matching layouts, newest first, or best
+     * match first when the text index ranks the query's matches
+     * 
+     * @param criteria The search criteria
+     * @param after Cursor of the previous page, or null for the first page
+     * @param pageSize Maximum number of layouts in the page
+     * @return The page and the cursor of the next one
+     */
+    public LayoutPage searchLayoutsPage(LayoutSearchCriteria criteria, LayoutPage.Cursor after, int pageSize) {
+        criteria = withIndexMatches(criteria);
+        if (useDatabase && databaseManager != null) {
+            long loadToken = layoutCache.beginLoad();
+            LayoutPage page = databaseManager.searchLayoutsPage(criteria, after, pageSize);
+            layoutCache.putAll(page.getLayouts(), loadToken);
+            return page;
+        } else {
+            List<Layout> matches = new ArrayList<>();
+            for (Layout layout : mockLayouts.values()) {
+                if ((after == null || after.precedes(layout, criteria.rankOf(layout))) &&
+                    criteria.matches(layout, hasCourtCase(layout))) {
+                    matches.add(layout);
                 }
             }
+            matches.sort(inPageOrder(criteria).comparator());
             
-            return results;
+            List<Layout> page = new ArrayList<>(matches.subList(0, Math.min(pageSize, matches.size())));
+            LayoutPage.Cursor next = null;
+            if (matches.size() > pageSize) {
+                Layout last = page.get(page.size() - 1);
+                next = LayoutPage.Cursor.after(last, criteria.rankOf(last));
+            }
+            return new LayoutPage(page, next);
+        }
+    }
+    
+    /**
+     * Fetch the page of matching layouts at an offset, in the order of
+     * {@link #searchLayoutsPage}, for jumping past pages never fetched
+     * 
+     * @param criteria The search criteria
+     * @param offset Number of matching layouts before the page
+     * @param pageSize Maximum number of layouts in the page
+     * @return The page and the cursor of the next one
+     */
+    public LayoutPage searchLayoutsPageAt(LayoutSearchCriteria criteria, int offset, int pageSize) {
+        if (useDatabase && databaseManager != null) {
+            // The database works out the rank the cursor carries
+            long loadToken = layoutCache.beginLoad();
+            LayoutPage page = databaseManager.searchLayoutsPageAt(withIndexMatches(criteria), offset, pageSize);
+            layoutCache.putAll(page.getLayouts(), loadToken);
+            return page;
+        }
+        LayoutSearchCriteria resolved = inPageOrder(withIndexMatches(criteria));
+        resolved.setOffset(offset);
+        resolved.setLimit(pageSize);
+        List<Layout> rows = searchLayouts(resolved);
+        LayoutPage.Cursor next = null;
+        if (rows.size() == pageSize) {
+            Layout last = rows.get(rows.size() - 1);
+            next = LayoutPage.Cursor.after(last, resolved.rankOf(last));
         }
+        return new LayoutPage(rows, next);
+    }
+    
+    private static LayoutSearchCriteria inPageOrder(LayoutSearchCriteria criteria) {
+        LayoutSearchCriteria ordered = criteria.copy();
+        ordered.setSortField(LayoutSearchCriteria.SortField.APPLICATION_DATE);
+        ordered.setSortDescending(true);
+        return ordered;
+    }
+    
+    private boolean hasCourtCase(Layout layout) {
+        return mockCourtCases.contains(casesByLayout, layout.getFileNumber());
     }
     
     /**
-     * Get layout by ID
+     * Get layout by ID. Served from the layout cache when the layout was
+     * loaded recently, e.g. by the search that listed it.
      * 
      * @param layoutId The layout ID
      * @return Layout object or null if not found
      */
     public Layout getLayoutById(String layoutId) {
         if (useDatabase && databaseManager != null) {
-            return databaseManager.getLayoutById(layoutId);
+            Layout layout = layoutCache.get(layoutId);
+            if (layout == null) {
+                long loadToken = layoutCache.beginLoad();
+                layout = databaseManager.getLayoutById(layoutId);
+                layoutCache.put(layout, loadToken);
+            }
+            return layout;
         } else {
-            return mockLayouts.stream()
-                    .filter(l -> l.getFileNumber().equals(layoutId))
-                    .findFirst()
-                    .orElse(null);
+            return mockLayouts.get(layoutId);
         }
     }
     
@@ -299,14 +616,100 @@ public class DataManager {
      */
     public boolean addLayout(Layout layout) {
         if (useDatabase && databaseManager != null) {
-            return databaseManager.addLayout(layout);
+            // Cache the stored row on its next read, not the caller's object
+            layoutCache.invalidate(layout.getFileNumber());
+            boolean added = databaseManager.addLayout(layout);
+            if (added) {
+                indexLayout(layout);
+            }
+            return added;
         } else {
-            mockLayouts.add(layout);
-            updateStatistics();
+            if (!mockLayouts.add(layout)) {
+                return false;
+            }
+            indexLayout(layout);
             return true;
         }
     }
     
+    /**
+     * Add many layouts in bulk
+     * 
+     * @param layouts The layouts to add
+     * @return Number of rows written and the rows that failed
+     */
+    public BatchResult addLayouts(List<Layout> layouts) {
+        if (useDatabase && databaseManager != null) {
+            invalidateCachedLayouts(layouts);
+            BatchResult result = databaseManager.addLayouts(layouts);
+            indexWritten(layouts, result);
+            return result;
+        } else {
+            BatchResult result = new BatchResult(layouts.size());
+            for (int i = 0; i < layouts.size(); i++) {
+                Layout layout = layouts.get(i);
+                if (layout.getFileNumber() == null) {
+                    result.recordFailure(i, null, "File number is required");
+                } else if (!mockLayouts.add(layout)) {
+                    result.recordFailure(i, layout.getFileNumber(), "Duplicate file number");
+                } else {
+                    indexLayout(layout);
+                    result.recordSuccess(1);
+                }
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * Add many layouts in bulk, replacing those whose file number already exists
+     * 
+     * @param layouts The layouts to add or update
+     * @return Number of rows written and the rows that failed
+     */
+    public BatchResult upsertLayouts(List<Layout> layouts) {
+        if (useDatabase && databaseManager != null) {
+            invalidateCachedLayouts(layouts);
+            BatchResult result = databaseManager.upsertLayouts(layouts);
+            indexWritten(layouts, result);
+            return result;
+        } else {
+            BatchResult result = new BatchResult(layouts.size());
+            for (int i = 0; i < layouts.size(); i++) {
+                Layout layout = layouts.get(i);
+                if (layout.getFileNumber() == null) {
+                    result.recordFailure(i, null, "File number is required");
+                    continue;
+                }
+                mockLayouts.put(layout);
+                indexLayout(layout);
+                result.recordSuccess(1);
+            }
+            return result;
+        }
+    }
+    
+    private void invalidateCachedLayouts(List<Layout> layouts) {
+        for (Layout layout : layouts) {
+            layoutCache.invalidate(layout.getFileNumber());
+        }
+    }
+    
+    /**
+     * Index the layouts a batch wrote
+     */
+    private void indexWritten(List<Layout> layouts, BatchResult result) {
+        Set<Integer> failed = new HashSet<>();
+        for (BatchResult.RowFailure failure : result.getFailures()) {
+            failed.add(failure.getIndex());
+        }
+        for (int i = 0; i < layouts.size(); i++) {
+            if (!failed.contains(i)) {
+                indexLayout(layouts.get(i));
+            }
+        }
+    }
+    
     /**
      * Update an existing layout
      * 
@@ -315,15 +718,16 @@ public class DataManager {
      */
     public boolean updateLayout(Layout layout) {
         if (useDatabase && databaseManager != null) {
-            return databaseManager.updateLayout(layout);
+            boolean updated = databaseManager.updateLayout(layout);
+            layoutCache.invalidate(layout.getFileNumber());
+            if (updated) {
+                indexLayout(layout);
+            }
+            return updated;
         } else {
-            for (int i = 0; i < mockLayouts.size(); i++) {
-                if (mockLayouts.get(i).getFileNumber().equals(layout.getFileNumber())) {
-                    mockLayouts.set(i, layout);
-                    break;
-                }
+            if (mockLayouts.replace(layout)) {
+                indexLayout(layout);
             }
-            updateStatistics();
             return true;
         }
     }
@@ -336,10 +740,15 @@ public class DataManager {
      */
     public boolean deleteLayout(String layoutId) {
         if (useDatabase && databaseManager != null) {
-            return databaseManager.deleteLayout(layoutId);
+            boolean deleted = databaseManager.deleteLayout(layoutId);
+            layoutCache.invalidate(layoutId);
+            if (deleted) {
+                unindexLayout(layoutId);
+            }
+            return deleted;
         } else {
-            mockLayouts.removeIf(l -> l.getFileNumber().equals(layoutId));
-            updateStatistics();
+            mockLayouts.remove(layoutId);
+            unindexLayout(layoutId);
             return true;
         }
     }
@@ -351,10 +760,134 @@ public class DataManager {
      */
     public List<Layout> getAllLayouts() {
         if (useDatabase && databaseManager != null) {
-            return databaseManager.getAllLayouts();
+            long loadToken = layoutCache.beginLoad();
+            List<Layout> layouts = databaseManager.getAllLayouts();
+            layoutCache.putAll(layouts, loadToken);
+            return layouts;
+        } else {
+            return new ArrayList<>(mockLayouts.values());
+        }
+    }
+    
+    /**
+     * Find the layouts whose coordinates lie in a bounding box, e.g. the
+     * map viewport. Results bypass the layout cache: a panning map asks for
+     * thousands of layouts that are rarely opened.
+     * 
+     * @param minLat Southern edge
+     * @param minLon Western edge
+     * @param maxLat Northern edge
+     * @param maxLon Eastern edge
+     * @return Layouts in the box, in no particular order
+     */
+    public List<Layout> findLayoutsInBounds(double minLat, double minLon, double maxLat, double maxLon) {
+        if (useDatabase && databaseManager != null) {
+            return databaseManager.findLayoutsInBounds(minLat, minLon, maxLat, maxLon);
+        } else {
+            List<Layout> results = new ArrayList<>();
+            for (Layout layout : mockLayouts.values()) {
+                if (layout.getLatitude() >= minLat && layout.getLatitude() <= maxLat &&
+                    layout.getLongitude() >= minLon && layout.getLongitude() <= maxLon) {
+                    results.add(layout);
+                }
+            }
+            return results;
+        }
+    }
+    
+    /**
+     * Find the outlines of the layouts whose coordinates lie in a bounding box
+     * 
+     * @param minLat Southern edge
+     * @param minLon Western edge
+     * @param maxLat Northern edge
+     * @param maxLon Eastern edge
+     * @return Layouts in the box that have a boundary
+     */
+    public List<Layout> findLayoutBoundariesInBounds(double minLat, double minLon, double maxLat, double maxLon) {
+        if (useDatabase && databaseManager != null) {
+            return databaseManager.findLayoutBoundariesInBounds(minLat, minLon, maxLat, maxLon);
         } else {
-            return new ArrayList<>(mockLayouts);
+            List<Layout> results = new ArrayList<>();
+            for (Layout layout : findLayoutsInBounds(minLat, minLon, maxLat, maxLon)) {
+                if (layout.getBoundary() != null) {
+                    results.add(layout);
+                }
+            }
+            return results;
+        }
+    }
+    
+    /**
+     * Find the layouts within a distance of a point
+     * 
+     * @param latitude Latitude of the point
+     * @param longitude Longitude of the point
+     * @param radiusMeters Search radius in meters
+     * @return Layouts within the radius, nearest first
+     */
+    public List<Layout> findLayoutsNear(double latitude, double longitude, double radiusMeters) {
+        if (useDatabase && databaseManager != null) {
+            return databaseManager.findLayoutsNear(latitude, longitude, radiusMeters);
+        } else {
+            double[] bounds = GeoHash.boundsAround(latitude, longitude, radiusMeters);
+            return DatabaseManager.nearestWithin(findLayoutsInBounds(bounds[0], bounds[1], bounds[2], bounds[3]),
+                    latitude, longitude, radiusMeters);
+        }
+    }
+    
+    /**
+     * Get the time to fetch layout changes from after loading layouts in
+     * full. Read it before loading, so changes made during the load are
+     * fetched again rather than missed.
+     * 
+     * @return Sync time, or null if changes are not tracked (mock data)
+     */
+    public LocalDateTime getLayoutSyncTime() {
+        if (useDatabase && databaseManager != null) {
+            return databaseManager.getLayoutSyncTime();
+        }
+        return null;
+    }
+    
+    /**
+     * Get the layouts written and deleted since a sync time. Cached copies
+     * of them are dropped and the search indexes are updated, so changes made by
+     * other users are seen here too.
+     * 
+     * @param since Time from {@link #getLayoutSyncTime()} or a previous result
+     * @return The changes, or null if they are not tracked and callers must
+     *         reload in full
+     */
+    public LayoutChanges getLayoutChangesSince(LocalDateTime since) {
+        return getLayoutChangesSince(since, false);
+    }
+    
+    /**
+     * Get the layouts written and deleted since a sync time, as
+     * {@link #getLayoutChangesSince(LocalDateTime)} does
+     * 
+     * @param since Time from {@link #getLayoutSyncTime()} or a previous result
+     * @param withBoundaries true to read the boundaries of the changed layouts too
+     * @return The changes, or null if they are not tracked and callers must
+     *         reload in full
+     */
+    public LayoutChanges getLayoutChangesSince(LocalDateTime since, boolean withBoundaries) {
+        if (useDatabase && databaseManager != null) {
+            LayoutChanges changes = databaseManager.getLayoutChangesSince(since, withBoundaries);
+            if (changes != null) {
+                invalidateCachedLayouts(changes.getChanged());
+                for (String fileNumber : changes.getDeletedFileNumbers()) {
+                    layoutCache.invalidate(fileNumber);
+                    unindexLayout(fileNumber);
+                }
+                for (Layout layout : changes.getChanged()) {
+                    indexLayout(layout);
+                }
+            }
+            return changes;
         }
+        return null;
     }
     
     /**
@@ -367,9 +900,7 @@ public class DataManager {
         if (useDatabase && databaseManager != null) {
             return databaseManager.getCourtCasesByLayoutId(layoutId);
         } else {
-            return mockCourtCases.stream()
-                    .filter(c -> layoutId.equals(c.getRelatedLayoutId()))
-                    .collect(ArrayList::new, (list, case_) -> list.add(case_), List::addAll);
+            return new ArrayList<>(mockCourtCases.find(casesByLayout, layoutId));
         }
     }
     
@@ -382,7 +913,7 @@ public class DataManager {
         if (useDatabase && databaseManager != null) {
             return databaseManager.getAllCourtCases();
         } else {
-            return new ArrayList<>(mockCourtCases);
+            return new ArrayList<>(mockCourtCases.values());
         }
     }
     
@@ -396,8 +927,32 @@ public class DataManager {
         if (useDatabase && databaseManager != null) {
             return databaseManager.addCourtCase(courtCase);
         } else {
-            mockCourtCases.add(courtCase);
-            return true;
+            return mockCourtCases.add(courtCase);
+        }
+    }
+    
+    /**
+     * Add many court cases in bulk
+     * 
+     * @param courtCases The court cases to add
+     * @return Number of rows written and the rows that failed
+     */
+    public BatchResult addCourtCases(List<CourtCase> courtCases) {
+        if (useDatabase && databaseManager != null) {
+            return databaseManager.addCourtCases(courtCases);
+        } else {
+            BatchResult result = new BatchResult(courtCases.size());
+            for (int i = 0; i < courtCases.size(); i++) {
+                CourtCase courtCase = courtCases.get(i);
+                if (courtCase.getCaseId() == null) {
+                    result.recordFailure(i, null, "Case ID is required");
+                } else if (!mockCourtCases.add(courtCase)) {
+                    result.recordFailure(i, courtCase.getCaseId(), "Duplicate case ID");
+                } else {
+                    result.recordSuccess(1);
+                }
+            }
+            return result;
         }
     }
     
@@ -411,12 +966,7 @@ public class DataManager {
         if (useDatabase && databaseManager != null) {
             return databaseManager.updateCourtCase(courtCase);
         } else {
-            for (int i = 0; i < mockCourtCases.size(); i++) {
-                if (mockCourtCases.get(i).getCaseId().equals(courtCase.getCaseId())) {
-                    mockCourtCases.set(i, courtCase);
-                    break;
-                }
-            }
+            mockCourtCases.replace(courtCase);
             return true;
         }
     }
@@ -431,7 +981,7 @@ public class DataManager {
         if (useDatabase && databaseManager != null) {
             return databaseManager.deleteCourtCase(caseId);
         } else {
-            mockCourtCases.removeIf(c -> c.getCaseId().equals(caseId));
+            mockCourtCases.remove(caseId);
             return true;
         }
     }
@@ -445,7 +995,7 @@ public class DataManager {
         if (useDatabase && databaseManager != null) {
             return databaseManager.getAllUsers();
         } else {
-            return new ArrayList<>(mockUsers);
+            return new ArrayList<>(mockUsers.values());
         }
     }
     
@@ -458,7 +1008,13 @@ public class DataManager {
         if (useDatabase && databaseManager != null) {
             return databaseManager.getDashboardStatistics();
         } else {
-            return new HashMap<>(statisticsData);
+            // Expose the dashboard counters at the top level, as the database path does
+            Map<String, Integer> dashboardStats = countDashboardStatistics();
+            Map<String, Object> statistics = new HashMap<>(statisticsData);
+            statistics.put("dashboard", dashboardStats);
+            statistics.put("statusDistribution", mockLayouts.counts(layoutsByStatus));
+            statistics.putAll(dashboardStats);
+            return statistics;
         }
     }
     
@@ -473,11 +1029,20 @@ public class DataManager {
             return databaseManager.deleteUser(userId);
         } else {
             // Mock implementation
-            mockUsers.removeIf(user -> user.getUserId().equals(userId));
+            mockUsers.remove(userId);
             return true;
         }
     }
     
+    /**
+     * Get hit, miss and eviction counters of the layout cache
+     * 
+     * @return Snapshot of the layout cache statistics
+     */
+    public LayoutCache.CacheStatistics getLayoutCacheStatistics() {
+        return layoutCache.getStatistics();
+    }
+    
     // Deprecated methods - kept for backward compatibility
     public List<User> getMockUsers() {
         return getAllUsers();
@@ -491,15 +1056,24 @@ public class DataManager {
         return getAllCourtCases();
     }
     
-    private void updateStatistics() {
-        if (!useDatabase) {
-            // Recalculate statistics when data changes
-            Map<String, Integer> dashboardStats = (Map<String, Integer>) statisticsData.get("dashboard");
-            dashboardStats.put("totalLayouts", mockLayouts.size());
-            dashboardStats.put("approvedLayouts", (int) mockLayouts.stream().filter(l -> "Approved".equals(l.getStatus())).count());
-            dashboardStats.put("pendingLayouts", (int) mockLayouts.stream().filter(l -> "Pending".equals(l.getStatus())).count());
-            dashboardStats.put("rejectedLayouts", (int) mockLayouts.stream().filter(l -> "Rejected".equals(l.getStatus())).count());
+    /**
+     * Count the sample data with the same buckets as the database query
+     */
+    private Map<String, Integer> countDashboardStatistics() {
+        Map<String, Integer> dashboardStats = new HashMap<>();
+        dashboardStats.put(StatisticsCache.TOTAL_LAYOUTS, mockLayouts.size());
+        dashboardStats.put(StatisticsCache.APPROVED_LAYOUTS, 0);
+        dashboardStats.put(StatisticsCache.PENDING_LAYOUTS, 0);
+        dashboardStats.put(StatisticsCache.REJECTED_LAYOUTS, 0);
+        for (Map.Entry<String, Integer> status : mockLayouts.counts(layoutsByStatus).entrySet()) {
+            String statusKey = StatisticsCache.layoutStatusKey(status.getKey());
+            if (statusKey != null) {
+                dashboardStats.merge(statusKey, status.getValue(), Integer::sum);
+            }
         }
+        dashboardStats.put(StatisticsCache.ACTIVE_CASES, mockCourtCases.count(casesByStatus, "Active"));
+        dashboardStats.put(StatisticsCache.TOTAL_USERS, mockUsers.size());
+        return dashboardStats;
     }
     
     public void initialize() {
@@ -3,30 +3,80 @@ package com.satya.portal.utils;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.satya.portal.DBConnection;
+import com.satya.portal.models.BatchResult;
 import com.satya.portal.models.CourtCase;
 import com.satya.portal.models.Layout;
+import com.satya.portal.models.LayoutChanges;
+import com.satya.portal.models.LayoutPage;
+import com.satya.portal.models.LayoutSearchCriteria;
 import com.satya.portal.models.User;
-
 /**
  * DatabaseManager - Singleton class for managing database operations
  * Handles all CRUD operations for the SATYA Portal application
+ * Every operation is timed by {@link QueryMetrics}.
  */
 public class DatabaseManager {
-    private static final Logger LOGGER = Logger.getLogger(DatabaseManager.class.getName());
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseManager.class);
     private static DatabaseManager instance;
     
+    private static final String INSERT_COURT_CASE_SQL =
+            "INSERT INTO court_cases (case_id, case_title, case_type, status, filing_date, " +
+            "hearing_date, judgment_date, description, related_layout_id, court_name, " +
+            "judge_name, petitioner, respondent, case_number, outcome, document_path) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    // Changes are read from this long before the previous sync time
+    private static final int CHANGE_OVERLAP_SECONDS = 5;
+    
+    // Most geohash cells a bounding box query is split into
+    private static final int MAX_GEOHASH_CELLS = 32;
+    // Most geohash range queries a bounding box is read with; more are merged into coarser cells
+    private static final int MAX_GEOHASH_RANGES = 8;
+    
+    /**
+     * Most text index matches a search binds. A search statement binds each
+     * match once, each owner spelling twice and a few values per filter, so
+     * it stays well below the parameter limits of the drivers.
+     */
+    public static final int MAX_QUERY_MATCHES = 1000;
+    /** Most owner spellings a search binds */
+    public static final int MAX_OWNER_VARIANTS = 200;
+    
+    // A backslash, the default LIKE escape, is itself escaped differently by MySQL and H2 string literals
+    private static final char LIKE_ESCAPE = '!';
+    // A LIKE condition on a pattern built by containing()
+    private static final String LIKE = " LIKE ? ESCAPE '" + LIKE_ESCAPE + "'";
+    
+    private final int batchSize = Math.max(1, AppConfig.getInt("db.batch.size", 500));
+    // Deletion tombstones are kept this long; older syncs reload in full
+    private final long deletionRetentionHours = Math.max(1, AppConfig.getLong("db.deletions.retentionHours", 168));
+    // Column names of the layouts table, resolved on first use
+    private volatile LayoutSchema layoutSchema;
+    // Key column of the users table, resolved on first use
+    private volatile String userKeyColumn;
+    private final StatisticsCache statisticsCache = new StatisticsCache(this::loadDashboardStatistics,
+            AppConfig.getLong("stats.cache.maxAgeMillis", 30000));
+    
     private DatabaseManager() {
         // Private constructor to prevent instantiation
     }
@@ -51,30 +101,25 @@ public class DatabaseManager {
      * @return User object if authentication is successful, null otherwise
      */
     public User authenticateUser(String username, String password, User.Role role) {
-        // Debug logging
-        LOGGER.info("Attempting to authenticate user: " + username + " with role: " + role.getValue());
-        
         String sql = "SELECT * FROM users WHERE username = ? AND password = ?";
         
+        QueryMetrics.Sample sample = QueryMetrics.start("authenticateUser");
         try (Connection connection = DBConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
             statement.setString(1, username);
             statement.setString(2, password);
+            String key = userKeyColumn(connection);
             
             try (ResultSet resultSet = statement.executeQuery()) {
                 if (resultSet.next()) {
+                    sample.rows(1);
                     User user = new User();
-                    // Use "id" instead of "user_id" to match your table structure
-                    user.setUserId(String.valueOf(resultSet.getInt("id")));
+                    user.setUserId(resultSet.getString(key));
                     user.setUsername(resultSet.getString("username"));
                     user.setPassword(resultSet.getString("password"));
                     user.setRole(User.Role.fromString(resultSet.getString("role")));
                     
-                    // Log the actual role from database
-                    LOGGER.info("User found with role: " + user.getRole().getValue());
-                    LOGGER.info("Expected role: " + role.getValue());
-                    
                     // Check if the role matches (case-insensitive comparison)
                     if (user.getRole().getValue().equalsIgnoreCase(role.getValue())) {
                         // Set default values for missing columns
@@ -85,17 +130,21 @@ public class DatabaseManager {
                         user.setLastLogin(LocalDateTime.now());
                         user.setCreatedDate(LocalDateTime.now());
                         
-                        LOGGER.info("Authentication successful for user: " + username);
+                        LOGGER.info("User {} signed in as {}", username, role.getValue());
                         return user;
                     } else {
-                        LOGGER.info("Role mismatch. Expected: " + role.getValue() + ", Actual: " + user.getRole().getValue());
+                        LOGGER.info("Sign-in refused for {}: role {} requested, account has {}",
+                                username, role.getValue(), user.getRole().getValue());
                     }
                 } else {
-                    LOGGER.info("No user found with username: " + username + " and provided password");
+                    LOGGER.info("Sign-in refused for {}: unknown user or wrong password", username);
                 }
             }
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error authenticating user", e);
+            sample.failed();
+            LOGGER.error("Error authenticating user", e);
+        } finally {
+            sample.end();
         }
         
         return null;
@@ -110,20 +159,39 @@ public class DatabaseManager {
     public boolean registerUser(User user) {
         // Simplified insert statement to match your table structure
         String sql = "INSERT INTO users (username, password, role) VALUES (?, ?, ?)";
+        // DATABASE_SCHEMA.sql has no generated key and requires the full name
+        String fullSql = "INSERT INTO users (username, password, role, user_id, full_name, email, department) " +
+                         "VALUES (?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection connection = DBConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            
-            statement.setString(1, user.getUsername());
-            statement.setString(2, user.getPassword());
-            statement.setString(3, user.getRole().getValue().toUpperCase());
-            // Note: We're not inserting the other fields since they don't exist in your table
+        QueryMetrics.Sample sample = QueryMetrics.start("registerUser");
+        try (Connection connection = DBConnection.getConnection()) {
+            boolean fullTable = "user_id".equals(userKeyColumn(connection));
             
-            int rowsAffected = statement.executeUpdate();
-            return rowsAffected > 0;
+            try (PreparedStatement statement = connection.prepareStatement(fullTable ? fullSql : sql)) {
+                statement.setString(1, user.getUsername());
+                statement.setString(2, user.getPassword());
+                statement.setString(3, user.getRole().getValue().toUpperCase());
+                if (fullTable) {
+                    statement.setString(4, user.getUserId());
+                    statement.setString(5, user.getFullName() != null ? user.getFullName() : user.getUsername());
+                    statement.setString(6, user.getEmail());
+                    statement.setString(7, user.getDepartment());
+                }
+                // Note: We're not inserting the other fields since they don't exist in your table
+                
+                int rowsAffected = statement.executeUpdate();
+                sample.rows(rowsAffected);
+            if (rowsAffected > 0) {
+                    statisticsCache.adjust(StatisticsCache.TOTAL_USERS, 1);
+                }
+                return rowsAffected > 0;
+            }
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error registering user", e);
+            sample.failed();
+            LOGGER.error("Error registering user", e);
             return false;
+        } finally {
+            sample.end();
         }
     }
     
@@ -145,7 +213,7 @@ public class DatabaseManager {
             
             statement.executeUpdate();
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error updating user last login", e);
+            LOGGER.error("Error updating user last login", e);
         }
         */
     }
@@ -159,298 +227,1348 @@ public class DatabaseManager {
         List<User> users = new ArrayList<>();
         String sql = "SELECT * FROM users ORDER BY username";
         
+        QueryMetrics.Sample sample = QueryMetrics.start("getAllUsers");
         try (Connection connection = DBConnection.getConnection();
-             Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(sql)) {
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            String key = userKeyColumn(connection);
             
-            while (resultSet.next()) {
-                User user = new User();
-                // Use "id" instead of "user_id" to match your table structure
-                user.setUserId(String.valueOf(resultSet.getInt("id")));
-                user.setUsername(resultSet.getString("username"));
-                user.setPassword(resultSet.getString("password"));
-                user.setRole(User.Role.fromString(resultSet.getString("role")));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    User user = new User();
+                    user.setUserId(resultSet.getString(key));
+                    user.setUsername(resultSet.getString("username"));
+                    user.setPassword(resultSet.getString("password"));
+                    user.setRole(User.Role.fromString(resultSet.getString("role")));
+                    
+                    // Set default values for missing columns
+                    user.setFullName("Default User");
+                    user.setEmail("user@example.com");
+                    user.setDepartment("Default Department");
+                    user.setActive(true);
+                    user.setLastLogin(LocalDateTime.now());
+                    user.setCreatedDate(LocalDateTime.now());
+                    
+                    users.add(user);
+                }
+            }
+            sample.rows(users.size());
+            LOGGER.debug("Loaded {} users", users.size());
+        } catch (SQLException e) {
+            sample.failed();
+            LOGGER.error("Error fetching users", e);
+        } finally {
+            sample.end();
+        }
+        
+        return users;
+    }
+    
+    /**
+     * Search layouts based on criteria
+     * 
+     * @param query Search query
+     * @param status Status filter
+     * @param owner Owner filter
+     * @return List of matching layouts
+     */
+    public List<Layout> searchLayouts(String query, String status, String owner) {
+        LayoutSearchCriteria criteria = new LayoutSearchCriteria();
+        criteria.setQuery(query);
+        criteria.setStatus(status);
+        criteria.setOwner(owner);
+        return searchLayouts(criteria);
+    }
+    
+    /**
+     * Search layouts with every filter, the sort order and paging applied in a single query
+     * 
+     * @param criteria The search criteria
+     * @return List of matching layouts
+     */
+    public List<Layout> searchLayouts(LayoutSearchCriteria criteria) {
+        List<Layout> layouts = new ArrayList<>();
+        criteria = bounded(criteria);
+        // Best matches first, as the keyset pages list them
+        boolean ranked = criteria.isRanked() && criteria.isDefaultOrder();
+        
+        QueryMetrics.Sample sample = QueryMetrics.start("searchLayouts");
+        try (Connection connection = DBConnection.getConnection()) {
+            LayoutSchema schema = layoutSchema(connection);
+            List<Object> parameters = new ArrayList<>();
+            StringBuilder sql = new StringBuilder();
+            
+            appendSearch(sql, parameters, schema.getSummaryColumns(), ranked, criteria, schema);
+            appendOrderBy(sql, ranked, criteria, schema);
+            
+            if (criteria.getLimit() > 0 || criteria.getOffset() > 0) {
+                sql.append(" LIMIT ? OFFSET ?");
+                parameters.add(criteria.getLimit() > 0 ? (long) criteria.getLimit() : Long.MAX_VALUE);
+                parameters.add((long) criteria.getOffset());
+            }
+            
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                bindParameters(statement, parameters);
                 
-                // Log user info for debugging
-                LOGGER.info("Loaded user from DB: " + user.getUsername() + ", Role: " + user.getRole().getValue());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    sample.rows(readLayouts(resultSet, schema, layouts::add));
+                }
+            }
+        } catch (SQLException e) {
+            sample.failed();
+            LOGGER.error("Error searching layouts", e);
+        } finally {
+            sample.end();
+        }
+        
+        return layouts;
+    }
+    
+    /**
+     * Count the layouts matching the criteria filters
+     * 
+     * @param criteria The search criteria (sort and paging are ignored)
+     * @return Number of matching layouts
+     */
+    public int countLayouts(LayoutSearchCriteria criteria) {
+        criteria = bounded(criteria);
+        QueryMetrics.Sample sample = QueryMetrics.start("countLayouts");
+        try (Connection connection = DBConnection.getConnection()) {
+            List<Object> parameters = new ArrayList<>();
+            StringBuilder sql = new StringBuilder();
+            appendSearch(sql, parameters, "COUNT(*)", false, criteria, layoutSchema(connection));
+            
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                bindParameters(statement, parameters);
                 
-                // Set default values for missing columns
-                user.setFullName("Default User");
-                user.setEmail("user@example.com");
-                user.setDepartment("Default Department");
-                user.setActive(true);
-                user.setLastLogin(LocalDateTime.now());
-                user.setCreatedDate(LocalDateTime.now());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        return resultSet.getInt(1);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            sample.failed();
+            LOGGER.error("Error counting layouts", e);
+        } finally {
+            sample.end();
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Fetch one page of matching layouts using keyset pagination on
+     * (application_date, file number), newest first. Unlike OFFSET paging the
+     * cost of a page does not grow with its position in the result. Ranked
+     * searches order by relevance first, through a derived table so the
+     * keyset condition can compare the rank.
+     * 
+     * @param criteria The search criteria (sort and paging are ignored)
+     * @param after Cursor returned with the previous page, or null for the first page
+     * @param pageSize Maximum number of layouts in the page
+     * @return The page and the cursor of the next one
+     */
+    public LayoutPage searchLayoutsPage(LayoutSearchCriteria criteria, LayoutPage.Cursor after, int pageSize) {
+        return queryPage("searchLayoutsPage", criteria, after, 0, pageSize);
+    }
+    
+    /**
+     * Fetch the page of matching layouts at a row offset, in the order
+     * searchLayoutsPage lists them, for jumps the cursors cannot reach
+     * 
+     * @param criteria The search criteria (sort and paging are ignored)
+     * @param offset Index of the first layout in the page
+     * @param pageSize Maximum number of layouts in the page
+     * @return The page and the cursor of the next one
+     */
+    public LayoutPage searchLayoutsPageAt(LayoutSearchCriteria criteria, int offset, int pageSize) {
+        return queryPage("searchLayoutsPageAt", criteria, null, offset, pageSize);
+    }
+    
+    private LayoutPage queryPage(String name, LayoutSearchCriteria criteria, LayoutPage.Cursor after,
+                                 int offset, int pageSize) {
+        List<Layout> layouts = new ArrayList<>();
+        criteria = bounded(criteria);
+        boolean ranked = criteria.isRanked();
+        // The cursor carries the rank the database computed, not one worked out again here
+        int lastRank = 0;
+        
+        QueryMetrics.Sample sample = QueryMetrics.start(name);
+        try (Connection connection = DBConnection.getConnection()) {
+            LayoutSchema schema = layoutSchema(connection);
+            String key = schema.getFileNumberColumn();
+            List<Object> parameters = new ArrayList<>();
+            StringBuilder sql = new StringBuilder();
+            
+            appendSearch(sql, parameters, schema.getSummaryColumns(), ranked, criteria, schema);
+            if (ranked) {
+                sql.insert(0, "SELECT * FROM (").append(") ranked WHERE 1=1");
+            }
+            
+            if (after != null) {
+                if (ranked) {
+                    sql.append(" AND (search_rank > ? OR (search_rank = ?");
+                    parameters.add((long) after.getRank());
+                    parameters.add((long) after.getRank());
+                }
+                // NULL dates sort last in descending order, so they follow every dated row
+                if (after.getApplicationDate() != null) {
+                    sql.append(" AND (application_date < ? OR (application_date = ? AND ").append(key)
+                       .append(" < ?) OR application_date IS NULL)");
+                    java.sql.Date date = java.sql.Date.valueOf(after.getApplicationDate());
+                    parameters.add(date);
+                    parameters.add(date);
+                } else {
+                    sql.append(" AND application_date IS NULL AND ").append(key).append(" < ?");
+                }
+                parameters.add(after.getFileNumber());
+                if (ranked) {
+                    sql.append("))");
+                }
+            }
+            
+            sql.append(" ORDER BY ").append(ranked ? "search_rank, " : "")
+               .append("application_date DESC, ").append(key).append(" DESC LIMIT ?");
+            parameters.add((long) pageSize);
+            if (offset > 0) {
+                sql.append(" OFFSET ?");
+                parameters.add((long) offset);
+            }
+            
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                bindParameters(statement, parameters);
+                statement.setFetchSize(pageSize);
                 
-                users.add(user);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    LayoutRowMapper mapper = schema.mapper(resultSet);
+                    while (resultSet.next()) {
+                        layouts.add(mapper.map(resultSet));
+                        if (ranked) {
+                            lastRank = resultSet.getInt("search_rank");
+                        }
+                    }
+                    sample.rows(layouts.size());
+                }
             }
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error fetching users", e);
+            sample.failed();
+            LOGGER.error("Error fetching layout page", e);
+        } finally {
+            sample.end();
+        }
+        
+        LayoutPage.Cursor next = null;
+        if (layouts.size() == pageSize) {
+            next = LayoutPage.Cursor.after(layouts.get(layouts.size() - 1), lastRank);
+        }
+        return new LayoutPage(layouts, next);
+    }
+    
+    /**
+     * Find the layouts whose coordinates lie in a bounding box. The box is
+     * covered with a few geohash ranges, each read with its own index range
+     * scan; a single query OR-ing the ranges makes some databases scan the
+     * whole table. Rows written before the geohash column existed are
+     * checked as well until {@link #backfillGeohashes()} has run. A table
+     * without the geohash column is read with the coordinates alone.
+     * 
+     * @param minLat Southern edge
+     * @param minLon Western edge
+     * @param maxLat Northern edge
+     * @param maxLon Eastern edge
+     * @return Layouts in the box, in no particular order
+     */
+    public List<Layout> findLayoutsInBounds(double minLat, double minLon, double maxLat, double maxLon) {
+        List<Layout> layouts = new ArrayList<>();
+        
+        QueryMetrics.Sample sample = QueryMetrics.start("findLayoutsInBounds");
+        try (Connection connection = DBConnection.getConnection()) {
+            LayoutSchema schema = layoutSchema(connection);
+            sample.rows(queryInBounds(connection, schema, schema.getSummaryColumns(), null,
+                    minLat, minLon, maxLat, maxLon, layouts::add));
+        } catch (SQLException e) {
+            sample.failed();
+            LOGGER.error("Error finding layouts in bounds", e);
+        } finally {
+            sample.end();
+        }
+        
+        return layouts;
+    }
+    
+    /**
+     * Find the outlines of the layouts whose coordinates lie in a bounding
+     * box, read the same way as {@link #findLayoutsInBounds}. Only the
+     * columns the map draws an outline with are read.
+     * 
+     * @param minLat Southern edge
+     * @param minLon Western edge
+     * @param maxLat Northern edge
+     * @param maxLon Eastern edge
+     * @return Layouts in the box that have a boundary, with their file
+     *         number, name, status, coordinates and boundary; empty if the
+     *         table has no boundary column
+     */
+    public List<Layout> findLayoutBoundariesInBounds(double minLat, double minLon, double maxLat, double maxLon) {
+        List<Layout> layouts = new ArrayList<>();
+        
+        QueryMetrics.Sample sample = QueryMetrics.start("findLayoutBoundariesInBounds");
+        try (Connection connection = DBConnection.getConnection()) {
+            LayoutSchema schema = layoutSchema(connection);
+            if (!schema.hasBoundary()) {
+                return layouts;
+            }
+            String columns = schema.getFileNumberColumn() + ", layout_name, status, latitude, longitude, boundary";
+            sample.rows(queryInBounds(connection, schema, columns, "boundary IS NOT NULL",
+                    minLat, minLon, maxLat, maxLon, layouts::add));
+        } catch (SQLException e) {
+            sample.failed();
+            LOGGER.error("Error finding layout boundaries in bounds", e);
+        } finally {
+            sample.end();
+        }
+        
+        return layouts;
+    }
+    
+    /**
+     * Read the layouts whose coordinates lie in a bounding box, one
+     * geohash range at a time when the table has the column
+     * 
+     * @param columns Columns to read
+     * @param filter Further condition on the rows, or null
+     * @return Number of layouts read
+     */
+    private int queryInBounds(Connection connection, LayoutSchema schema, String columns, String filter,
+                              double minLat, double minLon, double maxLat, double maxLon,
+                              Consumer<Layout> consumer) throws SQLException {
+        String inBox = " AND latitude BETWEEN ? AND ? AND longitude BETWEEN ? AND ?";
+        if (filter != null) {
+            inBox += " AND " + filter;
+        }
+        List<String> conditions = new ArrayList<>();
+        List<List<Object>> parameters = new ArrayList<>();
+        if (schema.hasGeohash()) {
+            addGeohashRanges(minLat, minLon, maxLat, maxLon, conditions, parameters);
+        } else {
+            // A table without the column is read with the coordinates alone
+            conditions.add("1=1");
+            parameters.add(new ArrayList<>());
+        }
+        
+        int rows = 0;
+        String select = "SELECT " + columns + " FROM layouts WHERE ";
+        for (int i = 0; i < conditions.size(); i++) {
+            List<Object> queryParameters = parameters.get(i);
+            queryParameters.add(minLat);
+            queryParameters.add(maxLat);
+            queryParameters.add(minLon);
+            queryParameters.add(maxLon);
+            
+            try (PreparedStatement statement = connection.prepareStatement(select + conditions.get(i) + inBox)) {
+                bindParameters(statement, queryParameters);
+                statement.setFetchSize(batchSize);
+                
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    rows += readLayouts(resultSet, schema, consumer);
+                }
+            }
+        }
+        return rows;
+    }
+    
+    /**
+     * Add a condition per geohash range covering the box, and one for the
+     * rows that have no geohash yet. A box the fine cells split into more
+     * than MAX_GEOHASH_RANGES ranges is covered with coarser cells instead,
+     * or read with the coordinates alone when even those are too many.
+     */
+    private static void addGeohashRanges(double minLat, double minLon, double maxLat, double maxLon,
+                                         List<String> conditions, List<List<Object>> parameters) {
+        List<String[]> ranges = GeoHash.coveringRanges(minLat, minLon, maxLat, maxLon, MAX_GEOHASH_CELLS);
+        if (ranges.size() > MAX_GEOHASH_RANGES) {
+            // No more cells than ranges allowed, so the ranges fit too
+            ranges = GeoHash.coveringRanges(minLat, minLon, maxLat, maxLon, MAX_GEOHASH_RANGES);
+        }
+        for (String[] range : ranges) {
+            List<Object> rangeParameters = new ArrayList<>();
+            rangeParameters.add(range[0]);
+            if (range[1] != null) {
+                conditions.add("geohash >= ? AND geohash < ?");
+                rangeParameters.add(range[1]);
+            } else {
+                conditions.add("geohash >= ?");
+            }
+            parameters.add(rangeParameters);
+        }
+        // Without ranges the box is too large for the index to help
+        conditions.add(ranges.isEmpty() ? "1=1" : "geohash IS NULL");
+        parameters.add(new ArrayList<>());
+    }
+    
+    /**
+     * Find the layouts within a distance of a point, nearest first
+     * 
+     * @param latitude Latitude of the point
+     * @param longitude Longitude of the point
+     * @param radiusMeters Search radius in meters
+     * @return Layouts within the radius, nearest first
+     */
+    public List<Layout> findLayoutsNear(double latitude, double longitude, double radiusMeters) {
+        double[] bounds = GeoHash.boundsAround(latitude, longitude, radiusMeters);
+        List<Layout> layouts = findLayoutsInBounds(bounds[0], bounds[1], bounds[2], bounds[3]);
+        return nearestWithin(layouts, latitude, longitude, radiusMeters);
+    }
+    
+    /**
+     * Fill in the geohash of layouts written before the column existed.
+     * The rows are read and updated a batch at a time in file number
+     * order, committing each batch.
+     * 
+     * @return Number of layouts updated, 0 if the table has no geohash column
+     */
+    public int backfillGeohashes() {
+        int updated = 0;
+        
+        QueryMetrics.Sample sample = QueryMetrics.start("backfillGeohashes");
+        try (Connection connection = DBConnection.getConnection()) {
+            LayoutSchema schema = layoutSchema(connection);
+            if (!schema.hasGeohash()) {
+                return 0;
+            }
+            String key = schema.getFileNumberColumn();
+            // Rows without a valid position keep a NULL geohash, so the batches
+            // move on by file number rather than waiting for the NULLs to go
+            String select = "SELECT " + key + ", latitude, longitude FROM layouts WHERE geohash IS NULL " +
+                            "AND latitude IS NOT NULL AND longitude IS NOT NULL AND " + key + " > ? " +
+                            "ORDER BY " + key + " LIMIT ?";
+            String update = "UPDATE layouts SET geohash = ? WHERE " + key + " = ?";
+            
+            connection.setAutoCommit(false);
+            try (PreparedStatement query = connection.prepareStatement(select);
+                 PreparedStatement statement = connection.prepareStatement(update)) {
+                String lastKey = "";
+                int read;
+                do {
+                    query.setString(1, lastKey);
+                    query.setLong(2, batchSize);
+                    read = 0;
+                    // Read the batch first; some drivers cannot update while a result is open
+                    List<String[]> batch = new ArrayList<>();
+                    try (ResultSet resultSet = query.executeQuery()) {
+                        while (resultSet.next()) {
+                            read++;
+                            lastKey = resultSet.getString(1);
+                            String geohash = GeoHash.forLayout(resultSet.getDouble("latitude"), resultSet.getDouble("longitude"));
+                            if (geohash != null) {
+                                batch.add(new String[] {geohash, lastKey});
+                            }
+                        }
+                    }
+                    for (String[] row : batch) {
+                        statement.setString(1, row[0]);
+                        statement.setString(2, row[1]);
+                        statement.addBatch();
+                    }
+                    if (!batch.isEmpty()) {
+                        int rows = sum(statement.executeBatch());
+                        updated += rows;
+                        sample.rows(rows);
+                    }
+                    connection.commit();
+                } while (read == batchSize);
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            sample.failed();
+            LOGGER.warn("Error filling in layout geohashes", e);
+        } finally {
+            sample.end();
+        }
+        
+        return updated;
+    }
+    
+    /**
+     * Get the column names of the layouts table, set by db.layouts.schema
+     * or detected from the table the first time it is needed
+     */
+    private LayoutSchema layoutSchema(Connection connection) throws SQLException {
+        LayoutSchema schema = layoutSchema;
+        if (schema == null) {
+            schema = LayoutSchema.configured(connection);
+            layoutSchema = schema;
+            LOGGER.info("Layouts table has the {} column names", schema);
+        }
+        return schema;
+    }
+    
+    /**
+     * Get the key column of the users table, which is user_id in
+     * DATABASE_SCHEMA.sql and id in older databases
+     */
+    private String userKeyColumn(Connection connection) throws SQLException {
+        String column = userKeyColumn;
+        if (column == null) {
+            column = "id";
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT * FROM users WHERE 1=0")) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    if ("user_id".equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                        column = "user_id";
+                    }
+                }
+            }
+            userKeyColumn = column;
+        }
+        return column;
+    }
+    
+    /**
+     * Map every remaining row of a layouts query, resolving its columns once
+     * 
+     * @return Number of rows read
+     */
+    private static int readLayouts(ResultSet resultSet, LayoutSchema schema, Consumer<Layout> consumer) throws SQLException {
+        LayoutRowMapper mapper = schema.mapper(resultSet);
+        int rows = 0;
+        while (resultSet.next()) {
+            consumer.accept(mapper.map(resultSet));
+            rows++;
+        }
+        return rows;
+    }
+    
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            // SUCCESS_NO_INFO rows are not counted
+            if (count > 0) {
+                total += count;
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * Keep the layouts within a distance of a point, nearest first
+     * 
+     * @param layouts Candidate layouts, e.g. from a bounding box query
+     * @param latitude Latitude of the point
+     * @param longitude Longitude of the point
+     * @param radiusMeters Search radius in meters
+     * @return Layouts within the radius, nearest first
+     */
+    static List<Layout> nearestWithin(List<Layout> layouts, double latitude, double longitude, double radiusMeters) {
+        List<Layout> near = new ArrayList<>();
+        Map<Layout, Double> distances = new IdentityHashMap<>();
+        for (Layout layout : layouts) {
+            double distance = GeoHash.distanceMeters(latitude, longitude, layout.getLatitude(), layout.getLongitude());
+            if (distance <= radiusMeters) {
+                near.add(layout);
+                distances.put(layout, distance);
+            }
+        }
+        near.sort(Comparator.comparingDouble(distances::get));
+        return near;
+    }
+    
+    /**
+     * Keep the lists a search binds within MAX_QUERY_MATCHES and
+     * MAX_OWNER_VARIANTS. A longer list of query matches is dropped and the
+     * text compared alone; only the closest owner spellings are kept.
+     */
+    private static LayoutSearchCriteria bounded(LayoutSearchCriteria criteria) {
+        Set<String> matches = criteria.getQueryMatches();
+        Set<String> variants = criteria.getOwnerMatches();
+        boolean tooManyMatches = matches != null && matches.size() > MAX_QUERY_MATCHES;
+        boolean tooManyVariants = variants != null && variants.size() > MAX_OWNER_VARIANTS;
+        if (!tooManyMatches && !tooManyVariants) {
+            return criteria;
+        }
+        LayoutSearchCriteria copy = criteria.copy();
+        if (tooManyMatches) {
+            copy.setQueryMatches(null);
+        }
+        if (tooManyVariants) {
+            Set<String> closest = new LinkedHashSet<>();
+            for (String variant : variants) {
+                if (closest.size() == MAX_OWNER_VARIANTS) {
+                    break;
+                }
+                closest.add(variant);
+            }
+            copy.setOwnerMatches(closest);
+        }
+        return copy;
+    }
+    
+    /**
+     * Append the SELECT, FROM and WHERE clauses of a search and collect
+     * their parameters
+     * 
+     * @param columns Columns to select
+     * @param ranked true to select the relevance rank as search_rank too
+     */
+    private void appendSearch(StringBuilder sql, List<Object> parameters, String columns, boolean ranked,
+                              LayoutSearchCriteria criteria, LayoutSchema schema) {
+        sql.append("SELECT ").append(columns);
+        if (ranked) {
+            sql.append(", ").append(rankExpression(parameters, criteria, schema)).append(" AS search_rank");
+        }
+        sql.append(" FROM layouts WHERE 1=1");
+        appendSearchFilters(sql, parameters, criteria, schema);
+    }
+    
+    /**
+     * Append a WHERE condition and collect its parameters for every filter set in the criteria
+     */
+    private void appendSearchFilters(StringBuilder sql, List<Object> parameters, LayoutSearchCriteria criteria,
+                                     LayoutSchema schema) {
+        String key = schema.getFileNumberColumn();
+        String owner = schema.getOwnerColumn();
+        String area = schema.getAreaColumn();
+        if (criteria.getQueryMatches() != null) {
+            // Matches found by the text index are looked up by primary key;
+            // the text is still compared below, in case the index is behind
+            Set<String> matches = criteria.getQueryMatches();
+            if (matches.isEmpty()) {
+                sql.append(" AND 1=0");
+            } else {
+                sql.append(" AND ").append(key).append(" IN (");
+                for (int i = 0; i < matches.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append(")");
+                parameters.addAll(matches);
+            }
+        }
+        if (criteria.getQuery() != null) {
+            for (String word : criteria.queryWords()) {
+                String searchQuery = containing(word);
+                sql.append(" AND (layout_name").append(LIKE).append(" OR ").append(key).append(LIKE)
+                   .append(" OR survey_number").append(LIKE).append(" OR ").append(owner).append(LIKE)
+                   .append(" OR remarks").append(LIKE).append(")");
+                for (int i = 0; i < 5; i++) {
+                    parameters.add(searchQuery);
+                }
+            }
+        }
+        
+        if (criteria.getStatus() != null) {
+            sql.append(" AND status = ?");
+            parameters.add(criteria.getStatus());
+        }
+        
+        if (criteria.getOwner() != null) {
+            Set<String> variants = criteria.getOwnerMatches();
+            if (variants != null && !variants.isEmpty()) {
+                // Other spellings found by the owner name index
+                sql.append(" AND (").append(owner).append(LIKE).append(" OR ").append(owner).append(" IN (");
+                for (int i = 0; i < variants.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append("))");
+                parameters.add(containing(criteria.getOwner()));
+                parameters.addAll(variants);
+            } else {
+                sql.append(" AND ").append(owner).append(LIKE);
+                parameters.add(containing(criteria.getOwner()));
+            }
+        }
+        
+        LayoutSearchCriteria.AreaRange areaRange = criteria.getAreaRange();
+        if (areaRange.getMin() != null) {
+            sql.append(" AND ").append(area).append(areaRange.isMinInclusive() ? " >= ?" : " > ?");
+            parameters.add(areaRange.getMin());
+        }
+        if (areaRange.getMax() != null) {
+            sql.append(" AND ").append(area).append(areaRange.isMaxInclusive() ? " <= ?" : " < ?");
+            parameters.add(areaRange.getMax());
+        }
+        
+        // The layouts table has no district column; the district is part of the survey number ("Sy.No. 45, Nellore")
+        if (criteria.getDistrict() != null) {
+            sql.append(" AND survey_number").append(LIKE);
+            parameters.add(containing(criteria.getDistrict()));
+        }
+        
+        if (criteria.getSurveyNumber() != null) {
+            sql.append(" AND survey_number").append(LIKE);
+            parameters.add(containing(criteria.getSurveyNumber()));
+        }
+        
+        if (criteria.getApplicationDateFrom() != null) {
+            sql.append(" AND application_date >= ?");
+            parameters.add(java.sql.Date.valueOf(criteria.getApplicationDateFrom()));
+        }
+        if (criteria.getApplicationDateTo() != null) {
+            sql.append(" AND application_date <= ?");
+            parameters.add(java.sql.Date.valueOf(criteria.getApplicationDateTo()));
+        }
+        
+        if (criteria.getHasCourtCase() != null) {
+            sql.append(criteria.getHasCourtCase() ? " AND EXISTS" : " AND NOT EXISTS");
+            sql.append(" (SELECT 1 FROM court_cases c WHERE c.related_layout_id = layouts.").append(key).append(")");
+        }
+    }
+    
+    /**
+     * Build a LIKE pattern finding the text anywhere in a value, with the
+     * text's own wildcards escaped so they match literally, as they do in
+     * LayoutSearchCriteria and the text index
+     */
+    static String containing(String text) {
+        StringBuilder pattern = new StringBuilder("%");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+    
+    /**
+     * Build the relevance rank of a row as a SQL expression and collect its
+     * parameters. Rows rank in the order LayoutSearchCriteria.rankOf puts
+     * them, though the numbers differ: a match ranks by where its key
+     * stands in the list of matches.
+     */
+    private static String rankExpression(List<Object> parameters, LayoutSearchCriteria criteria, LayoutSchema schema) {
+        StringBuilder sql = new StringBuilder();
+        Set<String> matches = criteria.getQueryMatches();
+        if (matches != null && !matches.isEmpty()) {
+            // Where the key stands in the list of matches, bound as one value
+            StringBuilder list = new StringBuilder("|");
+            for (String fileNumber : matches) {
+                list.append(fileNumber).append('|');
+            }
+            sql.append("LOCATE(CONCAT('|', ").append(schema.getFileNumberColumn()).append(", '|'), ?)");
+            parameters.add(list.toString());
+        }
+        Set<String> variants = criteria.getOwnerMatches();
+        if (criteria.getOwner() != null && variants != null && !variants.isEmpty()) {
+            // Names containing the owner filter, then the other spellings best first
+            String owner = schema.getOwnerColumn();
+            if (sql.length() > 0) {
+                sql.insert(0, "(").append(") * ").append(variants.size() + 2).append(" + ");
+            }
+            sql.append("CASE WHEN ").append(owner).append(LIKE).append(" THEN 0");
+            parameters.add(containing(criteria.getOwner()));
+            int rank = 1;
+            for (String variant : variants) {
+                sql.append(" WHEN ").append(owner).append(" = ? THEN ").append(rank++);
+                parameters.add(variant);
+            }
+            sql.append(" ELSE ").append(rank).append(" END");
+        }
+        return sql.toString();
+    }
+    
+    /**
+     * @param ranked true to order by the selected search_rank first
+     */
+    private void appendOrderBy(StringBuilder sql, boolean ranked, LayoutSearchCriteria criteria, LayoutSchema schema) {
+        String key = schema.getFileNumberColumn();
+        String column;
+        switch (criteria.getSortField()) {
+            case FILE_NUMBER:
+                column = key;
+                break;
+            case LAYOUT_NAME:
+                column = "layout_name";
+                break;
+            case STATUS:
+                column = "status";
+                break;
+            case AREA:
+                column = schema.getAreaColumn();
+                break;
+            case APPLICATION_DATE:
+            default:
+                column = "application_date";
+                break;
+        }
+        String direction = criteria.isSortDescending() ? " DESC" : " ASC";
+        sql.append(" ORDER BY ");
+        if (ranked) {
+            sql.append("search_rank, ");
+        }
+        sql.append(column).append(direction);
+        if (!key.equals(column)) {
+            // File number breaks ties so paging is stable
+            sql.append(", ").append(key).append(direction);
+        }
+    }
+    
+    private void bindParameters(PreparedStatement statement, List<Object> parameters) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            Object value = parameters.get(i);
+            if (value instanceof String) {
+                statement.setString(i + 1, (String) value);
+            } else if (value instanceof Double) {
+                statement.setDouble(i + 1, (Double) value);
+            } else if (value instanceof Long) {
+                statement.setLong(i + 1, (Long) value);
+            } else if (value instanceof java.sql.Date) {
+                statement.setDate(i + 1, (java.sql.Date) value);
+            } else {
+                statement.setObject(i + 1, value);
+            }
+        }
+    }
+    
+    /**
+     * Read the searchable text of every layout, one row at a time, e.g. to
+     * fill a LayoutTextIndex without holding every layout in memory
+     * 
+     * @param consumer Receives layouts with only the file number, name,
+     *                 survey number, owner and remarks set
+     * @throws SQLException if the layouts cannot be read
+     */
+    public void scanLayoutText(Consumer<Layout> consumer) throws SQLException {
+        QueryMetrics.Sample sample = QueryMetrics.start("scanLayoutText");
+        try (Connection connection = DBConnection.getConnection()) {
+            LayoutSchema schema = layoutSchema(connection);
+            String sql = "SELECT " + schema.getTextColumns() + " FROM layouts";
+            
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setFetchSize(batchSize);
+                
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    sample.rows(readLayouts(resultSet, schema, consumer));
+                }
+            }
+        } catch (SQLException e) {
+            sample.failed();
+            throw e;
+        } finally {
+            sample.end();
+        }
+    }
+    
+    /**
+     * Get layout by ID
+     * 
+     * @param layoutId The layout ID
+     * @return Layout object or null if not found
+     */
+    public Layout getLayoutById(String layoutId) {
+        QueryMetrics.Sample sample = QueryMetrics.start("getLayoutById");
+        try (Connection connection = DBConnection.getConnection()) {
+            LayoutSchema schema = layoutSchema(connection);
+            // Every column, so the details the table records are shown in full
+            String sql = "SELECT * FROM layouts WHERE " + schema.getFileNumberColumn() + " = ?";
+            
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, layoutId);
+                
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        sample.rows(1);
+                        return schema.mapper(resultSet).map(resultSet);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            sample.failed();
+            LOGGER.error("Error fetching layout by ID", e);
+        } finally {
+            sample.end();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Add a new layout
+     * 
+     * @param layout The layout to add
+     * @return true if successful, false otherwise
+     */
+    public boolean addLayout(Layout layout) {
+        QueryMetrics.Sample sample = QueryMetrics.start("addLayout");
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(layoutSchema(connection).getInsertSql())) {
+            
+            bindLayoutInsert(statement, layout);
+            
+            int rowsAffected = statement.executeUpdate();
+            sample.rows(rowsAffected);
+            if (rowsAffected > 0) {
+                statisticsCache.adjust(StatisticsCache.TOTAL_LAYOUTS, 1);
+                statisticsCache.adjust(StatisticsCache.layoutStatusKey(layout.getStatus()), 1);
+            }
+            return rowsAffected > 0;
+        } catch (SQLException e) {
+            sample.failed();
+            LOGGER.error("Error adding layout", e);
+            return false;
+        } finally {
+            sample.end();
+        }
+    }
+    
+    /**
+     * Bind a layout to the parameters of the schema's INSERT or UPSERT.
+     * The schema has been resolved by the time a statement is prepared.
+     */
+    private void bindLayoutInsert(PreparedStatement statement, Layout layout) throws SQLException {
+        LayoutSchema schema = layoutSchema;
+        int index = 1;
+        for (String column : schema.getWriteColumns()) {
+            bindLayoutColumn(statement, index++, column, schema, layout);
+        }
+    }
+    
+    /**
+     * Bind one column of a layout to a parameter
+     */
+    private static void bindLayoutColumn(PreparedStatement statement, int index, String column, LayoutSchema schema,
+                                         Layout layout) throws SQLException {
+        if (column.equals(schema.getFileNumberColumn())) {
+            statement.setString(index, layout.getFileNumber());
+            return;
+        }
+        if (column.equals(schema.getOwnerColumn())) {
+            statement.setString(index, layout.getOwnerName());
+            return;
+        }
+        if (column.equals(schema.getAreaColumn())) {
+            statement.setDouble(index, layout.getAreaInAcres());
+            return;
+        }
+        switch (column) {
+            case "layout_name":
+                statement.setString(index, layout.getLayoutName());
+                break;
+            case "status":
+                statement.setString(index, layout.getStatus());
+                break;
+            case "survey_number":
+                statement.setString(index, layout.getSurveyNumber());
+                break;
+            case "application_date":
+                setDate(statement, index, layout.getApplicationDate());
+                break;
+            case "approval_date":
+                setDate(statement, index, layout.getApprovalDate());
+                break;
+            case "latitude":
+                statement.setDouble(index, layout.getLatitude());
+                break;
+            case "longitude":
+                statement.setDouble(index, layout.getLongitude());
+                break;
+            case "remarks":
+                statement.setString(index, layout.getRemarks());
+                break;
+            case "total_plots":
+                statement.setInt(index, layout.getTotalPlots());
+                break;
+            case "approved_by":
+                statement.setString(index, layout.getApprovedBy());
+                break;
+            case "document_path":
+                statement.setString(index, layout.getDocumentPath());
+                break;
+            case "has_court_case":
+                statement.setBoolean(index, layout.isHasCourtCase());
+                break;
+            case "zone_classification":
+                statement.setString(index, layout.getZoneClassification());
+                break;
+            case "setback_compliance":
+                statement.setDouble(index, layout.getSetbackCompliance());
+                break;
+            case "boundary":
+                statement.setString(index, layout.getBoundary() != null ? layout.getBoundary().toWkt() : null);
+                break;
+            case "geohash":
+                statement.setString(index, GeoHash.forLayout(layout.getLatitude(), layout.getLongitude()));
+                break;
+            default:
+                throw new IllegalArgumentException("No layout value for column " + column);
+        }
+    }
+    
+    private static void setDate(PreparedStatement statement, int index, java.time.LocalDate date) throws SQLException {
+        if (date != null) {
+            statement.setDate(index, java.sql.Date.valueOf(date));
+        } else {
+            statement.setNull(index, Types.DATE);
         }
-        
-        return users;
     }
     
     /**
-     * Search layouts based on criteria
-     * 
-     * @param query Search query
-     * @param status Status filter
-     * @param owner Owner filter
-     * @return List of matching layouts
+     * Bind a court case to the parameters of INSERT_COURT_CASE_SQL
      */
-    public List<Layout> searchLayouts(String query, String status, String owner) {
-        List<Layout> layouts = new ArrayList<>();
-        StringBuilder sql = new StringBuilder("SELECT file_no, layout_name, status, owner, survey_number, area, application_date, latitude, longitude, remarks, total_plots FROM layouts WHERE 1=1");
+    private void bindCourtCaseInsert(PreparedStatement statement, CourtCase courtCase) throws SQLException {
+        statement.setString(1, courtCase.getCaseId());
+        statement.setString(2, courtCase.getCaseTitle());
+        statement.setString(3, courtCase.getCaseType());
+        statement.setString(4, courtCase.getStatus());
         
-        if (query != null && !query.trim().isEmpty()) {
-            sql.append(" AND (layout_name LIKE ? OR file_no LIKE ? OR survey_number LIKE ?)");
+        if (courtCase.getFilingDate() != null) {
+            statement.setDate(5, java.sql.Date.valueOf(courtCase.getFilingDate()));
+        } else {
+            statement.setNull(5, Types.DATE);
         }
         
-        if (status != null && !status.equals("All")) {
-            sql.append(" AND status = ?");
+        if (courtCase.getHearingDate() != null) {
+            statement.setDate(6, java.sql.Date.valueOf(courtCase.getHearingDate()));
+        } else {
+            statement.setNull(6, Types.DATE);
         }
         
-        if (owner != null && !owner.trim().isEmpty()) {
-            sql.append(" AND owner LIKE ?");
+        if (courtCase.getJudgmentDate() != null) {
+            statement.setDate(7, java.sql.Date.valueOf(courtCase.getJudgmentDate()));
+        } else {
+            statement.setNull(7, Types.DATE);
         }
         
-        sql.append(" ORDER BY application_date DESC");
+        statement.setString(8, courtCase.getDescription());
+        statement.setString(9, courtCase.getRelatedLayoutId());
+        statement.setString(10, courtCase.getCourtName());
+        statement.setString(11, courtCase.getJudgeName());
+        statement.setString(12, courtCase.getPetitioner());
+        statement.setString(13, courtCase.getRespondent());
+        statement.setString(14, courtCase.getCaseNumber());
+        statement.setString(15, courtCase.getOutcome());
+        statement.setString(16, courtCase.getDocumentPath());
+    }
+    
+    /**
+     * Insert many layouts using JDBC batches, one transaction per chunk of db.batch.size rows
+     * 
+     * @param layouts The layouts to add
+     * @return Number of rows written and the rows that failed
+     */
+    public BatchResult addLayouts(List<Layout> layouts) {
+        BatchResult result = executeBatch("addLayouts", connection -> layoutSchema(connection).getInsertSql(), layouts, this::bindLayoutInsert, Layout::getFileNumber);
+        if (result.getSucceeded() > 0) {
+            statisticsCache.invalidate();
+        }
+        return result;
+    }
+    
+    /**
+     * Insert many layouts, updating those whose file number already exists
+     * 
+     * @param layouts The layouts to add or update
+     * @return Number of rows written and the rows that failed
+     */
+    public BatchResult upsertLayouts(List<Layout> layouts) {
+        BatchResult result = executeBatch("upsertLayouts", connection -> layoutSchema(connection).getUpsertSql(), layouts, this::bindLayoutInsert, Layout::getFileNumber);
+        if (result.getSucceeded() > 0) {
+            statisticsCache.invalidate();
+        }
+        return result;
+    }
+    
+    @FunctionalInterface
+    private interface RowBinder<T> {
+        void bind(PreparedStatement statement, T row) throws SQLException;
+    }
+    
+    @FunctionalInterface
+    private interface SqlSource {
+        String sql(Connection connection) throws SQLException;
+    }
+    
+    /**
+     * Write rows in chunks on one connection. Each chunk is sent as a single
+     * JDBC batch and committed on its own; if the batch fails, the chunk is
+     * rolled back and replayed row by row so only the offending rows are
+     * reported and the rest are still written.
+     */
+    private <T> BatchResult executeBatch(String operation, SqlSource sql, List<T> rows, RowBinder<T> binder,
+                                         Function<T, String> keyOf) {
+        BatchResult result = new BatchResult(rows.size());
+        if (rows.isEmpty()) {
+            return result;
+        }
+        boolean[] reported = new boolean[rows.size()];
         
+        QueryMetrics.Sample sample = QueryMetrics.start(operation);
         try (Connection connection = DBConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+             PreparedStatement statement = connection.prepareStatement(sql.sql(connection))) {
+            connection.setAutoCommit(false);
             
-            int paramIndex = 1;
-            
-            if (query != null && !query.trim().isEmpty()) {
-                String searchQuery = "%" + query.trim() + "%";
-                statement.setString(paramIndex++, searchQuery);
-                statement.setString(paramIndex++, searchQuery);
-                statement.setString(paramIndex++, searchQuery);
-            }
-            
-            if (status != null && !status.equals("All")) {
-                statement.setString(paramIndex++, status);
-            }
-            
-            if (owner != null && !owner.trim().isEmpty()) {
-                statement.setString(paramIndex++, "%" + owner.trim() + "%");
-            }
-            
-            try (ResultSet resultSet = statement.executeQuery()) {
-                while (resultSet.next()) {
-                    Layout layout = new Layout();
-                    layout.setFileNumber(resultSet.getString("file_no"));
-                    layout.setLayoutName(resultSet.getString("layout_name"));
-                    layout.setStatus(resultSet.getString("status"));
-                    layout.setOwnerName(resultSet.getString("owner"));
-                    layout.setSurveyNumber(resultSet.getString("survey_number"));
-                    layout.setAreaInAcres(resultSet.getDouble("area"));
-                    
-                    java.sql.Date applicationDate = resultSet.getDate("application_date");
-                    if (applicationDate != null) {
-                        layout.setApplicationDate(applicationDate.toLocalDate());
+            for (int start = 0; start < rows.size(); start += batchSize) {
+                int end = Math.min(start + batchSize, rows.size());
+                List<Integer> batched = new ArrayList<>();
+                
+                for (int i = start; i < end; i++) {
+                    try {
+                        binder.bind(statement, rows.get(i));
+                        statement.addBatch();
+                        batched.add(i);
+                    } catch (SQLException | RuntimeException e) {
+                        statement.clearParameters();
+                        result.recordFailure(i, keyOf.apply(rows.get(i)), e.getMessage());
+                        reported[i] = true;
                     }
+                }
+                if (batched.isEmpty()) {
+                    continue;
+                }
+                
+                try {
+                    statement.executeBatch();
+                    connection.commit();
+                    result.recordSuccess(batched.size());
+                    for (int i : batched) {
+                        reported[i] = true;
+                    }
+                } catch (SQLException e) {
+                    connection.rollback();
+                    statement.clearBatch();
+                    LOGGER.warn("Batch of {} rows failed, retrying row by row: {}", batched.size(), e.getMessage());
                     
-                    layout.setLatitude(resultSet.getDouble("latitude"));
-                    layout.setLongitude(resultSet.getDouble("longitude"));
-                    layout.setRemarks(resultSet.getString("remarks"));
-                    layout.setTotalPlots(resultSet.getInt("total_plots"));
-                    
-                    // Set default values for missing columns
-                    layout.setApprovalDate(null);
-                    layout.setApprovedBy("Unknown");
-                    layout.setDocumentPath("");
-                    layout.setHasCourtCase(false);
-                    layout.setZoneClassification("Unknown");
-                    layout.setSetbackCompliance(100.0);
-                    
-                    layouts.add(layout);
+                    for (int i : batched) {
+                        try {
+                            binder.bind(statement, rows.get(i));
+                            statement.executeUpdate();
+                            connection.commit();
+                            result.recordSuccess(1);
+                        } catch (SQLException rowError) {
+                            connection.rollback();
+                            result.recordFailure(i, keyOf.apply(rows.get(i)), rowError.getMessage());
+                        }
+                        reported[i] = true;
+                    }
                 }
             }
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error searching layouts", e);
+            sample.failed();
+            LOGGER.error("Error executing batch", e);
+            for (int i = 0; i < rows.size(); i++) {
+                if (!reported[i]) {
+                    result.recordFailure(i, keyOf.apply(rows.get(i)), "Batch aborted: " + e.getMessage());
+                }
+            }
+        } finally {
+            sample.rows(result.getSucceeded());
+            sample.end();
         }
         
-        return layouts;
+        return result;
     }
     
     /**
-     * Get layout by ID
+     * Update an existing layout
      * 
-     * @param layoutId The layout ID
-     * @return Layout object or null if not found
+     * @param layout The layout to update
+     * @return true if successful, false otherwise
      */
-    public Layout getLayoutById(String layoutId) {
-        // Modified query to match your table structure
-        String sql = "SELECT file_no, layout_name, status, owner, survey_number, area, application_date, latitude, longitude, remarks, total_plots FROM layouts WHERE file_no = ?";
-        
-        try (Connection connection = DBConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            
-            statement.setString(1, layoutId);
+    public boolean updateLayout(Layout layout) {
+        QueryMetrics.Sample sample = QueryMetrics.start("updateLayout");
+        try (Connection connection = DBConnection.getConnection()) {
+            LayoutSchema schema = layoutSchema(connection);
             
-            try (ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    Layout layout = new Layout();
-                    layout.setFileNumber(resultSet.getString("file_no"));
-                    layout.setLayoutName(resultSet.getString("layout_name"));
-                    layout.setStatus(resultSet.getString("status"));
-                    layout.setOwnerName(resultSet.getString("owner"));
-                    layout.setSurveyNumber(resultSet.getString("survey_number"));
-                    layout.setAreaInAcres(resultSet.getDouble("area"));
-                    
-                    java.sql.Date applicationDate = resultSet.getDate("application_date");
-                    if (applicationDate != null) {
-                        layout.setApplicationDate(applicationDate.toLocalDate());
+            try (PreparedStatement statement = connection.prepareStatement(schema.getUpdateSql())) {
+                int index = 1;
+                for (String column : schema.getWriteColumns()) {
+                    if (!column.equals(schema.getFileNumberColumn())) {
+                        bindLayoutColumn(statement, index++, column, schema, layout);
                     }
-                    
-                    layout.setLatitude(resultSet.getDouble("latitude"));
-                    layout.setLongitude(resultSet.getDouble("longitude"));
-                    layout.setRemarks(resultSet.getString("remarks"));
-                    layout.setTotalPlots(resultSet.getInt("total_plots"));
-                    
-                    // Set default values for missing columns
-                    layout.setApprovalDate(null);
-                    layout.setApprovedBy("Unknown");
-                    layout.setDocumentPath("");
-                    layout.setHasCourtCase(false);
-                    layout.setZoneClassification("Unknown");
-                    layout.setSetbackCompliance(100.0);
-                    
-                    return layout;
                 }
+                statement.setString(index, layout.getFileNumber());
+                
+                int rowsAffected = statement.executeUpdate();
+                sample.rows(rowsAffected);
+                if (rowsAffected > 0) {
+                    statisticsCache.invalidate(); // Previous status is unknown
+                }
+                return rowsAffected > 0;
             }
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error fetching layout by ID", e);
+            sample.failed();
+            LOGGER.error("Error updating layout", e);
+            return false;
+        } finally {
+            sample.end();
         }
-        
-        return null;
     }
     
     /**
-     * Add a new layout
+     * Delete a layout by ID
      * 
-     * @param layout The layout to add
+     * @param layoutId The layout ID
      * @return true if successful, false otherwise
      */
-    public boolean addLayout(Layout layout) {
-        String sql = "INSERT INTO layouts (file_number, layout_name, status, owner_name, survey_number, " +
-                     "area_in_acres, application_date, approval_date, latitude, longitude, remarks, " +
-                     "total_plots, approved_by, document_path, has_court_case, zone_classification, " +
-                     "setback_compliance) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        
+    public boolean deleteLayout(String layoutId) {
+        QueryMetrics.Sample sample = QueryMetrics.start("deleteLayout");
         try (Connection connection = DBConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
+             PreparedStatement statement = connection.prepareStatement(layoutSchema(connection).getDeleteSql())) {
             
-            statement.setString(1, layout.getFileNumber());
-            statement.setString(2, layout.getLayoutName());
-            statement.setString(3, layout.getStatus());
-            statement.setString(4, layout.getOwnerName());
-            statement.setString(5, layout.getSurveyNumber());
-            statement.setDouble(6, layout.getAreaInAcres());
-            
-            if (layout.getApplicationDate() != null) {
-                statement.setDate(7, java.sql.Date.valueOf(layout.getApplicationDate()));
-            } else {
-                statement.setNull(7, Types.DATE);
-            }
-            
-            if (layout.getApprovalDate() != null) {
-                statement.setDate(8, java.sql.Date.valueOf(layout.getApprovalDate()));
-            } else {
-                statement.setNull(8, Types.DATE);
-            }
-            
-            statement.setDouble(9, layout.getLatitude());
-            statement.setDouble(10, layout.getLongitude());
-            statement.setString(11, layout.getRemarks());
-            statement.setInt(12, layout.getTotalPlots());
-            statement.setString(13, layout.getApprovedBy());
-            statement.setString(14, layout.getDocumentPath());
-            statement.setBoolean(15, layout.isHasCourtCase());
-            statement.setString(16, layout.getZoneClassification());
-            statement.setDouble(17, layout.getSetbackCompliance());
+            statement.setString(1, layoutId);
             
             int rowsAffected = statement.executeUpdate();
+            sample.rows(rowsAffected);
+            if (rowsAffected > 0) {
+                statisticsCache.invalidate(); // Deleted layout's status is unknown
+                recordLayoutDeletion(connection, layoutId);
+            }
             return rowsAffected > 0;
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error adding layout", e);
+            sample.failed();
+            LOGGER.error("Error deleting layout", e);
             return false;
+        } finally {
+            sample.end();
         }
     }
     
     /**
-     * Update an existing layout
-     * 
-     * @param layout The layout to update
-     * @return true if successful, false otherwise
+     * Leave a tombstone for a deleted layout so {@link #getLayoutChangesSince}
+     * reports it. The layout is gone either way, so a missing
+     * layout_deletions table is only logged.
      */
-    public boolean updateLayout(Layout layout) {
-        String sql = "UPDATE layouts SET layout_name = ?, status = ?, owner_name = ?, survey_number = ?, " +
-                     "area_in_acres = ?, application_date = ?, approval_date = ?, latitude = ?, longitude = ?, " +
-                     "remarks = ?, total_plots = ?, approved_by = ?, document_path = ?, has_court_case = ?, " +
-                     "zone_classification = ?, setback_compliance = ? WHERE file_number = ?";
+    private void recordLayoutDeletion(Connection connection, String layoutId) {
+        String sql = "INSERT INTO layout_deletions (" + LayoutSchema.DELETION_KEY_COLUMN + ", deleted_at) " +
+                     "VALUES (?, CURRENT_TIMESTAMP)";
         
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, layoutId);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.warn("Could not record deletion of layout {}", layoutId, e);
+        }
+    }
+    
+    /**
+     * Delete the tombstones older than db.deletions.retentionHours. No
+     * sync reads them: {@link #getLayoutChangesSince} sends a caller that
+     * last synced before then to reload in full.
+     * 
+     * @return Number of tombstones deleted
+     */
+    public int pruneLayoutDeletions() {
+        QueryMetrics.Sample sample = QueryMetrics.start("pruneLayoutDeletions");
         try (Connection connection = DBConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            
-            statement.setString(1, layout.getLayoutName());
-            statement.setString(2, layout.getStatus());
-            statement.setString(3, layout.getOwnerName());
-            statement.setString(4, layout.getSurveyNumber());
-            statement.setDouble(5, layout.getAreaInAcres());
-            
-            if (layout.getApplicationDate() != null) {
-                statement.setDate(6, java.sql.Date.valueOf(layout.getApplicationDate()));
-            } else {
-                statement.setNull(6, Types.DATE);
-            }
-            
-            if (layout.getApprovalDate() != null) {
-                statement.setDate(7, java.sql.Date.valueOf(layout.getApprovalDate()));
-            } else {
-                statement.setNull(7, Types.DATE);
-            }
-            
-            statement.setDouble(8, layout.getLatitude());
-            statement.setDouble(9, layout.getLongitude());
-            statement.setString(10, layout.getRemarks());
-            statement.setInt(11, layout.getTotalPlots());
-            statement.setString(12, layout.getApprovedBy());
-            statement.setString(13, layout.getDocumentPath());
-            statement.setBoolean(14, layout.isHasCourtCase());
-            statement.setString(15, layout.getZoneClassification());
-            statement.setDouble(16, layout.getSetbackCompliance());
-            statement.setString(17, layout.getFileNumber());
-            
-            int rowsAffected = statement.executeUpdate();
-            return rowsAffected > 0;
+             PreparedStatement statement = connection.prepareStatement("DELETE FROM layout_deletions WHERE deleted_at < ?")) {
+            statement.setTimestamp(1, java.sql.Timestamp.valueOf(
+                    currentTimestamp(connection).minusHours(deletionRetentionHours)));
+            int rows = statement.executeUpdate();
+            sample.rows(rows);
+            return rows;
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error updating layout", e);
-            return false;
+            sample.failed();
+            LOGGER.warn("Error pruning layout deletions", e);
+            return 0;
+        } finally {
+            sample.end();
         }
     }
     
     /**
-     * Delete a layout by ID
+     * Get the database's current time, the starting point for
+     * {@link #getLayoutChangesSince} after loading layouts in full
      * 
-     * @param layoutId The layout ID
-     * @return true if successful, false otherwise
+     * @return Current database time, or null if it cannot be read
      */
-    public boolean deleteLayout(String layoutId) {
-        String sql = "DELETE FROM layouts WHERE file_number = ?";
+    public LocalDateTime getLayoutSyncTime() {
+        QueryMetrics.Sample sample = QueryMetrics.start("getLayoutSyncTime");
+        try (Connection connection = DBConnection.getConnection()) {
+            return currentTimestamp(connection);
+        } catch (SQLException e) {
+            sample.failed();
+            LOGGER.error("Error reading database time", e);
+            return null;
+        } finally {
+            sample.end();
+        }
+    }
+    
+    private static LocalDateTime currentTimestamp(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT CURRENT_TIMESTAMP")) {
+            resultSet.next();
+            return resultSet.getTimestamp(1).toLocalDateTime();
+        }
+    }
+    
+    /**
+     * Get the layouts written and deleted since a point in time. Both
+     * queries use an index, so the cost follows the number of changes
+     * rather than the size of the table. Changes are read from a few
+     * seconds before the given time, which catches writes whose
+     * transactions committed after a previous call read the clock.
+     * 
+     * @param since Time from a previous call's {@link LayoutChanges#getSyncedUpTo()}
+     *              or from {@link #getLayoutSyncTime()}
+     * @return The changes, or null if they cannot be read (e.g. the schema
+     *         predates change tracking, or the deletions since then may
+     *         have been pruned) and callers must reload in full
+     */
+    public LayoutChanges getLayoutChangesSince(LocalDateTime since) {
+        return getLayoutChangesSince(since, false);
+    }
+    
+    /**
+     * Get the layouts written and deleted since a point in time, as
+     * {@link #getLayoutChangesSince(LocalDateTime)} does
+     * 
+     * @param since Time from a previous call's {@link LayoutChanges#getSyncedUpTo()}
+     *              or from {@link #getLayoutSyncTime()}
+     * @param withBoundaries true to read the boundaries of the changed layouts too
+     * @return The changes, or null if they cannot be read and callers must
+     *         reload in full
+     */
+    public LayoutChanges getLayoutChangesSince(LocalDateTime since, boolean withBoundaries) {
+        String deletedSql = "SELECT " + LayoutSchema.DELETION_KEY_COLUMN + " FROM layout_deletions WHERE deleted_at >= ?";
+        java.sql.Timestamp from = java.sql.Timestamp.valueOf(since.minusSeconds(CHANGE_OVERLAP_SECONDS));
         
-        try (Connection connection = DBConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
+        QueryMetrics.Sample sample = QueryMetrics.start("getLayoutChangesSince");
+        try (Connection connection = DBConnection.getConnection()) {
+            // Read the clock first; anything written later is picked up next time
+            LocalDateTime now = currentTimestamp(connection);
+            LayoutSchema schema = layoutSchema(connection);
+            if (!schema.hasLastModified()) {
+                return null;
+            }
+            if (from.toLocalDateTime().isBefore(now.minusHours(deletionRetentionHours))) {
+                // Tombstones this old may have been pruned by pruneLayoutDeletions
+                return null;
+            }
+            String columns = schema.getSummaryColumns();
+            if (withBoundaries && schema.hasBoundary()) {
+                columns += ", boundary";
+            }
+            String changedSql = "SELECT " + columns + " FROM layouts WHERE last_modified >= ?";
             
-            statement.setString(1, layoutId);
+            List<Layout> changed = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(changedSql)) {
+                statement.setTimestamp(1, from);
+                statement.setFetchSize(batchSize);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    sample.rows(readLayouts(resultSet, schema, changed::add));
+                }
+            }
             
-            int rowsAffected = statement.executeUpdate();
-            return rowsAffected > 0;
+            List<String> deleted = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(deletedSql)) {
+                statement.setTimestamp(1, from);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        deleted.add(resultSet.getString(1));
+                    }
+                }
+            }
+            sample.rows(deleted.size());
+            return new LayoutChanges(changed, deleted, now);
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error deleting layout", e);
-            return false;
+            sample.failed();
+            LOGGER.error("Error reading layout changes", e);
+            return null;
+        } finally {
+            sample.end();
         }
     }
     
@@ -461,44 +1579,21 @@ public class DatabaseManager {
      */
     public List<Layout> getAllLayouts() {
         List<Layout> layouts = new ArrayList<>();
-        // Modified query to match your table structure
-        String sql = "SELECT file_no, layout_name, status, owner, survey_number, area, application_date, latitude, longitude, remarks, total_plots FROM layouts ORDER BY application_date DESC";
         
-        try (Connection connection = DBConnection.getConnection();
-             Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(sql)) {
+        QueryMetrics.Sample sample = QueryMetrics.start("getAllLayouts");
+        try (Connection connection = DBConnection.getConnection()) {
+            LayoutSchema schema = layoutSchema(connection);
+            String sql = "SELECT " + schema.getSummaryColumns() + " FROM layouts ORDER BY application_date DESC";
             
-            while (resultSet.next()) {
-                Layout layout = new Layout();
-                layout.setFileNumber(resultSet.getString("file_no"));
-                layout.setLayoutName(resultSet.getString("layout_name"));
-                layout.setStatus(resultSet.getString("status"));
-                layout.setOwnerName(resultSet.getString("owner"));
-                layout.setSurveyNumber(resultSet.getString("survey_number"));
-                layout.setAreaInAcres(resultSet.getDouble("area"));
-                
-                java.sql.Date applicationDate = resultSet.getDate("application_date");
-                if (applicationDate != null) {
-                    layout.setApplicationDate(applicationDate.toLocalDate());
-                }
-                
-                layout.setLatitude(resultSet.getDouble("latitude"));
-                layout.setLongitude(resultSet.getDouble("longitude"));
-                layout.setRemarks(resultSet.getString("remarks"));
-                layout.setTotalPlots(resultSet.getInt("total_plots"));
-                
-                // Set default values for missing columns
-                layout.setApprovalDate(null);
-                layout.setApprovedBy("Unknown");
-                layout.setDocumentPath("");
-                layout.setHasCourtCase(false);
-                layout.setZoneClassification("Unknown");
-                layout.setSetbackCompliance(100.0);
-                
-                layouts.add(layout);
+            try (PreparedStatement statement = connection.prepareStatement(sql);
+                 ResultSet resultSet = statement.executeQuery()) {
+                sample.rows(readLayouts(resultSet, schema, layouts::add));
             }
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error fetching layouts", e);
+            sample.failed();
+            LOGGER.error("Error fetching layouts", e);
+        } finally {
+            sample.end();
         }
         
         return layouts;
@@ -514,6 +1609,7 @@ public class DatabaseManager {
         List<CourtCase> courtCases = new ArrayList<>();
         String sql = "SELECT * FROM court_cases WHERE related_layout_id = ? ORDER BY filing_date DESC";
         
+        QueryMetrics.Sample sample = QueryMetrics.start("getCourtCasesByLayoutId");
         try (Connection connection = DBConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
@@ -524,8 +1620,12 @@ public class DatabaseManager {
                     courtCases.add(mapResultSetToCourtCase(resultSet));
                 }
             }
+            sample.rows(courtCases.size());
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error fetching court cases by layout ID", e);
+            sample.failed();
+            LOGGER.error("Error fetching court cases by layout ID", e);
+        } finally {
+            sample.end();
         }
         
         return courtCases;
@@ -540,15 +1640,20 @@ public class DatabaseManager {
         List<CourtCase> courtCases = new ArrayList<>();
         String sql = "SELECT * FROM court_cases ORDER BY filing_date DESC";
         
+        QueryMetrics.Sample sample = QueryMetrics.start("getAllCourtCases");
         try (Connection connection = DBConnection.getConnection();
-             Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(sql)) {
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet resultSet = statement.executeQuery()) {
             
             while (resultSet.next()) {
                 courtCases.add(mapResultSetToCourtCase(resultSet));
             }
+            sample.rows(courtCases.size());
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error fetching court cases", e);
+            sample.failed();
+            LOGGER.error("Error fetching court cases", e);
+        } finally {
+            sample.end();
         }
         
         return courtCases;
@@ -561,53 +1666,41 @@ public class DatabaseManager {
      * @return true if successful, false otherwise
      */
     public boolean addCourtCase(CourtCase courtCase) {
-        String sql = "INSERT INTO court_cases (case_id, case_title, case_type, status, filing_date, " +
-                     "hearing_date, judgment_date, description, related_layout_id, court_name, " +
-                     "judge_name, petitioner, respondent, case_number, outcome, document_path) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        
+        QueryMetrics.Sample sample = QueryMetrics.start("addCourtCase");
         try (Connection connection = DBConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            
-            statement.setString(1, courtCase.getCaseId());
-            statement.setString(2, courtCase.getCaseTitle());
-            statement.setString(3, courtCase.getCaseType());
-            statement.setString(4, courtCase.getStatus());
-            
-            if (courtCase.getFilingDate() != null) {
-                statement.setDate(5, java.sql.Date.valueOf(courtCase.getFilingDate()));
-            } else {
-                statement.setNull(5, Types.DATE);
-            }
-            
-            if (courtCase.getHearingDate() != null) {
-                statement.setDate(6, java.sql.Date.valueOf(courtCase.getHearingDate()));
-            } else {
-                statement.setNull(6, Types.DATE);
-            }
-            
-            if (courtCase.getJudgmentDate() != null) {
-                statement.setDate(7, java.sql.Date.valueOf(courtCase.getJudgmentDate()));
-            } else {
-                statement.setNull(7, Types.DATE);
-            }
+             PreparedStatement statement = connection.prepareStatement(INSERT_COURT_CASE_SQL)) {
             
-            statement.setString(8, courtCase.getDescription());
-            statement.setString(9, courtCase.getRelatedLayoutId());
-            statement.setString(10, courtCase.getCourtName());
-            statement.setString(11, courtCase.getJudgeName());
-            statement.setString(12, courtCase.getPetitioner());
-            statement.setString(13, courtCase.getRespondent());
-            statement.setString(14, courtCase.getCaseNumber());
-            statement.setString(15, courtCase.getOutcome());
-            statement.setString(16, courtCase.getDocumentPath());
+            bindCourtCaseInsert(statement, courtCase);
             
             int rowsAffected = statement.executeUpdate();
+            sample.rows(rowsAffected);
+            if (rowsAffected > 0) {
+                if ("Active".equals(courtCase.getStatus())) {
+                    statisticsCache.adjust(StatisticsCache.ACTIVE_CASES, 1);
+                }
+            }
             return rowsAffected > 0;
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error adding court case", e);
+            sample.failed();
+            LOGGER.error("Error adding court case", e);
             return false;
+        } finally {
+            sample.end();
+        }
+    }
+    
+    /**
+     * Insert many court cases using JDBC batches, one transaction per chunk of db.batch.size rows
+     * 
+     * @param courtCases The court cases to add
+     * @return Number of rows written and the rows that failed
+     */
+    public BatchResult addCourtCases(List<CourtCase> courtCases) {
+        BatchResult result = executeBatch("addCourtCases", connection -> INSERT_COURT_CASE_SQL, courtCases, this::bindCourtCaseInsert, CourtCase::getCaseId);
+        if (result.getSucceeded() > 0) {
+            statisticsCache.invalidate();
         }
+        return result;
     }
     
     /**
@@ -622,6 +1715,7 @@ public class DatabaseManager {
                      "court_name = ?, judge_name = ?, petitioner = ?, respondent = ?, case_number = ?, " +
                      "outcome = ?, document_path = ? WHERE case_id = ?";
         
+        QueryMetrics.Sample sample = QueryMetrics.start("updateCourtCase");
         try (Connection connection = DBConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
@@ -659,10 +1753,17 @@ public class DatabaseManager {
             statement.setString(16, courtCase.getCaseId());
             
             int rowsAffected = statement.executeUpdate();
+            sample.rows(rowsAffected);
+            if (rowsAffected > 0) {
+                statisticsCache.invalidate(); // Previous status is unknown
+            }
             return rowsAffected > 0;
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error updating court case", e);
+            sample.failed();
+            LOGGER.error("Error updating court case", e);
             return false;
+        } finally {
+            sample.end();
         }
     }
     
@@ -675,120 +1776,84 @@ public class DatabaseManager {
     public boolean deleteCourtCase(String caseId) {
         String sql = "DELETE FROM court_cases WHERE case_id = ?";
         
+        QueryMetrics.Sample sample = QueryMetrics.start("deleteCourtCase");
         try (Connection connection = DBConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
             statement.setString(1, caseId);
             
             int rowsAffected = statement.executeUpdate();
+            sample.rows(rowsAffected);
+            if (rowsAffected > 0) {
+                statisticsCache.invalidate(); // Deleted case's status is unknown
+            }
             return rowsAffected > 0;
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error deleting court case", e);
+            sample.failed();
+            LOGGER.error("Error deleting court case", e);
             return false;
+        } finally {
+            sample.end();
         }
     }
     
     /**
-     * Get dashboard statistics
+     * Get dashboard statistics. Served from memory; the counters are
+     * reloaded once they are older than stats.cache.maxAgeMillis.
      * 
      * @return Map containing dashboard statistics
      */
     public Map<String, Object> getDashboardStatistics() {
-        Map<String, Object> statistics = new HashMap<>();
-        
-        try (Connection connection = DBConnection.getConnection()) {
-            // Total layouts
-            try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM layouts");
-                 ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    statistics.put("totalLayouts", resultSet.getInt(1));
-                }
-            }
-            
-            // Approved layouts
-            try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM layouts WHERE status = 'Approved'");
-                 ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    statistics.put("approvedLayouts", resultSet.getInt(1));
-                }
-            }
-            
-            // Pending layouts
-            try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM layouts WHERE status IN ('Pending', 'Under Review')");
-                 ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    statistics.put("pendingLayouts", resultSet.getInt(1));
-                }
-            }
-            
-            // Rejected layouts
-            try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM layouts WHERE status = 'Rejected'");
-                 ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    statistics.put("rejectedLayouts", resultSet.getInt(1));
-                }
-            }
-            
-            // Active court cases
-            try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM court_cases WHERE status = 'Active'");
-                 ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    statistics.put("activeCases", resultSet.getInt(1));
-                }
-            }
-            
-            // Total users
-            try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM users");
-                 ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    statistics.put("totalUsers", resultSet.getInt(1));
-                }
-            }
-            
-        } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error fetching dashboard statistics", e);
-        }
-        
-        return statistics;
+        return statisticsCache.get();
     }
     
     /**
-     * Map ResultSet to Layout object
+     * Drop the cached dashboard statistics, e.g. after changing the tables
+     * outside this class
+     */
+    public void invalidateDashboardStatistics() {
+        statisticsCache.invalidate();
+    }
+    
+    /**
+     * Read every dashboard counter in one round trip, scanning each table once
      * 
-     * @param resultSet The ResultSet
-     * @return Layout object
-     * @throws SQLException if mapping fails
+     * @return Map of counter name to value
+     * @throws SQLException if the query fails
      */
-    private Layout mapResultSetToLayout(ResultSet resultSet) throws SQLException {
-        Layout layout = new Layout();
-        layout.setFileNumber(resultSet.getString("file_number"));
-        layout.setLayoutName(resultSet.getString("layout_name"));
-        layout.setStatus(resultSet.getString("status"));
-        layout.setOwnerName(resultSet.getString("owner_name"));
-        layout.setSurveyNumber(resultSet.getString("survey_number"));
-        layout.setAreaInAcres(resultSet.getDouble("area_in_acres"));
-        
-        java.sql.Date applicationDate = resultSet.getDate("application_date");
-        if (applicationDate != null) {
-            layout.setApplicationDate(applicationDate.toLocalDate());
-        }
+    private Map<String, Integer> loadDashboardStatistics() throws SQLException {
+        String sql = "SELECT l.total_layouts, l.approved_layouts, l.pending_layouts, l.rejected_layouts, " +
+                     "c.active_cases, u.total_users FROM " +
+                     "(SELECT COUNT(*) AS total_layouts, " +
+                     "COALESCE(SUM(CASE WHEN status = 'Approved' THEN 1 ELSE 0 END), 0) AS approved_layouts, " +
+                     "COALESCE(SUM(CASE WHEN status IN ('Pending', 'Under Review') THEN 1 ELSE 0 END), 0) AS pending_layouts, " +
+                     "COALESCE(SUM(CASE WHEN status = 'Rejected' THEN 1 ELSE 0 END), 0) AS rejected_layouts " +
+                     "FROM layouts) l CROSS JOIN " +
+                     "(SELECT COALESCE(SUM(CASE WHEN status = 'Active' THEN 1 ELSE 0 END), 0) AS active_cases " +
+                     "FROM court_cases) c CROSS JOIN " +
+                     "(SELECT COUNT(*) AS total_users FROM users) u";
+        Map<String, Integer> statistics = new HashMap<>();
         
-        java.sql.Date approvalDate = resultSet.getDate("approval_date");
-        if (approvalDate != null) {
-            layout.setApprovalDate(approvalDate.toLocalDate());
+        QueryMetrics.Sample sample = QueryMetrics.start("loadDashboardStatistics");
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            if (resultSet.next()) {
+                sample.rows(1);
+                statistics.put(StatisticsCache.TOTAL_LAYOUTS, resultSet.getInt("total_layouts"));
+                statistics.put(StatisticsCache.APPROVED_LAYOUTS, resultSet.getInt("approved_layouts"));
+                statistics.put(StatisticsCache.PENDING_LAYOUTS, resultSet.getInt("pending_layouts"));
+                statistics.put(StatisticsCache.REJECTED_LAYOUTS, resultSet.getInt("rejected_layouts"));
+                statistics.put(StatisticsCache.ACTIVE_CASES, resultSet.getInt("active_cases"));
+                statistics.put(StatisticsCache.TOTAL_USERS, resultSet.getInt("total_users"));
+            }
+        } catch (SQLException e) {
+            sample.failed();
+            throw e;
+        } finally {
+            sample.end();
         }
-        
-        layout.setLatitude(resultSet.getDouble("latitude"));
-        layout.setLongitude(resultSet.getDouble("longitude"));
-        layout.setRemarks(resultSet.getString("remarks"));
-        layout.setTotalPlots(resultSet.getInt("total_plots"));
-        layout.setApprovedBy(resultSet.getString("approved_by"));
-        layout.setDocumentPath(resultSet.getString("document_path"));
-        layout.setHasCourtCase(resultSet.getBoolean("has_court_case"));
-        layout.setZoneClassification(resultSet.getString("zone_classification"));
-        layout.setSetbackCompliance(resultSet.getDouble("setback_compliance"));
-        
-        return layout;
+        return statistics;
     }
     
     /**
@@ -840,19 +1905,26 @@ public class DatabaseManager {
      * @return true if successful, false otherwise
      */
     public boolean deleteUser(String userId) {
-        // Since your table uses "id" instead of "user_id", we need to adjust the query
-        String sql = "DELETE FROM users WHERE id = ?";
-        
-        try (Connection connection = DBConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            
-            statement.setString(1, userId);
+        QueryMetrics.Sample sample = QueryMetrics.start("deleteUser");
+        try (Connection connection = DBConnection.getConnection()) {
+            String sql = "DELETE FROM users WHERE " + userKeyColumn(connection) + " = ?";
             
-            int rowsAffected = statement.executeUpdate();
-            return rowsAffected > 0;
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, userId);
+                
+                int rowsAffected = statement.executeUpdate();
+                sample.rows(rowsAffected);
+                if (rowsAffected > 0) {
+                    statisticsCache.adjust(StatisticsCache.TOTAL_USERS, -1);
+                }
+                return rowsAffected > 0;
+            }
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error deleting user", e);
+            sample.failed();
+            LOGGER.error("Error deleting user", e);
             return false;
+        } finally {
+            sample.end();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,195 @@
+package com.satya.portal.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * GeoHash - encodes positions as geohash strings and covers bounding boxes
+ * with geohash ranges. Nearby positions share a prefix, so the
+ * layouts.geohash column with an ordinary B-tree index answers "what lies
+ * in this box" with a few index range scans, on MySQL and H2 alike.
+ */
+public final class GeoHash {
+    /** Characters stored per layout; a cell is about 5 m by 5 m */
+    public static final int PRECISION = 9;
+
+    // Geohash base32 alphabet; in ascending order under ASCII and the
+    // default MySQL collations, so prefix ranges map to index ranges
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final double EARTH_RADIUS_METERS = 6371008.8;
+    // Boxes needing coarser cells than this (about 156 km) cover so much of
+    // the table that reading it through the index is slower than scanning it
+    private static final int MIN_INDEXED_PRECISION = 3;
+
+    private GeoHash() {
+        // Utility class
+    }
+
+    /**
+     * Encode a position
+     * @param latitude the latitude
+     * @param longitude the longitude
+     * @param precision the number of characters
+     * @return the geohash
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90, minLon = -180, maxLon = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean lonBit = true;
+        int bits = 0, value = 0;
+        while (hash.length() < precision) {
+            if (lonBit) {
+                double mid = (minLon + maxLon) / 2;
+                value <<= 1;
+                if (longitude >= mid) {
+                    value |= 1;
+                    minLon = mid;
+                } else {
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                value <<= 1;
+                if (latitude >= mid) {
+                    value |= 1;
+                    minLat = mid;
+                } else {
+                    maxLat = mid;
+                }
+            }
+            lonBit = !lonBit;
+            if (++bits == 5) {
+                hash.append(BASE32.charAt(value));
+                bits = 0;
+                value = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Encode the coordinates of a layout for the layouts.geohash column
+     * @param latitude the latitude
+     * @param longitude the longitude
+     * @return the geohash, or null when the layout has no usable coordinates
+     */
+    public static String forLayout(double latitude, double longitude) {
+        // 0, 0 means "not surveyed" throughout the portal
+        if ((latitude == 0 && longitude == 0) || latitude < -90 || latitude > 90
+                || longitude < -180 || longitude > 180) {
+            return null;
+        }
+        return encode(latitude, longitude, PRECISION);
+    }
+
+    /**
+     * Cover a bounding box with geohash ranges. Each range is a pair of
+     * strings: every geohash g in the range satisfies
+     * {@code from <= g < to}; {@code to} is null when the range is open
+     * ended. The ranges may reach beyond the box, so results still need an
+     * exact coordinate check.
+     * @param minLat the southern edge
+     * @param minLon the western edge
+     * @param maxLat the northern edge
+     * @param maxLon the eastern edge
+     * @param maxCells the most geohash cells to use before falling back to
+     *        coarser ones
+     * @return the ranges in ascending order, or an empty list when the box
+     *         is so large that an index would not help
+     */
+    public static List<String[]> coveringRanges(double minLat, double minLon, double maxLat, double maxLon, int maxCells) {
+        minLat = Math.max(-90, minLat);
+        maxLat = Math.min(90, maxLat);
+        minLon = Math.max(-180, minLon);
+        maxLon = Math.min(180, maxLon);
+        if (minLat > maxLat || minLon > maxLon) {
+            return Collections.emptyList();
+        }
+        for (int precision = PRECISION; precision >= MIN_INDEXED_PRECISION; precision--) {
+            double cellWidth = 360 / Math.pow(2, Math.ceil(5 * precision / 2.0));
+            double cellHeight = 180 / Math.pow(2, Math.floor(5 * precision / 2.0));
+            long columns = (long) (Math.floor((maxLon + 180) / cellWidth) - Math.floor((minLon + 180) / cellWidth)) + 1;
+            long rows = (long) (Math.floor((maxLat + 90) / cellHeight) - Math.floor((minLat + 90) / cellHeight)) + 1;
+            if (columns * rows > maxCells) {
+                continue;
+            }
+            TreeSet<String> cells = new TreeSet<>();
+            for (long row = 0; row < rows; row++) {
+                double lat = Math.min(maxLat, minLat + row * cellHeight);
+                for (long column = 0; column < columns; column++) {
+                    double lon = Math.min(maxLon, minLon + column * cellWidth);
+                    cells.add(encode(lat, lon, precision));
+                }
+            }
+            // The edges may fall just inside a cell that stepping missed
+            cells.add(encode(maxLat, maxLon, precision));
+            cells.add(encode(minLat, maxLon, precision));
+            cells.add(encode(maxLat, minLon, precision));
+            return mergeRanges(cells);
+        }
+        return Collections.emptyList();
+    }
+
+    private static List<String[]> mergeRanges(TreeSet<String> cells) {
+        List<String[]> ranges = new ArrayList<>();
+        String from = null, to = null;
+        for (String cell : cells) {
+            if (from != null && cell.equals(to)) {
+                to = successor(cell);
+                continue;
+            }
+            if (from != null) {
+                ranges.add(new String[] {from, to});
+            }
+            from = cell;
+            to = successor(cell);
+        }
+        if (from != null) {
+            ranges.add(new String[] {from, to});
+        }
+        return ranges;
+    }
+
+    /**
+     * Get the smallest geohash prefix sorting after every geohash that
+     * starts with the given one
+     * @return the successor, or null if there is none
+     */
+    private static String successor(String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            int index = BASE32.indexOf(prefix.charAt(i));
+            if (index < BASE32.length() - 1) {
+                return prefix.substring(0, i) + BASE32.charAt(index + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the great-circle distance between two positions
+     * @return the distance in meters
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Get the bounding box of a circle
+     * @param latitude the latitude of the center
+     * @param longitude the longitude of the center
+     * @param radiusMeters the radius
+     * @return minimum latitude, minimum longitude, maximum latitude, maximum longitude
+     */
+    public static double[] boundsAround(double latitude, double longitude, double radiusMeters) {
+        double dLat = Math.toDegrees(radiusMeters / EARTH_RADIUS_METERS);
+        double cos = Math.cos(Math.toRadians(latitude));
+        double dLon = cos < 1e-9 ? 180 : Math.min(180, dLat / cos);
+        return new double[] {latitude - dLat, longitude - dLon, latitude + dLat, longitude + dLon};
+    }
+}
@@ -0,0 +1,328 @@
+package com.satya.portal.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * InMemoryStore - thread-safe table of objects kept in memory, keyed by a
+ * primary key and optionally indexed by other attributes. Lookups by key
+ * or by an indexed value never block. Writers take turns, and each lookup
+ * sees a write whole or not at all. Lists handed out are unmodifiable snapshots
+ * in insertion order; a replaced object keeps its place. A snapshot is
+ * built the first time it is asked for after a write, so a burst of writes
+ * costs one copy, not one per write.
+ *
+ * @param <K> Type of the primary key
+ * @param <V> Type of the stored objects
+ */
+public class InMemoryStore<K, V> {
+    private final Function<V, K> keyOf;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Written under writeLock; byKey is its lock-free copy for readers
+    private final LinkedHashMap<K, V> rows = new LinkedHashMap<>();
+    private final ConcurrentHashMap<K, V> byKey = new ConcurrentHashMap<>();
+    private final List<Index<V>> indexes = new ArrayList<>();
+    // Snapshot of every object; null after a write until asked for again
+    private volatile List<V> all;
+
+    /**
+     * @param keyOf Gives the primary key of an object
+     */
+    public InMemoryStore(Function<V, K> keyOf) {
+        this.keyOf = keyOf;
+    }
+
+    /**
+     * Index the objects by an attribute. Objects whose attribute is null
+     * are not indexed.
+     *
+     * @param attribute Gives the indexed value of an object
+     * @return Handle to look objects up by the attribute
+     */
+    public Index<V> addIndex(Function<V, String> attribute) {
+        writeLock.lock();
+        try {
+            Index<V> index = new Index<>(attribute);
+            for (V value : rows.values()) {
+                index.add(keyOf.apply(value), value);
+            }
+            indexes.add(index);
+            return index;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Look an object up by its key
+     *
+     * @param key The primary key
+     * @return The object, or null if none has the key
+     */
+    public V get(K key) {
+        return key != null ? byKey.get(key) : null;
+    }
+
+    /**
+     * @param key The primary key
+     * @return true if an object has the key
+     */
+    public boolean containsKey(K key) {
+        return key != null && byKey.containsKey(key);
+    }
+
+    /**
+     * @return Number of objects stored
+     */
+    public int size() {
+        return byKey.size();
+    }
+
+    /**
+     * @return Every object, in insertion order
+     */
+    public List<V> values() {
+        List<V> snapshot = all;
+        if (snapshot == null) {
+            writeLock.lock();
+            try {
+                snapshot = all;
+                if (snapshot == null) {
+                    snapshot = Collections.unmodifiableList(new ArrayList<>(rows.values()));
+                    all = snapshot;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Look objects up by an indexed attribute
+     *
+     * @param index Index returned by {@link #addIndex(Function)}
+     * @param value Value of the attribute
+     * @return The objects with the value, in insertion order
+     */
+    public List<V> find(Index<V> index, String value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        List<V> snapshot = index.snapshots.get(value);
+        if (snapshot == null) {
+            writeLock.lock();
+            try {
+                snapshot = index.snapshot(value);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param index Index returned by {@link #addIndex(Function)}
+     * @param value Value of the attribute
+     * @return true if any object has the value
+     */
+    public boolean contains(Index<V> index, String value) {
+        return value != null && index.counts.containsKey(value);
+    }
+
+    /**
+     * @param index Index returned by {@link #addIndex(Function)}
+     * @param value Value of the attribute
+     * @return Number of objects with the value
+     */
+    public int count(Index<V> index, String value) {
+        Integer count = value != null ? index.counts.get(value) : null;
+        return count != null ? count : 0;
+    }
+
+    /**
+     * @param index Index returned by {@link #addIndex(Function)}
+     * @return Number of objects with each value of the attribute
+     */
+    public Map<String, Integer> counts(Index<V> index) {
+        return new HashMap<>(index.counts);
+    }
+
+    /**
+     * Store an object unless one with its key is stored already
+     *
+     * @param value The object
+     * @return false if its key is null or taken
+     */
+    public boolean add(V value) {
+        K key = keyOf.apply(value);
+        if (key == null) {
+            return false;
+        }
+        writeLock.lock();
+        try {
+            if (rows.containsKey(key)) {
+                return false;
+            }
+            store(key, null, value);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Store an object, replacing the one with its key
+     *
+     * @param value The object
+     * @return The replaced object, or null if the key was new
+     * @throws IllegalArgumentException if the object has no key
+     */
+    public V put(V value) {
+        K key = keyOf.apply(value);
+        if (key == null) {
+            throw new IllegalArgumentException("Object has no key: " + value);
+        }
+        writeLock.lock();
+        try {
+            V previous = rows.get(key);
+            store(key, previous, value);
+            return previous;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replace the object with the same key, if one is stored
+     *
+     * @param value The new object
+     * @return false if no object has its key
+     */
+    public boolean replace(V value) {
+        K key = keyOf.apply(value);
+        if (key == null) {
+            return false;
+        }
+        writeLock.lock();
+        try {
+            V previous = rows.get(key);
+            if (previous == null) {
+                return false;
+            }
+            store(key, previous, value);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Remove the object with a key
+     *
+     * @param key The primary key
+     * @return The removed object, or null if none had the key
+     */
+    public V remove(K key) {
+        if (key == null) {
+            return null;
+        }
+        writeLock.lock();
+        try {
+            V previous = rows.remove(key);
+            if (previous != null) {
+                byKey.remove(key);
+                for (Index<V> index : indexes) {
+                    index.remove(key);
+                }
+                all = null;
+            }
+            return previous;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void store(K key, V previous, V value) {
+        rows.put(key, value);
+        byKey.put(key, value);
+        for (Index<V> index : indexes) {
+            if (previous != null) {
+                index.remove(key);
+            }
+            index.add(key, value);
+        }
+        all = null;
+    }
+
+    /**
+     * Secondary index of an InMemoryStore. Buckets are changed only under
+     * the store's write lock; readers see the counts and the snapshots.
+     */
+    public static final class Index<V> {
+        private final Function<V, String> attribute;
+        private final Map<String, LinkedHashMap<Object, V>> buckets = new HashMap<>();
+        // Value each key is filed under; the object may have been edited since
+        private final Map<Object, String> filedUnder = new HashMap<>();
+        private final ConcurrentHashMap<String, Integer> counts = new ConcurrentHashMap<>();
+        // Values with no entry are built on the next find
+        private final ConcurrentHashMap<String, List<V>> snapshots = new ConcurrentHashMap<>();
+
+        private Index(Function<V, String> attribute) {
+            this.attribute = attribute;
+        }
+
+        private void add(Object key, V value) {
+            String indexed = attribute.apply(value);
+            if (indexed == null) {
+                return;
+            }
+            LinkedHashMap<Object, V> bucket = buckets.get(indexed);
+            if (bucket == null) {
+                bucket = new LinkedHashMap<>();
+                buckets.put(indexed, bucket);
+            }
+            bucket.put(key, value);
+            filedUnder.put(key, indexed);
+            counts.put(indexed, bucket.size());
+            snapshots.remove(indexed);
+        }
+
+        private void remove(Object key) {
+            String indexed = filedUnder.remove(key);
+            LinkedHashMap<Object, V> bucket = indexed != null ? buckets.get(indexed) : null;
+            if (bucket == null || bucket.remove(key) == null) {
+                return;
+            }
+            if (bucket.isEmpty()) {
+                buckets.remove(indexed);
+                counts.remove(indexed);
+            } else {
+                counts.put(indexed, bucket.size());
+            }
+            snapshots.remove(indexed);
+        }
+
+        private List<V> snapshot(String indexed) {
+            List<V> snapshot = snapshots.get(indexed);
+            if (snapshot != null) {
+                return snapshot;
+            }
+            LinkedHashMap<Object, V> bucket = buckets.get(indexed);
+            if (bucket == null) {
+                // Not kept, or every value ever asked for would stay in memory
+                return Collections.emptyList();
+            }
+            snapshot = Collections.unmodifiableList(new ArrayList<>(bucket.values()));
+            snapshots.put(indexed, snapshot);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.satya.portal.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram - lock-free histogram of durations with a fixed memory
+ * footprint. Durations are counted in microsecond buckets that double in
+ * width every 32 buckets, like HdrHistogram, so any percentile is known to
+ * within about 3% from one microsecond up to more than a day. Recording is a
+ * few atomic increments and never allocates.
+ */
+public final class LatencyHistogram {
+    // Exact buckets below 32us, then 32 per power of two
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Longer durations are counted as 2^37us, about 38 hours
+    private static final int MAX_MAGNITUDE = 36;
+    private static final long MAX_MICROS = (1L << (MAX_MAGNITUDE + 1)) - 1;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Count a duration
+     *
+     * @param nanos Duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.min(Math.max(nanos / 1000, 0), MAX_MICROS);
+        counts.incrementAndGet(bucketOf(micros));
+        totalMicros.add(micros);
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+            max = maxMicros.get();
+        }
+    }
+
+    /**
+     * Forget every recorded duration. Durations recorded meanwhile may be
+     * kept or dropped.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalMicros.reset();
+        maxMicros.set(0);
+    }
+
+    /**
+     * Copy the counts, so several percentiles are read from the same data
+     *
+     * @return The durations recorded so far
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, totalMicros.sum(), maxMicros.get());
+    }
+
+    /**
+     * Start following the durations recorded from now on
+     *
+     * @return An interval that can be advanced again and again
+     */
+    public Interval interval() {
+        return new Interval();
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    private static double percentileMillis(long[] counts, long count, long maxMicros, double percentile) {
+        if (count == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100.0) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // The bucket's upper edge, but never beyond the real maximum
+                return Math.min(highestValueIn(i), maxMicros) / 1000.0;
+            }
+        }
+        return maxMicros / 1000.0;
+    }
+
+    private static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Durations recorded up to one point in time
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalMicros;
+        private final long maxMicros;
+
+        private Snapshot(long[] counts, long count, long totalMicros, long maxMicros) {
+            this.counts = counts;
+            this.count = count;
+            this.totalMicros = totalMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        /**
+         * @return Number of durations recorded
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return Mean duration in milliseconds, 0 if none was recorded
+         */
+        public double getMeanMillis() {
+            return count > 0 ? totalMicros / (double) count / 1000.0 : 0.0;
+        }
+
+        /**
+         * @return Longest duration in milliseconds
+         */
+        public double getMaxMillis() {
+            return maxMicros / 1000.0;
+        }
+
+        /**
+         * Get the duration that the given share of recorded durations did
+         * not exceed
+         *
+         * @param percentile Between 0 and 100, e.g. 99 for the 99th percentile
+         * @return Duration in milliseconds, 0 if none was recorded
+         */
+        public double getPercentileMillis(double percentile) {
+            return percentileMillis(counts, count, maxMicros, percentile);
+        }
+    }
+
+    /**
+     * Durations recorded between two calls of {@link #advance()}. Unlike a
+     * snapshot it reuses its arrays, so sampling it periodically does not
+     * allocate.
+     */
+    public final class Interval {
+        private final long[] previous = new long[BUCKETS];
+        private final long[] counts = new long[BUCKETS];
+        private long count;
+        private int highestBucket = -1;
+
+        private Interval() {
+            for (int i = 0; i < BUCKETS; i++) {
+                previous[i] = LatencyHistogram.this.counts.get(i);
+            }
+        }
+
+        /**
+         * End the current interval and start the next one
+         *
+         * @return Number of durations recorded in the interval just ended
+         */
+        public long advance() {
+            count = 0;
+            highestBucket = -1;
+            for (int i = 0; i < BUCKETS; i++) {
+                long current = LatencyHistogram.this.counts.get(i);
+                // A reset in between leaves fewer than before
+                counts[i] = Math.max(0, current - previous[i]);
+                previous[i] = current;
+                if (counts[i] > 0) {
+                    count += counts[i];
+                    highestBucket = i;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @return Number of durations recorded in the last interval
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @param percentile Between 0 and 100
+         * @return Duration in milliseconds in the last interval, 0 if it had none
+         */
+        public double getPercentileMillis(double percentile) {
+            return percentileMillis(counts, count, maxMicros.get(), percentile);
+        }
+
+        /**
+         * @return Upper bound of the longest duration in the last interval, in milliseconds
+         */
+        public double getMaxMillis() {
+            return highestBucket < 0 ? 0.0 : Math.min(highestValueIn(highestBucket), maxMicros.get()) / 1000.0;
+        }
+    }
+}
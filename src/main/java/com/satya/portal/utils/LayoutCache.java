@@ -0,0 +1,215 @@
+package com.satya.portal.utils;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.satya.portal.models.Layout;
+
+/**
+ * LayoutCache - bounded, read-through cache of layouts keyed by file number.
+ * Entries are evicted least recently used first once the cache is full and
+ * expire after a fixed time to live. Layouts handed out are the cached
+ * instances, so callers must treat them as read-only and save changes
+ * through DataManager.updateLayout, which invalidates the entry.
+ */
+public class LayoutCache {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations; // bumped by every write, see beginLoad()
+
+    /**
+     * @param maxSize Maximum number of layouts kept
+     * @param ttlMillis How long an entry stays valid; 0 or less never expires
+     */
+    public LayoutCache(int maxSize, long ttlMillis) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Create a cache sized from the layout.cache.* settings
+     */
+    public static LayoutCache fromAppConfig() {
+        return new LayoutCache(AppConfig.getInt("layout.cache.maxSize", 2000),
+                AppConfig.getLong("layout.cache.ttlMillis", 300000));
+    }
+
+    /**
+     * Look up a layout
+     *
+     * @param fileNumber The layout file number
+     * @return The cached layout, or null if absent or expired
+     */
+    public synchronized Layout get(String fileNumber) {
+        Entry entry = fileNumber != null ? entries.get(fileNumber) : null;
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (isExpired(entry, System.currentTimeMillis())) {
+            entries.remove(fileNumber);
+            evictions++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.layout;
+    }
+
+    /**
+     * Mark the start of a database read whose rows will be cached. Rows read
+     * before a concurrent update or delete would be stale, so
+     * {@link #putAll(Collection, long)} drops them if any write happened since.
+     *
+     * @return Token to pass to put/putAll
+     */
+    public synchronized long beginLoad() {
+        return invalidations;
+    }
+
+    /**
+     * Cache a layout read from the database
+     *
+     * @param layout The layout
+     * @param loadToken Value of {@link #beginLoad()} taken before the read
+     */
+    public synchronized void put(Layout layout, long loadToken) {
+        if (layout != null && loadToken == invalidations) {
+            store(layout, System.currentTimeMillis());
+            evictOverflow();
+        }
+    }
+
+    /**
+     * Cache every layout of a bulk read (search results, full loads)
+     *
+     * @param layouts The layouts
+     * @param loadToken Value of {@link #beginLoad()} taken before the read
+     */
+    public synchronized void putAll(Collection<Layout> layouts, long loadToken) {
+        if (loadToken != invalidations) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Layout layout : layouts) {
+            store(layout, now);
+        }
+        evictOverflow();
+    }
+
+    /**
+     * Remove a layout after it was changed or deleted
+     *
+     * @param fileNumber The layout file number
+     */
+    public synchronized void invalidate(String fileNumber) {
+        invalidations++;
+        if (fileNumber != null) {
+            entries.remove(fileNumber);
+        }
+    }
+
+    /**
+     * Remove every layout
+     */
+    public synchronized void clear() {
+        invalidations++;
+        entries.clear();
+    }
+
+    private void store(Layout layout, long now) {
+        if (layout.getFileNumber() != null) {
+            entries.put(layout.getFileNumber(), new Entry(layout, now));
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return ttlMillis > 0 && now - entry.loadedAt > ttlMillis;
+    }
+
+    /**
+     * @return Snapshot of the cache counters
+     */
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(entries.size(), maxSize, hits, misses, evictions);
+    }
+
+    private static final class Entry {
+        private final Layout layout;
+        private final long loadedAt;
+
+        private Entry(Layout layout, long loadedAt) {
+            this.layout = layout;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * Point-in-time view of the cache counters
+     */
+    public static final class CacheStatistics {
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        CacheStatistics(int size, int maxSize, long hits, long misses, long evictions) {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * @return Fraction of lookups served from the cache, 0 if there were none
+         */
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("LayoutCache[size=%d/%d, hits=%d, misses=%d, evictions=%d, hitRate=%.1f%%]",
+                    size, maxSize, hits, misses, evictions, getHitRate() * 100);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.satya.portal.utils;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.satya.portal.models.Layout;
+import com.satya.portal.models.LayoutBoundary;
+/**
+ * LayoutRowMapper - turns rows of one layouts query into Layout objects.
+ * The position of every column is looked up once from the result's
+ * metadata and rows are then read by index. Columns the query did not
+ * select, or the table does not have, get the defaults shown for
+ * layouts without those details.
+ */
+public final class LayoutRowMapper {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LayoutRowMapper.class);
+
+    // Shown for the approval details of layouts that do not record them
+    private static final String UNKNOWN = "Unknown";
+
+    // 1-based column positions; 0 when the result does not have the column
+    private final int fileNumber;
+    private final int layoutName;
+    private final int status;
+    private final int ownerName;
+    private final int surveyNumber;
+    private final int areaInAcres;
+    private final int applicationDate;
+    private final int approvalDate;
+    private final int latitude;
+    private final int longitude;
+    private final int remarks;
+    private final int totalPlots;
+    private final int approvedBy;
+    private final int documentPath;
+    private final int hasCourtCase;
+    private final int zoneClassification;
+    private final int setbackCompliance;
+    private final int boundary;
+
+    LayoutRowMapper(LayoutSchema schema, ResultSetMetaData metaData) throws SQLException {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = metaData.getColumnCount(); i >= 1; i--) {
+            // Labels so aliased columns map too; the first of duplicates wins
+            columns.put(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+        fileNumber = position(columns, schema.getFileNumberColumn());
+        layoutName = position(columns, "layout_name");
+        status = position(columns, "status");
+        ownerName = position(columns, schema.getOwnerColumn());
+        surveyNumber = position(columns, "survey_number");
+        areaInAcres = position(columns, schema.getAreaColumn());
+        applicationDate = position(columns, "application_date");
+        approvalDate = position(columns, "approval_date");
+        latitude = position(columns, "latitude");
+        longitude = position(columns, "longitude");
+        remarks = position(columns, "remarks");
+        totalPlots = position(columns, "total_plots");
+        approvedBy = position(columns, "approved_by");
+        documentPath = position(columns, "document_path");
+        hasCourtCase = position(columns, "has_court_case");
+        zoneClassification = position(columns, "zone_classification");
+        setbackCompliance = position(columns, "setback_compliance");
+        boundary = position(columns, "boundary");
+    }
+
+    private static int position(Map<String, Integer> columns, String column) {
+        Integer position = columns.get(column);
+        return position != null ? position : 0;
+    }
+
+    /**
+     * Map the current row
+     *
+     * @param resultSet The result this mapper was made for, on a row
+     * @return The layout in the row
+     * @throws SQLException if a column cannot be read
+     */
+    public Layout map(ResultSet resultSet) throws SQLException {
+        // Built with one constructor call, not a setter per column; a missing
+        // application date stays null so keyset cursors match the stored key
+        Layout layout = new Layout(
+                string(resultSet, fileNumber, null),
+                string(resultSet, layoutName, null),
+                string(resultSet, status, null),
+                string(resultSet, ownerName, null),
+                string(resultSet, surveyNumber, null),
+                areaInAcres > 0 ? resultSet.getDouble(areaInAcres) : 0.0,
+                date(resultSet, applicationDate),
+                date(resultSet, approvalDate),
+                latitude > 0 ? resultSet.getDouble(latitude) : 0.0,
+                longitude > 0 ? resultSet.getDouble(longitude) : 0.0,
+                string(resultSet, remarks, null),
+                totalPlots > 0 ? resultSet.getInt(totalPlots) : 0,
+                string(resultSet, approvedBy, UNKNOWN),
+                string(resultSet, documentPath, ""),
+                hasCourtCase > 0 && resultSet.getBoolean(hasCourtCase),
+                string(resultSet, zoneClassification, UNKNOWN),
+                setbackCompliance(resultSet));
+
+        if (boundary > 0) {
+            try {
+                layout.setBoundary(LayoutBoundary.fromWkt(resultSet.getString(boundary)));
+            } catch (IllegalArgumentException e) {
+                // Keep the layout usable; only its outline is missing from the map
+                LOGGER.warn("Invalid boundary for layout {}", layout.getFileNumber(), e);
+            }
+        }
+        return layout;
+    }
+
+    private static String string(ResultSet resultSet, int column, String missing) throws SQLException {
+        if (column == 0) {
+            return missing;
+        }
+        String value = resultSet.getString(column);
+        return value != null ? value : missing;
+    }
+
+    private static LocalDate date(ResultSet resultSet, int column) throws SQLException {
+        if (column == 0) {
+            return null;
+        }
+        Date value = resultSet.getDate(column);
+        return value != null ? value.toLocalDate() : null;
+    }
+
+    private double setbackCompliance(ResultSet resultSet) throws SQLException {
+        if (setbackCompliance == 0) {
+            return 100.0;
+        }
+        double value = resultSet.getDouble(setbackCompliance);
+        // The column defaults to full compliance, so NULL means not assessed
+        return resultSet.wasNull() ? 100.0 : value;
+    }
+}
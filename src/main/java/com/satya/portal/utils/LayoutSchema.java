@@ -0,0 +1,297 @@
+package com.satya.portal.utils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * LayoutSchema - names of the layouts table columns that differ between
+ * database generations. DATABASE_SCHEMA.sql has file_number, owner_name
+ * and area_in_acres plus the approval and compliance details; older
+ * databases have file_no, owner and area and only the summary columns.
+ * Queries take their column names from here and read rows through a
+ * {@link LayoutRowMapper}, so the same code serves both tables.
+ *
+ * A schema read from the database also knows which columns the table has,
+ * so features that need the boundary, geohash or last_modified columns
+ * can fall back when a database predates them. The statements that write
+ * layouts name only the columns the table has.
+ */
+public final class LayoutSchema {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LayoutSchema.class);
+
+    /** The table created by DATABASE_SCHEMA.sql */
+    public static final LayoutSchema STANDARD = new LayoutSchema("standard", "file_number", "owner_name", "area_in_acres");
+    /** The table of databases created before DATABASE_SCHEMA.sql */
+    public static final LayoutSchema LEGACY = new LayoutSchema("legacy", "file_no", "owner", "area");
+
+    /** Key column of layout_deletions, the same in every generation */
+    public static final String DELETION_KEY_COLUMN = "file_number";
+
+    private final String name;
+    private final String fileNumberColumn;
+    private final String ownerColumn;
+    private final String areaColumn;
+    private final String summaryColumns;
+    private final String textColumns;
+    // Lower case names of the table's columns, empty if not inspected
+    private final Set<String> columns;
+    private final List<String> writeColumns;
+    private final String insertSql;
+    private final String upsertSql;
+    private final String updateSql;
+    private final String deleteSql;
+
+    private LayoutSchema(String name, String fileNumberColumn, String ownerColumn, String areaColumn) {
+        this(name, fileNumberColumn, ownerColumn, areaColumn, Collections.emptySet());
+    }
+
+    private LayoutSchema(String name, String fileNumberColumn, String ownerColumn, String areaColumn,
+                         Set<String> columns) {
+        this.name = name;
+        this.fileNumberColumn = fileNumberColumn;
+        this.ownerColumn = ownerColumn;
+        this.areaColumn = areaColumn;
+        this.summaryColumns = fileNumberColumn + ", layout_name, status, " + ownerColumn + ", survey_number, " +
+                areaColumn + ", application_date, latitude, longitude, remarks, total_plots";
+        this.textColumns = fileNumberColumn + ", layout_name, survey_number, " + ownerColumn + ", remarks";
+        this.columns = columns;
+
+        String[] candidates = {
+            fileNumberColumn, "layout_name", "status", ownerColumn, "survey_number", areaColumn,
+            "application_date", "approval_date", "latitude", "longitude", "remarks", "total_plots",
+            "approved_by", "document_path", "has_court_case", "zone_classification", "setback_compliance",
+            "boundary", "geohash"
+        };
+        List<String> written = new ArrayList<>();
+        for (String column : candidates) {
+            if (hasColumn(column)) {
+                written.add(column);
+            }
+        }
+        this.writeColumns = Collections.unmodifiableList(written);
+
+        // last_modified is set by the database on every write
+        boolean stamped = hasColumn("last_modified");
+        StringBuilder names = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        StringBuilder updates = new StringBuilder();
+        StringBuilder assignments = new StringBuilder();
+        for (String column : written) {
+            if (names.length() > 0) {
+                names.append(", ");
+                values.append(", ");
+            }
+            names.append(column);
+            values.append('?');
+            if (!column.equals(fileNumberColumn)) {
+                if (updates.length() > 0) {
+                    updates.append(", ");
+                    assignments.append(", ");
+                }
+                updates.append(column).append(" = VALUES(").append(column).append(')');
+                assignments.append(column).append(" = ?");
+            }
+        }
+        if (stamped) {
+            names.append(", last_modified");
+            values.append(", CURRENT_TIMESTAMP");
+            updates.append(", last_modified = CURRENT_TIMESTAMP");
+            assignments.append(", last_modified = CURRENT_TIMESTAMP");
+        }
+        this.insertSql = "INSERT INTO layouts (" + names + ") VALUES (" + values + ")";
+        this.upsertSql = insertSql + " ON DUPLICATE KEY UPDATE " + updates;
+        this.updateSql = "UPDATE layouts SET " + assignments + " WHERE " + fileNumberColumn + " = ?";
+        this.deleteSql = "DELETE FROM layouts WHERE " + fileNumberColumn + " = ?";
+    }
+
+    /**
+     * Get the schema named by db.layouts.schema: "standard", "legacy" or
+     * "auto" (the default), which looks at the columns of the table
+     *
+     * @param connection Connection used to inspect the table for "auto"
+     * @return The schema of the layouts table
+     * @throws SQLException if the table cannot be inspected
+     */
+    public static LayoutSchema configured(Connection connection) throws SQLException {
+        String configured = AppConfig.getString("db.layouts.schema", "auto").trim();
+        if (STANDARD.name.equalsIgnoreCase(configured)) {
+            return STANDARD.withColumns(columnsOf(connection));
+        }
+        if (LEGACY.name.equalsIgnoreCase(configured)) {
+            return LEGACY.withColumns(columnsOf(connection));
+        }
+        if (!"auto".equalsIgnoreCase(configured)) {
+            LOGGER.warn("Unknown db.layouts.schema '{}', detecting it from the table", configured);
+        }
+        return detect(connection);
+    }
+
+    /**
+     * Tell the schema from the key column of the layouts table
+     *
+     * @param connection Connection to the database
+     * @return STANDARD if the table has a file_number column, LEGACY
+     *         otherwise, with the columns of the table
+     * @throws SQLException if the table cannot be inspected
+     */
+    public static LayoutSchema detect(Connection connection) throws SQLException {
+        Set<String> columns = columnsOf(connection);
+        LayoutSchema schema = columns.contains(STANDARD.fileNumberColumn) ? STANDARD : LEGACY;
+        return schema.withColumns(columns);
+    }
+
+    private static Set<String> columnsOf(Connection connection) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT * FROM layouts WHERE 1=0")) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columns.add(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT));
+            }
+        }
+        return Collections.unmodifiableSet(columns);
+    }
+
+    private LayoutSchema withColumns(Set<String> tableColumns) {
+        return new LayoutSchema(name, fileNumberColumn, ownerColumn, areaColumn, tableColumns);
+    }
+
+    /**
+     * Check for an optional column. STANDARD and LEGACY themselves have
+     * not looked at a table and claim every column.
+     *
+     * @param column Column name
+     * @return true if the table has the column
+     */
+    public boolean hasColumn(String column) {
+        return columns.isEmpty() || columns.contains(column.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return true if the table has the geohash column the map's bounds queries use
+     */
+    public boolean hasGeohash() {
+        return hasColumn("geohash");
+    }
+
+    /**
+     * @return true if the table has the last_modified column change feeds read
+     */
+    public boolean hasLastModified() {
+        return hasColumn("last_modified");
+    }
+
+    /**
+     * @return true if the table has the boundary column
+     */
+    public boolean hasBoundary() {
+        return hasColumn("boundary");
+    }
+
+    /**
+     * Resolve the columns of a result once, before reading its rows
+     *
+     * @param resultSet Result of a query on the layouts table
+     * @return Mapper for the rows of this result
+     * @throws SQLException if the result's metadata cannot be read
+     */
+    public LayoutRowMapper mapper(ResultSet resultSet) throws SQLException {
+        return new LayoutRowMapper(this, resultSet.getMetaData());
+    }
+
+    /**
+     * @return "standard" or "legacy"
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Primary key column
+     */
+    public String getFileNumberColumn() {
+        return fileNumberColumn;
+    }
+
+    /**
+     * @return Owner name column
+     */
+    public String getOwnerColumn() {
+        return ownerColumn;
+    }
+
+    /**
+     * @return Area column, in acres
+     */
+    public String getAreaColumn() {
+        return areaColumn;
+    }
+
+    /**
+     * @return Comma separated columns shown in layout lists
+     */
+    public String getSummaryColumns() {
+        return summaryColumns;
+    }
+
+    /**
+     * @return Comma separated columns holding the searchable text
+     */
+    public String getTextColumns() {
+        return textColumns;
+    }
+
+    /**
+     * @return Columns written by {@link #getInsertSql()}, in the order of
+     *         its parameters; {@link #getUpdateSql()} binds the same
+     *         columns without the key, then the key
+     */
+    public List<String> getWriteColumns() {
+        return writeColumns;
+    }
+
+    /**
+     * @return INSERT of one layout, a parameter per write column
+     */
+    public String getInsertSql() {
+        return insertSql;
+    }
+
+    /**
+     * @return INSERT of one layout that updates the row with the same key instead
+     */
+    public String getUpsertSql() {
+        return upsertSql;
+    }
+
+    /**
+     * @return UPDATE of one layout by its key
+     */
+    public String getUpdateSql() {
+        return updateSql;
+    }
+
+    /**
+     * @return DELETE of one layout by its key
+     */
+    public String getDeleteSql() {
+        return deleteSql;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
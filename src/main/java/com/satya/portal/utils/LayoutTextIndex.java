@@ -0,0 +1,499 @@
+package com.satya.portal.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.satya.portal.models.Layout;
+
+/**
+ * LayoutTextIndex - in-memory inverted trigram index over the text of
+ * layouts: layout name, file number, survey number, owner and remarks.
+ * Substring search looks up the trigrams of each search word, intersects
+ * their posting lists starting with the shortest, and checks the few
+ * candidates left, instead of comparing every layout with LIKE '%term%';
+ * it finds exactly the layouts those LIKE conditions would.
+ * The text of each layout is kept, normalized, as one string with the
+ * fields separated by line breaks.
+ * <p>
+ * Text is normalized to NFC and lower case and split into words of letters,
+ * digits and combining marks, so Telugu words keep their vowel signs and
+ * viramas. Trigrams are taken over UTF-16 characters, which covers Telugu
+ * and Latin script alike. Search words shorter than three characters have
+ * no trigram; a query of only such words checks every layout.
+ * <p>
+ * Layouts are added, updated and removed one at a time. A changed layout
+ * gets a new slot and its old slot is marked dead, so posting lists only
+ * ever grow at the end and stay sorted; once dead slots outnumber live
+ * ones, the postings are rebuilt. All methods are thread-safe.
+ */
+public class LayoutTextIndex {
+    // Indexed fields, in the order of FIELD_WEIGHTS
+    private static final int NAME = 0;
+    private static final int FILE_NUMBER = 1;
+    private static final int SURVEY_NUMBER = 2;
+    private static final int OWNER = 3;
+    private static final int REMARKS = 4;
+    private static final int[] FIELD_WEIGHTS = {4, 4, 3, 3, 1};
+    // Scores per field for a search word equal to a word, starting one, or inside one
+    private static final int EXACT = 3;
+    private static final int PREFIX = 2;
+    private static final int SUBSTRING = 1;
+    // Separates the fields in a layout's text; never part of a word
+    private static final char FIELD_SEPARATOR = '\n';
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<String, Integer> slots = new HashMap<>();
+    private String[] fileNumbers = new String[1024];
+    private String[] texts = new String[1024];
+    private final BitSet live = new BitSet();
+    private int slotCount;
+
+    /**
+     * Add a layout, or replace the indexed text of one added before
+     *
+     * @param layout The layout
+     */
+    public void put(Layout layout) {
+        String fileNumber = layout.getFileNumber();
+        if (fileNumber == null) {
+            return;
+        }
+        String[] fields = new String[FIELD_WEIGHTS.length];
+        fields[NAME] = layout.getLayoutName();
+        fields[FILE_NUMBER] = fileNumber;
+        fields[SURVEY_NUMBER] = layout.getSurveyNumber();
+        fields[OWNER] = layout.getOwnerName();
+        fields[REMARKS] = layout.getRemarks();
+        // One string per layout keeps the index small
+        StringBuilder joined = new StringBuilder();
+        for (int field = 0; field < fields.length; field++) {
+            if (field > 0) {
+                joined.append(FIELD_SEPARATOR);
+            }
+            if (fields[field] != null) {
+                joined.append(fields[field]);
+            }
+        }
+        String text = normalize(joined.toString());
+
+        lock.writeLock().lock();
+        try {
+            Integer previous = slots.get(fileNumber);
+            if (previous != null) {
+                if (texts[previous].equals(text)) {
+                    return;
+                }
+                live.clear(previous);
+            }
+            int slot = addSlot(fileNumber, text);
+            slots.put(fileNumber, slot);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace many layouts
+     *
+     * @param layouts The layouts
+     */
+    public void putAll(Collection<Layout> layouts) {
+        for (Layout layout : layouts) {
+            put(layout);
+        }
+    }
+
+    /**
+     * Remove a layout
+     *
+     * @param fileNumber File number of the layout
+     */
+    public void remove(String fileNumber) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.remove(fileNumber);
+            if (slot != null) {
+                live.clear(slot);
+                compactIfSparse();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every layout
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            slots.clear();
+            live.clear();
+            fileNumbers = new String[1024];
+            texts = new String[1024];
+            slotCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of layouts indexed
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the layouts containing every word of a query in any indexed
+     * field, as LayoutSearchCriteria and the database's LIKE '%word%'
+     * conditions do: the query is split into words at white space and each
+     * word may occur anywhere in a field, punctuation included. Results
+     * come best match first: words equal to whole words, then word starts,
+     * then other substrings, with names and file numbers counting most and
+     * remarks least. Ties are ordered by file number.
+     *
+     * @param query Search text
+     * @param maxMatches Most matches to list
+     * @return File numbers of the matching layouts, best first, or null if
+     *         more than maxMatches layouts match
+     */
+    public List<String> search(String query, int maxMatches) {
+        String[] words = queryWords(normalize(query));
+        if (words.length == 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            List<int[]> matches = new ArrayList<>();
+            boolean complete = forEachCandidate(words, slot -> {
+                int score = score(texts[slot], words);
+                if (score > 0) {
+                    if (matches.size() == maxMatches) {
+                        return false;
+                    }
+                    matches.add(new int[] {slot, score});
+                }
+                return true;
+            });
+            if (!complete) {
+                return null;
+            }
+            matches.sort(Comparator.<int[]>comparingInt(match -> -match[1])
+                    .thenComparing(match -> fileNumbers[match[0]]));
+            List<String> results = new ArrayList<>(matches.size());
+            for (int[] match : matches) {
+                results.add(fileNumbers[match[0]]);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visit the live slots, in ascending order, whose postings contain every
+     * trigram of the words. The lists are walked together from the shortest
+     * one, each skipping ahead by galloping search, so a visitor that stops
+     * early leaves the rest of the lists unread. Only runs of three or more
+     * letters and digits inside a search word have trigrams to look up; a
+     * search word may also start or end inside a longer word, or hold
+     * punctuation, so slots still need checking.
+     *
+     * @param words Normalized search words
+     * @param visitor Returns false to stop
+     * @return true if every candidate was visited
+     */
+    private boolean forEachCandidate(String[] words, IntPredicate visitor) {
+        List<Postings> lists = new ArrayList<>();
+        for (String word : words) {
+            for (String part : words(word)) {
+                for (long key : trigrams(part)) {
+                    Postings list = postings.get(key);
+                    if (list == null) {
+                        return true;
+                    }
+                    lists.add(list);
+                }
+            }
+        }
+        if (lists.isEmpty()) {
+            // Only short words: nothing narrows the search
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                if (!visitor.test(slot)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        Postings shortest = lists.get(0);
+        int[] cursors = new int[lists.size()];
+        candidates:
+        for (int at = shortest.seek(0, 0); at >= 0; at = shortest.seek(at + 1, 0)) {
+            int slot = shortest.slotAt(at);
+            if (!live.get(slot)) {
+                continue;
+            }
+            for (int l = 1; l < cursors.length; l++) {
+                Postings list = lists.get(l);
+                int position = list.seek(cursors[l], slot);
+                if (position < 0) {
+                    return true;
+                }
+                cursors[l] = position;
+                if (list.slotAt(position) != slot) {
+                    continue candidates;
+                }
+            }
+            if (!visitor.test(slot)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Score a layout's text against the search words
+     *
+     * @return The score, or 0 if a word is not found
+     */
+    private static int score(String text, String[] words) {
+        int total = 0;
+        for (String word : words) {
+            int best = 0;
+            for (int at = text.indexOf(word); at >= 0; at = text.indexOf(word, at + 1)) {
+                boolean starts = at == 0 || !isWordChar(text.charAt(at - 1));
+                int end = at + word.length();
+                boolean ends = end == text.length() || !isWordChar(text.charAt(end));
+                int match = starts && ends ? EXACT : starts ? PREFIX : SUBSTRING;
+                best = Math.max(best, match * FIELD_WEIGHTS[field(text, at)]);
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    /**
+     * Get the field a position of a layout's text belongs to
+     */
+    private static int field(String text, int position) {
+        int field = 0;
+        for (int at = text.indexOf(FIELD_SEPARATOR); at >= 0 && at < position; at = text.indexOf(FIELD_SEPARATOR, at + 1)) {
+            field++;
+        }
+        return field;
+    }
+
+    private int addSlot(String fileNumber, String text) {
+        int slot = slotCount++;
+        if (slot == fileNumbers.length) {
+            fileNumbers = Arrays.copyOf(fileNumbers, slot * 2);
+            texts = Arrays.copyOf(texts, slot * 2);
+        }
+        fileNumbers[slot] = fileNumber;
+        texts[slot] = text;
+        live.set(slot);
+        for (String word : words(text)) {
+            for (long key : trigrams(word)) {
+                Postings list = postings.get(key);
+                if (list == null) {
+                    list = new Postings();
+                    postings.put(key, list);
+                }
+                list.add(slot);
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Rebuild the postings over the live slots once most slots are dead
+     */
+    private void compactIfSparse() {
+        if (slotCount < 1024 || slots.size() * 2 > slotCount) {
+            return;
+        }
+        String[] oldFileNumbers = fileNumbers;
+        String[] oldTexts = texts;
+        int oldCount = slotCount;
+        BitSet oldLive = (BitSet) live.clone();
+        postings.clear();
+        live.clear();
+        fileNumbers = new String[Math.max(1024, slots.size() * 2)];
+        texts = new String[fileNumbers.length];
+        slotCount = 0;
+        for (int slot = oldLive.nextSetBit(0); slot >= 0 && slot < oldCount; slot = oldLive.nextSetBit(slot + 1)) {
+            slots.put(oldFileNumbers[slot], addSlot(oldFileNumbers[slot], oldTexts[slot]));
+        }
+    }
+
+    /**
+     * Get the distinct trigram keys of a word
+     *
+     * @param word A normalized word
+     */
+    private static long[] trigrams(String word) {
+        int length = word.length();
+        long[] keys = new long[Math.max(0, length - 2)];
+        for (int i = 0; i + 2 < length; i++) {
+            keys[i] = key(word.charAt(i), word.charAt(i + 1), word.charAt(i + 2));
+        }
+        Arrays.sort(keys);
+        int distinct = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (distinct == 0 || keys[distinct - 1] != keys[i]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, distinct);
+    }
+
+    private static long key(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    /**
+     * Normalize text for indexing and searching
+     *
+     * @return NFC, lower case text, or null for null
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return null;
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Split a normalized query into search words at white space, as
+     * LayoutSearchCriteria.queryWords() does
+     */
+    static String[] queryWords(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return new String[0];
+        }
+        return query.trim().split("\\s+");
+    }
+
+    /**
+     * Split normalized text into words of letters, digits and combining marks
+     */
+    static String[] words(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && isWordChar(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return words.toArray(new String[words.size()]);
+    }
+
+    static boolean isWordChar(char c) {
+        if (Character.isLetterOrDigit(c) || Character.isSurrogate(c)) {
+            return true;
+        }
+        // Telugu vowel signs and the virama are marks, not letters
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    /**
+     * Ascending slots of the layouts containing one trigram. Lists start as
+     * arrays and turn into bitmaps once more than one slot in DENSE has the
+     * trigram, where a bit per slot takes less memory than an int per entry.
+     * Positions are array indexes, or the slots themselves for a bitmap.
+     */
+    private static final class Postings {
+        private static final int DENSE = 32;
+        private int[] slots = new int[4];
+        private BitSet bits;
+        private int size;
+        private int last = -1;
+
+        /**
+         * Find the first position at or after from holding a slot not below the given one
+         *
+         * @return The position, or -1 if there is none
+         */
+        private int seek(int from, int slot) {
+            if (bits != null) {
+                return bits.nextSetBit(Math.max(from, slot));
+            }
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < size && slots[high] < slot) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            high = Math.min(high, size);
+            int found = Arrays.binarySearch(slots, low, high, slot);
+            int position = found >= 0 ? found : -found - 1;
+            return position < size ? position : -1;
+        }
+
+        private int slotAt(int position) {
+            return bits != null ? position : slots[position];
+        }
+
+        private void add(int slot) {
+            // A word may repeat in a layout; slots only ever grow
+            if (slot == last) {
+                return;
+            }
+            last = slot;
+            size++;
+            if (bits != null) {
+                bits.set(slot);
+                return;
+            }
+            if (size > 256 && (long) size * DENSE > slot) {
+                bits = new BitSet(slot + 1);
+                for (int i = 0; i < size - 1; i++) {
+                    bits.set(slots[i]);
+                }
+                bits.set(slot);
+                slots = null;
+                return;
+            }
+            if (size > slots.length) {
+                slots = Arrays.copyOf(slots, slots.length * 2);
+            }
+            slots[size - 1] = slot;
+        }
+    }
+}
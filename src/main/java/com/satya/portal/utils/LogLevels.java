@@ -0,0 +1,46 @@
+package com.satya.portal.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+
+/**
+ * LogLevels - applies the log.level.&lt;logger&gt; settings of AppConfig, so
+ * a package or class can be made more or less verbose from satya.properties
+ * or with -Dlog.level.com.satya.portal.ConnectionPool=DEBUG. Appenders and
+ * defaults are in logback.xml.
+ */
+public final class LogLevels {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogLevels.class);
+    private static final String PREFIX = "log.level.";
+
+    private LogLevels() {
+        // Utility class
+    }
+
+    /**
+     * Set the level of every logger named in the configuration
+     */
+    public static void apply() {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext)) {
+            // Another SLF4J backend is configured its own way
+            return;
+        }
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        for (String key : AppConfig.getKeys(PREFIX)) {
+            String name = key.substring(PREFIX.length());
+            String value = AppConfig.getString(key, null);
+            if (name.isEmpty() || value == null) {
+                continue;
+            }
+            Level level = Level.toLevel(value, null);
+            if (level == null) {
+                LOGGER.warn("Invalid log level for {}: {}", key, value);
+                continue;
+            }
+            context.getLogger("root".equalsIgnoreCase(name) ? Logger.ROOT_LOGGER_NAME : name).setLevel(level);
+        }
+    }
+}
@@ -0,0 +1,739 @@
+package com.satya.portal.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.satya.portal.models.Layout;
+
+/**
+ * OwnerNameIndex - finds owner names however they were transliterated.
+ * Owner names are copied from handwritten records, so one person appears
+ * as "Venkata Rao", "Venkat Rao" and "Venkatrao", or in Telugu script.
+ * <p>
+ * Each distinct owner name is transliterated to Latin letters and indexed
+ * without spaces, along with every run of up to three of its words, so
+ * "venkatrao" is found in "K. Venkata Rao Naidu". A search finds names
+ * sharing the phonetic key of the typed name, from a hash map, and names
+ * within a few edits of it, from a BK-tree: the tree is ordered by edit
+ * distance, so the triangle inequality rules out most branches and only a
+ * small part of the names is compared. Names are never compared one by
+ * one with the search. All methods are thread-safe.
+ */
+public class OwnerNameIndex {
+    // Longest run of words indexed besides the whole name
+    private static final int MAX_WINDOW_WORDS = 3;
+    // Phonetic keys this short, like "r" for "Rao", match too many names
+    private static final int MIN_PHONETIC_KEY = 2;
+    private static final Comparator<Hit> BEST_FIRST = new Comparator<Hit>() {
+        @Override
+        public int compare(Hit a, Hit b) {
+            if ((a.distance == 0) != (b.distance == 0)) {
+                return a.distance == 0 ? -1 : 1;
+            }
+            if (a.phonetic != b.phonetic) {
+                return a.phonetic ? -1 : 1;
+            }
+            return Integer.compare(a.distance, b.distance);
+        }
+    };
+    private static final Comparator<Match> BY_LAYOUTS = new Comparator<Match>() {
+        @Override
+        public int compare(Match a, Match b) {
+            if (a.layoutCount != b.layoutCount) {
+                return Integer.compare(b.layoutCount, a.layoutCount);
+            }
+            return a.name.compareTo(b.name);
+        }
+    };
+
+    // Latin spelling of the Telugu block, U+0C00 to U+0C7F; vowels and
+    // vowel signs are "a", since the phonetic key ignores which vowel it is
+    private static final char TELUGU_FIRST = '\u0C00';
+    private static final char TELUGU_LAST = '\u0C7F';
+    private static final String[] TELUGU = new String[TELUGU_LAST - TELUGU_FIRST + 1];
+
+    static {
+        String[][] letters = {
+                {"\u0C02", "n"}, {"\u0C03", "h"},
+                {"\u0C15", "k"}, {"\u0C16", "kh"}, {"\u0C17", "g"}, {"\u0C18", "gh"}, {"\u0C19", "n"},
+                {"\u0C1A", "ch"}, {"\u0C1B", "chh"}, {"\u0C1C", "j"}, {"\u0C1D", "jh"}, {"\u0C1E", "n"},
+                {"\u0C1F", "t"}, {"\u0C20", "th"}, {"\u0C21", "d"}, {"\u0C22", "dh"}, {"\u0C23", "n"},
+                {"\u0C24", "t"}, {"\u0C25", "th"}, {"\u0C26", "d"}, {"\u0C27", "dh"}, {"\u0C28", "n"},
+                {"\u0C2A", "p"}, {"\u0C2B", "ph"}, {"\u0C2C", "b"}, {"\u0C2D", "bh"}, {"\u0C2E", "m"},
+                {"\u0C2F", "y"}, {"\u0C30", "r"}, {"\u0C31", "r"}, {"\u0C32", "l"}, {"\u0C33", "l"},
+                {"\u0C34", "l"}, {"\u0C35", "v"}, {"\u0C36", "sh"}, {"\u0C37", "sh"}, {"\u0C38", "s"},
+                {"\u0C39", "h"},
+        };
+        for (String[] letter : letters) {
+            TELUGU[letter[0].charAt(0) - TELUGU_FIRST] = letter[1];
+        }
+        // Independent vowels and vowel signs
+        for (char c = '\u0C05'; c <= '\u0C14'; c++) {
+            TELUGU[c - TELUGU_FIRST] = "a";
+        }
+        for (char c = '\u0C3E'; c <= '\u0C4C'; c++) {
+            TELUGU[c - TELUGU_FIRST] = "a";
+        }
+        for (char c = '\u0C60'; c <= '\u0C63'; c++) {
+            TELUGU[c - TELUGU_FIRST] = "a";
+        }
+        // Telugu digits
+        for (char c = '\u0C66'; c <= '\u0C6F'; c++) {
+            TELUGU[c - TELUGU_FIRST] = String.valueOf((char) ('0' + (c - '\u0C66')));
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Owner names as stored, and the owner of each layout
+    private final Map<String, Name> names = new HashMap<>();
+    private final Map<String, Name> layoutOwners = new HashMap<>();
+    // Indexed forms by text and by phonetic key; forms no name uses any
+    // more stay in the tree until it is rebuilt
+    private final Map<String, Form> forms = new HashMap<>();
+    private final Map<String, List<Form>> phonetic = new HashMap<>();
+    private Node root;
+    private int unusedForms;
+
+    /**
+     * Add a layout's owner, or replace the owner of a layout added before
+     *
+     * @param layout The layout
+     */
+    public void put(Layout layout) {
+        String fileNumber = layout.getFileNumber();
+        if (fileNumber == null) {
+            return;
+        }
+        String owner = layout.getOwnerName();
+        lock.writeLock().lock();
+        try {
+            Name previous = layoutOwners.get(fileNumber);
+            if (previous != null && previous.text.equals(owner)) {
+                return;
+            }
+            if (previous != null) {
+                layoutOwners.remove(fileNumber);
+                release(previous);
+            }
+            if (owner != null && !owner.trim().isEmpty()) {
+                layoutOwners.put(fileNumber, acquire(owner));
+            }
+            rebuildIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace many layouts
+     *
+     * @param layouts The layouts
+     */
+    public void putAll(Collection<Layout> layouts) {
+        for (Layout layout : layouts) {
+            put(layout);
+        }
+    }
+
+    /**
+     * Remove a layout's owner
+     *
+     * @param fileNumber File number of the layout
+     */
+    public void remove(String fileNumber) {
+        lock.writeLock().lock();
+        try {
+            Name previous = layoutOwners.remove(fileNumber);
+            if (previous != null) {
+                release(previous);
+                rebuildIfSparse();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove every owner
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            names.clear();
+            layoutOwners.clear();
+            forms.clear();
+            phonetic.clear();
+            root = null;
+            unusedForms = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of distinct owner names
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the owner names that may be spellings of the given one: names
+     * with a run of words that, transliterated and without spaces, spells
+     * it, sounds the same, or is within a few edits of it. Longer names may be
+     * further off: none for up to three letters, then one edit up to six,
+     * two up to eleven and three beyond.
+     *
+     * @param owner Owner name as typed
+     * @param limit Most names to return
+     * @return The names as stored, best first: exact matches, then ones
+     *         that sound the same, then by number of edits, and names used
+     *         by more layouts first among equals
+     */
+    public List<Match> match(String owner, int limit) {
+        String typed = compact(owner);
+        if (typed.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        int maxDistance = maxDistance(typed.length());
+        Pattern pattern = new Pattern(typed);
+        Map<Form, Hit> hits = new IdentityHashMap<>();
+        lock.readLock().lock();
+        try {
+            String key = phoneticKey(typed);
+            List<Form> sameSound = key.length() >= MIN_PHONETIC_KEY ? phonetic.get(key) : null;
+            if (sameSound != null) {
+                // Sounding alike does not make "Rao" a spelling of "Raghavendra Rao"
+                int maxPhoneticDistance = Math.max(maxDistance, typed.length() / 2);
+                for (Form form : sameSound) {
+                    int d = pattern.distance(form.text);
+                    if (d <= maxPhoneticDistance && !form.names.isEmpty()) {
+                        hits.put(form, new Hit(form, d, true));
+                    }
+                }
+            }
+            if (root != null) {
+                List<Node> pending = new ArrayList<>();
+                pending.add(root);
+                while (!pending.isEmpty()) {
+                    Node node = pending.remove(pending.size() - 1);
+                    int d = pattern.distance(node.form.text);
+                    if (d <= maxDistance && !node.form.names.isEmpty() && !hits.containsKey(node.form)) {
+                        hits.put(node.form, new Hit(node.form, d, false));
+                    }
+                    for (int c = 0; c < node.childCount; c++) {
+                        if (Math.abs(node.distances[c] - d) <= maxDistance) {
+                            pending.add(node.children[c]);
+                        }
+                    }
+                }
+            }
+            return rank(new ArrayList<>(hits.values()), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * List the names of the forms found, best first. Common forms like
+     * "venkatrao" belong to thousands of names, so the names are only
+     * listed for as many classes of forms as it takes to reach the limit.
+     */
+    private static List<Match> rank(List<Hit> hits, int limit) {
+        Collections.sort(hits, BEST_FIRST);
+        List<Match> matches = new ArrayList<>();
+        Map<Name, Boolean> seen = new IdentityHashMap<>();
+        int i = 0;
+        while (i < hits.size() && matches.size() < limit) {
+            // Forms of one class rank the same; their names go by layout count
+            Hit first = hits.get(i);
+            List<Match> sameClass = new ArrayList<>();
+            for (; i < hits.size() && BEST_FIRST.compare(first, hits.get(i)) == 0; i++) {
+                Hit hit = hits.get(i);
+                for (Name name : hit.form.names) {
+                    if (seen.put(name, Boolean.TRUE) == null) {
+                        sameClass.add(new Match(name.text, hit.distance, hit.phonetic, name.layouts));
+                    }
+                }
+            }
+            Collections.sort(sameClass, BY_LAYOUTS);
+            matches.addAll(sameClass.subList(0, Math.min(sameClass.size(), limit - matches.size())));
+        }
+        return matches;
+    }
+
+    private static int maxDistance(int length) {
+        if (length <= 3) {
+            return 0;
+        }
+        if (length <= 6) {
+            return 1;
+        }
+        return length <= 11 ? 2 : 3;
+    }
+
+    /**
+     * Count a layout using an owner name. Must hold the write lock.
+     */
+    private Name acquire(String owner) {
+        Name name = names.get(owner);
+        if (name == null) {
+            name = new Name(owner);
+            names.put(owner, name);
+            for (String text : formsOf(owner)) {
+                Form form = forms.get(text);
+                if (form == null) {
+                    form = new Form(text);
+                    forms.put(text, form);
+                    List<Form> sameSound = phonetic.get(form.phoneticKey);
+                    if (sameSound == null) {
+                        sameSound = new ArrayList<>(2);
+                        phonetic.put(form.phoneticKey, sameSound);
+                    }
+                    sameSound.add(form);
+                    insert(form);
+                } else if (form.names.isEmpty()) {
+                    unusedForms--;
+                }
+                form.names.add(name);
+            }
+        }
+        name.layouts++;
+        return name;
+    }
+
+    private void release(Name name) {
+        if (--name.layouts > 0) {
+            return;
+        }
+        names.remove(name.text);
+        for (String text : formsOf(name.text)) {
+            Form form = forms.get(text);
+            if (form != null && form.names.remove(name) && form.names.isEmpty()) {
+                unusedForms++;
+            }
+        }
+    }
+
+    /**
+     * Rebuild the tree without forms no name uses once they are the
+     * majority, so searches do not walk through them
+     */
+    private void rebuildIfSparse() {
+        if (unusedForms < 1024 || unusedForms * 2 < forms.size()) {
+            return;
+        }
+        List<Form> used = new ArrayList<>(forms.size() - unusedForms);
+        for (Form form : forms.values()) {
+            if (!form.names.isEmpty()) {
+                used.add(form);
+            }
+        }
+        forms.clear();
+        phonetic.clear();
+        root = null;
+        unusedForms = 0;
+        // Shuffled insertion keeps the tree from degenerating when forms
+        // arrive in sorted order
+        Collections.shuffle(used);
+        for (Form form : used) {
+            forms.put(form.text, form);
+            List<Form> sameSound = phonetic.get(form.phoneticKey);
+            if (sameSound == null) {
+                sameSound = new ArrayList<>(2);
+                phonetic.put(form.phoneticKey, sameSound);
+            }
+            sameSound.add(form);
+            insert(form);
+        }
+    }
+
+    private void insert(Form form) {
+        Node node = new Node(form);
+        if (root == null) {
+            root = node;
+            return;
+        }
+        Pattern pattern = new Pattern(form.text);
+        Node parent = root;
+        while (true) {
+            int d = pattern.distance(parent.form.text);
+            Node child = parent.child(d);
+            if (child == null) {
+                parent.add(d, node);
+                return;
+            }
+            parent = child;
+        }
+    }
+
+    /**
+     * Get the indexed forms of a name: the whole name and every run of up
+     * to MAX_WINDOW_WORDS of its words, each transliterated without spaces
+     */
+    private static List<String> formsOf(String owner) {
+        String[] words = LayoutTextIndex.words(LayoutTextIndex.normalize(owner));
+        List<String> texts = new ArrayList<>();
+        String whole = compact(owner);
+        if (!whole.isEmpty()) {
+            texts.add(whole);
+        }
+        for (int first = 0; first < words.length; first++) {
+            StringBuilder window = new StringBuilder();
+            for (int last = first; last < words.length && last - first < MAX_WINDOW_WORDS; last++) {
+                window.append(transliterate(words[last]));
+                String text = window.toString();
+                if (!text.isEmpty() && !texts.contains(text)) {
+                    texts.add(text);
+                }
+            }
+        }
+        return texts;
+    }
+
+    /**
+     * Transliterate a name to lower case Latin letters and digits and drop
+     * everything else, including spaces and initials' dots
+     */
+    static String compact(String owner) {
+        StringBuilder compact = new StringBuilder();
+        for (String word : LayoutTextIndex.words(LayoutTextIndex.normalize(owner))) {
+            compact.append(transliterate(word));
+        }
+        return compact.toString();
+    }
+
+    /**
+     * Transliterate Telugu script to Latin letters, the way names are
+     * usually spelled in English records; other text is kept as it is
+     */
+    private static String transliterate(String word) {
+        StringBuilder latin = new StringBuilder(word.length() + 4);
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c < TELUGU_FIRST || c > TELUGU_LAST) {
+                if (Character.isLetterOrDigit(c)) {
+                    latin.append(c);
+                }
+                continue;
+            }
+            String letters = TELUGU[c - TELUGU_FIRST];
+            if (letters == null) {
+                continue;
+            }
+            latin.append(letters);
+            if (isTeluguConsonant(c)) {
+                // A consonant carries an "a" unless a vowel sign or virama follows
+                char next = i + 1 < word.length() ? word.charAt(i + 1) : 0;
+                if (next < '\u0C3E' || next > '\u0C4D') {
+                    latin.append('a');
+                }
+            }
+        }
+        return latin.toString();
+    }
+
+    private static boolean isTeluguConsonant(char c) {
+        return c >= '\u0C15' && c <= '\u0C39';
+    }
+
+    /**
+     * Get the phonetic key of a compact name. Vowels are dropped except at
+     * the start, where any vowel counts as "a"; aspirates count as plain
+     * consonants, so "th" is "t" and "bh" is "b"; "sh" is "s", "x" is "ks",
+     * "ph" and "f" are alike, as are "w" and "v", "z" and "j", "q", "ck"
+     * and "k"; "w", "y" and "h" inside a name are dropped; and doubled
+     * letters count once. "Venkata Ramana", "Venkatramana" and
+     * "Wenkataramanna" all get "vnktrmn", "Lakshmi" and "Laxmi" "lksm".
+     */
+    static String phoneticKey(String compact) {
+        StringBuilder key = new StringBuilder(compact.length());
+        char last = 0;
+        int n = compact.length();
+        for (int i = 0; i < n; i++) {
+            char c = compact.charAt(i);
+            char next = i + 1 < n ? compact.charAt(i + 1) : 0;
+            String sound;
+            if (isVowel(c) || (i > 0 && (c == 'y' || c == 'h' || (c == 'w' && isVowel(compact.charAt(i - 1)))))) {
+                if (i == 0) {
+                    key.append('a');
+                }
+                last = 0;
+                continue;
+            }
+            switch (c) {
+                case 'x':
+                    sound = "ks";
+                    break;
+                case 'q':
+                    sound = "k";
+                    break;
+                case 'c':
+                    if (next == 'h') {
+                        sound = "c";
+                        i++;
+                    } else {
+                        sound = "k";
+                        if (next == 'k') {
+                            i++;
+                        }
+                    }
+                    break;
+                case 'p':
+                    sound = next == 'h' ? "f" : "p";
+                    break;
+                case 'f':
+                    sound = "f";
+                    break;
+                case 'w':
+                    sound = "v";
+                    break;
+                case 'z':
+                    sound = "j";
+                    break;
+                default:
+                    sound = String.valueOf(c);
+                    break;
+            }
+            if (next == 'h' && c != 'c') {
+                // Aspirate or "sh": the h adds nothing
+                i++;
+            }
+            for (int k = 0; k < sound.length(); k++) {
+                char s = sound.charAt(k);
+                if (s != last) {
+                    key.append(s);
+                }
+                last = s;
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+    }
+
+    /**
+     * A distinct owner name and the number of layouts with it
+     */
+    private static final class Name {
+        private final String text;
+        private int layouts;
+
+        private Name(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * An indexed form and the names that have it
+     */
+    private static final class Form {
+        private final String text;
+        private final String phoneticKey;
+        private final List<Name> names = new ArrayList<>(1);
+
+        private Form(String text) {
+            this.text = text;
+            this.phoneticKey = phoneticKey(text);
+        }
+    }
+
+    /**
+     * Computes the Levenshtein distance from one string to others with
+     * Myers' bit-parallel algorithm: each column of the distance matrix is
+     * kept as bit vectors of +1/-1 steps, so comparing with a string takes
+     * a few word operations per character instead of one step per cell.
+     * Strings longer than 64 characters fall back to the plain matrix.
+     */
+    static final class Pattern {
+        private final String text;
+        // Bits of the positions holding each character
+        private final long[] ascii = new long[128];
+        private final Map<Character, Long> other = new HashMap<>();
+
+        Pattern(String text) {
+            this.text = text;
+            if (text.length() <= 64) {
+                for (int i = 0; i < text.length(); i++) {
+                    char c = text.charAt(i);
+                    if (c < 128) {
+                        ascii[c] |= 1L << i;
+                    } else {
+                        Long bits = other.get(c);
+                        other.put(c, (bits != null ? bits : 0L) | 1L << i);
+                    }
+                }
+            }
+        }
+
+        int distance(String to) {
+            int m = text.length();
+            if (m == 0 || to.isEmpty()) {
+                return Math.max(m, to.length());
+            }
+            if (m > 64) {
+                return matrixDistance(text, to);
+            }
+            long last = 1L << (m - 1);
+            long pv = -1L;
+            long mv = 0L;
+            int score = m;
+            for (int j = 0; j < to.length(); j++) {
+                char c = to.charAt(j);
+                long eq;
+                if (c < 128) {
+                    eq = ascii[c];
+                } else {
+                    Long bits = other.get(c);
+                    eq = bits != null ? bits : 0L;
+                }
+                long xv = eq | mv;
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+                if ((ph & last) != 0) {
+                    score++;
+                } else if ((mh & last) != 0) {
+                    score--;
+                }
+                // The first row of the matrix counts up, one per character
+                ph = (ph << 1) | 1L;
+                mh <<= 1;
+                pv = mh | ~(xv | ph);
+                mv = ph & xv;
+            }
+            return score;
+        }
+    }
+
+    static int matrixDistance(String a, String b) {
+        int[] previous = new int[a.length() + 1];
+        int[] current = new int[a.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            previous[i] = i;
+        }
+        for (int j = 1; j <= b.length(); j++) {
+            current[0] = j;
+            char cb = b.charAt(j - 1);
+            for (int i = 1; i <= a.length(); i++) {
+                int cost = a.charAt(i - 1) == cb ? 0 : 1;
+                current[i] = Math.min(Math.min(current[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[a.length()];
+    }
+
+    /**
+     * A form found by a search
+     */
+    private static final class Hit {
+        private final Form form;
+        private final int distance;
+        private final boolean phonetic;
+
+        private Hit(Form form, int distance, boolean phonetic) {
+            this.form = form;
+            this.distance = distance;
+            this.phonetic = phonetic;
+        }
+    }
+
+    /**
+     * BK-tree node; each child lies at the given edit distance from it
+     */
+    private static final class Node {
+        private final Form form;
+        private int[] distances;
+        private Node[] children;
+        private int childCount;
+
+        private Node(Form form) {
+            this.form = form;
+        }
+
+        private Node child(int distance) {
+            for (int c = 0; c < childCount; c++) {
+                if (distances[c] == distance) {
+                    return children[c];
+                }
+            }
+            return null;
+        }
+
+        private void add(int distance, Node child) {
+            if (children == null) {
+                distances = new int[2];
+                children = new Node[2];
+            } else if (childCount == children.length) {
+                distances = Arrays.copyOf(distances, childCount * 2);
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+            distances[childCount] = distance;
+            children[childCount++] = child;
+        }
+    }
+
+    /**
+     * An owner name found by {@link #match}
+     */
+    public static final class Match {
+        private final String name;
+        private final int distance;
+        private final boolean phonetic;
+        private final int layoutCount;
+
+        Match(String name, int distance, boolean phonetic, int layoutCount) {
+            this.name = name;
+            this.distance = distance;
+            this.phonetic = phonetic;
+            this.layoutCount = layoutCount;
+        }
+
+        /**
+         * @return The owner name as stored
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Edits between the typed name and the closest form of this one
+         */
+        public int getDistance() {
+            return distance;
+        }
+
+        /**
+         * @return Whether a form of this name sounds like the typed name
+         */
+        public boolean isPhonetic() {
+            return phonetic;
+        }
+
+        /**
+         * @return Number of layouts with this owner name
+         */
+        public int getLayoutCount() {
+            return layoutCount;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.satya.portal.utils;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingUtilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.satya.portal.ConnectionPool;
+import com.satya.portal.DBConnection;
+
+/**
+ * PerformanceMonitor - samples the health of the running application once
+ * per perf.sampleIntervalMillis into a {@link SampleRing} of
+ * perf.historySize samples: heap and GC time (JMX), how long the Event
+ * Dispatch Thread takes to respond, connection pool use, database latency,
+ * layout cache hit rate and map repaint times. The sampler thread reuses
+ * its buffers, so monitoring costs little more than the JMX calls.
+ *
+ * Values that have nothing to measure in an interval (no queries, no
+ * repaints) are NaN.
+ *
+ * Sampling runs only while some view is using it: each {@link #start()} is
+ * paired with a {@link #stop()}, and the sampler thread ends with the last
+ * one. Samples taken before are kept.
+ */
+public final class PerformanceMonitor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PerformanceMonitor.class);
+
+    public static final int HEAP_USED_MB = 0;
+    public static final int HEAP_COMMITTED_MB = 1;
+    /** Milliseconds spent in garbage collection during the interval */
+    public static final int GC_MILLIS = 2;
+    /** Longest wait for the Event Dispatch Thread to run a posted task */
+    public static final int EDT_LAG_MILLIS = 3;
+    /** Borrowed connections as a percentage of the pool's maximum size */
+    public static final int POOL_USAGE_PERCENT = 4;
+    public static final int POOL_WAITERS = 5;
+    public static final int QUERY_P50_MILLIS = 6;
+    public static final int QUERY_P95_MILLIS = 7;
+    public static final int QUERY_P99_MILLIS = 8;
+    public static final int LAYOUT_CACHE_HIT_PERCENT = 9;
+    public static final int MAP_REPAINT_P95_MILLIS = 10;
+    public static final int MAP_REPAINT_MAX_MILLIS = 11;
+    public static final int SERIES_COUNT = 12;
+
+    private static final long EDT_PROBE_MILLIS = 100;
+    private static final double MB = 1024.0 * 1024.0;
+
+    private static final long SAMPLE_INTERVAL_MILLIS =
+            Math.max(100, AppConfig.getLong("perf.sampleIntervalMillis", 1000));
+    private static final SampleRing SAMPLES =
+            new SampleRing(Math.max(10, AppConfig.getInt("perf.historySize", 600)), SERIES_COUNT);
+    private static final LatencyHistogram MAP_REPAINTS = new LatencyHistogram();
+
+    // Posting time of the EDT probe still waiting to run, 0 if none
+    private static final AtomicLong probePostedAt = new AtomicLong();
+    private static final AtomicLong maxProbeLagNanos = new AtomicLong();
+    private static final Runnable EDT_PROBE = () -> {
+        long postedAt = probePostedAt.getAndSet(0);
+        if (postedAt != 0) {
+            maxProbeLagNanos.accumulateAndGet(System.nanoTime() - postedAt, Math::max);
+        }
+    };
+
+    private static ScheduledExecutorService sampler;
+    private static int users;
+
+    private PerformanceMonitor() {
+        // Utility class
+    }
+
+    /**
+     * Start sampling, unless it has already started, for one more user
+     */
+    public static synchronized void start() {
+        users++;
+        if (sampler != null) {
+            return;
+        }
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "satya-performance-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(PerformanceMonitor::probeEventDispatchThread,
+                EDT_PROBE_MILLIS, EDT_PROBE_MILLIS, TimeUnit.MILLISECONDS);
+        sampler.scheduleAtFixedRate(new Sampler(),
+                SAMPLE_INTERVAL_MILLIS, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Release one {@link #start()}; sampling stops once every user has
+     */
+    public static synchronized void stop() {
+        if (users == 0) {
+            return;
+        }
+        users--;
+        if (users == 0 && sampler != null) {
+            sampler.shutdownNow();
+            sampler = null;
+            probePostedAt.set(0);
+        }
+    }
+
+    /**
+     * @return true while sampling
+     */
+    public static synchronized boolean isRunning() {
+        return sampler != null;
+    }
+
+    /**
+     * @return Samples taken so far, indexed by the series constants of this class
+     */
+    public static SampleRing getSamples() {
+        return SAMPLES;
+    }
+
+    /**
+     * @return Time between samples, in milliseconds
+     */
+    public static long getSampleIntervalMillis() {
+        return SAMPLE_INTERVAL_MILLIS;
+    }
+
+    /**
+     * Count one repaint of the map
+     *
+     * @param nanos Time the repaint took
+     */
+    public static void recordMapRepaint(long nanos) {
+        MAP_REPAINTS.record(nanos);
+    }
+
+    private static void probeEventDispatchThread() {
+        // One probe at a time; a stuck EDT is measured from the pending one
+        if (probePostedAt.compareAndSet(0, System.nanoTime())) {
+            SwingUtilities.invokeLater(EDT_PROBE);
+        }
+    }
+
+    /**
+     * Takes the samples; runs only on the sampler thread
+     */
+    private static final class Sampler implements Runnable {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        private final LatencyHistogram.Interval queries = QueryMetrics.interval();
+        private final LatencyHistogram.Interval mapRepaints = MAP_REPAINTS.interval();
+        private final double[] sample = new double[SERIES_COUNT];
+        private long previousGcMillis = gcMillis();
+        private long previousCacheHits;
+        private long previousCacheLookups;
+
+        @Override
+        public void run() {
+            try {
+                sampleJvm();
+                sampleDatabase();
+                sampleCache();
+                if (mapRepaints.advance() > 0) {
+                    sample[MAP_REPAINT_P95_MILLIS] = mapRepaints.getPercentileMillis(95);
+                    sample[MAP_REPAINT_MAX_MILLIS] = mapRepaints.getMaxMillis();
+                } else {
+                    sample[MAP_REPAINT_P95_MILLIS] = Double.NaN;
+                    sample[MAP_REPAINT_MAX_MILLIS] = Double.NaN;
+                }
+                SAMPLES.add(System.currentTimeMillis(), sample);
+            } catch (RuntimeException e) {
+                // An exception would cancel the schedule
+                LOGGER.warn("Could not take a performance sample", e);
+            }
+        }
+
+        private void sampleJvm() {
+            MemoryUsage heap = memory.getHeapMemoryUsage();
+            sample[HEAP_USED_MB] = heap.getUsed() / MB;
+            sample[HEAP_COMMITTED_MB] = heap.getCommitted() / MB;
+            long gc = gcMillis();
+            sample[GC_MILLIS] = gc - previousGcMillis;
+            previousGcMillis = gc;
+
+            long lag = maxProbeLagNanos.getAndSet(0);
+            long pending = probePostedAt.get();
+            if (pending != 0) {
+                lag = Math.max(lag, System.nanoTime() - pending);
+            }
+            sample[EDT_LAG_MILLIS] = lag / 1_000_000.0;
+        }
+
+        private long gcMillis() {
+            long total = 0;
+            for (GarbageCollectorMXBean collector : collectors) {
+                // -1 when the collector does not report it
+                total += Math.max(0, collector.getCollectionTime());
+            }
+            return total;
+        }
+
+        private void sampleDatabase() {
+            try {
+                ConnectionPool.PoolStatistics pool = DBConnection.getPoolStatistics();
+                sample[POOL_USAGE_PERCENT] = pool.getMaxSize() > 0 ? 100.0 * pool.getActive() / pool.getMaxSize() : 0;
+                sample[POOL_WAITERS] = pool.getWaiters();
+            } catch (SQLException | RuntimeException e) {
+                sample[POOL_USAGE_PERCENT] = Double.NaN;
+                sample[POOL_WAITERS] = Double.NaN;
+            }
+            if (queries.advance() > 0) {
+                sample[QUERY_P50_MILLIS] = queries.getPercentileMillis(50);
+                sample[QUERY_P95_MILLIS] = queries.getPercentileMillis(95);
+                sample[QUERY_P99_MILLIS] = queries.getPercentileMillis(99);
+            } else {
+                sample[QUERY_P50_MILLIS] = Double.NaN;
+                sample[QUERY_P95_MILLIS] = Double.NaN;
+                sample[QUERY_P99_MILLIS] = Double.NaN;
+            }
+        }
+
+        private void sampleCache() {
+            LayoutCache.CacheStatistics cache = DataManager.getInstance().getLayoutCacheStatistics();
+            long hits = cache.getHits();
+            long lookups = hits + cache.getMisses();
+            long intervalLookups = lookups - previousCacheLookups;
+            sample[LAYOUT_CACHE_HIT_PERCENT] = intervalLookups > 0
+                    ? 100.0 * (hits - previousCacheHits) / intervalLookups : Double.NaN;
+            previousCacheHits = hits;
+            previousCacheLookups = lookups;
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package com.satya.portal.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * QueryMetrics - latency, row and error counts of every database
+ * operation, plus a log of the slow ones. DatabaseManager times each of
+ * its methods and DBConnection each connection it hands out:
+ * <pre>
+ * QueryMetrics.Sample sample = QueryMetrics.start("getAllLayouts");
+ * try (...) {
+ *     ...
+ *     sample.rows(layouts.size());
+ * } catch (SQLException e) {
+ *     sample.failed();
+ * } finally {
+ *     sample.end();
+ * }
+ * </pre>
+ * Statements prepared meanwhile on the same thread are attached to the
+ * sample, so a slow operation is logged with its SQL. Only the SQL text is
+ * kept: bound values are never seen, and literals in the text are replaced
+ * with '?'. While db.metrics.enabled is false, start() returns a shared
+ * sample that records nothing.
+ */
+public final class QueryMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryMetrics.class);
+
+    private static final int MAX_SQL_LENGTH = 2000;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final Sample DISABLED = new Sample(null, null);
+
+    private static volatile boolean enabled = AppConfig.getBoolean("db.metrics.enabled", true);
+    private static volatile long slowQueryNanos =
+            TimeUnit.MILLISECONDS.toNanos(AppConfig.getLong("db.metrics.slowQueryMillis", 500));
+    private static final int SLOW_QUERY_LOG_SIZE = Math.max(0, AppConfig.getInt("db.metrics.slowQueryLogSize", 200));
+
+    private static final ConcurrentHashMap<String, Operation> OPERATIONS = new ConcurrentHashMap<>();
+    // Operations not nested in another one, e.g. getConnection is part of its caller
+    private static final LatencyHistogram TOP_LEVEL = new LatencyHistogram();
+    private static final ThreadLocal<Sample> CURRENT = new ThreadLocal<>();
+    // Most recent slow queries, oldest first; guarded by itself
+    private static final ArrayDeque<SlowQuery> SLOW_QUERIES = new ArrayDeque<>();
+
+    private QueryMetrics() {
+        // Utility class
+    }
+
+    /**
+     * @return true if operations are being measured
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start or stop measuring. Figures recorded so far are kept.
+     *
+     * @param enabled true to measure operations
+     */
+    public static void setEnabled(boolean enabled) {
+        QueryMetrics.enabled = enabled;
+    }
+
+    /**
+     * @return Duration from which an operation is logged as slow, in milliseconds
+     */
+    public static long getSlowQueryMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+    }
+
+    /**
+     * @param millis Duration from which an operation is logged as slow; 0 or less logs none
+     */
+    public static void setSlowQueryMillis(long millis) {
+        slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Start timing an operation on the current thread
+     *
+     * @param operation Name of the operation, e.g. the method name
+     * @return The sample to end once the operation is over
+     */
+    public static Sample start(String operation) {
+        if (!enabled) {
+            return DISABLED;
+        }
+        Operation measured = OPERATIONS.get(operation);
+        if (measured == null) {
+            measured = OPERATIONS.computeIfAbsent(operation, Operation::new);
+        }
+        Sample sample = new Sample(measured, CURRENT.get());
+        CURRENT.set(sample);
+        return sample;
+    }
+
+    /**
+     * Attach a statement to the operation running on the current thread.
+     * Called by the connection pool for every statement prepared.
+     *
+     * @param sql The statement's SQL
+     */
+    public static void statement(String sql) {
+        if (!enabled) {
+            return;
+        }
+        Sample sample = CURRENT.get();
+        if (sample != null) {
+            sample.statement(sql);
+        }
+    }
+
+    /**
+     * @return Figures of every operation measured since the last reset, by name
+     */
+    public static List<OperationStatistics> getStatistics() {
+        List<OperationStatistics> statistics = new ArrayList<>();
+        for (Operation operation : OPERATIONS.values()) {
+            statistics.add(operation.statistics());
+        }
+        statistics.sort(Comparator.comparing(OperationStatistics::getName));
+        return statistics;
+    }
+
+    /**
+     * @param operation Name of the operation
+     * @return Its figures, or null if it has not been measured
+     */
+    public static OperationStatistics getStatistics(String operation) {
+        Operation measured = OPERATIONS.get(operation);
+        return measured != null ? measured.statistics() : null;
+    }
+
+    /**
+     * @return The most recent slow operations, newest first
+     */
+    public static List<SlowQuery> getSlowQueries() {
+        synchronized (SLOW_QUERIES) {
+            List<SlowQuery> queries = new ArrayList<>(SLOW_QUERIES);
+            Collections.reverse(queries);
+            return queries;
+        }
+    }
+
+    /**
+     * Follow the latency of top-level operations from one interval to the
+     * next, e.g. for a live chart
+     *
+     * @return An interval starting now
+     */
+    public static LatencyHistogram.Interval interval() {
+        return TOP_LEVEL.interval();
+    }
+
+    /**
+     * Forget every figure and slow query recorded so far
+     */
+    public static void reset() {
+        for (Operation operation : OPERATIONS.values()) {
+            operation.reset();
+        }
+        TOP_LEVEL.reset();
+        synchronized (SLOW_QUERIES) {
+            SLOW_QUERIES.clear();
+        }
+    }
+
+    /**
+     * Write the figures of every operation and the slow query log to a CSV file
+     *
+     * @param file The file to write; replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public static void exportCsv(File file) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            out.println("operation,calls,errors,rows,mean_ms,p50_ms,p95_ms,p99_ms,max_ms");
+            for (OperationStatistics operation : getStatistics()) {
+                out.println(csv(operation.getName()) + "," + operation.getCalls() + "," + operation.getErrors() + ","
+                        + operation.getRows() + "," + millis(operation.getMeanMillis()) + ","
+                        + millis(operation.getP50Millis()) + "," + millis(operation.getP95Millis()) + ","
+                        + millis(operation.getP99Millis()) + "," + millis(operation.getMaxMillis()));
+            }
+            out.println();
+            out.println("time,operation,duration_ms,rows,failed,statements,sql");
+            for (SlowQuery query : getSlowQueries()) {
+                out.println(TIME_FORMAT.format(query.getTime()) + "," + csv(query.getOperation()) + ","
+                        + millis(query.getDurationMillis()) + "," + query.getRows() + "," + query.isFailed() + ","
+                        + query.getStatements() + "," + csv(query.getSql()));
+            }
+        }
+    }
+
+    private static String millis(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /**
+     * Replace the string literals of a statement with '?' and shorten it,
+     * so the log never holds data from the tables
+     *
+     * @param sql The statement
+     * @return The statement without literals
+     */
+    static String redact(String sql) {
+        StringBuilder redacted = new StringBuilder(Math.min(sql.length(), MAX_SQL_LENGTH));
+        boolean quoted = false;
+        for (int i = 0; i < sql.length() && redacted.length() < MAX_SQL_LENGTH; i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                if (quoted && i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i++; // Escaped quote inside the literal
+                } else {
+                    quoted = !quoted;
+                    if (quoted) {
+                        redacted.append('?');
+                    }
+                }
+            } else if (!quoted) {
+                redacted.append(c);
+            }
+        }
+        if (redacted.length() >= MAX_SQL_LENGTH) {
+            redacted.append("...");
+        }
+        return redacted.toString();
+    }
+
+    private static void logSlowQuery(SlowQuery query) {
+        if (LOGGER.isWarnEnabled()) {
+            LOGGER.warn(String.format(Locale.ROOT, "Slow database operation %s: %.1f ms, %d rows%s, %d statements: %s",
+                    query.getOperation(), query.getDurationMillis(), query.getRows(),
+                    query.isFailed() ? ", failed" : "", query.getStatements(),
+                    query.getSql() != null ? query.getSql() : "(no prepared statement)"));
+        }
+        if (SLOW_QUERY_LOG_SIZE == 0) {
+            return;
+        }
+        synchronized (SLOW_QUERIES) {
+            if (SLOW_QUERIES.size() == SLOW_QUERY_LOG_SIZE) {
+                SLOW_QUERIES.removeFirst();
+            }
+            SLOW_QUERIES.addLast(query);
+        }
+    }
+
+    /**
+     * Counters of one operation
+     */
+    private static final class Operation {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, long sampleRows, boolean failed) {
+            latency.record(nanos);
+            rows.add(sampleRows);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        void reset() {
+            latency.reset();
+            errors.reset();
+            rows.reset();
+        }
+
+        OperationStatistics statistics() {
+            return new OperationStatistics(name, latency.snapshot(), errors.sum(), rows.sum());
+        }
+    }
+
+    /**
+     * One run of an operation. Used only by the thread that started it.
+     */
+    public static final class Sample {
+        private final Operation operation;
+        private final Sample parent;
+        private final long startNanos;
+        private long rows;
+        private boolean failed;
+        private boolean ended;
+        private String sql;
+        private int statements;
+
+        private Sample(Operation operation, Sample parent) {
+            this.operation = operation;
+            this.parent = parent;
+            this.startNanos = operation != null ? System.nanoTime() : 0;
+        }
+
+        /**
+         * Count rows read or written by the operation
+         *
+         * @param count Number of rows
+         */
+        public void rows(long count) {
+            rows += count;
+        }
+
+        /**
+         * Count the operation as failed
+         */
+        public void failed() {
+            failed = true;
+        }
+
+        private void statement(String statementSql) {
+            if (sql == null) {
+                // The first statement is usually the one that matters
+                sql = statementSql;
+            }
+            statements++;
+        }
+
+        /**
+         * Record the operation. Later calls do nothing.
+         */
+        public void end() {
+            if (operation == null || ended) {
+                return;
+            }
+            ended = true;
+            long nanos = System.nanoTime() - startNanos;
+            operation.record(nanos, rows, failed);
+            if (parent != null) {
+                CURRENT.set(parent);
+            } else {
+                CURRENT.remove();
+                TOP_LEVEL.record(nanos);
+            }
+            long threshold = slowQueryNanos;
+            if (threshold > 0 && nanos >= threshold) {
+                logSlowQuery(new SlowQuery(LocalDateTime.now(), operation.name, nanos / 1_000_000.0, rows, failed,
+                        statements, sql != null ? redact(sql) : null));
+            }
+        }
+    }
+
+    /**
+     * Figures of one operation since the last reset
+     */
+    public static final class OperationStatistics {
+        private final String name;
+        private final long calls;
+        private final long errors;
+        private final long rows;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p95Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        OperationStatistics(String name, LatencyHistogram.Snapshot latency, long errors, long rows) {
+            this.name = name;
+            this.calls = latency.getCount();
+            this.errors = errors;
+            this.rows = rows;
+            this.meanMillis = latency.getMeanMillis();
+            this.p50Millis = latency.getPercentileMillis(50);
+            this.p95Millis = latency.getPercentileMillis(95);
+            this.p99Millis = latency.getPercentileMillis(99);
+            this.maxMillis = latency.getMaxMillis();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP95Millis() {
+            return p95Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: calls=%d, errors=%d, rows=%d, p50=%.2fms, p99=%.2fms, max=%.2fms",
+                    name, calls, errors, rows, p50Millis, p99Millis, maxMillis);
+        }
+    }
+
+    /**
+     * An operation that took at least db.metrics.slowQueryMillis
+     */
+    public static final class SlowQuery {
+        private final LocalDateTime time;
+        private final String operation;
+        private final double durationMillis;
+        private final long rows;
+        private final boolean failed;
+        private final int statements;
+        private final String sql;
+
+        SlowQuery(LocalDateTime time, String operation, double durationMillis, long rows, boolean failed,
+                  int statements, String sql) {
+            this.time = time;
+            this.operation = operation;
+            this.durationMillis = durationMillis;
+            this.rows = rows;
+            this.failed = failed;
+            this.statements = statements;
+            this.sql = sql;
+        }
+
+        /**
+         * @return When the operation ended
+         */
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public double getDurationMillis() {
+            return durationMillis;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+
+        /**
+         * @return Number of statements prepared by the operation
+         */
+        public int getStatements() {
+            return statements;
+        }
+
+        /**
+         * @return The first statement prepared, without literals, or null if none was
+         */
+        public String getSql() {
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.satya.portal.utils;
+
+/**
+ * SampleRing - fixed-size history of periodic samples, each a time and one
+ * value per series. Once full, every new sample replaces the oldest. All
+ * storage is allocated up front, so keeping the history does not allocate.
+ *
+ * Samples are addressed by sequence number: the first sample ever added is
+ * 0, and the ring holds the sequence numbers from getWritten() - size() to
+ * getWritten() - 1.
+ */
+public final class SampleRing {
+    private final long[] times;
+    // [series][slot]
+    private final double[][] values;
+    private long written;
+
+    /**
+     * @param capacity Number of samples kept
+     * @param seriesCount Number of values in each sample
+     */
+    public SampleRing(int capacity, int seriesCount) {
+        if (capacity <= 0 || seriesCount <= 0) {
+            throw new IllegalArgumentException("capacity and seriesCount must be positive");
+        }
+        this.times = new long[capacity];
+        this.values = new double[seriesCount][capacity];
+    }
+
+    /**
+     * Append a sample, replacing the oldest when the ring is full
+     *
+     * @param timeMillis Time of the sample, in milliseconds since the epoch
+     * @param sample One value per series; copied, so the caller may reuse it
+     */
+    public synchronized void add(long timeMillis, double[] sample) {
+        int slot = (int) (written % times.length);
+        times[slot] = timeMillis;
+        for (int series = 0; series < values.length; series++) {
+            values[series][slot] = sample[series];
+        }
+        written++;
+    }
+
+    /**
+     * @return Number of samples kept at most
+     */
+    public int getCapacity() {
+        return times.length;
+    }
+
+    /**
+     * @return Number of values in each sample
+     */
+    public int getSeriesCount() {
+        return values.length;
+    }
+
+    /**
+     * @return Sequence number the next sample will get
+     */
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    /**
+     * @return Number of samples held
+     */
+    public synchronized int size() {
+        return (int) Math.min(written, times.length);
+    }
+
+    /**
+     * @param sequence Sequence number of a sample still held
+     * @return Its time, in milliseconds since the epoch
+     */
+    public synchronized long getTime(long sequence) {
+        return times[(int) (sequence % times.length)];
+    }
+
+    /**
+     * @param series Index of the series
+     * @param sequence Sequence number of a sample still held
+     * @return Its value in the series
+     */
+    public synchronized double getValue(int series, long sequence) {
+        return values[series][(int) (sequence % times.length)];
+    }
+
+    /**
+     * @param series Index of the series
+     * @return Value of the newest sample, NaN if there is none
+     */
+    public synchronized double getLatest(int series) {
+        return written == 0 ? Double.NaN : values[series][(int) ((written - 1) % times.length)];
+    }
+}
@@ -0,0 +1,112 @@
+package com.satya.portal.utils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * StatisticsCache - keeps the dashboard counters in memory so the admin
+ * dashboard does not query the database on every load. Writes adjust the
+ * counters in place when their effect is known exactly and invalidate them
+ * otherwise; counters older than the staleness bound are reloaded.
+ */
+public class StatisticsCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatisticsCache.class);
+
+    public static final String TOTAL_LAYOUTS = "totalLayouts";
+    public static final String APPROVED_LAYOUTS = "approvedLayouts";
+    public static final String PENDING_LAYOUTS = "pendingLayouts";
+    public static final String REJECTED_LAYOUTS = "rejectedLayouts";
+    public static final String ACTIVE_CASES = "activeCases";
+    public static final String TOTAL_USERS = "totalUsers";
+
+    private final Callable<Map<String, Integer>> loader;
+    private final long maxAgeMillis;
+
+    private Map<String, Integer> counters; // null until loaded or after invalidation
+    private long loadedAt;
+    private long modifications;
+
+    /**
+     * @param loader Reads every counter from the database
+     * @param maxAgeMillis How long loaded counters may be served before they are reloaded
+     */
+    public StatisticsCache(Callable<Map<String, Integer>> loader, long maxAgeMillis) {
+        this.loader = loader;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Get the dashboard counters, loading them if missing or stale
+     *
+     * @return Map of counter name to value; empty if they could not be loaded
+     */
+    public Map<String, Object> get() {
+        long seenModifications;
+        synchronized (this) {
+            if (counters != null && System.currentTimeMillis() - loadedAt <= maxAgeMillis) {
+                return new HashMap<>(counters);
+            }
+            seenModifications = modifications;
+        }
+
+        Map<String, Integer> loaded;
+        try {
+            loaded = loader.call();
+        } catch (Exception e) {
+            LOGGER.error("Error loading dashboard statistics", e);
+            synchronized (this) {
+                // Serve the last known values rather than nothing
+                return counters != null ? new HashMap<>(counters) : Collections.<String, Object>emptyMap();
+            }
+        }
+
+        synchronized (this) {
+            counters = new HashMap<>(loaded);
+            // A write that landed during the load may or may not be counted, so reload next time
+            loadedAt = seenModifications == modifications ? System.currentTimeMillis() : 0;
+        }
+        return new HashMap<>(loaded);
+    }
+
+    /**
+     * Apply a known change to one counter
+     *
+     * @param key Counter name
+     * @param delta Amount to add (negative to subtract)
+     */
+    public synchronized void adjust(String key, int delta) {
+        modifications++;
+        if (counters != null && key != null) {
+            counters.merge(key, delta, Integer::sum);
+        }
+    }
+
+    /**
+     * Drop the counters so the next read reloads them. Used when the effect
+     * of a write cannot be computed without reading the old row.
+     */
+    public synchronized void invalidate() {
+        modifications++;
+        counters = null;
+    }
+
+    /**
+     * @param status Layout status
+     * @return The status counter a layout with this status is counted in, or null
+     */
+    public static String layoutStatusKey(String status) {
+        if ("Approved".equals(status)) {
+            return APPROVED_LAYOUTS;
+        } else if ("Pending".equals(status) || "Under Review".equals(status)) {
+            return PENDING_LAYOUTS;
+        } else if ("Rejected".equals(status)) {
+            return REJECTED_LAYOUTS;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,698 @@
+package com.satya.portal.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.satya.portal.models.Layout;
+/**
+ * SuggestionIndex - completions for the search boxes, taken from the
+ * distinct layout names, file numbers, survey numbers and owners. A value
+ * completes from its start or from the start of any later word, so "nag"
+ * offers "Sri Rama Nagar" and "001" offers "SATYA/2024/001".
+ * <p>
+ * Word starts are kept in one sorted array, and a lookup finds the
+ * completions of a prefix with a binary search, so it costs about the same
+ * for a hundred layouts as for a million. Values added since the array was
+ * built are kept in a small sorted map searched alongside it, and values
+ * no layout uses any more are skipped. Once either grows too large, the
+ * array is rebuilt in the background while lookups and writes carry on.
+ * All methods are thread-safe.
+ */
+public class SuggestionIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SuggestionIndex.class);
+
+    /** Kinds of values offered as suggestions */
+    public enum Kind {
+        LAYOUT_NAME("Layout"),
+        FILE_NUMBER("File No."),
+        SURVEY_NUMBER("Survey No."),
+        OWNER("Owner");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return Name of the kind as shown next to a suggestion
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // Entries of the sorted array pack a value number above the offset of
+    // the word start within the value
+    private static final int OFFSET_BITS = 16;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    // Word starts kept outside the sorted array before it is rebuilt,
+    // unless a sixteenth of the array is more
+    private static final int MIN_REBUILD = 1024;
+    // Short prefixes rank only this many completions, taken in sort order,
+    // and stop looking after this many values of other kinds
+    private static final int MAX_RANKED = 2000;
+    private static final int MAX_SCANNED = 20000;
+    private static final Comparator<Match> BEST_FIRST = new Comparator<Match>() {
+        @Override
+        public int compare(Match a, Match b) {
+            if (a.whole != b.whole) {
+                return a.whole ? -1 : 1;
+            }
+            if (a.term.layouts != b.term.layouts) {
+                return Integer.compare(b.term.layouts, a.term.layouts);
+            }
+            if (a.term.key.length() != b.term.key.length()) {
+                return Integer.compare(a.term.key.length(), b.term.key.length());
+            }
+            return a.term.text.compareTo(b.term.text);
+        }
+    };
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Values of each kind by normalized text, and the values of each layout
+    private final List<Map<String, Term>> terms = new ArrayList<>();
+    private final Map<String, Term[]> layoutTerms = new HashMap<>();
+    private Term[] sortedTerms = new Term[0];
+    private long[] sorted = new long[0];
+    // Values in the sorted array that no layout uses any more
+    private int unusedSorted;
+    // Word starts of values added since the array was built, by the text
+    // from the word start on and a serial number that keeps keys unique
+    private final TreeMap<String, Term> recent = new TreeMap<>();
+    private int serial;
+    private boolean rebuilding;
+    private boolean rebuildAgain;
+
+    public SuggestionIndex() {
+        for (int k = 0; k < Kind.values().length; k++) {
+            terms.add(new HashMap<String, Term>());
+        }
+    }
+
+    /**
+     * Add a layout's values, or replace the values of a layout added before.
+     * They are offered as soon as this returns.
+     *
+     * @param layout The layout
+     */
+    public void put(Layout layout) {
+        lock.writeLock().lock();
+        try {
+            if (!add(layout, true)) {
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuildIfNeeded();
+    }
+
+    /**
+     * Add or replace many layouts, rebuilding the sorted array once
+     *
+     * @param layouts The layouts
+     */
+    public void putAll(Collection<Layout> layouts) {
+        lock.writeLock().lock();
+        try {
+            for (Layout layout : layouts) {
+                add(layout, false);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuild();
+    }
+
+    /**
+     * Add a layout's values without offering them until the next
+     * {@link #rebuild()}; used to fill the index from a scan
+     *
+     * @param layout The layout
+     */
+    void load(Layout layout) {
+        lock.writeLock().lock();
+        try {
+            add(layout, false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a layout's values, unless other layouts use them too
+     *
+     * @param fileNumber File number of the layout
+     */
+    public void remove(String fileNumber) {
+        lock.writeLock().lock();
+        try {
+            Term[] previous = layoutTerms.remove(fileNumber);
+            if (previous == null) {
+                return;
+            }
+            release(previous);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuildIfNeeded();
+    }
+
+    /**
+     * Remove every value
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (Map<String, Term> kindTerms : terms) {
+                kindTerms.clear();
+            }
+            layoutTerms.clear();
+            recent.clear();
+            sortedTerms = new Term[0];
+            sorted = new long[0];
+            unusedSorted = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of distinct values
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            int size = 0;
+            for (Map<String, Term> kindTerms : terms) {
+                size += kindTerms.size();
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the values that complete what has been typed so far. Values
+     * starting with the prefix come before ones with a later word starting
+     * with it; among those, values used by more layouts come first.
+     *
+     * @param prefix Text typed so far
+     * @param kinds Kinds of values to offer
+     * @param limit Most suggestions to return
+     * @return The suggestions, best first
+     */
+    public List<Suggestion> suggest(String prefix, Set<Kind> kinds, int limit) {
+        String typed = collapse(LayoutTextIndex.normalize(prefix), true);
+        if (typed == null || typed.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Term, Boolean> seen = new IdentityHashMap<>();
+            int start = lowerBound(typed);
+            int end = (int) Math.min(sorted.length, (long) start + MAX_SCANNED);
+            for (int i = start; i < end && matches.size() < MAX_RANKED; i++) {
+                Term term = sortedTerms[(int) (sorted[i] >>> OFFSET_BITS)];
+                int offset = (int) (sorted[i] & OFFSET_MASK);
+                if (!term.key.startsWith(typed, offset)) {
+                    break;
+                }
+                collect(term, offset == 0, kinds, seen, matches);
+            }
+            int scanned = 0;
+            for (Map.Entry<String, Term> entry : recent.tailMap(typed).entrySet()) {
+                if (!entry.getKey().startsWith(typed) || matches.size() >= 2 * MAX_RANKED || scanned++ >= MAX_SCANNED) {
+                    break;
+                }
+                Term term = entry.getValue();
+                boolean whole = entry.getKey().length() == term.key.length() + keySuffix(term).length();
+                collect(term, whole, kinds, seen, matches);
+            }
+            Collections.sort(matches, BEST_FIRST);
+            List<Suggestion> suggestions = new ArrayList<>(Math.min(limit, matches.size()));
+            for (int i = 0; i < matches.size() && suggestions.size() < limit; i++) {
+                Term term = matches.get(i).term;
+                suggestions.add(new Suggestion(term.kind, term.text, term.layouts));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void collect(Term term, boolean whole, Set<Kind> kinds, Map<Term, Boolean> seen, List<Match> matches) {
+        if (term.layouts == 0 || !kinds.contains(term.kind)) {
+            return;
+        }
+        Boolean wasWhole = seen.get(term);
+        if (wasWhole == null) {
+            seen.put(term, whole);
+            matches.add(new Match(term, whole));
+        } else if (whole && !wasWhole) {
+            seen.put(term, true);
+            for (Match match : matches) {
+                if (match.term == term) {
+                    match.whole = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuild the sorted array from every value in use. Lookups keep using
+     * the old array and the recent values until the new one is in place.
+     * If a rebuild is already running, it runs once more instead.
+     */
+    void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                // Have the running rebuild go again for values loaded since
+                // it took its copy
+                rebuildAgain = true;
+                return;
+            }
+            rebuilding = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        boolean again = true;
+        while (again) {
+            again = rebuildOnce();
+        }
+    }
+
+    /**
+     * @return Whether another rebuild was asked for meanwhile
+     */
+    private boolean rebuildOnce() {
+        Term[] live;
+        lock.writeLock().lock();
+        try {
+            rebuildAgain = false;
+            List<Term> all = new ArrayList<>();
+            for (Map<String, Term> kindTerms : terms) {
+                all.addAll(kindTerms.values());
+            }
+            live = all.toArray(new Term[all.size()]);
+            for (Term term : live) {
+                term.sorted = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long[] entries = null;
+        try {
+            entries = wordStarts(live);
+            sort(entries, live);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (entries != null) {
+                    sortedTerms = live;
+                    sorted = entries;
+                    unusedSorted = 0;
+                    for (Term term : live) {
+                        if (term.layouts == 0) {
+                            unusedSorted++;
+                        }
+                    }
+                    recent.values().removeIf(term -> term.sorted);
+                }
+                rebuilding = entries != null && rebuildAgain;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return rebuilding;
+    }
+
+    /**
+     * Start a rebuild in the background once values added since the last
+     * one or values no longer used have piled up, so writers never wait
+     * for one
+     */
+    private void rebuildIfNeeded() {
+        lock.writeLock().lock();
+        try {
+            if (rebuilding || (recent.size() <= Math.max(MIN_REBUILD, sorted.length / 16)
+                    && unusedSorted <= Math.max(MIN_REBUILD, sortedTerms.length / 2))) {
+                return;
+            }
+            rebuilding = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        BackgroundTasks.supply(() -> {
+            boolean again = true;
+            while (again) {
+                again = rebuildOnce();
+            }
+            return null;
+        }).whenComplete((result, error) -> {
+            if (error != null) {
+                LOGGER.warn("Could not rebuild search suggestions", error);
+            }
+        });
+    }
+
+    /**
+     * Record a layout's values. Must hold the write lock.
+     *
+     * @param offer Whether to offer new values before the next rebuild
+     * @return Whether anything changed
+     */
+    private boolean add(Layout layout, boolean offer) {
+        String fileNumber = layout.getFileNumber();
+        if (fileNumber == null) {
+            return false;
+        }
+        String[] values = new String[Kind.values().length];
+        values[Kind.LAYOUT_NAME.ordinal()] = layout.getLayoutName();
+        values[Kind.FILE_NUMBER.ordinal()] = fileNumber;
+        values[Kind.SURVEY_NUMBER.ordinal()] = layout.getSurveyNumber();
+        values[Kind.OWNER.ordinal()] = layout.getOwnerName();
+
+        Term[] previous = layoutTerms.get(fileNumber);
+        Term[] current = new Term[values.length];
+        boolean changed = previous == null;
+        for (Kind kind : Kind.values()) {
+            int k = kind.ordinal();
+            String text = values[k] != null ? values[k].trim() : null;
+            String key = collapse(LayoutTextIndex.normalize(text), false);
+            if (key == null || key.isEmpty()) {
+                changed |= previous != null && previous[k] != null;
+                continue;
+            }
+            if (previous != null && previous[k] != null && previous[k].key.equals(key)) {
+                current[k] = previous[k];
+                current[k].layouts++;
+                continue;
+            }
+            changed = true;
+            current[k] = acquire(kind, text, key, offer);
+        }
+        layoutTerms.put(fileNumber, current);
+        if (previous != null) {
+            release(previous);
+        }
+        return changed;
+    }
+
+    private Term acquire(Kind kind, String text, String key, boolean offer) {
+        Map<String, Term> kindTerms = terms.get(kind.ordinal());
+        Term term = kindTerms.get(key);
+        if (term == null) {
+            // Most names are entered the way they normalize, so share the string
+            term = new Term(kind, text.equals(key) ? key : text, key, serial++);
+            kindTerms.put(key, term);
+            if (offer) {
+                int[] starts = wordStartOffsets(key);
+                for (int start : starts) {
+                    recent.put(key.substring(start) + keySuffix(term), term);
+                }
+            }
+        }
+        term.layouts++;
+        return term;
+    }
+
+    private void release(Term[] values) {
+        for (Term term : values) {
+            if (term == null || --term.layouts > 0) {
+                continue;
+            }
+            terms.get(term.kind.ordinal()).remove(term.key);
+            if (term.sorted) {
+                unusedSorted++;
+            } else {
+                for (int start : wordStartOffsets(term.key)) {
+                    recent.remove(term.key.substring(start) + keySuffix(term));
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps keys of equal text from different values apart in the map of
+     * recent values; sorts below every character a value can contain
+     */
+    private static String keySuffix(Term term) {
+        return "\u0000" + term.serial;
+    }
+
+    /**
+     * Find the first entry of the sorted array not below the prefix
+     */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            Term term = sortedTerms[(int) (sorted[middle] >>> OFFSET_BITS)];
+            if (compare(term.key, (int) (sorted[middle] & OFFSET_MASK), prefix, 0) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long[] wordStarts(Term[] live) {
+        int count = 0;
+        int[][] starts = new int[live.length][];
+        for (int i = 0; i < live.length; i++) {
+            starts[i] = wordStartOffsets(live[i].key);
+            count += starts[i].length;
+        }
+        long[] entries = new long[count];
+        int e = 0;
+        for (int i = 0; i < live.length; i++) {
+            for (int start : starts[i]) {
+                entries[e++] = ((long) i << OFFSET_BITS) | start;
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Get the offsets where a value can be completed from: its start and
+     * the start of every later word
+     */
+    private static int[] wordStartOffsets(String key) {
+        int[] starts = new int[4];
+        int count = 0;
+        int limit = (int) Math.min(key.length(), OFFSET_MASK + 1);
+        for (int i = 0; i < limit; i++) {
+            boolean start = i == 0 || (LayoutTextIndex.isWordChar(key.charAt(i))
+                    && !LayoutTextIndex.isWordChar(key.charAt(i - 1)));
+            if (start) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i;
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Sort the entries by the text from their word start on, with a
+     * multikey quicksort: entries are partitioned one character at a time,
+     * so the long prefixes values share, like "SATYA/2024/", are compared
+     * once per partition rather than once per comparison
+     */
+    private static void sort(long[] entries, Term[] live) {
+        sort(entries, 0, entries.length, 0, live, new Random(entries.length));
+    }
+
+    private static void sort(long[] entries, int low, int high, int depth, Term[] live, Random random) {
+        while (high - low > 16) {
+            int pivot = charAt(entries[low + random.nextInt(high - low)], depth, live);
+            // Entries below the pivot character go to [low, lt), equal ones
+            // to [lt, gt) and greater ones to [gt, high)
+            int lt = low;
+            int gt = high;
+            int i = low;
+            while (i < gt) {
+                int c = charAt(entries[i], depth, live);
+                if (c < pivot) {
+                    swap(entries, lt++, i++);
+                } else if (c > pivot) {
+                    swap(entries, i, --gt);
+                } else {
+                    i++;
+                }
+            }
+            sort(entries, low, lt, depth, live, random);
+            sort(entries, gt, high, depth, live, random);
+            if (pivot < 0) {
+                // Equal entries have all ended
+                return;
+            }
+            low = lt;
+            high = gt;
+            depth++;
+        }
+        for (int i = low + 1; i < high; i++) {
+            long entry = entries[i];
+            int j = i - 1;
+            while (j >= low && compare(entries[j], entry, depth, live) > 0) {
+                entries[j + 1] = entries[j];
+                j--;
+            }
+            entries[j + 1] = entry;
+        }
+    }
+
+    private static int charAt(long entry, int depth, Term[] live) {
+        String key = live[(int) (entry >>> OFFSET_BITS)].key;
+        int position = (int) (entry & OFFSET_MASK) + depth;
+        return position < key.length() ? key.charAt(position) : -1;
+    }
+
+    private static void swap(long[] entries, int i, int j) {
+        long entry = entries[i];
+        entries[i] = entries[j];
+        entries[j] = entry;
+    }
+
+    private static int compare(long a, long b, int depth, Term[] live) {
+        return compare(live[(int) (a >>> OFFSET_BITS)].key, (int) (a & OFFSET_MASK) + depth,
+                live[(int) (b >>> OFFSET_BITS)].key, (int) (b & OFFSET_MASK) + depth);
+    }
+
+    private static int compare(String a, int i, String b, int j) {
+        while (i < a.length() && j < b.length()) {
+            char x = a.charAt(i++);
+            char y = b.charAt(j++);
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return (a.length() - i) - (b.length() - j);
+    }
+
+    /**
+     * Turn every run of white space into one space and drop leading white
+     * space, so values and prefixes compare however they were spaced
+     *
+     * @param keepTrailing Whether to keep one trailing space; typing one
+     *        after a word asks for the words that follow it
+     */
+    private static String collapse(String text, boolean keepTrailing) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder collapsed = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || c == '\u0000') {
+                space = collapsed.length() > 0;
+            } else {
+                if (space) {
+                    collapsed.append(' ');
+                    space = false;
+                }
+                collapsed.append(c);
+            }
+        }
+        if (space && keepTrailing) {
+            collapsed.append(' ');
+        }
+        return collapsed.toString();
+    }
+
+    /**
+     * A distinct value and the number of layouts using it
+     */
+    private static final class Term {
+        private final Kind kind;
+        private final String text;
+        private final String key;
+        private final int serial;
+        private int layouts;
+        // Whether the sorted array holds this value
+        private boolean sorted;
+
+        private Term(Kind kind, String text, String key, int serial) {
+            this.kind = kind;
+            this.text = text;
+            this.key = key;
+            this.serial = serial;
+        }
+    }
+
+    private static final class Match {
+        private final Term term;
+        private boolean whole;
+
+        private Match(Term term, boolean whole) {
+            this.term = term;
+            this.whole = whole;
+        }
+    }
+
+    /**
+     * A value offered as a completion
+     */
+    public static final class Suggestion {
+        private final Kind kind;
+        private final String text;
+        private final int layoutCount;
+
+        Suggestion(Kind kind, String text, int layoutCount) {
+            this.kind = kind;
+            this.text = text;
+            this.layoutCount = layoutCount;
+        }
+
+        /**
+         * @return Kind of value
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return The value as first entered
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @return Number of layouts using the value
+         */
+        public int getLayoutCount() {
+            return layoutCount;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.roots.map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Hits, misses, LRU eviction, persistence and offline mode of the disk
+ * tile cache.
+ */
+public class DiskTileCacheTest {
+    private static final int TILE_BYTES = 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private DiskTileCache cache;
+
+    @Before
+    public void openCache() throws IOException {
+        directory = folder.newFolder("tiles");
+        cache = new DiskTileCache(directory, 10 * TILE_BYTES);
+    }
+
+    @After
+    public void closeCache() {
+        cache.close();
+    }
+
+    private static URL tile(int n) throws IOException {
+        return new URL("https://tile.example.org/10/" + n + "/42.png");
+    }
+
+    private static byte[] data(int n) {
+        byte[] data = new byte[TILE_BYTES];
+        Arrays.fill(data, (byte) n);
+        return data;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void missThenHit() throws IOException {
+        assertNull(cache.get(tile(1)));
+        cache.put(tile(1), new ByteArrayInputStream(data(1)));
+        assertTrue(cache.contains(tile(1)));
+        assertArrayEquals(data(1), read(cache.get(tile(1))));
+
+        DiskTileCache.Statistics statistics = cache.getStatistics();
+        assertEquals(1, statistics.getTiles());
+        assertEquals(TILE_BYTES, statistics.getBytes());
+        assertEquals(1, statistics.getHits());
+        assertEquals(1, statistics.getMisses());
+        assertEquals(0.5, statistics.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void containsDoesNotCountAsALookup() throws IOException {
+        cache.contains(tile(1));
+        assertEquals(0, cache.getStatistics().getMisses());
+    }
+
+    @Test
+    public void replacingATileKeepsOneCopy() throws IOException {
+        cache.put(tile(1), new ByteArrayInputStream(data(1)));
+        cache.put(tile(1), new ByteArrayInputStream(data(2)));
+        assertEquals(1, cache.getStatistics().getTiles());
+        assertEquals(TILE_BYTES, cache.getStatistics().getBytes());
+        assertArrayEquals(data(2), read(cache.get(tile(1))));
+    }
+
+    @Test
+    public void leastRecentlyUsedTilesAreEvicted() throws IOException {
+        for (int n = 0; n < 10; n++) {
+            cache.put(tile(n), new ByteArrayInputStream(data(n)));
+        }
+        assertEquals(0, cache.getStatistics().getEvictions());
+        // Tile 0 is the oldest, but was just used
+        cache.get(tile(0)).close();
+
+        cache.put(tile(10), new ByteArrayInputStream(data(10)));
+        DiskTileCache.Statistics statistics = cache.getStatistics();
+        assertTrue(statistics.getEvictions() > 0);
+        assertTrue(statistics.getBytes() <= 10 * TILE_BYTES);
+        assertTrue(cache.contains(tile(0)));
+        assertTrue(cache.contains(tile(10)));
+        assertFalse(cache.contains(tile(1)));
+        assertNull(cache.get(tile(1)));
+    }
+
+    @Test
+    public void evictedTilesAreDeletedFromDisk() throws IOException {
+        for (int n = 0; n < 30; n++) {
+            cache.put(tile(n), new ByteArrayInputStream(data(n)));
+        }
+        long files = 0;
+        for (File bucket : new File(directory, "tiles").listFiles()) {
+            files += bucket.listFiles().length;
+        }
+        assertEquals(cache.getStatistics().getTiles(), files);
+    }
+
+    @Test
+    public void tilesSurviveReopening() throws IOException {
+        cache.put(tile(1), new ByteArrayInputStream(data(1)));
+        cache.close();
+        cache = new DiskTileCache(directory, 10 * TILE_BYTES);
+        assertEquals(1, cache.getStatistics().getTiles());
+        assertArrayEquals(data(1), read(cache.get(tile(1))));
+    }
+
+    @Test
+    public void tileDeletedBehindTheCacheIsAMiss() throws IOException {
+        cache.put(tile(1), new ByteArrayInputStream(data(1)));
+        for (File bucket : new File(directory, "tiles").listFiles()) {
+            for (File file : bucket.listFiles()) {
+                assertTrue(file.delete());
+            }
+        }
+        assertNull(cache.get(tile(1)));
+        assertFalse(cache.contains(tile(1)));
+        assertEquals(0, cache.getStatistics().getBytes());
+    }
+
+    @Test
+    public void offlineServesCachedTilesAndFailsOthers() throws IOException {
+        cache.put(tile(1), new ByteArrayInputStream(data(1)));
+        cache.setOffline(true);
+        assertArrayEquals(data(1), read(cache.get(tile(1))));
+        try {
+            cache.get(tile(2));
+            fail("An uncached tile must not be downloaded while offline");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+}
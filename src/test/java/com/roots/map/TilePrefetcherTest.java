@@ -0,0 +1,190 @@
+package com.roots.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jxmapviewer.OSMTileFactoryInfo;
+import org.jxmapviewer.viewer.DefaultTileFactory;
+import org.jxmapviewer.viewer.GeoPosition;
+import org.jxmapviewer.viewer.Tile;
+import org.jxmapviewer.viewer.TileFactoryInfo;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Prefetching into the disk cache from a local tile server, and showing
+ * the prefetched tiles once the server is gone.
+ */
+public class TilePrefetcherTest {
+    // A few tiles around Nellore
+    private static final GeoPosition CORNER1 = new GeoPosition(14.40, 79.95);
+    private static final GeoPosition CORNER2 = new GeoPosition(14.48, 80.03);
+    private static final int FROM_ZOOM = 6;
+    private static final int TO_ZOOM = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Set<String> missing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private byte[] png;
+    private HttpServer server;
+    private TileFactoryInfo info;
+    private DefaultTileFactory tileFactory;
+    private DiskTileCache cache;
+
+    @Before
+    public void startServer() throws IOException {
+        BufferedImage image = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        png = out.toByteArray();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            boolean found = !missing.contains(exchange.getRequestURI().getPath());
+            exchange.sendResponseHeaders(found ? 200 : 404, found ? png.length : -1);
+            if (found) {
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(png);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+
+        info = new OSMTileFactoryInfo("Stub", "http://127.0.0.1:" + server.getAddress().getPort());
+        tileFactory = new DefaultTileFactory(info);
+        cache = new DiskTileCache(folder.newFolder("cache"), 1024 * 1024);
+        tileFactory.setLocalCache(cache);
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        tileFactory.dispose();
+        cache.close();
+    }
+
+    private TilePrefetcher prefetcher(int maxTiles) {
+        return new TilePrefetcher(tileFactory, cache, "SATYA Portal tests", maxTiles);
+    }
+
+    @Test
+    public void downloadsEveryTileOfTheAreaOnce() {
+        TilePrefetcher prefetcher = prefetcher(100);
+        long total = prefetcher.countTiles(CORNER1, CORNER2, FROM_ZOOM, TO_ZOOM);
+        assertTrue(total > 3);
+
+        TilePrefetcher.Result first = prefetcher.prefetch(CORNER1, CORNER2, FROM_ZOOM, TO_ZOOM, null);
+        assertEquals(total, first.getTotal());
+        assertEquals(total, first.getDownloaded());
+        assertEquals(0, first.getFailed());
+        assertEquals(total, requests.get());
+        assertEquals(total, cache.getStatistics().getTiles());
+
+        // Everything is cached now, so nothing is requested again
+        TilePrefetcher.Result second = prefetcher(100).prefetch(CORNER1, CORNER2, FROM_ZOOM, TO_ZOOM, null);
+        assertEquals(total, second.getCached());
+        assertEquals(0, second.getDownloaded());
+        assertEquals(total, requests.get());
+    }
+
+    @Test
+    public void failedTilesAreCountedAndNotCached() throws IOException {
+        TilePrefetcher prefetcher = prefetcher(100);
+        // The first tile of the least detailed level
+        int[] first = firstTile(TO_ZOOM);
+        String url = info.getTileUrl(first[0], first[1], TO_ZOOM);
+        missing.add(new URL(url).getPath());
+
+        TilePrefetcher.Result result = prefetcher.prefetch(CORNER1, CORNER2, FROM_ZOOM, TO_ZOOM, null);
+        assertEquals(1, result.getFailed());
+        assertEquals(result.getTotal() - 1, result.getDownloaded());
+        assertFalse(cache.contains(new URL(url)));
+    }
+
+    private int[] firstTile(int zoom) {
+        int tileSize = tileFactory.getTileSize(zoom);
+        return new int[] {
+                (int) Math.floor(tileFactory.geoToPixel(CORNER1, zoom).getX() / tileSize),
+                (int) Math.floor(tileFactory.geoToPixel(CORNER2, zoom).getY() / tileSize)
+        };
+    }
+
+    @Test
+    public void areaNeedingTooManyTilesIsRefused() {
+        TilePrefetcher prefetcher = prefetcher(2);
+        try {
+            prefetcher.prefetch(CORNER1, CORNER2, FROM_ZOOM, TO_ZOOM, null);
+            fail("The area needs more than two tiles");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(0, requests.get());
+        }
+    }
+
+    @Test
+    public void cancelStopsAfterTheCurrentTile() {
+        TilePrefetcher prefetcher = prefetcher(100);
+        TilePrefetcher.Result result = prefetcher.prefetch(CORNER1, CORNER2, FROM_ZOOM, TO_ZOOM,
+                progress -> prefetcher.cancel());
+        assertTrue(result.isCancelled());
+        assertEquals(1, result.getDone());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void prefetchedTilesAreShownOfflineAndOthersAreNot() throws Exception {
+        prefetcher(100).prefetch(CORNER1, CORNER2, FROM_ZOOM, TO_ZOOM, null);
+        server.stop(0);
+        cache.setOffline(true);
+        int before = requests.get();
+
+        int[] cached = firstTile(TO_ZOOM);
+        Tile tile = load(cached[0], cached[1], TO_ZOOM);
+        assertTrue(tile.isLoaded());
+        assertNotNull(tile.getImage());
+
+        // Far from the prefetched area
+        Tile uncached = load(0, 0, TO_ZOOM);
+        assertFalse(uncached.isLoaded());
+        assertNull(uncached.getImage());
+        assertTrue(uncached.loadingFailed());
+        assertEquals(before, requests.get());
+    }
+
+    /**
+     * Load a tile through the tile factory as the map does, and wait for it
+     */
+    private Tile load(int x, int y, int zoom) throws InterruptedException {
+        Tile tile = tileFactory.getTile(x, y, zoom);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!tile.isLoaded() && !tile.loadingFailed() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        return tile;
+    }
+}
@@ -0,0 +1,187 @@
+package com.roots.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.jxmapviewer.OSMTileFactoryInfo;
+import org.jxmapviewer.viewer.DefaultTileFactory;
+import org.jxmapviewer.viewer.TileFactory;
+
+/**
+ * Cluster counts as waypoints are added and removed.
+ */
+public class WaypointClustersTest {
+    private static final int MIN_ZOOM = WaypointLayer.CLUSTER_MIN_ZOOM;
+    private static final String[] STATUSES = {"Approved", "Pending", "Under Review", "Rejected", "Unauthorized"};
+
+    private final TileFactory tileFactory = new DefaultTileFactory(new OSMTileFactoryInfo());
+    private final int maxZoom = tileFactory.getInfo().getMaximumZoomLevel();
+
+    private List<WaypointClusters.Cluster> all(WaypointClusters clusters, int zoom) {
+        Rectangle world = new Rectangle(0, 0,
+                tileFactory.getMapSize(zoom).width * tileFactory.getTileSize(zoom),
+                tileFactory.getMapSize(zoom).height * tileFactory.getTileSize(zoom));
+        List<WaypointClusters.Cluster> result = new ArrayList<>();
+        clusters.query(zoom, world, result);
+        return result;
+    }
+
+    private int total(WaypointClusters clusters, int zoom) {
+        int total = 0;
+        for (WaypointClusters.Cluster cluster : all(clusters, zoom)) {
+            total += cluster.getCount();
+        }
+        return total;
+    }
+
+    /**
+     * Layouts spread over the Nellore district, like the benchmark fixtures
+     */
+    private static List<ColoredWaypoint> district(int count, long seed) {
+        Random random = new Random(seed);
+        List<ColoredWaypoint> waypoints = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            waypoints.add(new ColoredWaypoint("F" + seed + "-" + i, 13.6 + random.nextDouble() * 1.6,
+                    79.3 + random.nextDouble() * 0.9, "Layout " + i, STATUSES[random.nextInt(STATUSES.length)]));
+        }
+        return waypoints;
+    }
+
+    @Test
+    public void onlyZoomLevelsFromTheMinimumAreClustered() {
+        WaypointClusters clusters = new WaypointClusters(tileFactory, MIN_ZOOM);
+        assertFalse(clusters.isClustered(MIN_ZOOM - 1));
+        assertTrue(clusters.isClustered(MIN_ZOOM));
+        assertTrue(clusters.isClustered(maxZoom));
+        assertFalse(clusters.isClustered(maxZoom + 1));
+    }
+
+    @Test
+    public void waypointsAtOnePlaceShareOneClusterAtEveryLevel() {
+        WaypointClusters clusters = new WaypointClusters(tileFactory, MIN_ZOOM);
+        clusters.add(new ColoredWaypoint("A", 14.4426, 79.9865, "A", "Approved"));
+        clusters.add(new ColoredWaypoint("B", 14.4426, 79.9865, "B", "Pending"));
+        clusters.add(new ColoredWaypoint("C", 14.4426, 79.9865, "C", "Approved"));
+        assertEquals(3, clusters.size());
+        for (int zoom = MIN_ZOOM; zoom <= maxZoom; zoom++) {
+            List<WaypointClusters.Cluster> found = all(clusters, zoom);
+            assertEquals("zoom " + zoom, 1, found.size());
+            assertEquals(3, found.get(0).getCount());
+            assertEquals("approved", found.get(0).getDominantStatus());
+        }
+    }
+
+    @Test
+    public void distantWaypointsMergeOnlyWhenZoomedOut() {
+        WaypointClusters clusters = new WaypointClusters(tileFactory, MIN_ZOOM);
+        // Nellore and Kavali, about 55 km apart
+        clusters.add(new ColoredWaypoint("N", 14.4426, 79.9865, "N", "Approved"));
+        clusters.add(new ColoredWaypoint("K", 14.9130, 79.9930, "K", "Approved"));
+        assertEquals(2, all(clusters, MIN_ZOOM).size());
+        assertEquals(1, all(clusters, maxZoom).size());
+        assertEquals(2, all(clusters, maxZoom).get(0).getCount());
+    }
+
+    @Test
+    public void centroidIsTheMeanOfTheProjectedWaypoints() {
+        WaypointClusters clusters = new WaypointClusters(tileFactory, MIN_ZOOM);
+        ColoredWaypoint a = new ColoredWaypoint("A", 14.4426, 79.9865, "A", "Approved");
+        ColoredWaypoint b = new ColoredWaypoint("B", 14.4427, 79.9866, "B", "Approved");
+        clusters.add(a);
+        clusters.add(b);
+        int zoom = maxZoom;
+        WaypointClusters.Cluster cluster = all(clusters, zoom).get(0);
+        double expectedX = (tileFactory.geoToPixel(a.getPosition(), zoom).getX()
+                + tileFactory.geoToPixel(b.getPosition(), zoom).getX()) / 2;
+        assertEquals(expectedX, cluster.getX(), 1.0);
+    }
+
+    @Test
+    public void removingTheLastWaypointRemovesTheCluster() {
+        WaypointClusters clusters = new WaypointClusters(tileFactory, MIN_ZOOM);
+        ColoredWaypoint a = new ColoredWaypoint("A", 14.4426, 79.9865, "A", "Rejected");
+        ColoredWaypoint b = new ColoredWaypoint("B", 14.4426, 79.9865, "B", "Approved");
+        clusters.add(a);
+        clusters.add(b);
+        clusters.remove(a);
+        assertEquals(1, clusters.size());
+        assertEquals(1, all(clusters, MIN_ZOOM).get(0).getCount());
+        assertEquals("approved", all(clusters, MIN_ZOOM).get(0).getDominantStatus());
+
+        // An equal waypoint removes it too, as after a reload
+        clusters.remove(new ColoredWaypoint("B", 14.4426, 79.9865, "B", "Approved"));
+        assertEquals(0, clusters.size());
+        for (int zoom = MIN_ZOOM; zoom <= maxZoom; zoom++) {
+            assertTrue(all(clusters, zoom).isEmpty());
+        }
+    }
+
+    @Test
+    public void removingAWaypointNeverAddedChangesNothing() {
+        WaypointClusters clusters = new WaypointClusters(tileFactory, MIN_ZOOM);
+        clusters.add(new ColoredWaypoint("A", 14.4426, 79.9865, "A", "Approved"));
+        clusters.remove(new ColoredWaypoint("X", -33.86, 151.21, "X", "Approved"));
+        assertEquals(1, clusters.size());
+        assertEquals(1, total(clusters, MIN_ZOOM));
+    }
+
+    @Test
+    public void incrementalChangesMatchARebuild() {
+        List<ColoredWaypoint> original = district(5000, 1);
+        List<ColoredWaypoint> added = district(600, 2);
+        List<ColoredWaypoint> removed = original.subList(0, 600);
+
+        WaypointClusters incremental = new WaypointClusters(tileFactory, MIN_ZOOM, original);
+        for (ColoredWaypoint waypoint : removed) {
+            incremental.remove(waypoint);
+        }
+        for (ColoredWaypoint waypoint : added) {
+            incremental.add(waypoint);
+        }
+        List<ColoredWaypoint> current = new ArrayList<>(original.subList(600, original.size()));
+        current.addAll(added);
+        WaypointClusters rebuilt = new WaypointClusters(tileFactory, MIN_ZOOM, current);
+
+        assertEquals(rebuilt.size(), incremental.size());
+        for (int zoom = MIN_ZOOM; zoom <= maxZoom; zoom++) {
+            assertEquals("zoom " + zoom, counts(rebuilt, zoom), counts(incremental, zoom));
+            assertEquals(current.size(), total(incremental, zoom));
+        }
+    }
+
+    private Map<String, String> counts(WaypointClusters clusters, int zoom) {
+        Map<String, String> counts = new HashMap<>();
+        for (WaypointClusters.Cluster cluster : all(clusters, zoom)) {
+            counts.put(Math.round(cluster.getX()) + "," + Math.round(cluster.getY()),
+                    cluster.getCount() + " " + cluster.getDominantStatus());
+        }
+        return counts;
+    }
+
+    @Test
+    public void queryReturnsOnlyClustersOverlappingTheArea() {
+        WaypointClusters clusters = new WaypointClusters(tileFactory, MIN_ZOOM, district(2000, 3));
+        int zoom = MIN_ZOOM + 4;
+        List<WaypointClusters.Cluster> everything = all(clusters, zoom);
+        WaypointClusters.Cluster first = everything.get(0);
+        Rectangle around = new Rectangle((int) first.getX() - 2, (int) first.getY() - 2, 4, 4);
+        List<WaypointClusters.Cluster> found = new ArrayList<>();
+        clusters.query(zoom, around, found);
+        assertTrue(found.contains(first));
+        assertTrue(found.size() < everything.size());
+        int cell = WaypointClusters.CELL_SIZE;
+        for (WaypointClusters.Cluster cluster : found) {
+            assertTrue(Math.abs(cluster.getX() - first.getX()) < 2 * cell);
+            assertTrue(Math.abs(cluster.getY() - first.getY()) < 2 * cell);
+        }
+    }
+}
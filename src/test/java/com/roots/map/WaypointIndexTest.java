@@ -0,0 +1,105 @@
+package com.roots.map;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.jxmapviewer.OSMTileFactoryInfo;
+import org.jxmapviewer.viewer.DefaultTileFactory;
+import org.jxmapviewer.viewer.GeoPosition;
+import org.jxmapviewer.viewer.TileFactory;
+
+/**
+ * Viewport queries of the grid index, before and after changes.
+ */
+public class WaypointIndexTest {
+    private final TileFactory tileFactory = new DefaultTileFactory(new OSMTileFactoryInfo());
+
+    private static List<ColoredWaypoint> district(int count, long seed) {
+        Random random = new Random(seed);
+        List<ColoredWaypoint> waypoints = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            waypoints.add(new ColoredWaypoint("F" + seed + "-" + i, 13.6 + random.nextDouble() * 1.6,
+                    79.3 + random.nextDouble() * 0.9, "Layout " + i, "Approved"));
+        }
+        return waypoints;
+    }
+
+    private List<ColoredWaypoint> found(WaypointIndex index, Rectangle bounds) {
+        WaypointIndex.Hits hits = index.query(bounds, null);
+        List<ColoredWaypoint> found = new ArrayList<>();
+        for (int k = 0; k < hits.size(); k++) {
+            found.add(index.getWaypoint(hits.get(k)));
+        }
+        return found;
+    }
+
+    private List<ColoredWaypoint> inside(List<ColoredWaypoint> waypoints, Rectangle bounds, int zoom) {
+        List<ColoredWaypoint> inside = new ArrayList<>();
+        for (ColoredWaypoint waypoint : waypoints) {
+            if (bounds.contains(tileFactory.geoToPixel(waypoint.getPosition(), zoom))) {
+                inside.add(waypoint);
+            }
+        }
+        return inside;
+    }
+
+    private static void assertSameWaypoints(List<ColoredWaypoint> expected, List<ColoredWaypoint> actual) {
+        List<String> expectedIds = new ArrayList<>();
+        for (ColoredWaypoint waypoint : expected) {
+            expectedIds.add(waypoint.getId());
+        }
+        List<String> actualIds = new ArrayList<>();
+        for (ColoredWaypoint waypoint : actual) {
+            actualIds.add(waypoint.getId());
+        }
+        Collections.sort(expectedIds);
+        Collections.sort(actualIds);
+        assertEquals(expectedIds, actualIds);
+    }
+
+    private Rectangle viewportAround(double latitude, double longitude, int zoom) {
+        Point2D center = tileFactory.geoToPixel(new GeoPosition(latitude, longitude), zoom);
+        return new Rectangle((int) center.getX() - 640, (int) center.getY() - 400, 1280, 800);
+    }
+
+    @Test
+    public void queryFindsExactlyTheWaypointsInside() {
+        List<ColoredWaypoint> waypoints = district(20000, 1);
+        for (int zoom : new int[] {1, 4, 8, 10, 15}) {
+            WaypointIndex index = new WaypointIndex(waypoints, tileFactory, zoom);
+            Rectangle viewport = viewportAround(14.4, 79.75, zoom);
+            assertSameWaypoints(inside(waypoints, viewport, zoom), found(index, viewport));
+        }
+    }
+
+    @Test
+    public void changesAreSeenByQueries() {
+        int zoom = 10;
+        List<ColoredWaypoint> waypoints = district(20000, 1);
+        List<ColoredWaypoint> added = district(600, 2);
+        List<ColoredWaypoint> removed = waypoints.subList(0, 600);
+        WaypointIndex index = new WaypointIndex(waypoints, tileFactory, zoom)
+                .withChanges(tileFactory, added, removed);
+
+        List<ColoredWaypoint> current = new ArrayList<>(waypoints.subList(600, waypoints.size()));
+        current.addAll(added);
+        assertEquals(current.size(), index.size());
+        Rectangle viewport = viewportAround(14.4, 79.75, zoom);
+        assertSameWaypoints(inside(current, viewport, zoom), found(index, viewport));
+    }
+
+    @Test
+    public void atZoomMatchesAFreshIndex() {
+        List<ColoredWaypoint> waypoints = district(5000, 3);
+        WaypointIndex scaled = new WaypointIndex(waypoints, tileFactory, 10).atZoom(tileFactory, 6);
+        Rectangle viewport = viewportAround(14.4, 79.75, 6);
+        assertSameWaypoints(inside(waypoints, viewport, 6), found(scaled, viewport));
+    }
+}
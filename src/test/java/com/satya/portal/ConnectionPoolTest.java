@@ -0,0 +1,230 @@
+package com.satya.portal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * ConnectionPool against an in-memory embedded database: leases, borrow
+ * timeouts, leak detection and housekeeping.
+ */
+public class ConnectionPoolTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private String url;
+    private ConnectionPool pool;
+
+    @Before
+    public void createDatabase() throws SQLException {
+        // A database of its own per test, created the way DBConnection does
+        url = "jdbc:h2:mem:pooltest" + DATABASES.incrementAndGet()
+                + ";DB_CLOSE_DELAY=-1;MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+        EmbeddedDatabase.bootstrap(url, "sa", "");
+    }
+
+    @After
+    public void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private ConnectionPool.Config config() {
+        ConnectionPool.Config config = new ConnectionPool.Config();
+        config.setMinSize(0);
+        config.setMaxSize(2);
+        config.setBorrowTimeoutMillis(200);
+        config.setLeakDetectionThresholdMillis(0);
+        // Tests that need housekeeping shorten this
+        config.setHousekeepingIntervalMillis(60_000);
+        return config;
+    }
+
+    private static void await(String what, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting until " + what);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void leaseReachesTheSchemaAndReturnsOnClose() throws SQLException {
+        pool = new ConnectionPool(url, "sa", "", config());
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM layouts")) {
+            assertTrue(resultSet.next());
+            assertEquals(1, pool.getStatistics().getActive());
+        }
+        ConnectionPool.PoolStatistics statistics = pool.getStatistics();
+        assertEquals(0, statistics.getActive());
+        assertEquals(1, statistics.getIdle());
+        assertEquals(1, statistics.getBorrowCount());
+    }
+
+    @Test
+    public void idleConnectionIsReused() throws SQLException {
+        pool = new ConnectionPool(url, "sa", "", config());
+        Connection first = pool.getConnection();
+        String physical = first.toString();
+        first.close();
+        try (Connection second = pool.getConnection()) {
+            assertNotSame(first, second);
+            assertEquals(physical, second.toString());
+            assertEquals(1, pool.getStatistics().getTotal());
+        }
+    }
+
+    @Test
+    public void closedLeaseCannotBeUsedOrReturnedTwice() throws SQLException {
+        ConnectionPool.Config config = config();
+        config.setMaxSize(1);
+        pool = new ConnectionPool(url, "sa", "", config);
+        Connection connection = pool.getConnection();
+        connection.close();
+        connection.close();
+        assertTrue(connection.isClosed());
+        try {
+            connection.createStatement();
+            fail("A returned lease must not reach the physical connection");
+        } catch (SQLException expected) {
+            // Expected
+        }
+        // The permit was released once, so the single connection can be borrowed again
+        try (Connection again = pool.getConnection()) {
+            assertFalse(again.isClosed());
+        }
+    }
+
+    @Test
+    public void physicalConnectionDoesNotEscapeTheLease() throws SQLException {
+        pool = new ConnectionPool(url, "sa", "", config());
+        Statement leftOpen;
+        try (Connection connection = pool.getConnection()) {
+            assertSame(connection, connection.unwrap(Connection.class));
+            assertTrue(connection.isWrapperFor(Connection.class));
+            leftOpen = connection.prepareStatement("SELECT 1");
+            assertSame(connection, leftOpen.getConnection());
+        }
+        // Returning the lease closes the statements its borrower left open
+        assertTrue(leftOpen.isClosed());
+    }
+
+    @Test
+    public void uncommittedWorkIsRolledBackOnReturn() throws SQLException {
+        ConnectionPool.Config config = config();
+        config.setMaxSize(1);
+        pool = new ConnectionPool(url, "sa", "", config);
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE pool_test (id INT)");
+        }
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.executeUpdate("INSERT INTO pool_test VALUES (1)");
+        }
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM pool_test")) {
+            assertTrue(connection.getAutoCommit());
+            assertTrue(resultSet.next());
+            assertEquals(0, resultSet.getInt(1));
+        }
+    }
+
+    @Test
+    public void borrowTimesOutWhenThePoolIsExhausted() throws SQLException {
+        pool = new ConnectionPool(url, "sa", "", config());
+        try (Connection first = pool.getConnection();
+             Connection second = pool.getConnection()) {
+            assertNotSame(first, second);
+            long start = System.nanoTime();
+            try {
+                pool.getConnection();
+                fail("A third borrower must time out");
+            } catch (SQLTimeoutException expected) {
+                assertTrue((System.nanoTime() - start) / 1_000_000 >= 150);
+            }
+            assertEquals(1, pool.getStatistics().getBorrowTimeouts());
+        }
+        // Both returned, so borrowing works again
+        try (Connection connection = pool.getConnection()) {
+            assertFalse(connection.isClosed());
+            assertEquals(1, pool.getStatistics().getActive());
+        }
+    }
+
+    @Test
+    public void connectionHeldPastTheThresholdIsReportedOnce() throws Exception {
+        ConnectionPool.Config config = config();
+        config.setLeakDetectionThresholdMillis(50);
+        config.setHousekeepingIntervalMillis(20);
+        pool = new ConnectionPool(url, "sa", "", config);
+        try (Connection connection = pool.getConnection()) {
+            assertFalse(connection.isClosed());
+            await("the leak is reported", () -> pool.getStatistics().getLeaksDetected() == 1);
+            // Later housekeeping runs do not report the same borrower again
+            Thread.sleep(100);
+            assertEquals(1, pool.getStatistics().getLeaksDetected());
+        }
+    }
+
+    @Test
+    public void housekeepingTopsUpToTheMinimumSize() throws Exception {
+        ConnectionPool.Config config = config();
+        config.setMinSize(2);
+        config.setHousekeepingIntervalMillis(20);
+        pool = new ConnectionPool(url, "sa", "", config);
+        await("two idle connections are open", () -> pool.getStatistics().getIdle() == 2);
+        assertEquals(2, pool.getStatistics().getTotal());
+    }
+
+    @Test
+    public void housekeepingEvictsIdleConnectionsAboveTheMinimum() throws Exception {
+        ConnectionPool.Config config = config();
+        config.setMinSize(1);
+        config.setIdleTimeoutMillis(50);
+        config.setHousekeepingIntervalMillis(20);
+        pool = new ConnectionPool(url, "sa", "", config);
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        first.close();
+        second.close();
+        await("idle connections are evicted down to the minimum", () -> pool.getStatistics().getTotal() == 1);
+        Thread.sleep(100);
+        assertEquals(1, pool.getStatistics().getTotal());
+    }
+
+    @Test
+    public void closedPoolRefusesBorrowers() throws SQLException {
+        pool = new ConnectionPool(url, "sa", "", config());
+        pool.getConnection().close();
+        pool.close();
+        assertEquals(0, pool.getStatistics().getIdle());
+        try {
+            pool.getConnection();
+            fail("A closed pool must not hand out connections");
+        } catch (SQLException expected) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.satya.portal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.satya.portal.utils.LayoutSchema;
+
+/**
+ * SchemaUpgrade on a layouts table from before the map features, with the
+ * legacy column names, and LayoutSchema's view of it before and after.
+ */
+public class SchemaUpgradeTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private Connection connection;
+
+    @Before
+    public void createLegacyTable() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:upgradetest" + DATABASES.incrementAndGet()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE", "sa", "");
+        execute("CREATE TABLE layouts (file_no VARCHAR(50) PRIMARY KEY, layout_name VARCHAR(200), "
+                + "status VARCHAR(30), owner VARCHAR(100), survey_number VARCHAR(50), area DOUBLE, "
+                + "application_date DATE, latitude DOUBLE, longitude DOUBLE, remarks TEXT, total_plots INT)");
+        execute("INSERT INTO layouts (file_no, layout_name, latitude, longitude) VALUES ('L1', 'Old', 17.4, 78.5)");
+    }
+
+    @After
+    public void closeConnection() throws SQLException {
+        connection.close();
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private boolean isIndexed(String table, String column) throws SQLException {
+        try (ResultSet resultSet = connection.getMetaData().getIndexInfo(null, null, table, false, true)) {
+            while (resultSet.next()) {
+                if (column.equalsIgnoreCase(resultSet.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void legacySchemaKnowsItsMissingColumns() throws SQLException {
+        LayoutSchema schema = LayoutSchema.detect(connection);
+        assertEquals("legacy", schema.getName());
+        assertFalse(schema.hasGeohash());
+        assertFalse(schema.hasLastModified());
+        assertFalse(schema.hasBoundary());
+    }
+
+    @Test
+    public void upgradeAddsColumnsIndexesAndTheDeletionsTable() throws SQLException {
+        // 3 columns, 2 layouts indexes, the table and its index
+        assertEquals(7, SchemaUpgrade.apply(connection));
+
+        LayoutSchema schema = LayoutSchema.detect(connection);
+        assertEquals("legacy", schema.getName());
+        assertTrue(schema.hasGeohash());
+        assertTrue(schema.hasLastModified());
+        assertTrue(schema.hasBoundary());
+        assertTrue(isIndexed("layouts", "geohash"));
+        assertTrue(isIndexed("layouts", "last_modified"));
+        assertTrue(isIndexed("layout_deletions", "deleted_at"));
+
+        // Existing rows keep their data and read as not yet backfilled
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT layout_name, geohash FROM layouts")) {
+            assertTrue(resultSet.next());
+            assertEquals("Old", resultSet.getString(1));
+            assertEquals(null, resultSet.getString(2));
+        }
+    }
+
+    @Test
+    public void upgradeIsIdempotent() throws SQLException {
+        SchemaUpgrade.apply(connection);
+        assertEquals(0, SchemaUpgrade.apply(connection));
+    }
+
+    @Test
+    public void existingIndexesUnderOtherNamesAreKept() throws SQLException {
+        execute("ALTER TABLE layouts ADD COLUMN geohash VARCHAR(12)");
+        execute("CREATE INDEX layouts_by_geohash ON layouts (geohash)");
+        // boundary, last_modified, its index, the table and its index
+        assertEquals(5, SchemaUpgrade.apply(connection));
+    }
+
+    @Test
+    public void standardSchemaNeedsNoUpgrade() throws SQLException {
+        // Created the way DBConnection does
+        String url = "jdbc:h2:mem:upgradetest" + DATABASES.incrementAndGet()
+                + ";DB_CLOSE_DELAY=-1;MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+        EmbeddedDatabase.bootstrap(url, "sa", "");
+        try (Connection standard = DriverManager.getConnection(url, "sa", "")) {
+            assertEquals(0, SchemaUpgrade.apply(standard));
+            assertTrue(LayoutSchema.detect(standard).hasGeohash());
+        }
+    }
+}
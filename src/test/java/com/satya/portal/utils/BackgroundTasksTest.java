@@ -0,0 +1,93 @@
+package com.satya.portal.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.satya.portal.ConnectionPool;
+
+/**
+ * Cancelling a background task stops its thread and its JDBC statement.
+ */
+public class BackgroundTasksTest {
+
+    @Test
+    public void cancelInterruptsTheWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<Void> future = BackgroundTasks.supply(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(30_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        future.cancel(true);
+        assertTrue("The worker thread was not interrupted", interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelStopsTheRunningStatement() throws InterruptedException {
+        ConnectionPool.Config config = new ConnectionPool.Config();
+        config.setMinSize(0);
+        ConnectionPool pool = new ConnectionPool("jdbc:h2:mem:background;DB_CLOSE_DELAY=-1", "sa", "", config);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch stopped = new CountDownLatch(1);
+            AtomicReference<SQLException> failure = new AtomicReference<>();
+            CompletableFuture<Long> future = BackgroundTasks.supply(() -> {
+                try (Connection connection = pool.getConnection();
+                     Statement statement = connection.createStatement()) {
+                    started.countDown();
+                    // Runs for minutes unless cancelled
+                    statement.executeQuery("SELECT SUM(X) FROM SYSTEM_RANGE(1, 100000000000)");
+                    return 0L;
+                } catch (SQLException e) {
+                    failure.set(e);
+                    throw e;
+                } finally {
+                    stopped.countDown();
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            future.cancel(true);
+            assertTrue("The statement kept running", stopped.await(10, TimeUnit.SECONDS));
+            assertTrue(failure.get() != null);
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void taskCancelledBeforeItStartsDoesNotRun() throws InterruptedException {
+        // Occupy every thread of the fallback pool so the task stays queued
+        int blockers = Math.max(4, Runtime.getRuntime().availableProcessors());
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < blockers; i++) {
+            BackgroundTasks.supply(() -> release.await(10, TimeUnit.SECONDS));
+        }
+        AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<Void> future = BackgroundTasks.supply(() -> {
+            ran.set(true);
+            return null;
+        });
+        future.cancel(true);
+        release.countDown();
+        Thread.sleep(200);
+        assertFalse(ran.get());
+    }
+}
@@ -0,0 +1,261 @@
+package com.satya.portal.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.satya.portal.DBConnection;
+import com.satya.portal.models.Layout;
+import com.satya.portal.models.LayoutBoundary;
+import com.satya.portal.models.LayoutChanges;
+import com.satya.portal.models.LayoutPage;
+import com.satya.portal.models.LayoutSearchCriteria;
+
+/**
+ * DatabaseManager against the embedded database in memory. Each test
+ * places its layouts in an area of its own, away from any sample data.
+ */
+public class DatabaseManagerTest {
+    private static DatabaseManager databaseManager;
+
+    @BeforeClass
+    public static void useEmbeddedDatabase() {
+        System.setProperty("db.backend", "h2");
+        System.setProperty("db.h2.storage", "memory");
+        databaseManager = DatabaseManager.getInstance();
+    }
+
+    private static Layout layout(String fileNumber, double latitude, double longitude, boolean withBoundary) {
+        Layout layout = new Layout(fileNumber, "Layout " + fileNumber, "Approved", "Owner " + fileNumber,
+                "S-1", 2.5, LocalDate.of(2024, 1, 15), latitude, longitude, null, 10);
+        if (withBoundary) {
+            double d = 0.001;
+            layout.setBoundary(LayoutBoundary.of(
+                    new double[] {latitude - d, latitude - d, latitude + d, latitude + d},
+                    new double[] {longitude - d, longitude + d, longitude + d, longitude - d}));
+        }
+        assertTrue(databaseManager.addLayout(layout));
+        return layout;
+    }
+
+    private static List<String> fileNumbers(List<Layout> layouts) {
+        String[] fileNumbers = new String[layouts.size()];
+        for (int i = 0; i < fileNumbers.length; i++) {
+            fileNumbers[i] = layouts.get(i).getFileNumber();
+        }
+        return Arrays.asList(fileNumbers);
+    }
+
+    private static Map<String, Layout> byFileNumber(List<Layout> layouts) {
+        Map<String, Layout> map = new HashMap<>();
+        for (Layout layout : layouts) {
+            map.put(layout.getFileNumber(), layout);
+        }
+        return map;
+    }
+
+    @Test
+    public void boundariesAreReadForTheBoxOnly() {
+        Layout outlined = layout("DMT-B1", 10.5, 70.5, true);
+        layout("DMT-B2", 10.6, 70.6, false);
+        layout("DMT-B3", 12.5, 72.5, true);
+
+        Map<String, Layout> found = byFileNumber(databaseManager.findLayoutBoundariesInBounds(10, 70, 11, 71));
+        assertEquals(1, found.size());
+        Layout layout = found.get("DMT-B1");
+        assertEquals(outlined.getBoundary(), layout.getBoundary());
+        assertEquals("Layout DMT-B1", layout.getLayoutName());
+        assertEquals("Approved", layout.getStatus());
+        assertEquals(10.5, layout.getLatitude(), 1e-9);
+
+        // The summary query finds both layouts in the box, without outlines
+        Map<String, Layout> summaries = byFileNumber(databaseManager.findLayoutsInBounds(10, 70, 11, 71));
+        assertEquals(2, summaries.size());
+        assertNull(summaries.get("DMT-B1").getBoundary());
+    }
+
+    @Test
+    public void geohashesAreFilledInAndWideBoxesStillFindLayouts() throws SQLException {
+        layout("DMT-G1", 30.95, 35.1, false);
+        layout("DMT-G2", 30.95, 36.4, false);
+        try (Connection connection = DBConnection.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE layouts SET geohash = NULL WHERE file_number LIKE 'DMT-G%'");
+        }
+        assertTrue(databaseManager.backfillGeohashes() >= 2);
+        try (Connection connection = DBConnection.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT COUNT(*) FROM layouts WHERE geohash IS NULL AND file_number LIKE 'DMT-G%'")) {
+            assertTrue(resultSet.next());
+            assertEquals(0, resultSet.getInt(1));
+        }
+
+        // The fine cells split this box into 10 ranges, so coarser ones are read
+        Map<String, Layout> found = byFileNumber(databaseManager.findLayoutsInBounds(30.9, 35.0, 31.0, 36.5));
+        assertTrue(found.containsKey("DMT-G1"));
+        assertTrue(found.containsKey("DMT-G2"));
+    }
+
+    @Test
+    public void oldDeletionsArePrunedAndOlderSyncsReloadInFull() throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO layout_deletions (file_number, deleted_at) "
+                    + "VALUES ('DMT-P1', TIMESTAMP '2000-01-01 00:00:00')");
+        }
+        assertTrue(databaseManager.pruneLayoutDeletions() >= 1);
+        try (Connection connection = DBConnection.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT COUNT(*) FROM layout_deletions WHERE file_number = 'DMT-P1'")) {
+            assertTrue(resultSet.next());
+            assertEquals(0, resultSet.getInt(1));
+        }
+
+        LocalDateTime now = databaseManager.getLayoutSyncTime();
+        assertNull(databaseManager.getLayoutChangesSince(now.minusYears(1)));
+        assertNotNull(databaseManager.getLayoutChangesSince(now.minusHours(1)));
+    }
+
+    @Test
+    public void changesCarryBoundariesOnlyWhenAsked() {
+        LocalDateTime since = databaseManager.getLayoutSyncTime();
+        assertNotNull(since);
+        layout("DMT-C1", 20.5, 80.5, true);
+
+        LayoutChanges withBoundaries = databaseManager.getLayoutChangesSince(since, true);
+        assertNotNull(withBoundaries.getChanged());
+        assertNotNull(byFileNumber(withBoundaries.getChanged()).get("DMT-C1").getBoundary());
+
+        LayoutChanges summaries = databaseManager.getLayoutChangesSince(since);
+        assertNull(byFileNumber(summaries.getChanged()).get("DMT-C1").getBoundary());
+    }
+
+    @Test
+    public void updatedAndDeletedLayoutsShowUpAsChanges() {
+        Layout layout = layout("DMT-U1", 30.5, 75.5, false);
+        LocalDateTime since = databaseManager.getLayoutSyncTime();
+
+        layout.setLayoutName("Renamed");
+        layout.setApprovedBy("Commissioner");
+        assertTrue(databaseManager.updateLayout(layout));
+        Layout updated = databaseManager.getLayoutById("DMT-U1");
+        assertEquals("Renamed", updated.getLayoutName());
+        assertEquals("Commissioner", updated.getApprovedBy());
+        assertNotNull(byFileNumber(databaseManager.getLayoutChangesSince(since).getChanged()).get("DMT-U1"));
+
+        assertTrue(databaseManager.deleteLayout("DMT-U1"));
+        assertNull(databaseManager.getLayoutById("DMT-U1"));
+        assertTrue(databaseManager.getLayoutChangesSince(since).getDeletedFileNumbers().contains("DMT-U1"));
+    }
+
+    @Test
+    public void rankedPagesFollowTheIndexOrderAndCheckTheText() {
+        layout("DMT-R1", 40.5, 60.5, false);
+        layout("DMT-R2", 40.6, 60.6, false);
+        layout("DMT-R3", 40.7, 60.7, false);
+        layout("DMT-X1", 40.8, 60.8, false);
+
+        LayoutSearchCriteria criteria = new LayoutSearchCriteria();
+        criteria.setQuery("Layout DMT-R");
+        // An index behind the database may list a layout the text no longer matches
+        criteria.setQueryMatches(new LinkedHashSet<>(Arrays.asList("DMT-R2", "DMT-X1", "DMT-R3", "DMT-R1")));
+
+        LayoutPage first = databaseManager.searchLayoutsPage(criteria, null, 2);
+        assertEquals(Arrays.asList("DMT-R2", "DMT-R3"), fileNumbers(first.getLayouts()));
+        LayoutPage second = databaseManager.searchLayoutsPage(criteria, first.getNextCursor(), 2);
+        assertEquals(Arrays.asList("DMT-R1"), fileNumbers(second.getLayouts()));
+        assertNull(second.getNextCursor());
+
+        // A page jumped to by offset continues with the cursor the database ranked
+        LayoutPage jumped = databaseManager.searchLayoutsPageAt(criteria, 1, 1);
+        assertEquals(Arrays.asList("DMT-R3"), fileNumbers(jumped.getLayouts()));
+        LayoutPage rest = databaseManager.searchLayoutsPage(criteria, jumped.getNextCursor(), 2);
+        assertEquals(Arrays.asList("DMT-R1"), fileNumbers(rest.getLayouts()));
+
+        // Offset paging in the default order lists them the same way
+        assertEquals(Arrays.asList("DMT-R2", "DMT-R3", "DMT-R1"), fileNumbers(databaseManager.searchLayouts(criteria)));
+        assertEquals(3, databaseManager.countLayouts(criteria));
+    }
+
+    @Test
+    public void ownerSpellingsAreRankedInPages() {
+        Layout variant = layout("DMT-O1", 45.5, 65.5, false);
+        variant.setOwnerName("Qwerta Rao");
+        variant.setApplicationDate(LocalDate.of(2024, 6, 1));
+        assertTrue(databaseManager.updateLayout(variant));
+        Layout containing = layout("DMT-O2", 45.6, 65.6, false);
+        containing.setOwnerName("Qwertarao Reddy");
+        assertTrue(databaseManager.updateLayout(containing));
+
+        LayoutSearchCriteria criteria = new LayoutSearchCriteria();
+        criteria.setOwner("qwertarao");
+        criteria.setOwnerMatches(new LinkedHashSet<>(Arrays.asList("Qwerta Rao")));
+
+        // The newer layout comes second: its owner is only another spelling
+        LayoutPage first = databaseManager.searchLayoutsPage(criteria, null, 1);
+        assertEquals(Arrays.asList("DMT-O2"), fileNumbers(first.getLayouts()));
+        LayoutPage second = databaseManager.searchLayoutsPage(criteria, first.getNextCursor(), 1);
+        assertEquals(Arrays.asList("DMT-O1"), fileNumbers(second.getLayouts()));
+        // The cursor of the last page leads past every match
+        assertTrue(databaseManager.searchLayoutsPage(criteria, second.getNextCursor(), 1).getLayouts().isEmpty());
+        assertEquals(Arrays.asList("DMT-O2", "DMT-O1"), fileNumbers(databaseManager.searchLayouts(criteria)));
+    }
+
+    @Test
+    public void wildcardsInTheTextMatchLiterally() {
+        Layout percent = layout("DMT-W1", 55.5, 50.5, false);
+        percent.setLayoutName("Qzx 50% off_lane 7\\8 !x");
+        assertTrue(databaseManager.updateLayout(percent));
+        Layout plain = layout("DMT-W2", 55.6, 50.6, false);
+        plain.setLayoutName("Qzx 50X offXlane 7X8 Xx");
+        assertTrue(databaseManager.updateLayout(plain));
+
+        for (String text : new String[] {"qzx 50%", "off_lane", "7\\8", "!x"}) {
+            LayoutSearchCriteria criteria = new LayoutSearchCriteria();
+            criteria.setQuery(text);
+            assertEquals(text, Arrays.asList("DMT-W1"), fileNumbers(databaseManager.searchLayouts(criteria)));
+        }
+        LayoutSearchCriteria criteria = new LayoutSearchCriteria();
+        criteria.setQuery("qzx");
+        criteria.setSurveyNumber("_");
+        assertEquals(0, databaseManager.countLayouts(criteria));
+    }
+
+    @Test
+    public void tooManyMatchesAreLeftToTheTextConditions() {
+        layout("DMT-M1", 50.5, 55.5, false);
+        Set<String> matches = new LinkedHashSet<>();
+        for (int i = 0; i < DatabaseManager.MAX_QUERY_MATCHES; i++) {
+            matches.add("DMT-NONE-" + i);
+        }
+        LayoutSearchCriteria criteria = new LayoutSearchCriteria();
+        criteria.setQuery("Layout DMT-M1");
+        criteria.setQueryMatches(matches);
+        // Bound once each, the matches exclude the layout
+        assertEquals(0, databaseManager.countLayouts(criteria));
+
+        matches.add("DMT-NONE-LAST");
+        criteria.setQueryMatches(matches);
+        assertEquals(1, databaseManager.countLayouts(criteria));
+        assertEquals(Arrays.asList("DMT-M1"), fileNumbers(databaseManager.searchLayoutsPage(criteria, null, 10).getLayouts()));
+    }
+}
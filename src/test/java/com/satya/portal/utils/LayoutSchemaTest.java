@@ -0,0 +1,79 @@
+package com.satya.portal.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * The statements LayoutSchema builds for the standard table and for a
+ * legacy table that has only the summary columns.
+ */
+public class LayoutSchemaTest {
+
+    @Test
+    public void standardStatementsWriteEveryColumn() {
+        LayoutSchema schema = LayoutSchema.STANDARD;
+        assertEquals("INSERT INTO layouts (file_number, layout_name, status, owner_name, survey_number, "
+                + "area_in_acres, application_date, approval_date, latitude, longitude, remarks, "
+                + "total_plots, approved_by, document_path, has_court_case, zone_classification, "
+                + "setback_compliance, boundary, geohash, last_modified) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)",
+                schema.getInsertSql());
+        assertTrue(schema.getUpsertSql().endsWith("geohash = VALUES(geohash), last_modified = CURRENT_TIMESTAMP"));
+        assertTrue(schema.getUpdateSql().endsWith("last_modified = CURRENT_TIMESTAMP WHERE file_number = ?"));
+        assertEquals("DELETE FROM layouts WHERE file_number = ?", schema.getDeleteSql());
+    }
+
+    @Test
+    public void legacyStatementsWriteOnlyTheTablesColumns() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(
+                "jdbc:h2:mem:layoutschematest;MODE=MySQL;DATABASE_TO_LOWER=TRUE", "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE layouts (file_no VARCHAR(50) PRIMARY KEY, layout_name VARCHAR(200), "
+                        + "status VARCHAR(30), owner VARCHAR(100), survey_number VARCHAR(50), area DOUBLE, "
+                        + "application_date DATE, latitude DOUBLE, longitude DOUBLE, remarks TEXT, total_plots INT)");
+            }
+            LayoutSchema schema = LayoutSchema.detect(connection);
+            assertEquals(Arrays.asList("file_no", "layout_name", "status", "owner", "survey_number", "area",
+                    "application_date", "latitude", "longitude", "remarks", "total_plots"),
+                    schema.getWriteColumns());
+            assertFalse(schema.getInsertSql().contains("last_modified"));
+
+            // Every statement runs against the table
+            try (PreparedStatement insert = connection.prepareStatement(schema.getInsertSql());
+                 PreparedStatement update = connection.prepareStatement(schema.getUpdateSql());
+                 PreparedStatement delete = connection.prepareStatement(schema.getDeleteSql())) {
+                int columns = schema.getWriteColumns().size();
+                for (int i = 1; i <= columns; i++) {
+                    insert.setObject(i, i == 1 ? "L1" : null);
+                }
+                assertEquals(1, insert.executeUpdate());
+
+                for (int i = 1; i < columns; i++) {
+                    update.setObject(i, null);
+                }
+                update.setString(1, "Renamed");
+                update.setString(columns, "L1");
+                assertEquals(1, update.executeUpdate());
+                try (Statement statement = connection.createStatement();
+                     ResultSet resultSet = statement.executeQuery("SELECT layout_name FROM layouts")) {
+                    assertTrue(resultSet.next());
+                    assertEquals("Renamed", resultSet.getString(1));
+                }
+
+                delete.setString(1, "L1");
+                assertEquals(1, delete.executeUpdate());
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.satya.portal.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.satya.portal.models.Layout;
+
+/**
+ * LayoutTextIndex finds the layouts the LIKE conditions of a database
+ * search find, and lists them best match first.
+ */
+public class LayoutTextIndexTest {
+    private LayoutTextIndex index;
+
+    @Before
+    public void fillIndex() {
+        index = new LayoutTextIndex();
+        index.put(layout("L-101", "Green Meadows", "Sy.No. 45, Nellore", "Ravi Kumar", "near the lake"));
+        index.put(layout("L-102", "Lakeview Residency", "Sy.No. 12, Guntur", "Sita Devi", null));
+        index.put(layout("L-103", "Sunrise Enclave", "Sy.No. 7, Nellore", "Prakash Rao", "blake road"));
+    }
+
+    private static Layout layout(String fileNumber, String name, String surveyNumber, String owner, String remarks) {
+        return new Layout(fileNumber, name, "Approved", owner, surveyNumber, 1.0,
+                LocalDate.of(2024, 1, 1), 17.0, 78.0, remarks, 10);
+    }
+
+    @Test
+    public void shortWordsMatchInsideWords() {
+        // "ak" is inside "lake", "Lakeview", "Prakash" and "blake"
+        assertEquals(Arrays.asList("L-101", "L-102", "L-103"), sorted(index.search("ak", 10)));
+    }
+
+    @Test
+    public void wordsKeepTheirPunctuation() {
+        assertEquals(Arrays.asList("L-101", "L-102", "L-103"), sorted(index.search("sy.no.", 10)));
+        assertEquals(Collections.singletonList("L-101"), index.search("no. 45,", 10));
+        assertEquals(Collections.emptyList(), index.search("45 no.45", 10));
+    }
+
+    @Test
+    public void everyWordMustMatch() {
+        assertEquals(Collections.singletonList("L-103"), index.search("nellore RAO", 10));
+        assertEquals(Collections.emptyList(), index.search("nellore guntur", 10));
+    }
+
+    @Test
+    public void bestMatchesComeFirst() {
+        // A name starting with the word beats a remark containing it
+        assertEquals(Arrays.asList("L-102", "L-101", "L-103"), index.search("lake", 10));
+    }
+
+    @Test
+    public void tooManyMatchesGiveNull() {
+        assertNull(index.search("nellore", 1));
+        assertEquals(2, index.search("nellore", 2).size());
+    }
+
+    @Test
+    public void removedAndChangedLayoutsAreNotFound() {
+        index.remove("L-102");
+        index.put(layout("L-101", "Green Meadows", "Sy.No. 45, Nellore", "Ravi Kumar", null));
+        assertEquals(Collections.singletonList("L-103"), index.search("lake", 10));
+        assertTrue(index.search("meadows", 10).contains("L-101"));
+    }
+
+    private static List<String> sorted(List<String> fileNumbers) {
+        List<String> copy = new ArrayList<>(fileNumbers);
+        Collections.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,32 @@
+package com.satya.portal.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * PerformanceMonitor samples while any user has started it and no longer.
+ */
+public class PerformanceMonitorTest {
+
+    @Test
+    public void samplingStopsWithTheLastUser() {
+        assertFalse(PerformanceMonitor.isRunning());
+        PerformanceMonitor.start();
+        PerformanceMonitor.start();
+        assertTrue(PerformanceMonitor.isRunning());
+
+        PerformanceMonitor.stop();
+        assertTrue(PerformanceMonitor.isRunning());
+        PerformanceMonitor.stop();
+        assertFalse(PerformanceMonitor.isRunning());
+
+        // Unpaired stops do not make a later start stop early
+        PerformanceMonitor.stop();
+        PerformanceMonitor.start();
+        assertTrue(PerformanceMonitor.isRunning());
+        PerformanceMonitor.stop();
+        assertFalse(PerformanceMonitor.isRunning());
+    }
+}